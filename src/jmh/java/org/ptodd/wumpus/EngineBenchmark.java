@@ -0,0 +1,157 @@
+/**
+ * Hunt the Wumpus - engine benchmarks
+ *
+ * JMH benchmarks of the engine's hot paths in isolation: setting up a game,
+ * the sense pass done every turn (also on a 'BitboardState'), guided and
+ * random arrow flight, hazard resolution, the wumpus waking, and a full
+ * game played by a bot.
+ * Run with the GC profiler (the default for the 'benchmark' profile, see
+ * pom.xml) so each result shows the allocation rate next to the throughput.
+ *
+ * The arrow flight benchmarks fly arrows with 'ArrowFlight' directly, which
+ * changes no game state; 'engineArrow' goes through the engine's
+ * 'flyArrow' so the event record is included.  The hazard benchmarks drive
+ * 'checkHazards' with the hunter set up on a pit, on a bat colony (the drop
+ * is random, so a carry may land on another hazard and chain on), and on the
+ * wumpus.  Those, and the wumpus benchmark, restart the game on every call
+ * to keep the event log and the objects from drifting; 'restart' measures
+ * that overhead on its own.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+	// hunter in room 1, wumpus in 8, pits in 2 and 20, bats in 12 and 15
+	// (zero based: hunter 0, wumpus 7, pits 1 and 19, bats 11 and 14)
+
+	private static final int[] PLACEMENT = { 0, 7, 1, 19, 11, 14 };
+
+	// the same cave with the hunter dropped on a pit, a bat colony, and the
+	// wumpus
+
+	private static final int[] ON_PIT    = { 1, 7, 1, 19, 11, 14 };
+	private static final int[] ON_BATS   = { 11, 7, 1, 19, 11, 14 };
+	private static final int[] ON_WUMPUS = { 7, 7, 1, 19, 11, 14 };
+
+	// a guided path that misses everything, and one that leaves the tunnels
+	// after its first room so the rest of the flight is random
+
+	private static final int[] GUIDED_PATH = { 4, 5, 6, 16, 15 };
+	private static final int[] BROKEN_PATH = { 4, 9, 6, 16, 15 };
+
+	private WumpusEngine  engine;
+	private WumpusEngine  pitEngine;
+	private WumpusEngine  batEngine;
+	private WumpusEngine  wumpusEngine;
+	private BitboardState state;
+	private GameRandom    random;
+	private WumpusEngine  gameEngine;
+	private WumpusBot     bot;
+	private int[]         path;
+	private long          seed;
+
+	@Setup
+	public void setUp() {
+		engine = new WumpusEngine(CaveTopology.CLASSIC, 1L);
+		engine.setup(PLACEMENT);
+		state = new BitboardState().load(engine);
+		pitEngine = new WumpusEngine(CaveTopology.CLASSIC, 4L);
+		pitEngine.setup(ON_PIT);
+		batEngine = new WumpusEngine(CaveTopology.CLASSIC, 5L);
+		batEngine.setup(ON_BATS);
+		wumpusEngine = new WumpusEngine(CaveTopology.CLASSIC, 6L);
+		wumpusEngine.setup(ON_WUMPUS);
+		random = new GameRandom(3L);
+		gameEngine = new WumpusEngine(CaveTopology.CLASSIC, 2L);
+		bot = new RandomBot();
+		path = new int[Wumpus.MAX_ARROW_RANGE];
+	} // method setUp
+
+	@Benchmark
+	public int setup() {
+		gameEngine.setup(seed++);
+		return gameEngine.hunterRoom();
+	} // method setup
+
+	@Benchmark
+	public int look() {
+		int hunter = engine.hunterRoom();
+		int tunnels = 0;
+		for (int j = 0; j < Wumpus.MAX_PATHS; j++) {
+			tunnels += engine.topology().tunnel(hunter, j);
+		} // for j
+		return tunnels + engine.senses() + engine.arrows();
+	} // method look
+
+	@Benchmark
+	public int bitboardLook() {
+		return state.senses(CaveTopology.CLASSIC) + state.hazard() + state.arrows();
+	} // method bitboardLook
+
+	@Benchmark
+	public int restart() {
+		engine.restart();
+		return engine.status();
+	} // method restart
+
+	@Benchmark
+	public int guidedArrowFlight() {
+		return ArrowFlight.fly(CaveTopology.CLASSIC, random, PLACEMENT[Wumpus.HUNTER], PLACEMENT[Wumpus.WUMPUS],
+		                       GUIDED_PATH, GUIDED_PATH.length);
+	} // method guidedArrowFlight
+
+	@Benchmark
+	public int randomArrowFlight() {
+		return ArrowFlight.fly(CaveTopology.CLASSIC, random, PLACEMENT[Wumpus.HUNTER], PLACEMENT[Wumpus.WUMPUS],
+		                       BROKEN_PATH, BROKEN_PATH.length);
+	} // method randomArrowFlight
+
+	@Benchmark
+	public int engineArrow() {
+		engine.restart();
+		return engine.flyArrow(GUIDED_PATH, GUIDED_PATH.length);
+	} // method engineArrow
+
+	@Benchmark
+	public int pitHazard() {
+		pitEngine.restart();
+		return pitEngine.checkHazards(Wumpus.CONTINUE);
+	} // method pitHazard
+
+	@Benchmark
+	public int batHazard() {
+		batEngine.restart();
+		return batEngine.checkHazards(Wumpus.CONTINUE);
+	} // method batHazard
+
+	@Benchmark
+	public int wumpusHazard() {
+		wumpusEngine.restart();
+		return wumpusEngine.checkHazards(Wumpus.CONTINUE);
+	} // method wumpusHazard
+
+	@Benchmark
+	public int wumpusAwaken() {
+		engine.restart();
+		return engine.wumpusAwaken();
+	} // method wumpusAwaken
+
+	@Benchmark
+	public int fullGame() {
+		gameEngine.setup(seed++);
+		return Simulator.play(gameEngine, bot, path);
+	} // method fullGame
+
+} // class EngineBenchmark
@@ -0,0 +1,106 @@
+/**
+ * Hunt the Wumpus - arrow flight
+ *
+ * Flies an arrow along the path the hunter asked for.  The arrow follows
+ * the path room by room ('guided flight') for as long as there is a tunnel
+ * into the next room on it; from the first room it cannot get into, it
+ * flies on at random for the rest of its range, never doubling straight
+ * back ('random flight') unless the room it came from is the only way out
+ * of a dead end.  It stops as soon as it enters the hunter's or the wumpus'
+ * room.
+ *
+ * The flight is a single loop over a primitive path array.  Nothing is
+ * allocated and nothing is boxed, and the random rooms are drawn from the
+ * game's own generator in the same order the rules always drew them, so a
+ * seeded game flies its arrows exactly as before.  The outcome and the room
+ * the arrow ended in come back packed into one 'int' (see 'status' and
+ * 'room').
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+public final class ArrowFlight {
+
+	// Result layout: the game state in the low byte, the final room above it
+
+	private static final int ROOM_SHIFT  = 8;
+	private static final int STATUS_MASK = 0xFF;
+
+	private ArrowFlight() {
+		// static methods only
+	} // constructor ArrowFlight
+
+	/**
+	 * Fly an arrow
+	 *
+	 * @param topology the cave the arrow flies through
+	 * @param random the game's random number generator, for random flight
+	 * @param hunter the hunter's room, where the arrow starts
+	 * @param wumpus the wumpus' room
+	 * @param path the rooms the arrow should fly through
+	 * @param length the number of rooms in 'path' to use (the range)
+	 * @return the packed result: 'WUMPUS_DEAD', 'HUNTER_DEAD', or 'CONTINUE'
+	 *         for a miss, and the room the arrow stopped in
+	 */
+
+	public static int fly(CaveTopology topology, GameRandom random, int hunter, int wumpus, int[] path, int length) {
+		int priorRoom = -1;
+		int currentRoom = hunter;
+		boolean guided = true;
+		for (int j = 0; j < length; j++) {
+
+			// follow the path while we can, then pick a random room other
+			// than the one we came from; a dead end sends the arrow back
+
+			int nextRoom;
+			if (guided && topology.isConnected(currentRoom, path[j])) {
+				nextRoom = path[j];
+			} else if ((priorRoom >= 0) && (topology.neighbours(currentRoom) == (1L << priorRoom))) {
+				guided = false;
+				nextRoom = priorRoom;
+			} else {
+				guided = false;
+				do {
+					nextRoom = topology.tunnel(currentRoom, random.nextInt(topology.paths()));
+				} while (nextRoom == priorRoom);
+			} // if guided
+
+			// see if we hit anything
+
+			if (nextRoom == hunter) {
+				return result(Wumpus.HUNTER_DEAD, nextRoom);
+			} else if (nextRoom == wumpus) {
+				return result(Wumpus.WUMPUS_DEAD, nextRoom);
+			} // if hit
+
+			priorRoom = currentRoom;
+			currentRoom = nextRoom;
+
+		} // for j
+		return result(Wumpus.CONTINUE, currentRoom);
+	} // static method fly
+
+	/**
+	 * @param result a result returned by 'fly'
+	 * @return the game state after the flight
+	 */
+
+	public static int status(int result) {
+		return result & STATUS_MASK;
+	} // static method status
+
+	/**
+	 * @param result a result returned by 'fly'
+	 * @return the room the arrow stopped in
+	 */
+
+	public static int room(int result) {
+		return result >>> ROOM_SHIFT;
+	} // static method room
+
+	private static int result(int status, int room) {
+		return (room << ROOM_SHIFT) | status;
+	} // static method result
+
+} // class ArrowFlight
@@ -0,0 +1,431 @@
+/**
+ * Hunt the Wumpus - belief tracker
+ *
+ * Keeps track of what the hunter has learned about the cave.  For each
+ * kind of hazard a room mask holds the rooms that could still hide it, and
+ * every observation narrows the masks down:
+ *
+ *    - the room the hunter stands in, alive, holds no pit, no bats, and no
+ *      wumpus (unless the hunter bumped into the wumpus there: the rules
+ *      then never check for the pit or bats the wumpus may have walked in on)
+ *    - no draft clears every neighbouring room of pits (likewise bats)
+ *    - a smell puts the single wumpus in one of the neighbouring rooms,
+ *      no smell rules all of them out
+ *    - a draft says at least one neighbouring room has a pit; it is kept
+ *      as a constraint, and once only one room of a constraint could hold
+ *      a pit, that room certainly does (likewise bats)
+ *    - a bat snatch proves the room entered has bats
+ *    - a woken wumpus may have walked one tunnel, so its mask grows by
+ *      the neighbours of every room in it
+ *
+ * Each update is a handful of mask operations on the hunter's room and its
+ * neighbour mask plus a pass over the stored constraints (at most one per
+ * room a draft or bats were sensed in), never a replay of the game so far.
+ * The masks serve as a hint overlay for a human player ('Wumpus --hints')
+ * and as the inner loop of the bots.  Caves are limited to the 64 rooms of
+ * a 'CaveTopology'.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+public final class BeliefTracker {
+
+	// Number of pits and bat colonies hidden in the cave
+
+	private static final int PITS = 2;
+	private static final int BATS = 2;
+
+	private final CaveTopology topology;
+	private final long         allRooms;
+
+	// Belief masks
+	//
+	//      'wumpus'      - Rooms the wumpus could be in
+	//      'pits'        - Rooms that could hold a pit
+	//      'bats'        - Rooms that could hold bats
+	//      'knownPits'   - Rooms certain to hold a pit
+	//      'knownBats'   - Rooms certain to hold bats
+	//      'visited'     - Rooms the hunter has stood in
+	//      'draftRooms'  - Rooms where a draft was felt
+	//      'noiseRooms'  - Rooms where bats were heard
+	//      'drafts'      - By room, the neighbours that could hold the pit felt there
+	//      'noises'      - By room, the neighbours that could hold the bats heard there
+
+	private long         wumpus;
+	private long         pits;
+	private long         bats;
+	private long         knownPits;
+	private long         knownBats;
+	private long         visited;
+	private long         draftRooms;
+	private long         noiseRooms;
+	private final long[] drafts;
+	private final long[] noises;
+
+	/**
+	 * BeliefTracker Constructor
+	 *
+	 * @param topology the cave being played in
+	 */
+
+	public BeliefTracker(CaveTopology topology) {
+		this.topology = topology;
+		this.allRooms = (topology.rooms() == Long.SIZE) ? -1L : (1L << topology.rooms()) - 1;
+		this.drafts = new long[topology.rooms()];
+		this.noises = new long[topology.rooms()];
+	} // constructor BeliefTracker
+
+	/**
+	 * Forget everything and start a new game
+	 *
+	 * @param start the room the hunter starts in
+	 * @param warnings the warnings sensed there, see 'BitboardState.warnings'
+	 */
+
+	public void reset(int start, int warnings) {
+		wumpus = allRooms;
+		pits = allRooms;
+		bats = allRooms;
+		knownPits = 0;
+		knownBats = 0;
+		visited = 0;
+		draftRooms = 0;
+		noiseRooms = 0;
+		observe(start, warnings);
+	} // method reset
+
+	/**
+	 * Copy another tracker of the same cave into this one
+	 *
+	 * @param other the tracker to copy
+	 * @return this tracker
+	 */
+
+	public BeliefTracker copyFrom(BeliefTracker other) {
+		wumpus = other.wumpus;
+		pits = other.pits;
+		bats = other.bats;
+		knownPits = other.knownPits;
+		knownBats = other.knownBats;
+		visited = other.visited;
+		draftRooms = other.draftRooms;
+		noiseRooms = other.noiseRooms;
+		for (long rest = draftRooms; rest != 0; rest &= rest - 1) {
+			int room = Long.numberOfTrailingZeros(rest);
+			drafts[room] = other.drafts[room];
+		} // for each draft
+		for (long rest = noiseRooms; rest != 0; rest &= rest - 1) {
+			int room = Long.numberOfTrailingZeros(rest);
+			noises[room] = other.noises[room];
+		} // for each noise
+		return this;
+	} // method copyFrom
+
+	/**
+	 * The hunter stands, alive, in a room and senses its surroundings
+	 *
+	 * @param room the hunter's room
+	 * @param warnings the 'BitboardState' warnings sensed there
+	 */
+
+	public void observe(int room, int warnings) {
+		observe(room, warnings, true);
+	} // method observe
+
+	/**
+	 * @param room the hunter's room
+	 * @param warnings the 'BitboardState' warnings sensed there
+	 * @param checked 'true' if the rules checked the room for pits and bats
+	 */
+
+	private void observe(int room, int warnings, boolean checked) {
+		long here = 1L << room;
+		long around = topology.neighbours(room);
+		visited |= here;
+		wumpus &= ~here;
+		if (checked) {
+			pits &= ~here;
+			bats &= ~here;
+		} // if hazards checked
+		if ((warnings & BitboardState.WUMPUS_NEAR) != 0) {
+			wumpus &= around;
+		} else {
+			wumpus &= ~around;
+		} // if smell
+		if ((warnings & BitboardState.PIT_NEAR) != 0) {
+			draftRooms |= here;
+			drafts[room] = around;
+		} else {
+			pits &= ~around;
+		} // if draft
+		if ((warnings & BitboardState.BATS_NEAR) != 0) {
+			noiseRooms |= here;
+			noises[room] = around;
+		} else {
+			bats &= ~around;
+		} // if bats heard
+		refresh();
+	} // method observe
+
+	/**
+	 * Bats snatched the hunter on entering a room
+	 *
+	 * @param room the room entered
+	 */
+
+	public void snatched(int room) {
+		visited |= 1L << room;
+		knownBats |= 1L << room;
+		pits &= ~(1L << room);
+		wumpus &= ~(1L << room);
+		refresh();
+	} // method snatched
+
+	/**
+	 * The hunter bumped into the wumpus on entering a room
+	 *
+	 * @param room the room entered
+	 */
+
+	public void bumped(int room) {
+		wumpus = 1L << room;
+	} // method bumped
+
+	/**
+	 * An arrow flew through some rooms without hitting the wumpus
+	 *
+	 * @param rooms the mask of the rooms the arrow flew through
+	 */
+
+	public void missed(long rooms) {
+		wumpus &= ~rooms;
+	} // method missed
+
+	/**
+	 * The wumpus woke up and may have moved down one of its tunnels
+	 */
+
+	public void wumpusWoke() {
+		long spread = wumpus;
+		for (long rest = wumpus; rest != 0; rest &= rest - 1) {
+			spread |= topology.neighbours(Long.numberOfTrailingZeros(rest));
+		} // for each possible room
+		wumpus = spread;
+	} // method wumpusWoke
+
+	/**
+	 * Learn from the last action taken on an engine
+	 *
+	 * Reads the events the engine recorded, then observes the hunter's room
+	 * if the game goes on.  Only what a player could know is used: the room
+	 * entered is known for the first bat snatch or wumpus bump of a move, but
+	 * not for those that follow a snatch.  The hunter's room is only cleared
+	 * of pits and bats when the rules just checked it, that is on arriving
+	 * there without bumping the wumpus.  A woken wumpus spreads the belief
+	 * once, whether the engine reports it waking, moving, or both, so the
+	 * caller never has to call 'wumpusWoke' itself.
+	 *
+	 * @param engine the engine the action was taken on
+	 * @param target the room the hunter tried to move to, '-1' for a shot
+	 */
+
+	public void update(WumpusEngine engine, int target) {
+		int room = target;
+		boolean checked = (target >= 0);
+		boolean woke = false;
+		for (int j = 0; j < engine.eventCount(); j++) {
+			switch (engine.event(j)) {
+				case WumpusEngine.EVENT_NO_TUNNEL:
+					checked = false;
+					break;
+				case WumpusEngine.EVENT_BAT_SNATCH:
+					if (room >= 0) {
+						snatched(room);
+					} // if room known
+					room = -1;
+					break;
+				case WumpusEngine.EVENT_WUMPUS_BUMPED:
+					if (room >= 0) {
+						bumped(room);
+					} // if room known
+					checked = false;
+					break;
+				case WumpusEngine.EVENT_WUMPUS_AWAKE:
+					wumpusWoke();
+					woke = true;
+					break;
+				case WumpusEngine.EVENT_WUMPUS_MOVED:
+					if (!woke) {
+						wumpusWoke();
+					} // if not spread on waking
+					woke = false;
+					break;
+			} // switch event
+		} // for j
+		if (engine.status() == Wumpus.CONTINUE) {
+			observe(engine.hunterRoom(), BitboardState.warnings(engine.senses()), checked);
+		} // if alive
+	} // method update
+
+	/**
+	 * Tighten the constraints left by drafts and bat noises
+	 */
+
+	private void refresh() {
+		knownPits |= settle(drafts, draftRooms, pits);
+		if (Long.bitCount(pits) == PITS) {
+			knownPits = pits;
+		} // if every pit found
+		knownBats |= settle(noises, noiseRooms, bats);
+		if (Long.bitCount(bats) == BATS) {
+			knownBats = bats;
+		} // if every colony found
+	} // method refresh
+
+	/**
+	 * Narrow each "at least one of these rooms" constraint to the rooms
+	 * still possible, reporting the ones narrowed to a single room
+	 *
+	 * @param constraints the constraint masks, by room
+	 * @param rooms the rooms holding a constraint
+	 * @param possible the rooms still possible
+	 * @return the rooms now certain
+	 */
+
+	private static long settle(long[] constraints, long rooms, long possible) {
+		long certain = 0;
+		for (long rest = rooms; rest != 0; rest &= rest - 1) {
+			int room = Long.numberOfTrailingZeros(rest);
+			constraints[room] &= possible;
+			if (Long.bitCount(constraints[room]) == 1) {
+				certain |= constraints[room];
+			} // if pinned down
+		} // for each constraint
+		return certain;
+	} // static method settle
+
+	// Accessors
+
+	public long wumpus()    { return wumpus; }
+	public long pits()      { return pits; }
+	public long bats()      { return bats; }
+	public long knownPits() { return knownPits; }
+	public long knownBats() { return knownBats; }
+	public long visited()   { return visited; }
+
+	/**
+	 * Hash of the draft and bat noise constraints still standing
+	 *
+	 * The masks do not capture them, and they change what 'consistent'
+	 * accepts and so the estimates of the pits and bats; two beliefs with
+	 * the same masks are only the same belief if this agrees as well.
+	 *
+	 * @return the hash, the same for the same constraints in the same rooms
+	 */
+
+	public long constraints() {
+		long h = GameRandom.mix(draftRooms ^ Long.rotateLeft(noiseRooms, 32));
+		for (long rest = draftRooms; rest != 0; rest &= rest - 1) {
+			h = GameRandom.mix(h ^ drafts[Long.numberOfTrailingZeros(rest)]);
+		} // for each draft
+		for (long rest = noiseRooms; rest != 0; rest &= rest - 1) {
+			h = GameRandom.mix(h ^ Long.rotateLeft(noises[Long.numberOfTrailingZeros(rest)], 32));
+		} // for each noise
+		return h;
+	} // method constraints
+
+	/**
+	 * @return rooms that certainly hold neither a pit nor bats
+	 */
+
+	public long safe() {
+		return allRooms & ~pits & ~bats;
+	} // method safe
+
+	/**
+	 * Check a guess at the hidden pits and bats against everything sensed
+	 *
+	 * @param pitRooms the rooms guessed to hold the pits
+	 * @param batRooms the rooms guessed to hold the bats
+	 * @return 'true' if the guess explains every draft and bat noise and
+	 *         leaves out no room known to hold a hazard
+	 */
+
+	public boolean consistent(long pitRooms, long batRooms) {
+		if (((pitRooms & ~pits) | (knownPits & ~pitRooms) | (batRooms & ~bats) | (knownBats & ~batRooms)) != 0) {
+			return false;
+		} // if outside the masks
+		for (long rest = draftRooms; rest != 0; rest &= rest - 1) {
+			if ((drafts[Long.numberOfTrailingZeros(rest)] & pitRooms) == 0) {
+				return false;
+			} // if draft unexplained
+		} // for each draft
+		for (long rest = noiseRooms; rest != 0; rest &= rest - 1) {
+			if ((noises[Long.numberOfTrailingZeros(rest)] & batRooms) == 0) {
+				return false;
+			} // if noise unexplained
+		} // for each noise
+		return true;
+	} // method consistent
+
+	/**
+	 * Estimated chance that the wumpus is in a room
+	 *
+	 * Spreads the wumpus evenly over the rooms it could be in.
+	 *
+	 * @param room the room
+	 * @return the estimate
+	 */
+
+	public double wumpusProbability(int room) {
+		return (((wumpus >>> room) & 1L) == 0) ? 0.0 : 1.0 / Long.bitCount(wumpus);
+	} // method wumpusProbability
+
+	/**
+	 * Estimated chance that a room holds a pit
+	 *
+	 * Certain pits count as one; the pits not yet found are spread evenly
+	 * over the other rooms that could hold one.  A room sharing a draft not
+	 * yet explained by a certain pit with 'n' other rooms counts at least
+	 * '1 / (n + 1)', as one of them has the pit felt.
+	 *
+	 * @param room the room
+	 * @return the estimate
+	 */
+
+	public double pitProbability(int room) {
+		return estimate(room, pits, knownPits, PITS, drafts, draftRooms);
+	} // method pitProbability
+
+	/**
+	 * Estimated chance that a room holds bats, see 'pitProbability'
+	 *
+	 * @param room the room
+	 * @return the estimate
+	 */
+
+	public double batProbability(int room) {
+		return estimate(room, bats, knownBats, BATS, noises, noiseRooms);
+	} // method batProbability
+
+	private static double estimate(int room, long possible, long known, int total, long[] constraints, long rooms) {
+		long bit = 1L << room;
+		if ((known & bit) != 0) {
+			return 1.0;
+		} else if ((possible & bit) == 0) {
+			return 0.0;
+		} // if certain either way
+		int unknown = Long.bitCount(possible & ~known);
+		int missing = total - Long.bitCount(known);
+		double estimate = (unknown == 0) ? 0.0 : Math.max(0, missing) / (double) unknown;
+		for (long rest = rooms; rest != 0; rest &= rest - 1) {
+			long constraint = constraints[Long.numberOfTrailingZeros(rest)];
+			if (((constraint & bit) != 0) && ((constraint & known) == 0)) {
+				estimate = Math.max(estimate, 1.0 / Long.bitCount(constraint));
+			} // if unexplained warning from a neighbour
+		} // for each constraint
+		return estimate;
+	} // static method estimate
+
+} // class BeliefTracker
@@ -0,0 +1,286 @@
+/**
+ * Hunt the Wumpus - bitboard game state
+ *
+ * An alternative to the 'locationOf' array representation of a game in
+ * which every room is a bit position in a 'long'.  The pits, the bats, the
+ * wumpus, and the hunter each get a room mask, and the arrows left and the
+ * game state are packed together into one more 'long'.  With the neighbour
+ * masks of the cave's 'CaveTopology', sensing a hazard is a single AND
+ * instead of a scan over every object and tunnel, and checking the hunter's
+ * room is an AND per hazard.  Copying a state is five stores, and
+ * comparing or hashing one never touches an array.
+ *
+ * The masks hold caves of up to 64 rooms.  Caves of up to 'KEY_ROOMS'
+ * rooms, the classic cave among them, can also have the whole state
+ * packed into a single 'long' key (see 'key()') for use in hash tables
+ * and search.
+ *
+ * Note that the two pits (and the two bats) share one mask, so the state
+ * does not remember which pit is which; the rules never needed to.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+public final class BitboardState {
+
+	// Warnings
+	//
+	// What the hunter can sense from the room it is in, one flag per kind
+	// of hazard (compare 'WumpusEngine.senses()', which has a bit per object).
+
+	public static final int WUMPUS_NEAR = 1;
+	public static final int PIT_NEAR    = 2;
+	public static final int BATS_NEAR   = 4;
+
+	// Hazards
+	//
+	// What the hunter runs into in its own room, in the order the rules
+	// check for them (see 'WumpusEngine.checkHazards').
+
+	public static final int HAZARD_NONE   = 0;
+	public static final int HAZARD_WUMPUS = 1;
+	public static final int HAZARD_BATS   = 2;
+	public static final int HAZARD_PIT    = 3;
+
+	// Key layout
+	//
+	// The packed key of a cave of at most 'KEY_ROOMS' rooms:
+	//      bits  0-19  - pits mask
+	//      bits 20-39  - bats mask
+	//      bits 40-44  - wumpus room
+	//      bits 45-49  - hunter room
+	//      bits 50-52  - arrows
+	//      bits 53-55  - game state
+
+	public static final int KEY_ROOMS = 20;
+
+	private static final int  KEY_BATS_SHIFT   = 20;
+	private static final int  KEY_WUMPUS_SHIFT = 40;
+	private static final int  KEY_HUNTER_SHIFT = 45;
+	private static final int  KEY_ARROWS_SHIFT = 50;
+	private static final int  KEY_STATUS_SHIFT = 53;
+	private static final long KEY_ROOMS_MASK   = (1L << KEY_ROOMS) - 1;
+
+	// Packed counters
+	//
+	//      bits 0-7   - arrows
+	//      bits 8-15  - game state
+
+	private static final int  STATUS_SHIFT = 8;
+	private static final long BYTE_MASK    = 0xFF;
+
+	// State
+
+	private long pits;
+	private long bats;
+	private long wumpus;
+	private long hunter;
+	private long counters;
+
+	/**
+	 * Convert the object senses of 'WumpusEngine.senses()' into warnings
+	 *
+	 * @param senses the mask returned by 'WumpusEngine.senses()'
+	 * @return the matching 'WUMPUS_NEAR', 'PIT_NEAR', and 'BATS_NEAR' flags
+	 */
+
+	public static int warnings(int senses) {
+		int warnings = 0;
+		if ((senses & WumpusEngine.SENSE_WUMPUS) != 0) {
+			warnings |= WUMPUS_NEAR;
+		} // if wumpus
+		if ((senses & WumpusEngine.SENSE_PITS) != 0) {
+			warnings |= PIT_NEAR;
+		} // if pits
+		if ((senses & WumpusEngine.SENSE_BATS) != 0) {
+			warnings |= BATS_NEAR;
+		} // if bats
+		return warnings;
+	} // static method warnings
+
+	/**
+	 * Load the state of a game in progress on an engine
+	 *
+	 * @param engine the engine to copy the state from
+	 * @return this state
+	 */
+
+	public BitboardState load(WumpusEngine engine) {
+		pits     = (1L << engine.locationOf(Wumpus.PIT1)) | (1L << engine.locationOf(Wumpus.PIT2));
+		bats     = (1L << engine.locationOf(Wumpus.BATS1)) | (1L << engine.locationOf(Wumpus.BATS2));
+		wumpus   = 1L << engine.locationOf(Wumpus.WUMPUS);
+		hunter   = 1L << engine.hunterRoom();
+		counters = pack(engine.arrows(), engine.status());
+		return this;
+	} // method load
+
+	/**
+	 * Load a state from a placement array
+	 *
+	 * @param locationOf the room of each game object, indexed like 'locationOf'
+	 * @param arrows the arrows left
+	 * @param status the game state
+	 * @return this state
+	 */
+
+	public BitboardState load(int[] locationOf, int arrows, int status) {
+		pits     = (1L << locationOf[Wumpus.PIT1]) | (1L << locationOf[Wumpus.PIT2]);
+		bats     = (1L << locationOf[Wumpus.BATS1]) | (1L << locationOf[Wumpus.BATS2]);
+		wumpus   = 1L << locationOf[Wumpus.WUMPUS];
+		hunter   = 1L << locationOf[Wumpus.HUNTER];
+		counters = pack(arrows, status);
+		return this;
+	} // method load
+
+	/**
+	 * Copy another state into this one
+	 *
+	 * @param other the state to copy
+	 * @return this state
+	 */
+
+	public BitboardState copyFrom(BitboardState other) {
+		pits     = other.pits;
+		bats     = other.bats;
+		wumpus   = other.wumpus;
+		hunter   = other.hunter;
+		counters = other.counters;
+		return this;
+	} // method copyFrom
+
+	/**
+	 * Sense the hazards around the hunter
+	 *
+	 * @param topology the cave the game is played in
+	 * @return the 'WUMPUS_NEAR', 'PIT_NEAR', and 'BATS_NEAR' flags
+	 */
+
+	public int senses(CaveTopology topology) {
+		long around = topology.neighbours(hunterRoom());
+		int warnings = 0;
+		if ((around & wumpus) != 0) {
+			warnings |= WUMPUS_NEAR;
+		} // if wumpus
+		if ((around & pits) != 0) {
+			warnings |= PIT_NEAR;
+		} // if pits
+		if ((around & bats) != 0) {
+			warnings |= BATS_NEAR;
+		} // if bats
+		return warnings;
+	} // method senses
+
+	/**
+	 * The hazard in the hunter's room
+	 *
+	 * @return one of the 'HAZARD_' identifiers, the wumpus winning over the
+	 *         bats and the bats over a pit just as in the rules
+	 */
+
+	public int hazard() {
+		if ((hunter & wumpus) != 0) {
+			return HAZARD_WUMPUS;
+		} else if ((hunter & bats) != 0) {
+			return HAZARD_BATS;
+		} else if ((hunter & pits) != 0) {
+			return HAZARD_PIT;
+		} else {
+			return HAZARD_NONE;
+		} // if-else chain condition checks
+	} // method hazard
+
+	// Accessors
+
+	public long pits()       { return pits; }
+	public long bats()       { return bats; }
+	public long wumpus()     { return wumpus; }
+	public long hunter()     { return hunter; }
+	public int  wumpusRoom() { return Long.numberOfTrailingZeros(wumpus); }
+	public int  hunterRoom() { return Long.numberOfTrailingZeros(hunter); }
+	public int  arrows()     { return (int) (counters & BYTE_MASK); }
+	public int  status()     { return (int) ((counters >>> STATUS_SHIFT) & BYTE_MASK); }
+
+	public void moveHunter(int room)   { hunter = 1L << room; }
+	public void moveWumpus(int room)   { wumpus = 1L << room; }
+	public void setArrows(int arrows)  { counters = pack(arrows, status()); }
+	public void setStatus(int status)  { counters = pack(arrows(), status); }
+
+	/**
+	 * Pack the whole state into a single key
+	 *
+	 * Only defined for caves of at most 'KEY_ROOMS' rooms.
+	 *
+	 * @return the packed key
+	 */
+
+	public long key() {
+		return key(pits, bats, wumpusRoom(), hunterRoom(), arrows(), status());
+	} // method key
+
+	/**
+	 * Pack a state given in parts into a single key
+	 *
+	 * @param pits the pits mask
+	 * @param bats the bats mask
+	 * @param wumpus the wumpus room
+	 * @param hunter the hunter room
+	 * @param arrows the arrows left
+	 * @param status the game state
+	 * @return the packed key, as 'key()' would make it
+	 */
+
+	public static long key(long pits, long bats, int wumpus, int hunter, int arrows, int status) {
+		return pits
+		     | (bats << KEY_BATS_SHIFT)
+		     | ((long) wumpus << KEY_WUMPUS_SHIFT)
+		     | ((long) hunter << KEY_HUNTER_SHIFT)
+		     | ((long) arrows << KEY_ARROWS_SHIFT)
+		     | ((long) status << KEY_STATUS_SHIFT);
+	} // static method key
+
+	/**
+	 * Unpack a state from a key returned by 'key()'
+	 *
+	 * @param key the packed key
+	 * @return this state
+	 */
+
+	public BitboardState loadKey(long key) {
+		pits     = keyPits(key);
+		bats     = keyBats(key);
+		wumpus   = 1L << keyWumpusRoom(key);
+		hunter   = 1L << keyHunterRoom(key);
+		counters = pack(keyArrows(key), keyStatus(key));
+		return this;
+	} // method loadKey
+
+	// Key accessors, for reading a key without unpacking it
+
+	public static long keyPits(long key)       { return key & KEY_ROOMS_MASK; }
+	public static long keyBats(long key)       { return (key >>> KEY_BATS_SHIFT) & KEY_ROOMS_MASK; }
+	public static int  keyWumpusRoom(long key) { return (int) ((key >>> KEY_WUMPUS_SHIFT) & 0x1F); }
+	public static int  keyHunterRoom(long key) { return (int) ((key >>> KEY_HUNTER_SHIFT) & 0x1F); }
+	public static int  keyArrows(long key)     { return (int) ((key >>> KEY_ARROWS_SHIFT) & 0x7); }
+	public static int  keyStatus(long key)     { return (int) ((key >>> KEY_STATUS_SHIFT) & 0x7); }
+
+	public boolean equals(Object other) {
+		if (!(other instanceof BitboardState)) {
+			return false;
+		} // if not a state
+		BitboardState that = (BitboardState) other;
+		return (pits == that.pits) && (bats == that.bats) && (wumpus == that.wumpus)
+		    && (hunter == that.hunter) && (counters == that.counters);
+	} // method equals
+
+	public int hashCode() {
+		long h = GameRandom.mix(pits ^ Long.rotateLeft(bats, 21) ^ Long.rotateLeft(wumpus, 42));
+		h = GameRandom.mix(h ^ hunter ^ Long.rotateLeft(counters, 32));
+		return (int) (h ^ (h >>> 32));
+	} // method hashCode
+
+	private static long pack(int arrows, int status) {
+		return (arrows & BYTE_MASK) | ((status & BYTE_MASK) << STATUS_SHIFT);
+	} // static method pack
+
+} // class BitboardState
@@ -0,0 +1,413 @@
+/**
+ * Hunt the Wumpus - procedural cave graphs
+ *
+ * A cave of any size held in compressed sparse row form: the tunnels of
+ * every room laid end to end in one flat 'targets' array, with room 'x'
+ * owning the slice from 'offsets[x]' up to 'offsets[x + 1]'.  Two arrays
+ * of primitives, whatever the number of rooms, so a cave of ten million
+ * rooms costs a few hundred megabytes and no object per room.
+ *
+ * Caves come from generators:
+ *
+ *    - 'dodecahedron()' - the classic 20 room cave
+ *    - 'randomRegular'  - a random connected cave where every room has the
+ *                         same number of tunnels
+ *    - 'torus'          - a grid whose edges wrap around, 4 tunnels a room
+ *    - 'mobius'         - a ladder whose ends are joined with a half twist,
+ *                         the rungs of a Moebius strip, 3 tunnels a room
+ *
+ * Every generator and the connectivity check ('isConnected') run in time
+ * linear in the number of tunnels, except for a random cave whose rooms
+ * have tunnels to nearly half the others.  Small caves, of up to 64 rooms, can be
+ * compiled into a 'CaveTopology' and played by the engine.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+public final class CaveGraph {
+
+	// Random cave generation
+	//
+	// A random regular cave is built in layers: a random cycle through every
+	// room (which keeps the cave connected) for each pair of tunnels, plus a
+	// random pairing of the rooms for an odd tunnel.  A layer edge doubling
+	// up a tunnel already dug is fixed by swapping one of its rooms with a
+	// random room of the layer, in passes over the layer until none is left.
+	// In a sparse cave few edges ever need fixing, but once rooms have
+	// tunnels to more than about two rooms in five the swaps stop settling.
+	// A layer still doubling up after 'MAX_REPAIR_PASSES' passes is closed
+	// by rotation instead (Palmer): for a doubled up pair 'a b' of the cycle
+	// find a later pair 'c d' with 'a c' and 'b d' both free, and reverse
+	// the rooms from 'b' to 'c'.  Each rotation leaves one pair fewer doubled
+	// up, and while a room has tunnels to fewer than half the rooms such a
+	// 'c d' always exists, so the layer always fits.
+	//
+	// A cave with tunnels to at least half the rooms is dug as the
+	// complement of a sparse one instead: each room gets a tunnel to every
+	// room the sparse cave gives it none to.  A cave that dense is always
+	// connected, as any two rooms without a tunnel between them have a
+	// neighbour in common.
+
+	private static final int MAX_REPAIR_PASSES = 2;
+
+	private final int[] offsets;
+	private final int[] targets;
+
+	/**
+	 * CaveGraph Constructor
+	 *
+	 * @param offsets where the tunnels of each room start in 'targets', one
+	 *                more entry than there are rooms
+	 * @param targets the rooms each tunnel leads to
+	 */
+
+	private CaveGraph(int[] offsets, int[] targets) {
+		this.offsets = offsets;
+		this.targets = targets;
+	} // constructor CaveGraph
+
+	/**
+	 * Cave from a 'cave[room][path]' array
+	 *
+	 * @param cave the cave room connections
+	 * @return the cave graph
+	 */
+
+	public static CaveGraph of(int[][] cave) {
+		int[] offsets = new int[cave.length + 1];
+		for (int room = 0; room < cave.length; room++) {
+			offsets[room + 1] = offsets[room] + cave[room].length;
+		} // for room
+		int[] targets = new int[offsets[cave.length]];
+		for (int room = 0; room < cave.length; room++) {
+			System.arraycopy(cave[room], 0, targets, offsets[room], cave[room].length);
+		} // for room
+		return new CaveGraph(offsets, targets);
+	} // static method of
+
+	/**
+	 * @return the classic dodecahedron cave
+	 */
+
+	public static CaveGraph dodecahedron() {
+		return of(Wumpus.CAVE);
+	} // static method dodecahedron
+
+	/**
+	 * Random connected cave where every room has 'degree' tunnels
+	 *
+	 * Tunnels always lead to another room and never double up.  Any number
+	 * of tunnels up to one to every other room can be asked for; see the
+	 * note on random cave generation for how dense caves are dug.
+	 *
+	 * @param rooms the number of rooms, more than 'degree' (and even if 'degree' is odd)
+	 * @param degree the tunnels per room, at least 2
+	 * @param random the generator to draw the cave from
+	 * @return the cave graph
+	 */
+
+	public static CaveGraph randomRegular(int rooms, int degree, GameRandom random) {
+		if ((degree < 2) || (rooms <= degree) || (((degree & 1) == 1) && ((rooms & 1) == 1))
+		    || ((long) rooms * degree > Integer.MAX_VALUE)) {
+			throw new IllegalArgumentException("No connected cave of " + rooms + " rooms with " + degree + " tunnels each");
+		} // if impossible
+		if (2 * degree >= rooms) {
+			return layered(rooms, rooms - 1 - degree, random).complement(random);
+		} // if dense
+		return layered(rooms, degree, random);
+	} // static method randomRegular
+
+	/**
+	 * Random cave dug in layers
+	 *
+	 * @param rooms the number of rooms, more than twice 'degree'
+	 * @param degree the tunnels per room, at least 2 for a connected cave
+	 * @param random the generator to draw the cave from
+	 * @return the cave graph
+	 */
+
+	private static CaveGraph layered(int rooms, int degree, GameRandom random) {
+		CaveGraph graph = regular(rooms, degree);
+		int[] filled = new int[rooms];
+		int[] order = new int[rooms];
+		for (int room = 0; room < rooms; room++) {
+			order[room] = room;
+		} // for room
+		for (int layer = 0; layer < degree / 2; layer++) {
+			graph.addLayer(order, filled, true, random);
+		} // for each cycle
+		if ((degree & 1) == 1) {
+			graph.addLayer(order, filled, false, random);
+		} // if odd
+		return graph;
+	} // static method layered
+
+	/**
+	 * The cave with a tunnel between every two rooms this cave has none between
+	 *
+	 * Each room's tunnels are listed in a random order.
+	 *
+	 * @param random the generator to draw the order of the tunnels from
+	 * @return the complement cave
+	 */
+
+	private CaveGraph complement(GameRandom random) {
+		int rooms = rooms();
+		CaveGraph graph = regular(rooms, rooms - 1 - degree());
+		boolean[] joined = new boolean[rooms];
+		for (int room = 0; room < rooms; room++) {
+			for (int j = 0; j < tunnels(room); j++) {
+				joined[tunnel(room, j)] = true;
+			} // for j
+			int at = graph.offsets[room];
+			for (int other = 0; other < rooms; other++) {
+				if ((other != room) && !joined[other]) {
+					graph.targets[at++] = other;
+				} // if not joined here
+			} // for other
+			for (int j = graph.offsets[room + 1] - 1; j > graph.offsets[room]; j--) {
+				swap(graph.targets, j, graph.offsets[room] + random.nextInt(j - graph.offsets[room] + 1));
+			} // for j
+			for (int j = 0; j < tunnels(room); j++) {
+				joined[tunnel(room, j)] = false;
+			} // for j
+		} // for room
+		return graph;
+	} // method complement
+
+	/**
+	 * Grid cave whose edges wrap around, tunnels east, west, south, and north
+	 *
+	 * @param width the rooms across, at least 3
+	 * @param height the rooms down, at least 3
+	 * @return the cave graph, room 'x, y' numbered 'y * width + x'
+	 */
+
+	public static CaveGraph torus(int width, int height) {
+		if ((width < 3) || (height < 3) || ((long) width * height > Integer.MAX_VALUE / 4)) {
+			throw new IllegalArgumentException("A torus cave needs from 3 by 3 rooms up to " + (Integer.MAX_VALUE / 4) + " rooms");
+		} // if bad size
+		CaveGraph graph = regular(width * height, 4);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int at = graph.offsets[y * width + x];
+				graph.targets[at]     = y * width + ((x + 1) % width);
+				graph.targets[at + 1] = y * width + ((x + width - 1) % width);
+				graph.targets[at + 2] = ((y + 1) % height) * width + x;
+				graph.targets[at + 3] = ((y + height - 1) % height) * width + x;
+			} // for x
+		} // for y
+		return graph;
+	} // static method torus
+
+	/**
+	 * Ladder cave with its ends joined by a half twist, tunnels forward, back,
+	 * and across the rung
+	 *
+	 * @param rungs the rungs of the ladder, at least 2
+	 * @return the cave graph, rung 'i' joining rooms 'i' and 'rungs + i'
+	 */
+
+	public static CaveGraph mobius(int rungs) {
+		if ((rungs < 2) || (rungs > Integer.MAX_VALUE / 6)) {
+			throw new IllegalArgumentException("A Moebius cave needs from 2 to " + (Integer.MAX_VALUE / 6) + " rungs");
+		} // if bad size
+		int rooms = 2 * rungs;
+		CaveGraph graph = regular(rooms, 3);
+		for (int room = 0; room < rooms; room++) {
+
+			// going past either end of a rail comes back on the other rail
+
+			int at = graph.offsets[room];
+			graph.targets[at]     = (room + 1) % rooms;
+			graph.targets[at + 1] = (room + rooms - 1) % rooms;
+			graph.targets[at + 2] = (room + rungs) % rooms;
+		} // for room
+		return graph;
+	} // static method mobius
+
+	// Accessors
+
+	public int rooms()                    { return offsets.length - 1; }
+	public int tunnels(int room)          { return offsets[room + 1] - offsets[room]; }
+	public int tunnel(int room, int path) { return targets[offsets[room] + path]; }
+
+	/**
+	 * @return the tunnels of every room if all rooms have the same number, otherwise '-1'
+	 */
+
+	public int degree() {
+		int degree = tunnels(0);
+		for (int room = 1; room < rooms(); room++) {
+			if (tunnels(room) != degree) {
+				return -1;
+			} // if irregular
+		} // for room
+		return degree;
+	} // method degree
+
+	/**
+	 * Check that every room can be reached from every other
+	 *
+	 * A breadth first search from the first room over the flat arrays, with
+	 * a bit per room to mark the rooms reached.
+	 *
+	 * @return 'true' if the cave is connected
+	 */
+
+	public boolean isConnected() {
+		int rooms = rooms();
+		long[] reached = new long[(rooms + Long.SIZE - 1) / Long.SIZE];
+		int[] queue = new int[rooms];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = 0;
+		reached[0] = 1L;
+		while (head < tail) {
+			int room = queue[head++];
+			for (int j = offsets[room]; j < offsets[room + 1]; j++) {
+				int next = targets[j];
+				if ((reached[next >>> 6] & (1L << next)) == 0) {
+					reached[next >>> 6] |= 1L << next;
+					queue[tail++] = next;
+				} // if not yet reached
+			} // for j
+		} // while queued
+		return tail == rooms;
+	} // method isConnected
+
+	/**
+	 * Copy the cave back into a 'cave[room][path]' array
+	 *
+	 * @return the cave room connections
+	 */
+
+	public int[][] toArray() {
+		int[][] cave = new int[rooms()][];
+		for (int room = 0; room < cave.length; room++) {
+			cave[room] = new int[tunnels(room)];
+			System.arraycopy(targets, offsets[room], cave[room], 0, cave[room].length);
+		} // for room
+		return cave;
+	} // method toArray
+
+	/**
+	 * Compile the cave for the engine
+	 *
+	 * @return the topology of the cave, which must be regular and have at most 64 rooms
+	 */
+
+	public CaveTopology topology() {
+		return new CaveTopology(toArray());
+	} // method topology
+
+	/**
+	 * Empty cave where every room has the same number of tunnels
+	 */
+
+	private static CaveGraph regular(int rooms, int degree) {
+		int[] offsets = new int[rooms + 1];
+		for (int room = 0; room <= rooms; room++) {
+			offsets[room] = room * degree;
+		} // for room
+		return new CaveGraph(offsets, new int[rooms * degree]);
+	} // static method regular
+
+	/**
+	 * Dig one layer of a random regular cave
+	 *
+	 * @param order scratch array holding every room, shuffled into the layer
+	 * @param filled the tunnels dug so far out of each room
+	 * @param cycle 'true' for a cycle through 'order', 'false' for pairs of it
+	 * @param random the generator to draw the layer from
+	 */
+
+	private void addLayer(int[] order, int[] filled, boolean cycle, GameRandom random) {
+		int rooms = order.length;
+		for (int j = rooms - 1; j > 0; j--) {
+			swap(order, j, random.nextInt(j + 1));
+		} // for j
+		int edges = cycle ? rooms : rooms / 2;
+		int stride = cycle ? 1 : 2;
+		for (int pass = 0; ; pass++) {
+			if (pass == MAX_REPAIR_PASSES) {
+				rotate(order, filled);
+				break;
+			} // if stuck
+			boolean clean = true;
+			for (int e = 0; e < edges; e++) {
+				int from = e * stride;
+				int to = (from + 1) % rooms;
+				if (isDug(order[from], order[to], filled)) {
+					swap(order, to, random.nextInt(rooms));
+					clean = false;
+				} // if tunnel already dug
+			} // for e
+			if (clean) {
+				break;
+			} // if nothing doubled up
+		} // for pass
+		for (int e = 0; e < edges; e++) {
+			int from = order[e * stride];
+			int to = order[(e * stride + 1) % rooms];
+			targets[offsets[from] + filled[from]++] = to;
+			targets[offsets[to] + filled[to]++] = from;
+		} // for e
+	} // method addLayer
+
+	/**
+	 * Reorder the rooms of a layer until no pair of the cycle through them doubles up
+	 *
+	 * With fewer than half the rooms dug to, every reversal leaves one
+	 * doubled pair fewer (Palmer), so there are at most as many sweeps as
+	 * rooms.  Any input breaking that promise fails rather than hangs.
+	 *
+	 * @param order every room, in the order of the layer
+	 * @param filled the tunnels dug so far out of each room, fewer than half the rooms
+	 * @throws IllegalStateException if no reordering is found
+	 */
+
+	private void rotate(int[] order, int[] filled) {
+		int rooms = order.length;
+		int sweeps = 0;
+		for (boolean clean = false; !clean; sweeps++) {
+			if (sweeps > rooms) {
+				throw new IllegalStateException("No layer of " + rooms + " rooms avoids the tunnels already dug");
+			} // if not converging
+			clean = true;
+			for (int i = 0; i < rooms; i++) {
+				int a = order[i];
+				int b = order[(i + 1) % rooms];
+				if (isDug(a, b, filled)) {
+					int k = 2;
+					while (isDug(a, order[(i + k) % rooms], filled) || isDug(b, order[(i + k + 1) % rooms], filled)) {
+						if (++k > rooms - 2) {
+							throw new IllegalStateException("Room " + (a + 1) + " has no free partner in a layer of " + rooms + " rooms");
+						} // if none left to try
+					} // while no free pair
+					for (int lo = i + 1, hi = i + k; lo < hi; lo++, hi--) {
+						swap(order, lo % rooms, hi % rooms);
+					} // for each pair reversed
+					clean = false;
+				} // if doubled up
+			} // for i
+		} // for each sweep
+	} // method rotate
+
+	private boolean isDug(int from, int to, int[] filled) {
+		for (int j = offsets[from]; j < offsets[from] + filled[from]; j++) {
+			if (targets[j] == to) {
+				return true;
+			} // if found
+		} // for j
+		return false;
+	} // method isDug
+
+	private static void swap(int[] values, int a, int b) {
+		int value = values[a];
+		values[a] = values[b];
+		values[b] = value;
+	} // static method swap
+
+} // class CaveGraph
@@ -0,0 +1,272 @@
+/**
+ * Hunt the Wumpus - cave symmetries
+ *
+ * The automorphisms of a cave: the ways of renumbering its rooms that
+ * leave every tunnel joining the same pair of rooms as before.  The rules
+ * only ever ask which rooms are joined, so two game states that one
+ * renumbering turns into the other play out alike, move for mapped move.
+ * The dodecahedron has 120 renumberings, so anything worked out per state
+ * (a search's memo, a tablebase, a table of states already seen) need only
+ * be worked out for one state of each family of up to 120, the canonical
+ * one.
+ *
+ * The group is found for any 'CaveTopology' by a backtracking search.  The
+ * rooms are taken in breadth first order; the first room may go anywhere,
+ * each later room to an unused neighbour of where the room it was reached
+ * from went, and a choice survives only if it joins the same rooms, among
+ * those already placed, as the original.  Every full placement is an
+ * automorphism.  Candidates are tried in room order, so the identity is
+ * always automorphism '0'.
+ *
+ * The canonical form of a 'BitboardState' key is the smallest key any
+ * automorphism maps it to.  The hunter's room sits in the key's high bits,
+ * above everything that a renumbering changes, so only the automorphisms
+ * taking the hunter to the lowest room it can be taken to are tried: six
+ * of the 120 in the classic cave.
+ *
+ * A symmetry never changes after it is built, so one copy may be shared by
+ * every thread ('CLASSIC' for the dodecahedron).
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.util.*;
+
+public final class CaveSymmetry {
+
+	// Most automorphisms a cave may have before the search gives up; far
+	// beyond any cave worth playing, but short of what a wholly symmetric
+	// cave, like a complete graph, would take to list
+
+	public static final int MAX_AUTOMORPHISMS = 1 << 16;
+
+	// The symmetries of the classic dodecahedron cave
+
+	public static final CaveSymmetry CLASSIC = new CaveSymmetry(CaveTopology.CLASSIC);
+
+	// Group tables
+	//
+	//      'images'    - Room 'r' goes to room 'images[g * rooms + r]' under automorphism 'g'
+	//      'inverses'  - The automorphism undoing automorphism 'g'
+	//      'lowest'    - Lowest room each room can be taken to
+	//      'lowering'  - The automorphisms taking each room to its 'lowest'
+
+	private final CaveTopology topology;
+	private final int          rooms;
+	private final int          size;
+	private final byte[]       images;
+	private final int[]        inverses;
+	private final int[]        lowest;
+	private final int[][]      lowering;
+
+	/**
+	 * CaveSymmetry Constructor
+	 *
+	 * @param topology the cave
+	 * @throws IllegalArgumentException if the cave has more than 'MAX_AUTOMORPHISMS' automorphisms
+	 */
+
+	public CaveSymmetry(CaveTopology topology) {
+		this.topology = topology;
+		this.rooms = topology.rooms();
+
+		// list every automorphism
+
+		List<byte[]> found = new ArrayList<>();
+		search(order(), 0, new int[rooms], 0L, found);
+		size = found.size();
+		images = new byte[size * rooms];
+		for (int g = 0; g < size; g++) {
+			System.arraycopy(found.get(g), 0, images, g * rooms, rooms);
+		} // for g
+
+		// pair each with its inverse, found by the rooms it sends back
+
+		Map<String, Integer> index = new HashMap<>();
+		for (int g = 0; g < size; g++) {
+			index.put(Arrays.toString(found.get(g)), g);
+		} // for g
+		inverses = new int[size];
+		byte[] undo = new byte[rooms];
+		for (int g = 0; g < size; g++) {
+			for (int room = 0; room < rooms; room++) {
+				undo[image(g, room)] = (byte) room;
+			} // for room
+			inverses[g] = index.get(Arrays.toString(undo));
+		} // for g
+
+		// the lowest room of each room's orbit and the automorphisms reaching it
+
+		lowest = new int[rooms];
+		lowering = new int[rooms][];
+		for (int room = 0; room < rooms; room++) {
+			lowest[room] = room;
+			for (int g = 0; g < size; g++) {
+				lowest[room] = Math.min(lowest[room], image(g, room));
+			} // for g
+			int count = 0;
+			int[] reaching = new int[size];
+			for (int g = 0; g < size; g++) {
+				if (image(g, room) == lowest[room]) {
+					reaching[count++] = g;
+				} // if reaches the lowest room
+			} // for g
+			lowering[room] = Arrays.copyOf(reaching, count);
+		} // for room
+	} // constructor CaveSymmetry
+
+	/**
+	 * Breadth first order of the rooms, with the room each was reached from
+	 *
+	 * Each room's neighbours are visited in room order.  The first room of
+	 * every part of a cave that is not connected is reached from nowhere
+	 * ('-1').
+	 *
+	 * @return pairs of room and room reached from, two entries per room
+	 */
+
+	private int[] order() {
+		int[] order = new int[2 * rooms];
+		boolean[] seen = new boolean[rooms];
+		int head = 0;
+		int tail = 0;
+		for (int start = 0; start < rooms; start++) {
+			if (seen[start]) {
+				continue;
+			} // if already ordered
+			seen[start] = true;
+			order[2 * tail] = start;
+			order[2 * tail++ + 1] = -1;
+			while (head < tail) {
+				int room = order[2 * head++];
+				for (long next = topology.neighbours(room); next != 0; next &= next - 1) {
+					int neighbour = Long.numberOfTrailingZeros(next);
+					if (!seen[neighbour]) {
+						seen[neighbour] = true;
+						order[2 * tail] = neighbour;
+						order[2 * tail++ + 1] = room;
+					} // if new
+				} // for each neighbour
+			} // while queued
+		} // for start
+		return order;
+	} // method order
+
+	/**
+	 * Place the rooms from position 'at' of the breadth first order onwards
+	 *
+	 * @param order the breadth first order, see 'order'
+	 * @param at the position of the next room to place
+	 * @param image where each room placed so far goes
+	 * @param used mask of the rooms gone to so far
+	 * @param found where to add each complete automorphism
+	 */
+
+	private void search(int[] order, int at, int[] image, long used, List<byte[]> found) {
+		if (at == rooms) {
+			if (found.size() == MAX_AUTOMORPHISMS) {
+				throw new IllegalArgumentException("A cave with more than " + MAX_AUTOMORPHISMS + " symmetries is too symmetric");
+			} // if too many
+			byte[] automorphism = new byte[rooms];
+			for (int room = 0; room < rooms; room++) {
+				automorphism[room] = (byte) image[room];
+			} // for room
+			found.add(automorphism);
+			return;
+		} // if all placed
+		int room = order[2 * at];
+		int from = order[2 * at + 1];
+		long candidates = ((from < 0) ? -1L >>> (Long.SIZE - rooms) : topology.neighbours(image[from])) & ~used;
+		for (; candidates != 0; candidates &= candidates - 1) {
+			int target = Long.numberOfTrailingZeros(candidates);
+			boolean fits = true;
+			for (int j = 0; fits && (j < at); j++) {
+				int placed = order[2 * j];
+				fits = topology.isConnected(room, placed) == topology.isConnected(target, image[placed]);
+			} // for j
+			if (fits) {
+				image[room] = target;
+				search(order, at + 1, image, used | (1L << target), found);
+			} // if consistent
+		} // for each candidate
+	} // method search
+
+	// Accessors
+
+	public CaveTopology topology()              { return topology; }
+	public int          size()                  { return size; }
+	public int          image(int g, int room)  { return images[g * rooms + room]; }
+	public int          inverse(int g)          { return inverses[g]; }
+
+	/**
+	 * Map a mask of rooms through an automorphism
+	 *
+	 * @param g the automorphism
+	 * @param mask the rooms
+	 * @return the rooms they go to
+	 */
+
+	public long imageMask(int g, long mask) {
+		long mapped = 0L;
+		for (; mask != 0; mask &= mask - 1) {
+			mapped |= 1L << images[g * rooms + Long.numberOfTrailingZeros(mask)];
+		} // for each room
+		return mapped;
+	} // method imageMask
+
+	/**
+	 * Map a packed state through an automorphism
+	 *
+	 * @param g the automorphism
+	 * @param key a 'BitboardState' key
+	 * @return the key of the state it goes to
+	 */
+
+	public long imageKey(int g, long key) {
+		return BitboardState.key(imageMask(g, BitboardState.keyPits(key)), imageMask(g, BitboardState.keyBats(key)),
+		                         image(g, BitboardState.keyWumpusRoom(key)), image(g, BitboardState.keyHunterRoom(key)),
+		                         BitboardState.keyArrows(key), BitboardState.keyStatus(key));
+	} // method imageKey
+
+	/**
+	 * Canonical form of a packed state
+	 *
+	 * Two states have the same canonical form exactly when an automorphism
+	 * maps one to the other.  Only defined for caves of at most
+	 * 'BitboardState.KEY_ROOMS' rooms.
+	 *
+	 * @param key a 'BitboardState' key
+	 * @return the smallest key any automorphism maps it to
+	 */
+
+	public long canonical(long key) {
+		long pits = BitboardState.keyPits(key);
+		long bats = BitboardState.keyBats(key);
+		int wumpus = BitboardState.keyWumpusRoom(key);
+		int hunter = BitboardState.keyHunterRoom(key);
+		int arrows = BitboardState.keyArrows(key);
+		int status = BitboardState.keyStatus(key);
+		long best = Long.MAX_VALUE;
+		for (int g : lowering[hunter]) {
+			long mapped = BitboardState.key(imageMask(g, pits), imageMask(g, bats), image(g, wumpus), lowest[hunter], arrows, status);
+			best = Math.min(best, mapped);
+		} // for each automorphism lowering the hunter
+		return best;
+	} // method canonical
+
+	/**
+	 * Hash of the canonical form of a packed state
+	 *
+	 * The same for every state an automorphism maps to another, and well
+	 * mixed in every bit, for hash tables keyed on canonical states.
+	 *
+	 * @param key a 'BitboardState' key
+	 * @return the hash
+	 */
+
+	public long hash(long key) {
+		return GameRandom.mix(canonical(key));
+	} // method hash
+
+} // class CaveSymmetry
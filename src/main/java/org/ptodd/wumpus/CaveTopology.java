@@ -0,0 +1,130 @@
+/**
+ * Hunt the Wumpus - compiled cave topology
+ *
+ * Everything worth knowing about the shape of a cave, worked out once from
+ * its 'cave[room][path]' array: a neighbour mask per room, the length of
+ * the shortest route between every pair of rooms, and the first room to
+ * head for on that route.  Connectivity, distance, and next-hop questions
+ * are then a single array read with no allocation.
+ *
+ * A topology never changes after it is built, so one copy is shared by
+ * every engine, bot, and thread playing in the same cave ('CLASSIC' for
+ * the dodecahedron).  The neighbour masks limit a topology to 64 rooms.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.util.*;
+
+public final class CaveTopology {
+
+	// Distance to a room that cannot be reached at all
+
+	public static final int UNREACHABLE = Byte.MAX_VALUE;
+
+	// The classic dodecahedron cave
+
+	public static final CaveTopology CLASSIC = new CaveTopology(Wumpus.CAVE);
+
+	// Topology tables
+	//
+	//      'tunnels'    - Copy of the 'cave' array, room 'x' tunnels at 'x * paths'
+	//      'neighbours' - Mask of the rooms each room's tunnels lead to
+	//      'distance'   - Shortest route length from room 'a' to 'b' at 'a * rooms + b'
+	//      'nextHop'    - First room on a shortest route from 'a' to 'b' at 'a * rooms + b'
+
+	private final int    rooms;
+	private final int    paths;
+	private final int[]  tunnels;
+	private final long[] neighbours;
+	private final byte[] distance;
+	private final byte[] nextHop;
+
+	/**
+	 * CaveTopology Constructor
+	 *
+	 * Runs a breadth first search out of every room to fill the distance and
+	 * next-hop tables.  Ties between equally short routes go to the tunnel
+	 * listed first in 'cave'.
+	 *
+	 * @param cave the cave room connections, 'cave[room][path]', at most 64 rooms
+	 *             each with the same number of tunnels
+	 */
+
+	public CaveTopology(int[][] cave) {
+		if (cave.length > Long.SIZE) {
+			throw new IllegalArgumentException("A cave topology holds at most " + Long.SIZE + " rooms");
+		} // if too big
+		rooms = cave.length;
+		paths = cave[0].length;
+		tunnels = new int[rooms * paths];
+		neighbours = new long[rooms];
+		for (int room = 0; room < rooms; room++) {
+			if (cave[room].length != paths) {
+				throw new IllegalArgumentException("Room " + (room + 1) + " does not have " + paths + " tunnels");
+			} // if irregular
+			for (int j = 0; j < paths; j++) {
+				tunnels[room * paths + j] = cave[room][j];
+				neighbours[room] |= 1L << cave[room][j];
+			} // for j
+		} // for room
+		distance = new byte[rooms * rooms];
+		nextHop = new byte[rooms * rooms];
+		int[] queue = new int[rooms];
+		for (int from = 0; from < rooms; from++) {
+			searchFrom(from, queue);
+		} // for from
+	} // constructor CaveTopology
+
+	/**
+	 * Fill the distance and next-hop rows of one room
+	 *
+	 * @param from the room to search from
+	 * @param queue scratch breadth first search queue
+	 */
+
+	private void searchFrom(int from, int[] queue) {
+		int row = from * rooms;
+		Arrays.fill(distance, row, row + rooms, (byte) UNREACHABLE);
+		Arrays.fill(nextHop, row, row + rooms, (byte) -1);
+		distance[row + from] = 0;
+		nextHop[row + from] = (byte) from;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = from;
+		while (head < tail) {
+			int room = queue[head++];
+			for (int j = 0; j < paths; j++) {
+				int next = tunnels[room * paths + j];
+				if (distance[row + next] == UNREACHABLE) {
+					distance[row + next] = (byte) (distance[row + room] + 1);
+					nextHop[row + next] = (room == from) ? (byte) next : nextHop[row + room];
+					queue[tail++] = next;
+				} // if not yet reached
+			} // for j
+		} // while queued
+	} // method searchFrom
+
+	// Accessors
+
+	public int  rooms()                     { return rooms; }
+	public int  paths()                     { return paths; }
+	public int  tunnel(int room, int path)  { return tunnels[room * paths + path]; }
+	public long neighbours(int room)        { return neighbours[room]; }
+	public int  distance(int from, int to)  { return distance[from * rooms + to]; }
+	public int  nextHop(int from, int to)   { return nextHop[from * rooms + to]; }
+
+	/**
+	 * Check to see if one cave room is connected to another
+	 *
+	 * @param from the room to leave from
+	 * @param to the room to see if we can arrive in
+	 * @return 'true' if a tunnel leads from room 'from' to room 'to'
+	 */
+
+	public boolean isConnected(int from, int to) {
+		return (to >= 0) && (to < rooms) && (((neighbours[from] >>> to) & 1L) != 0);
+	} // method isConnected
+
+} // class CaveTopology
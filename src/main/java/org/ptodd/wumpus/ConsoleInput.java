@@ -0,0 +1,194 @@
+/**
+ * Hunt the Wumpus - console input
+ *
+ * Reads the player's answers a line at a time straight from the bytes of
+ * a stream, through one reusable buffer of 'BUFFER_BYTES'.  A line is
+ * never turned into a 'String': 'next' finds where it starts and ends in
+ * the buffer, and the console asks for just what it needs of it - its
+ * first character, upper cased, or the number it holds - so a scripted
+ * session of millions of answers is read without allocating anything.
+ *
+ * Lines end at '\n', '\r', or "\r\n", the ends 'Scanner.nextLine' knows
+ * for a text file, and a last line without an end still counts.  A number
+ * is read exactly as 'Integer.parseInt' would: an optional sign, then
+ * decimal digits and nothing else, within the range of an 'int'.  Only
+ * the first character is looked at for a command, so any character set
+ * that agrees with ASCII on letters reads the same.
+ *
+ * A line longer than the buffer is cut at 'BUFFER_BYTES' and the rest of
+ * it dropped; nothing a player could answer is anywhere near that long.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+
+public final class ConsoleInput {
+
+	// Size of the buffer lines are read into
+
+	public static final int BUFFER_BYTES = 64 * 1024;
+
+	private final InputStream stream;
+	private final byte[]      buffer = new byte[BUFFER_BYTES];
+	private int               limit;
+	private int               position;
+	private boolean           afterReturn;
+	private boolean           skipping;
+	private boolean           ended;
+
+	// The current line, 'buffer[start]' up to 'buffer[end]'
+
+	private int               start;
+	private int               end;
+
+	/**
+	 * ConsoleInput Constructor
+	 *
+	 * @param stream the stream to read answers from
+	 */
+
+	public ConsoleInput(InputStream stream) {
+		this.stream = stream;
+	} // constructor ConsoleInput
+
+	/**
+	 * Move on to the next line
+	 *
+	 * @return 'false' if the stream has ended and there is no next line
+	 * @throws UncheckedIOException if the stream cannot be read
+	 */
+
+	public boolean next() {
+		start = position;
+		do {
+			while (position < limit) {
+				byte b = buffer[position++];
+				if (afterReturn) {
+					afterReturn = false;
+					if (b == '\n') {
+						start = position;
+						continue;
+					} // if "\r\n"
+				} // if just after a '\r'
+				if ((b == '\n') || (b == '\r')) {
+					afterReturn = (b == '\r');
+					if (!skipping) {
+						end = position - 1;
+						return true;
+					} // if a line
+					skipping = false;
+					start = position;
+				} // if end of line
+			} // while bytes buffered
+			if (skipping) {
+				start = position = limit = 0;
+			} else if ((start == 0) && (limit == buffer.length)) {
+				end = limit;
+				skipping = true;
+				return true;
+			} // if-else chain condition checks
+		} while (fill());
+		end = limit;
+		return !skipping && (end > start);
+	} // method next
+
+	// The current line
+
+	public boolean isEmpty() { return end == start; }
+
+	/**
+	 * @return the first character of the line, upper cased, or '0' if the line is empty
+	 */
+
+	public char upperCaseChar() {
+		if (end == start) {
+			return 0;
+		} // if empty
+		char c = (char) (buffer[start] & 0xFF);
+		return ((c >= 'a') && (c <= 'z')) ? (char) (c - ('a' - 'A')) : c;
+	} // method upperCaseChar
+
+	/**
+	 * @return 'true' if the line is a number, see 'number'
+	 */
+
+	public boolean isNumber() {
+		int j = start;
+		if ((j < end) && ((buffer[j] == '-') || (buffer[j] == '+'))) {
+			j++;
+		} // if sign
+		if (j == end) {
+			return false;
+		} // if no digits
+		long value = 0;
+		for ( ; j < end; j++) {
+			int digit = buffer[j] - '0';
+			if ((digit < 0) || (digit > 9)) {
+				return false;
+			} // if not a digit
+			value = value * 10 + digit;
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				return false;
+			} // if too big
+		} // for each digit
+		return (buffer[start] == '-') || (value <= Integer.MAX_VALUE);
+	} // method isNumber
+
+	/**
+	 * The number on the line
+	 *
+	 * Only meaningful when 'isNumber' is 'true'.
+	 *
+	 * @return the number
+	 */
+
+	public int number() {
+		boolean negative = buffer[start] == '-';
+		int j = ((buffer[start] == '-') || (buffer[start] == '+')) ? start + 1 : start;
+		int value = 0;
+		for ( ; j < end; j++) {
+			value = value * 10 - (buffer[j] - '0');
+		} // for each digit
+		return negative ? value : -value;
+	} // method number
+
+	/**
+	 * @return the line, as a string
+	 */
+
+	public String line() {
+		return new String(buffer, start, end - start);
+	} // method line
+
+	/**
+	 * Read more of the stream into the buffer, keeping the line so far
+	 *
+	 * @return 'false' if the stream has ended
+	 */
+
+	private boolean fill() {
+		if (ended) {
+			return false;
+		} // if already ended
+		if (start > 0) {
+			System.arraycopy(buffer, start, buffer, 0, limit - start);
+			limit -= start;
+			position -= start;
+			start = 0;
+		} // if room to make
+		try {
+			int count = stream.read(buffer, limit, buffer.length - limit);
+			if (count < 0) {
+				ended = true;
+				return false;
+			} // if end of stream
+			limit += count;
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} // try-catch
+	} // method fill
+
+} // class ConsoleInput
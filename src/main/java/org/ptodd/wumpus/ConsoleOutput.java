@@ -0,0 +1,66 @@
+/**
+ * Hunt the Wumpus - console output
+ *
+ * Writers for the console.  The game writes a turn's worth of text a
+ * line or a room number at a time; written straight through, each of
+ * those is a system call of its own.  'buffered' instead gathers a turn's
+ * text in one reusable buffer of 'BUFFER_CHARS' and leaves it there
+ * until the buffer fills or the writer is flushed, which the console
+ * does once just before it waits for the player to answer (see
+ * 'Wumpus.readLine').  'discard' is a writer that drops everything, for
+ * headless runs whose transcript nobody reads.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+
+public final class ConsoleOutput {
+
+	// Size of the buffer a turn's text is gathered in
+
+	public static final int BUFFER_CHARS = 8192;
+
+	/**
+	 * Writer that drops everything written to it
+	 */
+
+	private static final class Sink extends Writer {
+
+		public void write(int c)                         { }
+		public void write(char[] cbuf, int off, int len) { }
+		public void write(String str, int off, int len)  { }
+		public void flush()                              { }
+		public void close()                              { }
+
+	} // class Sink
+
+	private ConsoleOutput() {
+	} // constructor ConsoleOutput
+
+	/**
+	 * Writer that holds what is written until it is flushed or full
+	 *
+	 * @param stream the stream the text goes to in the end
+	 * @return the writer
+	 */
+
+	public static PrintWriter buffered(OutputStream stream) {
+		return new PrintWriter(new BufferedWriter(new OutputStreamWriter(stream), BUFFER_CHARS), false);
+	} // static method buffered
+
+	/**
+	 * Writer that drops everything written to it
+	 *
+	 * Formatting is still done, since 'PrintWriter' formats before it
+	 * writes, but nothing is copied and nothing reaches the operating system.
+	 *
+	 * @return the writer
+	 */
+
+	public static PrintWriter discard() {
+		return new PrintWriter(new Sink(), false);
+	} // static method discard
+
+} // class ConsoleOutput
@@ -0,0 +1,516 @@
+/**
+ * Hunt the Wumpus - expectimax bot
+ *
+ * A solver bot meant as the baseline opponent for tournaments.  It never
+ * peeks at the hidden placement: it plays on its belief, the rooms that
+ * could still hide each hazard as kept by a 'BeliefTracker', and searches
+ * the game as the hunter sees it.  At a decision node the hunter picks the
+ * candidate action worth the most; at a chance node the value is averaged
+ * over what can happen next:
+ *
+ *    - on entering a room, bumping the wumpus, being snatched by bats,
+ *      falling into a pit, or standing there safely, each with the chance
+ *      the belief gives it
+ *    - on waking, the wumpus staying put or walking each of its tunnels
+ *    - on standing in a room, each combination of warnings that can be
+ *      sensed there, every branch updating a copy of the belief
+ *
+ * The chances are estimates: the wumpus is taken as equally likely to be
+ * in any room it could be in, and the pits and bats likewise (see
+ * 'BeliefTracker.pitProbability').  A won game is worth 1 and a lost game
+ * 0.  Where the search stops, a game still going is guessed at as the
+ * chance of hitting the wumpus with the arrows left, were each shot as
+ * good as the best shot now open to the hunter, discounted for the dangers
+ * of playing on.  Bats end a branch the same way, averaged over the rooms
+ * the hunter could be dropped in.
+ *
+ * The candidate actions are the moves down each tunnel and the shots of one
+ * and two rooms along the tunnels, so an arrow never flies at random.  The
+ * search deepens one decision at a time until 'maxDepth' or until the time
+ * budget for the decision runs out, keeping the choice of the deepest
+ * search that finished (the first always finishes).  Node values go into a
+ * fixed size transposition table: a slot keeps the deeper search, unless
+ * its entry is left over from an earlier decision, in which case it is
+ * always replaced.  The bot quits once it is out of arrows, as the game can
+ * no longer be won.  When the budget is not the limit the bot is fully
+ * deterministic, so a game it plays can be replayed exactly.
+ *
+ * Bots playing side by side may also share a 'StateCache' of node values,
+ * searched to exactly the depth asked for, behind their own tables, so a
+ * node one bot has searched is not searched again by the others.  A shared
+ * value was searched with whatever the first bot's own table held at the
+ * time, so with a shared cache the bot is no longer deterministic.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.util.*;
+
+public class ExpectimaxBot implements WumpusBot {
+
+	// Search defaults
+	//
+	//      'DEFAULT_DEPTH'      - Deepest search, in hunter decisions
+	//      'DEFAULT_BUDGET'     - Time allowed per decision, nanoseconds
+	//      'UNLIMITED'          - Budget of a search limited only by its depth
+	//      'DEFAULT_TABLE_BITS' - Transposition table of '2^bits' entries
+
+	public static final int  DEFAULT_DEPTH      = 3;
+	public static final long DEFAULT_BUDGET     = 20000000L;
+	public static final long UNLIMITED          = Long.MAX_VALUE;
+	public static final int  DEFAULT_TABLE_BITS = 16;
+
+	// Evaluation
+	//
+	//      'DISCOUNT'           - Share of the horizon guess credited for playing on
+	//      'TURN'               - Share of the value credited for each turn it is put off,
+	//                             so that winning sooner beats winning later
+	//      'CHECK_NODES'        - Decision nodes searched between looks at the clock
+	//      'SHARED_DEPTH_SHIFT' - Where the depth is folded into a node's shared cache key
+
+	private static final double DISCOUNT           = 0.8;
+	private static final double TURN               = 0.95;
+	private static final int    CHECK_NODES        = 1 << 8;
+	private static final int    SHARED_DEPTH_SHIFT = 56;
+
+	private final int        maxDepth;
+	private final long       budget;
+	private final StateCache shared;
+
+	// Transposition table
+	//
+	//      'tableKeys'   - Hash of the node in each entry
+	//      'tableValues' - Value of the node
+	//      'tableDepths' - Depth the value was searched to, '0' for an empty slot
+	//      'tableAges'   - Decision the entry was stored in, an 'int' so an old
+	//                      entry never wraps round to look fresh again
+
+	private final long[]   tableKeys;
+	private final double[] tableValues;
+	private final byte[]   tableDepths;
+	private final int[]    tableAges;
+	private final int      tableMask;
+	private int            age;
+
+	// Per-cave state
+	//
+	//      'tracker'   - The belief of the game being played
+	//      'scratch'   - Two beliefs per search level, the outcome being
+	//                    worked out and the branch of it being searched
+	//      'targets'   - By room, the room moved to or the path of each
+	//                    candidate; the first 'paths' candidates are moves
+	//      'pathMasks' - By room, the rooms on the path of each candidate
+
+	private CaveTopology      topology;
+	private BeliefTracker     tracker;
+	private BeliefTracker[][] scratch;
+	private int[][][]         targets;
+	private long[][]          pathMasks;
+
+	// Per-game state
+	//
+	//      'chosen'      - Candidate chosen by the last search
+	//      'pending'     - The room last moved to, '-1' for a shot, to update the belief with
+	//      'pendingPath' - The rooms on the path of the last shot
+	//      'acted'       - 'true' until the belief has learned from the last action
+
+	private int     chosen;
+	private int     pending;
+	private long    pendingPath;
+	private boolean acted;
+
+	// Search state
+
+	private long    deadline;
+	private boolean timed;
+	private boolean aborted;
+	private long    nodes;
+
+	/**
+	 * ExpectimaxBot Constructor, with the default search settings
+	 */
+
+	public ExpectimaxBot() {
+		this(DEFAULT_DEPTH, DEFAULT_BUDGET, DEFAULT_TABLE_BITS);
+	} // constructor ExpectimaxBot
+
+	/**
+	 * ExpectimaxBot Constructor
+	 *
+	 * @param maxDepth the deepest search, in hunter decisions, at least 1
+	 * @param budget the time allowed per decision in nanoseconds, or 'UNLIMITED'
+	 * @param tableBits the transposition table holds '2^tableBits' entries
+	 */
+
+	public ExpectimaxBot(int maxDepth, long budget, int tableBits) {
+		this(maxDepth, budget, tableBits, null);
+	} // constructor ExpectimaxBot
+
+	/**
+	 * ExpectimaxBot Constructor, sharing node values with other bots
+	 *
+	 * @param maxDepth the deepest search, in hunter decisions, at least 1
+	 * @param budget the time allowed per decision in nanoseconds, or 'UNLIMITED'
+	 * @param tableBits the transposition table holds '2^tableBits' entries
+	 * @param shared the cache of node values shared with other bots, or 'null'
+	 */
+
+	public ExpectimaxBot(int maxDepth, long budget, int tableBits, StateCache shared) {
+		if ((maxDepth < 1) || (maxDepth > Byte.MAX_VALUE)) {
+			throw new IllegalArgumentException("Search depth must be from 1 to " + Byte.MAX_VALUE);
+		} // if bad depth
+		this.maxDepth = maxDepth;
+		this.budget = budget;
+		this.shared = shared;
+		tableKeys = new long[1 << tableBits];
+		tableValues = new double[1 << tableBits];
+		tableDepths = new byte[1 << tableBits];
+		tableAges = new int[1 << tableBits];
+		tableMask = (1 << tableBits) - 1;
+	} // constructor ExpectimaxBot
+
+	public void newGame(WumpusEngine engine) {
+		if (engine.topology() != topology) {
+			useTopology(engine.topology());
+		} // if new cave
+		tracker.reset(engine.hunterRoom(), BitboardState.warnings(engine.senses()));
+		acted = false;
+	} // method newGame
+
+	public int chooseAction(WumpusEngine engine) {
+		if (acted) {
+			if ((pending < 0) && (engine.eventCount() > 0) && (engine.event(0) == WumpusEngine.EVENT_ARROW_MISSED)) {
+				tracker.missed(pendingPath);
+			} // if the arrow flew its whole path
+			tracker.update(engine, pending);
+			acted = false;
+		} // if last action not yet learned from
+		if (engine.arrows() == 0) {
+			return Wumpus.ACTION_QUIT;
+		} // if no way to win
+		chosen = search(engine.hunterRoom(), BitboardState.warnings(engine.senses()), engine.arrows());
+		return (chosen < topology.paths()) ? Wumpus.ACTION_MOVE : Wumpus.ACTION_SHOOT;
+	} // method chooseAction
+
+	public int chooseRoom(WumpusEngine engine) {
+		pending = targets[engine.hunterRoom()][chosen][0];
+		acted = true;
+		return pending;
+	} // method chooseRoom
+
+	public int choosePath(WumpusEngine engine, int[] path) {
+		int[] target = targets[engine.hunterRoom()][chosen];
+		System.arraycopy(target, 0, path, 0, target.length);
+		pending = -1;
+		pendingPath = pathMasks[engine.hunterRoom()][chosen];
+		acted = true;
+		return target.length;
+	} // method choosePath
+
+	/**
+	 * Set up the beliefs and candidate actions for a cave
+	 *
+	 * @param topology the cave to play in
+	 */
+
+	private void useTopology(CaveTopology topology) {
+		this.topology = topology;
+		tracker = new BeliefTracker(topology);
+		scratch = new BeliefTracker[maxDepth + 1][2];
+		for (int level = 0; level <= maxDepth; level++) {
+			scratch[level][0] = new BeliefTracker(topology);
+			scratch[level][1] = new BeliefTracker(topology);
+		} // for level
+		int rooms = topology.rooms();
+		int paths = topology.paths();
+		targets = new int[rooms][][];
+		pathMasks = new long[rooms][];
+		for (int room = 0; room < rooms; room++) {
+			List<int[]> candidates = new ArrayList<int[]>();
+			for (int j = 0; j < paths; j++) {
+				candidates.add(new int[] { topology.tunnel(room, j) });
+			} // for each move
+			for (int j = 0; j < paths; j++) {
+				candidates.add(new int[] { topology.tunnel(room, j) });
+			} // for each one room shot
+			for (int j = 0; j < paths; j++) {
+				int first = topology.tunnel(room, j);
+				for (int k = 0; k < paths; k++) {
+					int second = topology.tunnel(first, k);
+					if ((second != room) && (second != first)) {
+						candidates.add(new int[] { first, second });
+					} // if not doubling back
+				} // for k
+			} // for each two room shot
+			targets[room] = candidates.toArray(new int[candidates.size()][]);
+			pathMasks[room] = new long[targets[room].length];
+			for (int j = 0; j < targets[room].length; j++) {
+				for (int target : targets[room][j]) {
+					pathMasks[room][j] |= 1L << target;
+				} // for each room on the path
+			} // for j
+		} // for room
+	} // method useTopology
+
+	/**
+	 * Pick the best candidate action
+	 *
+	 * @param hunter the hunter's room
+	 * @param warnings the warnings sensed there
+	 * @param arrows the arrows left
+	 * @return the index of the candidate in 'targets[hunter]'
+	 */
+
+	private int search(int hunter, int warnings, int arrows) {
+		int count = targets[hunter].length;
+		double[] values = new double[count];
+		age++;
+		deadline = System.nanoTime() + budget;
+		aborted = false;
+		int best = 0;
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			timed = (depth > 1) && (budget != UNLIMITED);
+			for (int j = 0; (j < count) && !aborted; j++) {
+				values[j] = act(tracker, hunter, warnings, arrows, j, depth, 0);
+			} // for each candidate
+			if (aborted) {
+				break;
+			} // if out of time
+			best = 0;
+			for (int j = 1; j < count; j++) {
+				if (values[j] > values[best]) {
+					best = j;
+				} // if better
+			} // for j
+		} // for depth
+		return best;
+	} // method search
+
+	/**
+	 * Value of a decision node, the hunter choosing the best candidate
+	 *
+	 * @param belief the belief at the node
+	 * @param hunter the hunter's room
+	 * @param warnings the warnings sensed there
+	 * @param arrows the arrows left
+	 * @param depth the hunter decisions left
+	 * @param level the search level of the node, for scratch beliefs
+	 * @return the expected value of playing on from the node
+	 */
+
+	private double decide(BeliefTracker belief, int hunter, int warnings, int arrows, int depth, int level) {
+		if (arrows == 0) {
+			return 0.0;
+		} else if (depth == 0) {
+			return horizon(belief, hunter, arrows);
+		} // if no choice left
+		if (timed && ((++nodes & (CHECK_NODES - 1)) == 0) && (System.nanoTime() > deadline)) {
+			aborted = true;
+		} // if time to look at the clock
+		if (aborted) {
+			return 0.0;
+		} // if out of time
+		long key = key(belief, hunter, warnings, arrows);
+		int slot = (int) key & tableMask;
+		if ((tableKeys[slot] == key) && (tableDepths[slot] >= depth)) {
+			return tableValues[slot];
+		} // if already searched deep enough
+		long sharedKey = key ^ ((long) depth << SHARED_DEPTH_SHIFT);
+		if (shared != null) {
+			double value = shared.getDouble(sharedKey, -1.0);
+			if (value >= 0.0) {
+				return value;
+			} // if another bot searched it
+		} // if sharing
+		double best = 0.0;
+		for (int j = 0; j < targets[hunter].length; j++) {
+			best = Math.max(best, act(belief, hunter, warnings, arrows, j, depth, level));
+		} // for j
+		if (!aborted && (shared != null)) {
+			shared.putDouble(sharedKey, best);
+		} // if worth sharing
+		if (!aborted && ((tableAges[slot] != age) || (tableDepths[slot] <= depth))) {
+			tableKeys[slot] = key;
+			tableValues[slot] = best;
+			tableDepths[slot] = (byte) depth;
+			tableAges[slot] = age;
+		} // if worth keeping
+		return best;
+	} // method decide
+
+	/**
+	 * Expected value of a candidate action, the chance node below a decision
+	 */
+
+	private double act(BeliefTracker belief, int hunter, int warnings, int arrows, int candidate, int depth, int level) {
+		if (candidate < topology.paths()) {
+			return move(belief, targets[hunter][candidate][0], arrows, depth, level);
+		} else {
+			return shoot(belief, hunter, warnings, arrows, pathMasks[hunter][candidate], depth, level);
+		} // if move
+	} // method act
+
+	/**
+	 * Expected value of moving into a room
+	 */
+
+	private double move(BeliefTracker belief, int room, int arrows, int depth, int level) {
+		BeliefTracker outcome = scratch[level][0];
+		double wumpus = belief.wumpusProbability(room);
+		double bats = (1.0 - wumpus) * belief.batProbability(room);
+		double pit = (1.0 - wumpus) * belief.pitProbability(room);
+		double safe = Math.max(0.0, 1.0 - wumpus - bats - pit);
+		double value = 0.0;
+		if (wumpus > 0.0) {
+
+			// the wumpus wakes and lives up to its name unless it walks away
+
+			outcome.copyFrom(belief);
+			outcome.bumped(room);
+			outcome.wumpusWoke();
+			value += wumpus * topology.paths() / (topology.paths() + 1.0) * sense(outcome, room, arrows, depth, level);
+		} // if bump possible
+		if (bats > 0.0) {
+			outcome.copyFrom(belief);
+			outcome.snatched(room);
+			value += bats * dropped(outcome, arrows);
+		} // if snatch possible
+		if (safe > 0.0) {
+			outcome.copyFrom(belief);
+			value += safe * sense(outcome, room, arrows, depth, level);
+		} // if safe landing possible
+		return TURN * value;
+	} // method move
+
+	/**
+	 * Expected value of shooting an arrow down a path
+	 */
+
+	private double shoot(BeliefTracker belief, int hunter, int warnings, int arrows, long path, int depth, int level) {
+		double hit = 0.0;
+		for (long rest = path; rest != 0; rest &= rest - 1) {
+			hit += belief.wumpusProbability(Long.numberOfTrailingZeros(rest));
+		} // for each room on the path
+		BeliefTracker outcome = scratch[level][0].copyFrom(belief);
+		outcome.missed(path);
+		if ((hit >= 1.0) || (outcome.wumpus() == 0)) {
+			return Math.min(hit, 1.0);
+		} // if certain to hit
+
+		// the wumpus wakes; it attacks if it walks into the hunter's room
+
+		long around = topology.neighbours(hunter);
+		double attack = (double) Long.bitCount(outcome.wumpus() & around) / Long.bitCount(outcome.wumpus()) / (topology.paths() + 1);
+		outcome.wumpusWoke();
+		outcome.missed(1L << hunter);
+		double smell = (double) Long.bitCount(outcome.wumpus() & around) / Long.bitCount(outcome.wumpus());
+		BeliefTracker branch = scratch[level][1];
+		double onward = 0.0;
+		int quiet = warnings & ~BitboardState.WUMPUS_NEAR;
+		if (smell > 0.0) {
+			branch.copyFrom(outcome).observe(hunter, quiet | BitboardState.WUMPUS_NEAR);
+			onward += smell * decide(branch, hunter, quiet | BitboardState.WUMPUS_NEAR, arrows - 1, depth - 1, level + 1);
+		} // if smell possible
+		if (smell < 1.0) {
+			branch.copyFrom(outcome).observe(hunter, quiet);
+			onward += (1.0 - smell) * decide(branch, hunter, quiet, arrows - 1, depth - 1, level + 1);
+		} // if no smell possible
+		return hit + (1.0 - hit) * (1.0 - attack) * TURN * onward;
+	} // method shoot
+
+	/**
+	 * Expected value of standing alive in a room, over the warnings sensed there
+	 *
+	 * @param outcome the belief on arriving, before sensing anything
+	 * @param room the room arrived in
+	 */
+
+	private double sense(BeliefTracker outcome, int room, int arrows, int depth, int level) {
+		long around = topology.neighbours(room);
+		long wumpusRooms = outcome.wumpus() & ~(1L << room);
+		double smell = (wumpusRooms == 0) ? 0.0 : (double) Long.bitCount(wumpusRooms & around) / Long.bitCount(wumpusRooms);
+		double draft = 1.0;
+		double noise = 1.0;
+		for (long rest = around; rest != 0; rest &= rest - 1) {
+			int next = Long.numberOfTrailingZeros(rest);
+			draft *= 1.0 - outcome.pitProbability(next);
+			noise *= 1.0 - outcome.batProbability(next);
+		} // for each neighbour
+		draft = 1.0 - draft;
+		noise = 1.0 - noise;
+		BeliefTracker branch = scratch[level][1];
+		double value = 0.0;
+		double total = 0.0;
+		for (int warnings = 0; warnings < 8; warnings++) {
+			double chance = (((warnings & BitboardState.WUMPUS_NEAR) != 0) ? smell : 1.0 - smell)
+			              * (((warnings & BitboardState.PIT_NEAR) != 0) ? draft : 1.0 - draft)
+			              * (((warnings & BitboardState.BATS_NEAR) != 0) ? noise : 1.0 - noise);
+			if (chance > 0.0) {
+				branch.copyFrom(outcome).observe(room, warnings);
+				value += chance * decide(branch, room, warnings, arrows, depth - 1, level + 1);
+				total += chance;
+			} // if possible
+		} // for each combination of warnings
+		return (total == 0.0) ? 0.0 : value / total;
+	} // method sense
+
+	/**
+	 * Guess at the value of being dropped by bats, over the rooms they may drop the hunter in
+	 *
+	 * @param outcome the belief after the snatch
+	 */
+
+	private double dropped(BeliefTracker outcome, int arrows) {
+		double value = 0.0;
+		for (int room = 0; room < topology.rooms(); room++) {
+			double safe = (1.0 - outcome.wumpusProbability(room)) * (1.0 - outcome.pitProbability(room));
+			value += safe * horizon(outcome, room, arrows);
+		} // for room
+		return value / topology.rooms();
+	} // method dropped
+
+	/**
+	 * Guess at the value of a game still going where the search stops
+	 *
+	 * @param belief the belief
+	 * @param hunter the hunter's room
+	 * @param arrows the arrows left
+	 * @return the chance of hitting the wumpus with the arrows left, each
+	 *         shot as likely to hit as the best one open now, discounted
+	 */
+
+	private double horizon(BeliefTracker belief, int hunter, int arrows) {
+		long wumpusRooms = belief.wumpus() & ~(1L << hunter);
+		if ((arrows == 0) || (wumpusRooms == 0)) {
+			return 0.0;
+		} // if nothing to shoot at
+		long[] paths = pathMasks[hunter];
+		int best = 0;
+		for (int j = topology.paths(); j < paths.length; j++) {
+			best = Math.max(best, Long.bitCount(paths[j] & wumpusRooms));
+		} // for each shot
+		double miss = 1.0 - (double) best / Long.bitCount(wumpusRooms);
+		double all = 1.0;
+		for (int j = 0; j < arrows; j++) {
+			all *= miss;
+		} // for each arrow
+		return DISCOUNT * (1.0 - all);
+	} // method horizon
+
+	/**
+	 * Hash of a decision node for the transposition table and the shared cache
+	 *
+	 * Covers the whole belief, the constraints of its drafts and bat noises
+	 * as well as its masks, so beliefs that would be valued differently never
+	 * share an entry.
+	 */
+
+	private static long key(BeliefTracker belief, int hunter, int warnings, int arrows) {
+		long h = GameRandom.mix(belief.wumpus() ^ Long.rotateLeft(belief.pits(), 21) ^ Long.rotateLeft(belief.bats(), 42));
+		h = GameRandom.mix(h ^ belief.knownPits() ^ Long.rotateLeft(belief.knownBats(), 32));
+		h = GameRandom.mix(h ^ belief.constraints());
+		return GameRandom.mix(h ^ hunter ^ ((long) warnings << 8) ^ ((long) arrows << 16));
+	} // static method key
+
+} // class ExpectimaxBot
@@ -0,0 +1,229 @@
+/**
+ * Hunt the Wumpus - off-heap game arena
+ *
+ * Keeps any number of suspended games outside the Java heap, so millions
+ * of them can stay live between turns without the garbage collector ever
+ * having to look at them.  Every game is a fixed width record in a direct
+ * 'ByteBuffer', found by its index alone: an engine picks a game up with
+ * 'WumpusEngine.resume(arena, game)', plays an action, and puts it back
+ * with 'WumpusEngine.suspend(arena, game)'.  No object is kept per game,
+ * so the heap holds only one buffer per chunk of records however many
+ * games are resident.
+ *
+ * The records are laid out in chunks of 'CHUNK_RECORDS', each chunk a
+ * buffer of its own allocated the first time one of its records is
+ * handed out.  Freed records go on a free list threaded through the
+ * records themselves (the first four bytes of a free record hold the index
+ * of the next free one) and are handed out again, last freed first, before
+ * any untouched record.  An arena is not thread safe.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.nio.*;
+
+public final class GameArena {
+
+	// Record layout
+	//
+	//      'RANDOM'    - The state of the game's 'GameRandom' (long)
+	//      'SEED'      - The seed the game was set up from (long)
+	//      'LOCATION'  - The room of each game object (byte each)
+	//      'INITIAL'   - The starting room of each game object (byte each)
+	//      'ARROWS'    - The arrows left in the quiver (byte)
+	//      'STATUS'    - The game state (byte)
+	//      'CAUSE'     - What killed the hunter, if anything (byte)
+	//      'FLAGS'     - 'ALLOCATED' while the record holds a game (byte)
+	//
+	// Rooms are held in a byte, which is enough for any cave the engine can
+	// play ('CaveTopology' allows at most 64 rooms).
+
+	public static final int RECORD_BYTES = 32;
+
+	private static final int RANDOM    = 0;
+	private static final int SEED      = 8;
+	private static final int LOCATION  = 16;
+	private static final int INITIAL   = LOCATION + Wumpus.NUM_OF_OBJECTS;
+	private static final int ARROWS    = INITIAL + Wumpus.NUM_OF_OBJECTS;
+	private static final int STATUS    = ARROWS + 1;
+	private static final int CAUSE     = STATUS + 1;
+	private static final int FLAGS     = CAUSE + 1;
+	private static final int NEXT_FREE = 0;
+
+	private static final byte ALLOCATED = 1;
+
+	// Chunking
+	//
+	//      'CHUNK_BITS'    - Log2 of the records in a chunk (2 MB of records)
+
+	public static final int CHUNK_BITS    = 16;
+	public static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+
+	private static final int NONE = -1;
+
+	private final int          capacity;
+	private final ByteBuffer[] chunks;
+	private int                freeHead = NONE;
+	private int                untouched;
+	private int                live;
+
+	/**
+	 * GameArena Constructor
+	 *
+	 * Reserves nothing up front; chunks are allocated as games are added.
+	 *
+	 * @param capacity the most games the arena may hold at once
+	 */
+
+	public GameArena(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("An arena must hold at least one game, not " + capacity);
+		} // if no room
+		this.capacity = capacity;
+		this.chunks = new ByteBuffer[((capacity - 1) >>> CHUNK_BITS) + 1];
+	} // constructor GameArena
+
+	// Accessors
+
+	public int  capacity() { return capacity; }
+	public int  live()     { return live; }
+
+	/**
+	 * @return the bytes of off-heap memory allocated so far
+	 */
+
+	public long bytes() {
+		long bytes = 0;
+		for (ByteBuffer chunk : chunks) {
+			if (chunk != null) {
+				bytes += chunk.capacity();
+			} // if allocated
+		} // for each chunk
+		return bytes;
+	} // method bytes
+
+	/**
+	 * Take a record for a new game
+	 *
+	 * The record's contents are undefined until a game is suspended into it.
+	 *
+	 * @return the index of the game
+	 */
+
+	public int allocate() {
+		int game;
+		if (freeHead != NONE) {
+			game = freeHead;
+			freeHead = chunk(game).getInt(offset(game) + NEXT_FREE);
+		} else if (untouched < capacity) {
+			game = untouched++;
+			if (chunks[game >>> CHUNK_BITS] == null) {
+				int records = Math.min(CHUNK_RECORDS, capacity - (game & ~(CHUNK_RECORDS - 1)));
+				chunks[game >>> CHUNK_BITS] = ByteBuffer.allocateDirect(records * RECORD_BYTES).order(ByteOrder.nativeOrder());
+			} // if chunk not yet allocated
+		} else {
+			throw new IllegalStateException("Arena full: " + capacity + " games");
+		} // if-else chain where to take the record from
+		chunk(game).put(offset(game) + FLAGS, ALLOCATED);
+		live++;
+		return game;
+	} // method allocate
+
+	/**
+	 * Give a game's record back to the arena
+	 *
+	 * @param game the index of the game
+	 */
+
+	public void free(int game) {
+		check(game);
+		ByteBuffer chunk = chunk(game);
+		chunk.put(offset(game) + FLAGS, (byte) 0);
+		chunk.putInt(offset(game) + NEXT_FREE, freeHead);
+		freeHead = game;
+		live--;
+	} // method free
+
+	/**
+	 * @param game the index of a game
+	 * @return 'true' if the record holds a game
+	 */
+
+	public boolean isAllocated(int game) {
+		return (game >= 0) && (game < untouched) && (chunk(game).get(offset(game) + FLAGS) == ALLOCATED);
+	} // method isAllocated
+
+	// Record fields, by game index
+
+	public int  status(int game)                   { return chunk(game).get(offset(game) + STATUS); }
+	public int  cause(int game)                    { return chunk(game).get(offset(game) + CAUSE); }
+	public int  arrows(int game)                   { return chunk(game).get(offset(game) + ARROWS); }
+	public int  locationOf(int game, int object)   { return chunk(game).get(offset(game) + LOCATION + object); }
+	public int  initialState(int game, int object) { return chunk(game).get(offset(game) + INITIAL + object); }
+	public long seed(int game)                     { return chunk(game).getLong(offset(game) + SEED); }
+	long        randomState(int game)              { return chunk(game).getLong(offset(game) + RANDOM); }
+
+	/**
+	 * Write a whole game record
+	 *
+	 * (Package-private; games are put in through 'WumpusEngine.suspend'.)
+	 *
+	 * @param game the index of the game, which must be allocated
+	 * @param randomState the state of the game's generator
+	 * @param seed the seed the game was set up from
+	 * @param locationOf the room of each game object
+	 * @param initialState the starting room of each game object
+	 * @param arrows the arrows left
+	 * @param status the game state
+	 * @param cause the cause of death
+	 */
+
+	void store(int game, long randomState, long seed, int[] locationOf, int[] initialState, int arrows, int status, int cause) {
+		check(game);
+		ByteBuffer chunk = chunk(game);
+		int at = offset(game);
+		chunk.putLong(at + RANDOM, randomState);
+		chunk.putLong(at + SEED, seed);
+		for (int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++) {
+			chunk.put(at + LOCATION + j, (byte) locationOf[j]);
+			chunk.put(at + INITIAL + j, (byte) initialState[j]);
+		} // for j
+		chunk.put(at + ARROWS, (byte) arrows);
+		chunk.put(at + STATUS, (byte) status);
+		chunk.put(at + CAUSE, (byte) cause);
+	} // method store
+
+	/**
+	 * Copy the rooms of a game record out
+	 *
+	 * @param game the index of the game, which must be allocated
+	 * @param locationOf filled with the room of each game object
+	 * @param initialState filled with the starting room of each game object
+	 */
+
+	void rooms(int game, int[] locationOf, int[] initialState) {
+		check(game);
+		ByteBuffer chunk = chunk(game);
+		int at = offset(game);
+		for (int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++) {
+			locationOf[j] = chunk.get(at + LOCATION + j);
+			initialState[j] = chunk.get(at + INITIAL + j);
+		} // for j
+	} // method rooms
+
+	private ByteBuffer chunk(int game) {
+		return chunks[game >>> CHUNK_BITS];
+	} // method chunk
+
+	private static int offset(int game) {
+		return (game & (CHUNK_RECORDS - 1)) * RECORD_BYTES;
+	} // static method offset
+
+	private void check(int game) {
+		if (!isAllocated(game)) {
+			throw new IllegalArgumentException("No game " + game + " in the arena");
+		} // if not allocated
+	} // method check
+
+} // class GameArena
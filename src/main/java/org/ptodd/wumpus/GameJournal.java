@@ -0,0 +1,295 @@
+/**
+ * Hunt the Wumpus - append-only game journal
+ *
+ * Records games as a compact binary log: how each game was set up, every
+ * action taken, and what chance made of it.  An engine given a journal
+ * (see 'WumpusEngine.journal') writes it as it goes, so every front end
+ * records its games the same way: the simulator with '--journal', the
+ * console with '--journal', and the server with a stream per session.
+ * A journal is a directory of streams, each written by one 'GameJournal' and holding its games one
+ * after the other.  A stream is a run of segment files ('<stream>-<n>.journal',
+ * 'SEGMENT_BYTES' each) memory mapped for writing, so appending an entry is
+ * a handful of stores into the mapping and never a system call.
+ *
+ * Every entry starts with a one byte tag and carries its numbers as
+ * varints (7 bits a byte, low bits first, the top bit set on every byte
+ * but the last), so a room costs a byte and a move costs five:
+ *
+ *    - 'START'   - game number, seed, the starting room of each object
+ *    - 'MOVE'    - room asked for, then the outcome
+ *    - 'SHOOT'   - range, the rooms of the flight path, then the outcome
+ *                  and the room the arrow stopped in
+ *    - 'QUIT'    - the outcome
+ *    - 'RESTART' - back to the starting rooms of the last 'START' ("play
+ *                  again with the same set-up")
+ *
+ * The outcome of an action is the game state and cause of death packed in
+ * one varint, then the rooms of the hunter and the wumpus, which capture
+ * whatever the bats and the wumpus did.  Rooms asked for by the player may
+ * be anything typed, so they are zig-zag encoded to keep negatives short.
+ *
+ * Segments are zero filled when mapped and no tag is zero, so a reader
+ * stops at the first zero byte or the end of the file.  Closing the
+ * journal cuts its last segment down to the bytes written where the
+ * platform allows it; where it does not (Windows will not shorten a file
+ * that is still mapped) the zero filled tail is left for readers to stop
+ * at.  A stream written with the same games holds the same bytes whatever
+ * else is going on, and 'JournalReplay' reads it back.  A journal is not thread safe.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+public final class GameJournal implements Closeable {
+
+	// Entry tags
+
+	static final int END     = 0;
+	static final int START   = 1;
+	static final int MOVE    = 2;
+	static final int SHOOT   = 3;
+	static final int QUIT    = 4;
+	static final int RESTART = 5;
+
+	// Segments
+	//
+	//      'SEGMENT_BYTES'   - Default size of a segment file
+	//      'MAX_ENTRY_BYTES' - Room left in a segment below which the next one is started
+	//      'SUFFIX'          - File name ending of every segment
+
+	public static final int    SEGMENT_BYTES   = 8 * 1024 * 1024;
+	static final int           MAX_ENTRY_BYTES = 64;
+	static final String        SUFFIX          = ".journal";
+
+	private final Path         directory;
+	private final String       stream;
+	private final int          segmentBytes;
+	private int                segment;
+	private MappedByteBuffer   buffer;
+
+	/**
+	 * GameJournal Constructor
+	 *
+	 * @param directory the journal directory, created if need be
+	 * @param stream the name of the stream to write, unique within the journal
+	 * @throws IOException if the first segment cannot be mapped
+	 */
+
+	public GameJournal(Path directory, String stream) throws IOException {
+		this(directory, stream, SEGMENT_BYTES);
+	} // constructor GameJournal
+
+	/**
+	 * GameJournal Constructor
+	 *
+	 * @param directory the journal directory, created if need be
+	 * @param stream the name of the stream to write, unique within the journal
+	 * @param segmentBytes the size of each segment file
+	 * @throws IOException if the first segment cannot be mapped
+	 */
+
+	public GameJournal(Path directory, String stream, int segmentBytes) throws IOException {
+		if (segmentBytes < 2 * MAX_ENTRY_BYTES) {
+			throw new IllegalArgumentException("Segments of " + segmentBytes + " bytes are too small");
+		} // if too small
+		this.directory = Files.createDirectories(directory);
+		this.stream = stream;
+		this.segmentBytes = segmentBytes;
+		nextSegment();
+	} // constructor GameJournal
+
+	/**
+	 * Record the start of a game, after the engine has set it up
+	 *
+	 * @param game the number of the game
+	 * @param engine the engine the game is played on
+	 * @throws IOException if a new segment cannot be mapped
+	 */
+
+	public void start(long game, WumpusEngine engine) throws IOException {
+		ByteBuffer out = room();
+		out.put((byte) START);
+		putVarint(out, game);
+		putVarint(out, engine.seed());
+		for (int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++) {
+			putVarint(out, engine.initialState(j));
+		} // for j
+	} // method start
+
+	/**
+	 * Record a move, after the engine has made it
+	 *
+	 * @param room the room asked for
+	 * @param engine the engine the game is played on
+	 * @throws IOException if a new segment cannot be mapped
+	 */
+
+	public void move(int room, WumpusEngine engine) throws IOException {
+		ByteBuffer out = room();
+		out.put((byte) MOVE);
+		putVarint(out, zigZag(room));
+		outcome(out, engine);
+	} // method move
+
+	/**
+	 * Record a shot, after the engine has made it
+	 *
+	 * @param path the rooms the arrow was to fly through
+	 * @param length the number of rooms in 'path' used
+	 * @param engine the engine the game is played on
+	 * @throws IOException if a new segment cannot be mapped
+	 */
+
+	public void shoot(int[] path, int length, WumpusEngine engine) throws IOException {
+		ByteBuffer out = room();
+		out.put((byte) SHOOT);
+		putVarint(out, length);
+		for (int j = 0; j < length; j++) {
+			putVarint(out, zigZag(path[j]));
+		} // for j
+		outcome(out, engine);
+		putVarint(out, engine.arrowRoom());
+	} // method shoot
+
+	/**
+	 * Record giving up, after the engine has quit
+	 *
+	 * @param engine the engine the game is played on
+	 * @throws IOException if a new segment cannot be mapped
+	 */
+
+	public void quit(WumpusEngine engine) throws IOException {
+		ByteBuffer out = room();
+		out.put((byte) QUIT);
+		outcome(out, engine);
+	} // method quit
+
+	/**
+	 * Record a restart with the same set-up, after the engine has restarted
+	 *
+	 * @throws IOException if a new segment cannot be mapped
+	 */
+
+	public void restart() throws IOException {
+		room().put((byte) RESTART);
+	} // method restart
+
+	/**
+	 * Write everything recorded so far through to the disk
+	 */
+
+	public void force() {
+		buffer.force();
+	} // method force
+
+	/**
+	 * Finish the stream
+	 *
+	 * The mapped pages reach the disk when the operating system writes them
+	 * back, even if the process dies; only a crash of the whole machine can
+	 * lose them before then, which 'force' guards against.  The last segment
+	 * is cut down to the bytes written, if it can be, dropping its zero
+	 * filled tail.
+	 *
+	 * @throws IOException if the last segment cannot be opened to cut it down
+	 */
+
+	public void close() throws IOException {
+		if (buffer == null) {
+			return;
+		} // if already closed
+		int written = buffer.position();
+		buffer = null;
+		trim(directory.resolve(segmentName(stream, segment - 1)), written);
+	} // method close
+
+	/**
+	 * Cut a segment down to the bytes written, leaving it whole if the file won't shrink
+	 *
+	 * The segment's mapping lasts until it is garbage collected, and some
+	 * platforms refuse to shorten a mapped file; its zero filled tail then
+	 * stays, which readers stop at all the same.  Only the truncate itself
+	 * is allowed to fail.
+	 *
+	 * @throws IOException if the segment cannot be opened
+	 */
+
+	private static void trim(Path file, int written) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			try {
+				channel.truncate(written);
+			} catch (IOException e) {
+				// still mapped; the END tag marks where the entries stop
+			} // try-catch
+		} // try-with-resources
+	} // static method trim
+
+	/**
+	 * Name of a segment file
+	 *
+	 * @param stream the name of the stream
+	 * @param segment the number of the segment in the stream
+	 * @return the file name
+	 */
+
+	static String segmentName(String stream, int segment) {
+		return String.format("%s-%06d%s", stream, segment, SUFFIX);
+	} // static method segmentName
+
+	private void outcome(ByteBuffer out, WumpusEngine engine) {
+		putVarint(out, engine.status() | (engine.cause() << 3));
+		putVarint(out, engine.hunterRoom());
+		putVarint(out, engine.locationOf(Wumpus.WUMPUS));
+	} // method outcome
+
+	/**
+	 * @return the buffer to write the next entry to, with room for it
+	 */
+
+	private ByteBuffer room() throws IOException {
+		if (buffer.remaining() < MAX_ENTRY_BYTES) {
+			nextSegment();
+		} // if segment full
+		return buffer;
+	} // method room
+
+	private void nextSegment() throws IOException {
+		Path file = directory.resolve(segmentName(stream, segment++));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+		} // try-with-resources
+	} // method nextSegment
+
+	static void putVarint(ByteBuffer out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		} // while more than 7 bits left
+		out.put((byte) value);
+	} // static method putVarint
+
+	static long getVarint(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			} // if last byte
+		} // for each byte
+	} // static method getVarint
+
+	static long zigZag(int value) {
+		return ((long) value << 1) ^ (value >> 31);
+	} // static method zigZag
+
+	static int unZigZag(long value) {
+		return (int) ((value >>> 1) ^ -(value & 1));
+	} // static method unZigZag
+
+} // class GameJournal
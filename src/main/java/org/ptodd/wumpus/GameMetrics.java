@@ -0,0 +1,344 @@
+/**
+ * Hunt the Wumpus - hot path instrumentation
+ *
+ * Counters and histograms of what happens inside games, and the same
+ * happenings as JDK Flight Recorder events, for finding out where the time
+ * and the turns go:
+ *
+ *    - 'game.setups'          - games set up from a seed, each a 'Setup' event
+ *                               timing the placement
+ *    - 'arrow.length'         - rooms each arrow was asked to fly, and
+ *      'arrow.<outcome>'        how its flight ended, each an 'Arrow' event
+ *    - 'wumpus.wakes'         - times the wumpus woke, moved, and attacked,
+ *      'wumpus.moves'           each a 'Wumpus' event
+ *      'wumpus.attacks'
+ *    - 'bats.chain'           - bat snatches in a row before the hunter is
+ *                               put down for good, each chain a 'Bats' event
+ *    - 'input.wait.micros'    - time the console spent waiting on the player,
+ *                               each wait an 'Input' event
+ *
+ * All of it is off unless 'enable' is called (or the 'wumpus.metrics'
+ * system property is 'true').  The hot paths test 'enabled', a plain
+ * static field, before doing anything else, so switched off the
+ * instrumentation costs a load and a branch the processor soon learns to
+ * predict.  Switched on, the counters are 'LongAdder's, which threads add
+ * to without contending, and an event is only filled in and committed when
+ * a recording has asked for it ('shouldCommit').  Record events with, for
+ * example, "java -XX:StartFlightRecording=filename=wumpus.jfr ...".
+ *
+ * 'enabled' is set before games are played and read without
+ * synchronization; threads started afterwards see it.
+ *
+ * 'snapshot' writes every counter and histogram to a text file, one
+ * "<name> <value>" line each, histograms as a line per non-empty bucket.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import jdk.jfr.*;
+
+public final class GameMetrics {
+
+	/**
+	 * Counter of something that happened
+	 */
+
+	public static final class Counter {
+
+		private final String    name;
+		private final LongAdder count = new LongAdder();
+
+		private Counter(String name) {
+			this.name = name;
+		} // constructor Counter
+
+		public void increment() { count.increment(); }
+		public long sum()       { return count.sum(); }
+
+	} // class Counter
+
+	/**
+	 * Histogram of a value
+	 *
+	 * Linear histograms count each value from '0' to 'buckets - 2' in a
+	 * bucket of its own and anything larger in the last.  Logarithmic
+	 * histograms count a value in bucket 'k' when it needs 'k' bits, so
+	 * bucket 'k' holds values below '2^k'.
+	 */
+
+	public static final class Histogram {
+
+		private final String      name;
+		private final boolean     logarithmic;
+		private final LongAdder[] buckets;
+		private final LongAdder   sum = new LongAdder();
+
+		private Histogram(String name, int buckets, boolean logarithmic) {
+			this.name = name;
+			this.logarithmic = logarithmic;
+			this.buckets = new LongAdder[buckets];
+			for (int j = 0; j < buckets; j++) {
+				this.buckets[j] = new LongAdder();
+			} // for j
+		} // constructor Histogram
+
+		/**
+		 * Count a value
+		 *
+		 * @param value the value, not negative
+		 */
+
+		public void record(long value) {
+			int bucket = logarithmic ? 64 - Long.numberOfLeadingZeros(value) : (int) Math.min(value, buckets.length - 1);
+			buckets[Math.min(bucket, buckets.length - 1)].increment();
+			sum.add(value);
+		} // method record
+
+		public long count(int bucket) { return buckets[bucket].sum(); }
+		public long sum()             { return sum.sum(); }
+
+		public long count() {
+			long count = 0;
+			for (LongAdder bucket : buckets) {
+				count += bucket.sum();
+			} // for each bucket
+			return count;
+		} // method count
+
+		private String label(int bucket) {
+			if (logarithmic) {
+				return "<" + (1L << bucket);
+			} // if logarithmic
+			return (bucket == buckets.length - 1) ? bucket + "+" : String.valueOf(bucket);
+		} // method label
+
+	} // class Histogram
+
+	// Flight Recorder events
+
+	@Name("org.ptodd.wumpus.Setup")
+	@Label("Game Setup")
+	@Category("Hunt the Wumpus")
+	static final class SetupEvent extends Event {
+		@Label("Seed") long seed;
+	} // class SetupEvent
+
+	@Name("org.ptodd.wumpus.Arrow")
+	@Label("Arrow Flight")
+	@Category("Hunt the Wumpus")
+	static final class ArrowEvent extends Event {
+		@Label("Range") int length;
+		@Label("Outcome") String outcome;
+		@Label("Room") int room;
+	} // class ArrowEvent
+
+	@Name("org.ptodd.wumpus.Wumpus")
+	@Label("Wumpus Wake")
+	@Category("Hunt the Wumpus")
+	static final class WumpusEvent extends Event {
+		@Label("From Room") int from;
+		@Label("To Room") int to;
+		@Label("Attacked") boolean attacked;
+	} // class WumpusEvent
+
+	@Name("org.ptodd.wumpus.Bats")
+	@Label("Bat Transport")
+	@Category("Hunt the Wumpus")
+	static final class BatsEvent extends Event {
+		@Label("Snatches") int chain;
+		@Label("Final Room") int room;
+	} // class BatsEvent
+
+	@Name("org.ptodd.wumpus.Input")
+	@Label("Input Wait")
+	@Category("Hunt the Wumpus")
+	static final class InputEvent extends Event {
+	} // class InputEvent
+
+	// Registry, in the order the metrics are written
+
+	private static final List<Counter>   counters   = new ArrayList<>();
+	private static final List<Histogram> histograms = new ArrayList<>();
+
+	// Metrics of the hot paths
+
+	static final Counter   SETUPS         = counter("game.setups");
+	static final Histogram ARROW_LENGTH   = histogram("arrow.length", Wumpus.MAX_ARROW_RANGE + 2, false);
+	static final Counter   ARROW_MISSED   = counter("arrow.missed");
+	static final Counter   ARROW_WUMPUS   = counter("arrow.hit.wumpus");
+	static final Counter   ARROW_HUNTER   = counter("arrow.hit.hunter");
+	static final Counter   WUMPUS_WAKES   = counter("wumpus.wakes");
+	static final Counter   WUMPUS_MOVES   = counter("wumpus.moves");
+	static final Counter   WUMPUS_ATTACKS = counter("wumpus.attacks");
+	static final Histogram BAT_CHAIN      = histogram("bats.chain", 8, false);
+	static final Histogram INPUT_WAIT     = histogram("input.wait.micros", 40, true);
+
+	// Whether the hot paths count and record, see the class comment
+
+	static boolean enabled = Boolean.getBoolean("wumpus.metrics");
+
+	private GameMetrics() {
+	} // constructor GameMetrics
+
+	public static void    enable()    { enabled = true; }
+	public static void    disable()   { enabled = false; }
+	public static boolean isEnabled() { return enabled; }
+
+	private static Counter counter(String name) {
+		Counter counter = new Counter(name);
+		counters.add(counter);
+		return counter;
+	} // static method counter
+
+	private static Histogram histogram(String name, int buckets, boolean logarithmic) {
+		Histogram histogram = new Histogram(name, buckets, logarithmic);
+		histograms.add(histogram);
+		return histogram;
+	} // static method histogram
+
+	/**
+	 * A game was set up from a seed
+	 *
+	 * @param event the event begun before the placement
+	 * @param seed the seed of the game
+	 */
+
+	static void setup(SetupEvent event, long seed) {
+		SETUPS.increment();
+		if (event.shouldCommit()) {
+			event.seed = seed;
+			event.commit();
+		} // if recording
+	} // static method setup
+
+	/**
+	 * An arrow finished its flight
+	 *
+	 * @param length the number of rooms the arrow was asked to fly
+	 * @param status the game state the flight left, as 'ArrowFlight.status'
+	 * @param room the room the arrow stopped in
+	 */
+
+	static void arrow(int length, int status, int room) {
+		ARROW_LENGTH.record(length);
+		String outcome;
+		switch (status) {
+			case Wumpus.WUMPUS_DEAD:
+				ARROW_WUMPUS.increment();
+				outcome = "hit wumpus";
+				break;
+			case Wumpus.HUNTER_DEAD:
+				ARROW_HUNTER.increment();
+				outcome = "hit hunter";
+				break;
+			default:
+				ARROW_MISSED.increment();
+				outcome = "missed";
+		} // switch flight outcome
+		ArrowEvent event = new ArrowEvent();
+		if (event.shouldCommit()) {
+			event.length = length;
+			event.outcome = outcome;
+			event.room = room;
+			event.commit();
+		} // if recording
+	} // static method arrow
+
+	/**
+	 * The wumpus woke
+	 *
+	 * @param from the room it woke in
+	 * @param to the room it ended up in
+	 * @param attacked 'true' if it ate the hunter
+	 */
+
+	static void wumpus(int from, int to, boolean attacked) {
+		WUMPUS_WAKES.increment();
+		if (from != to) {
+			WUMPUS_MOVES.increment();
+		} // if moved
+		if (attacked) {
+			WUMPUS_ATTACKS.increment();
+		} // if attacked
+		WumpusEvent event = new WumpusEvent();
+		if (event.shouldCommit()) {
+			event.from = from;
+			event.to = to;
+			event.attacked = attacked;
+			event.commit();
+		} // if recording
+	} // static method wumpus
+
+	/**
+	 * Bats carried the hunter off, perhaps several times in a row
+	 *
+	 * @param chain the number of snatches
+	 * @param room the room the hunter was left in
+	 */
+
+	static void bats(int chain, int room) {
+		BAT_CHAIN.record(chain);
+		BatsEvent event = new BatsEvent();
+		if (event.shouldCommit()) {
+			event.chain = chain;
+			event.room = room;
+			event.commit();
+		} // if recording
+	} // static method bats
+
+	/**
+	 * The console waited for the player
+	 *
+	 * @param event the event begun before waiting
+	 * @param nanos how long it waited
+	 */
+
+	static void input(InputEvent event, long nanos) {
+		INPUT_WAIT.record(nanos / 1000);
+		event.commit();
+	} // static method input
+
+	/**
+	 * Write every counter and histogram to a file
+	 *
+	 * @param file the file to write, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+
+	public static void snapshot(Path file) throws IOException {
+		try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			snapshot(out);
+		} // try-with-resources
+	} // static method snapshot
+
+	/**
+	 * Write every counter and histogram
+	 *
+	 * @param out where to write them
+	 */
+
+	public static void snapshot(PrintWriter out) {
+		out.printf("# Hunt the Wumpus metrics, %tFT%<tT%n", new Date());
+		for (Counter counter : counters) {
+			out.printf("%s %d%n", counter.name, counter.sum());
+		} // for each counter
+		for (Histogram histogram : histograms) {
+			out.printf("%s.count %d%n", histogram.name, histogram.count());
+			out.printf("%s.sum %d%n", histogram.name, histogram.sum());
+			for (int j = 0; j < histogram.buckets.length; j++) {
+				long count = histogram.count(j);
+				if (count > 0) {
+					out.printf("%s[%s] %d%n", histogram.name, histogram.label(j), count);
+				} // if any
+			} // for j
+		} // for each histogram
+	} // static method snapshot
+
+} // class GameMetrics
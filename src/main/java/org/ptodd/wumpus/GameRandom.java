@@ -0,0 +1,123 @@
+/**
+ * Hunt the Wumpus - seedable, splittable random number generator
+ *
+ * A SplitMix64 generator: 64 bits of state stepped by a fixed odd constant
+ * and passed through a strong mixing function.  Unlike 'java.util.Random'
+ * it has no synchronization, can be reseeded in place without allocating,
+ * and can hand out independent streams.  Because the n-th output of a
+ * SplitMix64 stream can be computed directly from its seed, the seed of
+ * game 'n' of a simulation is a pure function of the master seed and 'n'
+ * ('seedOf'), no matter which thread ends up playing it.  Any single game
+ * can therefore be replayed exactly from its seed.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+public final class GameRandom {
+
+	// The SplitMix64 increment (the golden ratio scaled to 64 bits)
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private long state;
+
+	/**
+	 * GameRandom Constructor
+	 *
+	 * @param seed the seed of the stream
+	 */
+
+	public GameRandom(long seed) {
+		this.state = seed;
+	} // constructor GameRandom
+
+	/**
+	 * Restart the generator on a new stream
+	 *
+	 * @param seed the seed of the stream
+	 */
+
+	public void reseed(long seed) {
+		this.state = seed;
+	} // method reseed
+
+	/**
+	 * @return the state of the generator, which 'reseed' restores
+	 */
+
+	long state() {
+		return state;
+	} // method state
+
+	/**
+	 * @return the next 64 random bits
+	 */
+
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	} // method nextLong
+
+	/**
+	 * Uniformly distributed integer in '[0, bound)'
+	 *
+	 * Uses Lemire's multiply-and-shift, rejecting the few low products that
+	 * would bias the result, so no division is needed on the common path.
+	 *
+	 * @param bound the exclusive upper bound, must be positive
+	 * @return the random integer
+	 */
+
+	public int nextInt(int bound) {
+		long product = (nextLong() >>> 32) * bound;
+		long low = product & 0xFFFFFFFFL;
+		if (low < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while (low < threshold) {
+				product = (nextLong() >>> 32) * bound;
+				low = product & 0xFFFFFFFFL;
+			} // while biased
+		} // if possibly biased
+		return (int) (product >>> 32);
+	} // method nextInt
+
+	/**
+	 * Split off an independent generator
+	 *
+	 * @return a new generator seeded from this one
+	 */
+
+	public GameRandom split() {
+		return new GameRandom(nextLong());
+	} // method split
+
+	/**
+	 * Seed of stream 'index' derived from a master seed
+	 *
+	 * This is the 'index'-th output of a generator seeded with 'master',
+	 * computed without stepping through the ones before it.
+	 *
+	 * @param master the master seed
+	 * @param index the index of the stream (for example the game number)
+	 * @return the seed of the stream
+	 */
+
+	public static long seedOf(long master, long index) {
+		return mix(master + (index + 1) * GOLDEN_GAMMA);
+	} // static method seedOf
+
+	/**
+	 * The SplitMix64 finalizer (a variant of MurmurHash3's 'fmix64')
+	 *
+	 * @param z the value to mix
+	 * @return the mixed value
+	 */
+
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	} // static method mix
+
+} // class GameRandom
@@ -0,0 +1,405 @@
+/**
+ * Hunt the Wumpus - multi-session game server
+ *
+ * Serves the game over a local TCP line protocol, one game session per
+ * connection, with the console's own questions and messages (see
+ * 'GameSession').  Point a line mode client such as 'telnet' or 'nc' at
+ * the port and play.
+ *
+ * Every connection is handled by a single thread running a non-blocking
+ * 'Selector' loop, so a session waiting on its player costs no thread and
+ * no stack, only its 'Connection' and 'GameSession' objects.  The buffers
+ * used to read requests and build replies are shared by all connections;
+ * a connection keeps a buffer of its own only for a partly typed line or
+ * for a reply the client has not yet taken in full, and drops it again as
+ * soon as it is empty.  A client that stops reading is cut off once
+ * 'MAX_PENDING' bytes of replies are waiting for it.
+ *
+ * A failure to accept a connection, such as running out of file
+ * descriptors, is logged and stops the server accepting for a while, until
+ * a client disconnects or 'ACCEPT_RETRY' milliseconds have passed; the
+ * listener stays open and the sessions already running carry on.
+ *
+ * Session 'n' plays the game set up from 'GameRandom.seedOf(master, n)'.
+ * With a journal directory, each session records its game, and every
+ * replay of it, in a stream of its own named after that seed (see
+ * 'GameJournal').  A session whose journal cannot be opened plays on
+ * without one; one whose journal fails part way is disconnected.
+ *
+ * Usage:
+ *    - "java -cp ./classes org.ptodd.wumpus.Wumpus --serve <port> [--seed <master>] [--hints] [--journal <dir>]"
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+public final class GameServer implements Runnable, Closeable {
+
+	// Server parameters
+	//
+	//      'READ_BUFFER'     - Bytes read from a connection at a time
+	//      'MAX_LINE'        - Longest line kept; the rest of a longer line is dropped
+	//      'MAX_PENDING'     - Most reply bytes held for a client not reading them
+	//      'ACCEPT_RETRY'    - Milliseconds before accepting again after a failure
+	//      'JOURNAL_SEGMENT' - Segment size of each session's journal stream
+
+	public static final int READ_BUFFER     = 16 * 1024;
+	public static final int MAX_LINE        = 256;
+	public static final int MAX_PENDING     = 64 * 1024;
+	public static final int ACCEPT_RETRY    = 100;
+	public static final int JOURNAL_SEGMENT = 64 * 1024;
+
+	private static final Charset WIRE = StandardCharsets.ISO_8859_1;
+
+	/**
+	 * What the server keeps for each connection
+	 */
+
+	static final class Connection {
+
+		final SocketChannel channel;
+		final GameSession   session;
+		final GameJournal   journal;
+		StringBuilder       line;
+		ByteBuffer          pending;
+
+		Connection(SocketChannel channel, GameSession session, GameJournal journal) {
+			this.channel = channel;
+			this.session = session;
+			this.journal = journal;
+		} // constructor Connection
+
+	} // class Connection
+
+	private final ServerSocketChannel listener;
+	private final Selector            selector;
+	private final SelectionKey        listening;
+	private final long                master;
+	private final boolean             hints;
+	private final Path                journal;
+	private final ByteBuffer          input  = ByteBuffer.allocateDirect(READ_BUFFER);
+	private final StringWriter        text   = new StringWriter();
+	private final PrintWriter         writer = new PrintWriter(text);
+	private long                      nextSession;
+	private volatile int              open;  // written by the selector thread only
+	private boolean                   paused;
+	private volatile boolean          closed;
+
+	/**
+	 * GameServer Constructor
+	 *
+	 * Binds to the loopback interface; 'run' then serves until 'close'.
+	 *
+	 * @param port the port to listen on, or '0' for any free port
+	 * @param master the master seed the seed of every session is derived from
+	 * @param hints 'true' to show the hint overlay in every session
+	 * @throws IOException if the port cannot be opened
+	 */
+
+	public GameServer(int port, long master, boolean hints) throws IOException {
+		this(port, master, hints, null);
+	} // constructor GameServer
+
+	/**
+	 * GameServer Constructor
+	 *
+	 * Binds to the loopback interface; 'run' then serves until 'close'.
+	 *
+	 * @param port the port to listen on, or '0' for any free port
+	 * @param master the master seed the seed of every session is derived from
+	 * @param hints 'true' to show the hint overlay in every session
+	 * @param journal the journal directory every session is recorded in, or 'null'
+	 * @throws IOException if the port cannot be opened
+	 */
+
+	public GameServer(int port, long master, boolean hints, Path journal) throws IOException {
+		this.master = master;
+		this.hints = hints;
+		this.journal = journal;
+		this.selector = Selector.open();
+		this.listener = ServerSocketChannel.open();
+		listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+		listener.configureBlocking(false);
+		this.listening = listener.register(selector, SelectionKey.OP_ACCEPT);
+	} // constructor GameServer
+
+	// Accessors
+
+	public int port()     { return listener.socket().getLocalPort(); }
+	public int sessions() { return open; }
+
+	/**
+	 * Serve connections until the server is closed
+	 */
+
+	public void run() {
+		try {
+			while (!closed) {
+				if (paused) {
+					selector.select(ACCEPT_RETRY);
+					resume();
+				} else {
+					selector.select();
+				} // if not accepting
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					} // if already closed
+					if (key == listening) {
+						try {
+							accept();
+						} catch (IOException e) {
+							pause(e);
+						} // try-catch
+						continue;
+					} // if accepting
+					try {
+						if (key.isWritable()) {
+							flush(key);
+						} // if writable
+						if (key.isValid() && key.isReadable()) {
+							read(key);
+						} // if readable
+					} catch (IOException e) {
+						disconnect(key);
+					} catch (UncheckedIOException e) {
+						Wumpus.err.println("Game session stopped: " + e.getCause().getMessage());
+						disconnect(key);
+					} // try-catch
+				} // while selected keys
+			} // while open
+		} catch (IOException e) {
+			Wumpus.err.println("Game server stopped: " + e.getMessage());
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				disconnect(key);
+			} // for each key
+			try {
+				selector.close();
+			} catch (IOException e) {
+				// nothing more to do
+			} // try-catch
+		} // try-catch-finally
+	} // method run
+
+	/**
+	 * Stop serving and drop every connection
+	 */
+
+	public void close() {
+		closed = true;
+		selector.wakeup();
+	} // method close
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = listener.accept()) != null) {
+			long seed = GameRandom.seedOf(master, nextSession++);
+			GameJournal record = openJournal(seed);
+			Connection connection = new Connection(channel, new GameSession(seed, hints, record), record);
+			SelectionKey key = null;
+			try {
+				channel.configureBlocking(false);
+				key = channel.register(selector, SelectionKey.OP_READ, connection);
+				open++;
+				connection.session.start(reset());
+				send(key, connection);
+			} catch (IOException e) {
+				if (key != null) {
+					disconnect(key);
+				} else {
+					Wumpus.close(record);
+					channel.close();
+				} // if registered
+			} // try-catch
+		} // while connections waiting
+	} // method accept
+
+	/**
+	 * Stop accepting connections after a failure, until 'resume'
+	 */
+
+	private void pause(IOException e) {
+		Wumpus.err.println("Game server cannot accept connections: " + e.getMessage());
+		listening.interestOps(0);
+		paused = true;
+	} // method pause
+
+	/**
+	 * Accept connections again after a 'pause'
+	 */
+
+	private void resume() {
+		if (paused && listening.isValid()) {
+			listening.interestOps(SelectionKey.OP_ACCEPT);
+			paused = false;
+		} // if paused
+	} // method resume
+
+	/**
+	 * Read what a client sent and answer each complete line
+	 */
+
+	private void read(SelectionKey key) throws IOException {
+		Connection connection = (Connection) key.attachment();
+		input.clear();
+		int count = connection.channel.read(input);
+		if (count < 0) {
+			disconnect(key);
+			return;
+		} // if end of stream
+		input.flip();
+		PrintWriter out = reset();
+		while (input.hasRemaining()) {
+			char c = (char) (input.get() & 0xFF);
+			if (c == '\n') {
+				String line = (connection.line == null) ? "" : connection.line.toString();
+				connection.line = null;
+				connection.session.input(line, out);
+			} else if (c != '\r') {
+				if (connection.line == null) {
+					connection.line = new StringBuilder();
+				} // if first character
+				if (connection.line.length() < MAX_LINE) {
+					connection.line.append(c);
+				} // if room for it
+			} // if-else chain condition checks
+		} // while bytes read
+		send(key, connection);
+	} // method read
+
+	/**
+	 * Send the reply built up in 'text', keeping whatever the client won't take yet
+	 */
+
+	private void send(SelectionKey key, Connection connection) throws IOException {
+		writer.flush();
+		if (text.getBuffer().length() > 0) {
+			ByteBuffer reply = ByteBuffer.wrap(text.toString().getBytes(WIRE));
+			if (connection.pending == null) {
+				connection.channel.write(reply);
+				if (reply.hasRemaining()) {
+					connection.pending = ByteBuffer.allocate(reply.remaining());
+					connection.pending.put(reply);
+					connection.pending.flip();
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				} // if not all written
+			} else {
+				if (connection.pending.remaining() + reply.remaining() > MAX_PENDING) {
+					throw new IOException("Client not reading");
+				} // if too far behind
+				ByteBuffer pending = ByteBuffer.allocate(connection.pending.remaining() + reply.remaining());
+				pending.put(connection.pending).put(reply);
+				pending.flip();
+				connection.pending = pending;
+			} // if nothing pending
+		} // if anything to say
+		if (connection.session.isFinished() && (connection.pending == null)) {
+			disconnect(key);
+		} // if done
+	} // method send
+
+	/**
+	 * Send more of a reply the client could not take in full
+	 */
+
+	private void flush(SelectionKey key) throws IOException {
+		Connection connection = (Connection) key.attachment();
+		connection.channel.write(connection.pending);
+		if (!connection.pending.hasRemaining()) {
+			connection.pending = null;
+			key.interestOps(SelectionKey.OP_READ);
+			if (connection.session.isFinished()) {
+				disconnect(key);
+			} // if done
+		} // if all written
+	} // method flush
+
+	private void disconnect(SelectionKey key) {
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+			// already gone
+		} // try-catch
+		if (key.attachment() != null) {
+			Wumpus.close(((Connection) key.attachment()).journal);
+			key.attach(null);
+			open--;
+			resume();
+		} // if a session
+	} // method disconnect
+
+	/**
+	 * Open the journal stream of a new session, if the server keeps a journal
+	 *
+	 * @param seed the seed of the session's game, which names the stream
+	 * @return the journal, or 'null' if there is none or it cannot be opened
+	 */
+
+	private GameJournal openJournal(long seed) {
+		if (journal == null) {
+			return null;
+		} // if not journaling
+		try {
+			return new GameJournal(journal, String.format("session-%016x", seed), JOURNAL_SEGMENT);
+		} catch (IOException e) {
+			Wumpus.err.println("Game session not journaled: " + e.getMessage());
+			return null;
+		} // try-catch
+	} // method openJournal
+
+	private PrintWriter reset() {
+		writer.flush();
+		text.getBuffer().setLength(0);
+		return writer;
+	} // method reset
+
+	/**
+	 * Command line entry point, reached through 'Wumpus.main'
+	 *
+	 * @param args "--serve <port> [--seed <master>] [--hints] [--journal <dir>]"
+	 * @throws IOException if the port cannot be opened
+	 */
+
+	public static void main(String[] args) throws IOException {
+		int port = 0;
+		long master = GameRandom.mix(System.nanoTime());
+		boolean hints = false;
+		Path journal = null;
+		for (int j = 0; j < args.length; j++) {
+			switch (args[j]) {
+				case "--serve":
+					port = Integer.parseInt(args[++j]);
+					break;
+				case "--seed":
+					master = Long.parseLong(args[++j]);
+					break;
+				case "--hints":
+					hints = true;
+					break;
+				case "--journal":
+					journal = Paths.get(args[++j]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option '" + args[j] + "'");
+			} // switch option
+		} // for j
+		GameServer server = new GameServer(port, master, hints, journal);
+		Wumpus.out.printf("Serving Hunt the Wumpus on port %d%n", server.port());
+		Wumpus.out.flush();
+		server.run();
+	} // static method main
+
+} // class GameServer
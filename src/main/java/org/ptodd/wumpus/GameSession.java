@@ -0,0 +1,284 @@
+/**
+ * Hunt the Wumpus - line driven game session
+ *
+ * The console game turned inside out.  The console asks a question and
+ * blocks until the player answers; a session instead remembers which
+ * question it last asked ('state') and is handed each answer as it comes,
+ * one line at a time, writing whatever the console would have printed
+ * before asking the next question.  It never blocks and owns no thread or
+ * stream, so a server can keep a great many sessions waiting on their
+ * players at the cost of a small object each (see 'GameServer').
+ *
+ * The questions, messages, and the order they come in are the console's
+ * own (see the shared helpers in 'Wumpus'), so a session played with the
+ * same seed and the same answers prints exactly what the console would.
+ * Given a 'GameJournal', a session records its game, and every replay of
+ * it, as the console does.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+
+public final class GameSession {
+
+	// Session states, by the question last asked
+	//
+	//      'INSTRUCTIONS' - Whether to show the instructions
+	//      'PAGE_1'       - Press enter after the first page of instructions
+	//      'PAGE_2'       - Press enter after the second page of instructions
+	//      'ACTION'       - Shoot, move, travel, or quit
+	//      'MOVE'         - Which room to move to
+	//      'TRAVEL'       - Which room to travel to
+	//      'RANGE'        - How many rooms to shoot
+	//      'PATH'         - The next room of the arrow's flight path
+	//      'PLAY_AGAIN'   - Whether to replay the same set-up
+	//      'FINISHED'     - Nothing; the player is done
+
+	private static final int INSTRUCTIONS = 0;
+	private static final int PAGE_1       = 1;
+	private static final int PAGE_2       = 2;
+	private static final int ACTION       = 3;
+	private static final int MOVE         = 4;
+	private static final int RANGE        = 5;
+	private static final int PATH         = 6;
+	private static final int PLAY_AGAIN   = 7;
+	private static final int FINISHED     = 8;
+	private static final int TRAVEL       = 9;
+
+	private final WumpusEngine  engine;
+	private final BeliefTracker tracker = new BeliefTracker(CaveTopology.CLASSIC);
+	private final boolean       hints;
+	private final long          seed;
+	private RoutePlanner        planner;
+	private final int[]         arrowPath = new int[Wumpus.MAX_ARROW_RANGE];
+	private int                 state;
+	private int                 range;
+	private int                 pathIndex;
+
+	/**
+	 * GameSession Constructor
+	 *
+	 * @param seed the seed of the game, see 'WumpusEngine.setup(long)'
+	 * @param hints 'true' to show the hint overlay
+	 */
+
+	public GameSession(long seed, boolean hints) {
+		this(seed, hints, null);
+	} // constructor GameSession
+
+	/**
+	 * GameSession Constructor
+	 *
+	 * @param seed the seed of the game, see 'WumpusEngine.setup(long)'
+	 * @param hints 'true' to show the hint overlay
+	 * @param journal where to record the game and every replay of it, or 'null'
+	 */
+
+	public GameSession(long seed, boolean hints, GameJournal journal) {
+		this.engine = new WumpusEngine(CaveTopology.CLASSIC, seed);
+		this.hints = hints;
+		this.seed = seed;
+		engine.journal(journal, 0);
+	} // constructor GameSession
+
+	/**
+	 * @return 'true' once the player has said goodbye
+	 */
+
+	public boolean isFinished() {
+		return state == FINISHED;
+	} // method isFinished
+
+	/**
+	 * Greet the player and ask the first question
+	 *
+	 * @param out where to write what the player sees
+	 */
+
+	public void start(PrintWriter out) {
+		Wumpus.clearConsole(out);
+		out.println(Wumpus.TITLE);
+		ask(out, Wumpus.PROMPT_INSTRUCTIONS, INSTRUCTIONS);
+	} // method start
+
+	/**
+	 * Take the player's answer to the last question
+	 *
+	 * Carries the game on as far as it goes without the player, then asks
+	 * the next question.  Lines after the goodbye are ignored.
+	 *
+	 * @param line the answer, without its line terminator
+	 * @param out where to write what the player sees
+	 */
+
+	public void input(String line, PrintWriter out) {
+		switch (state) {
+			case INSTRUCTIONS:
+				if (line.isEmpty()) {
+					ask(out, Wumpus.PROMPT_INSTRUCTIONS, INSTRUCTIONS);
+				} else if (Character.toUpperCase(line.charAt(0)) == 'Y') {
+					Wumpus.instructions(out, 1);
+					out.printf(Wumpus.PROMPT_PRESS_ENTER);
+					state = PAGE_1;
+				} else {
+					engine.setup(seed);
+					newGame(out);
+				} // if-else chain condition checks
+				break;
+			case PAGE_1:
+				Wumpus.instructions(out, 2);
+				out.printf(Wumpus.PROMPT_PRESS_ENTER);
+				state = PAGE_2;
+				break;
+			case PAGE_2:
+				engine.setup(seed);
+				newGame(out);
+				break;
+			case ACTION:
+				action(line, out);
+				break;
+			case MOVE:
+				try {
+					int loc = Integer.parseInt(line) - 1;
+					engine.move(loc);
+					Wumpus.report(out, engine);
+					tracker.update(engine, loc);
+				} catch (NumberFormatException e) {
+					out.println(Wumpus.NOT_A_ROOM);
+				} // try-catch
+				afterAction(out);
+				break;
+			case TRAVEL:
+				try {
+					if (planner == null) {
+						planner = new RoutePlanner(RoutePlanner.CLASSIC);
+					} // if first travel
+					Wumpus.travel(out, engine, tracker, hints, planner, Integer.parseInt(line) - 1);
+				} catch (NumberFormatException e) {
+					out.println(Wumpus.NOT_A_ROOM);
+				} // try-catch
+				afterAction(out);
+				break;
+			case RANGE:
+				try {
+					range = Integer.parseInt(line);
+				} catch (NumberFormatException e) {
+					out.println(Wumpus.NOT_A_NUMBER);
+				} // try-catch
+				if (Wumpus.checkRange(out, range)) {
+					pathIndex = 0;
+					out.printf(Wumpus.PROMPT_PATH_ROOM, pathIndex + 1);
+					state = PATH;
+				} else {
+					out.printf(Wumpus.PROMPT_RANGE);
+				} // if valid
+				break;
+			case PATH:
+				path(line, out);
+				break;
+			case PLAY_AGAIN:
+				if (line.isEmpty()) {
+					ask(out, Wumpus.PROMPT_PLAY_AGAIN, PLAY_AGAIN);
+				} else if (Character.toUpperCase(line.charAt(0)) == 'Y') {
+					engine.restart();
+					newGame(out);
+				} else {
+					out.println(Wumpus.GOODBYE);
+					state = FINISHED;
+				} // if-else chain condition checks
+				break;
+			default:
+				// finished, nothing more to say
+		} // switch state
+	} // method input
+
+	/**
+	 * Answer to the action question
+	 */
+
+	private void action(String line, PrintWriter out) {
+		switch (line.isEmpty() ? 0 : Wumpus.action(Character.toUpperCase(line.charAt(0)))) {
+			case Wumpus.ACTION_MOVE:
+				out.printf(Wumpus.PROMPT_MOVE);
+				state = MOVE;
+				break;
+			case Wumpus.ACTION_SHOOT:
+				if (engine.arrows() > 0) {
+					range = 0;
+					out.printf(Wumpus.PROMPT_RANGE);
+					state = RANGE;
+				} else {
+					shoot(out, 0);
+				} // if arrows
+				break;
+			case Wumpus.ACTION_TRAVEL:
+				out.printf(Wumpus.PROMPT_TRAVEL);
+				state = TRAVEL;
+				break;
+			case Wumpus.ACTION_QUIT:
+				engine.quit();
+				Wumpus.report(out, engine);
+				afterAction(out);
+				break;
+			default:
+				ask(out, Wumpus.PROMPT_ACTION, ACTION);
+		} // switch action identifier
+	} // method action
+
+	/**
+	 * Answer to a flight path question
+	 */
+
+	private void path(String line, PrintWriter out) {
+		try {
+			int nextRoom = Integer.parseInt(line) - 1;
+			if (Wumpus.checkPathRoom(out, engine, arrowPath, pathIndex, nextRoom)) {
+				arrowPath[pathIndex++] = nextRoom;
+				if (pathIndex == range) {
+					shoot(out, range);
+					return;
+				} // if path complete
+			} // if valid
+		} catch (NumberFormatException e) {
+			out.println(Wumpus.NOT_A_NUMBER);
+		} // try-catch
+		out.printf(Wumpus.PROMPT_PATH_ROOM, pathIndex + 1);
+	} // method path
+
+	private void shoot(PrintWriter out, int length) {
+		engine.shoot(arrowPath, length);
+		Wumpus.report(out, engine);
+		tracker.update(engine, -1);
+		afterAction(out);
+	} // method shoot
+
+	/**
+	 * Look around and ask for the next action, or end the game
+	 */
+
+	private void afterAction(PrintWriter out) {
+		if (engine.status() == Wumpus.CONTINUE) {
+			Wumpus.look(out, engine, hints ? tracker : null);
+			ask(out, Wumpus.PROMPT_ACTION, ACTION);
+		} else {
+			Wumpus.finalStatus(out, engine);
+			ask(out, Wumpus.PROMPT_PLAY_AGAIN, PLAY_AGAIN);
+		} // if game continues
+	} // method afterAction
+
+	private void newGame(PrintWriter out) {
+		Wumpus.clearConsole(out);
+		out.println(Wumpus.GAME_TITLE);
+		tracker.reset(engine.hunterRoom(), BitboardState.warnings(engine.senses()));
+		Wumpus.look(out, engine, hints ? tracker : null);
+		ask(out, Wumpus.PROMPT_ACTION, ACTION);
+	} // method newGame
+
+	private void ask(PrintWriter out, String prompt, int next) {
+		out.printf("%s ", prompt);
+		state = next;
+	} // method ask
+
+} // class GameSession
@@ -0,0 +1,114 @@
+/**
+ * Hunt the Wumpus - hazard placement
+ *
+ * Puts one or more hunters and any number of wumpi, pits, and bat colonies
+ * into distinct random rooms.  Rooms are drawn without replacement by a partial
+ * Fisher-Yates shuffle of a permutation of every room: the 'j'-th object
+ * takes a random room from the part of the permutation not yet used, which
+ * is then swapped out of the way.  The swaps are undone in reverse once
+ * every object is placed, so the permutation is the identity again for the
+ * next game and is never refilled.  A game therefore costs one random draw
+ * and two swaps per object whatever the size of the cave, and never retries,
+ * even with nearly every room taken.
+ *
+ * The objects are laid out hunters first, then the wumpi, the pits, and the
+ * bats, which for the classic counts (one hunter) is the 'locationOf' layout
+ * of the engine.  A placement holds its own scratch arrays and is not thread safe.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+public final class HazardPlacement {
+
+	private final int   rooms;
+	private final int   hunters;
+	private final int   wumpi;
+	private final int   pits;
+	private final int   bats;
+
+	// Scratch
+	//
+	//      'permutation' - Every room, in order between placements
+	//      'swappedWith' - By object, the permutation slot swapped into its own
+
+	private final int[] permutation;
+	private final int[] swappedWith;
+
+	/**
+	 * HazardPlacement Constructor, for a single hunter
+	 *
+	 * @param rooms the rooms in the cave
+	 * @param wumpi the wumpi to place
+	 * @param pits the pits to place
+	 * @param bats the bat colonies to place
+	 */
+
+	public HazardPlacement(int rooms, int wumpi, int pits, int bats) {
+		this(rooms, 1, wumpi, pits, bats);
+	} // constructor HazardPlacement
+
+	/**
+	 * HazardPlacement Constructor
+	 *
+	 * @param rooms the rooms in the cave
+	 * @param hunters the hunters to place, at least one
+	 * @param wumpi the wumpi to place
+	 * @param pits the pits to place
+	 * @param bats the bat colonies to place
+	 */
+
+	public HazardPlacement(int rooms, int hunters, int wumpi, int pits, int bats) {
+		long objects = (long) hunters + wumpi + pits + bats;
+		if ((hunters < 1) || (wumpi < 0) || (pits < 0) || (bats < 0) || (objects > rooms)) {
+			throw new IllegalArgumentException("Cannot place " + objects + " objects in " + rooms + " rooms");
+		} // if too many
+		this.rooms = rooms;
+		this.hunters = hunters;
+		this.wumpi = wumpi;
+		this.pits = pits;
+		this.bats = bats;
+		permutation = new int[rooms];
+		for (int room = 0; room < rooms; room++) {
+			permutation[room] = room;
+		} // for room
+		swappedWith = new int[objects()];
+	} // constructor HazardPlacement
+
+	// Accessors
+
+	public int rooms()       { return rooms; }
+	public int hunters()     { return hunters; }
+	public int wumpi()       { return wumpi; }
+	public int pits()        { return pits; }
+	public int bats()        { return bats; }
+	public int objects()     { return hunters + wumpi + pits + bats; }
+	public int firstWumpus() { return hunters; }
+	public int firstPit()    { return hunters + wumpi; }
+	public int firstBats()   { return hunters + wumpi + pits; }
+
+	/**
+	 * Place every object in a room of its own
+	 *
+	 * @param random the generator to draw the rooms from
+	 * @param locationOf filled with the room of each object, at least 'objects()' long
+	 */
+
+	public void place(GameRandom random, int[] locationOf) {
+		int objects = objects();
+		for (int j = 0; j < objects; j++) {
+			int pick = j + random.nextInt(rooms - j);
+			locationOf[j] = permutation[pick];
+			swappedWith[j] = pick;
+			permutation[pick] = permutation[j];
+			permutation[j] = locationOf[j];
+		} // for j
+		for (int j = objects - 1; j >= 0; j--) {
+			int pick = swappedWith[j];
+			int room = permutation[j];
+			permutation[j] = permutation[pick];
+			permutation[pick] = room;
+		} // for j, undoing the swaps
+	} // method place
+
+} // class HazardPlacement
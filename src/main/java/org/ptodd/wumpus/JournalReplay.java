@@ -0,0 +1,232 @@
+/**
+ * Hunt the Wumpus - game journal replay
+ *
+ * Reads back the games recorded by 'GameJournal'.  Each segment is mapped
+ * read only and its entries decoded straight out of the mapping, so no
+ * byte is copied and no object is made per entry.  The streams of a
+ * journal are replayed one after the other, their segments in order.
+ *
+ * A replay works in one of two ways:
+ *
+ *    - reconstruct - takes the journal's word for every outcome and only
+ *                    follows each game to its end; the starting rooms of
+ *                    the 'START' entry are all a 'RESTART' needs
+ *    - validate    - plays every game again on an engine set up from the
+ *                    recorded seed, checking the starting rooms (again on
+ *                    every restart) and the outcome of every action against
+ *                    the journal, and stops at the first difference
+ *
+ * Either way, every game played to an end (each play, for a game played
+ * again) is tallied as the simulator would.
+ *
+ * Usage:
+ *    - "java -cp ./classes org.ptodd.wumpus.Wumpus --replay <dir> [--validate]"
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+public final class JournalReplay {
+
+	private final boolean         validate;
+	private final WumpusEngine    engine    = new WumpusEngine(CaveTopology.CLASSIC, 0L);
+	private final int[]           placement = new int[Wumpus.NUM_OF_OBJECTS];
+	private final int[]           path      = new int[Wumpus.MAX_ARROW_RANGE];
+	private final Simulator.Tally tally     = new Simulator.Tally();
+
+	// The game being replayed
+	//
+	//      'game'   - Its number, from the 'START' entry
+	//      'status' - Its state after the last action
+	//      'turns'  - Actions taken since it started
+
+	private long                  game;
+	private int                   status = Wumpus.QUIT;
+	private int                   turns;
+
+	/**
+	 * JournalReplay Constructor
+	 *
+	 * @param validate 'true' to play every game again and check it
+	 */
+
+	public JournalReplay(boolean validate) {
+		this.validate = validate;
+	} // constructor JournalReplay
+
+	/**
+	 * Replay a whole journal
+	 *
+	 * @param directory the journal directory
+	 * @return the tally of the games played to an end
+	 * @throws IOException if a segment cannot be read or holds a corrupt entry
+	 * @throws IllegalStateException if validating and a game plays out differently
+	 */
+
+	public Simulator.Tally replay(Path directory) throws IOException {
+		for (List<Path> segments : streams(directory).values()) {
+			status = Wumpus.QUIT;
+			for (Path segment : segments) {
+				try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+					replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), segment);
+				} // try-with-resources
+			} // for each segment
+		} // for each stream
+		return tally;
+	} // method replay
+
+	/**
+	 * Replay the entries of one segment
+	 */
+
+	private void replay(ByteBuffer in, Path segment) throws IOException {
+		while (in.hasRemaining()) {
+			int at = in.position();
+			switch (in.get()) {
+				case GameJournal.END:
+					return;
+				case GameJournal.START:
+					game = GameJournal.getVarint(in);
+					long seed = GameJournal.getVarint(in);
+					for (int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++) {
+						placement[j] = (int) GameJournal.getVarint(in);
+					} // for j
+					if (validate) {
+						engine.setup(seed);
+						for (int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++) {
+							check(engine.initialState(j) == placement[j], segment, at);
+						} // for j
+					} // if validating
+					play();
+					break;
+				case GameJournal.MOVE:
+					int room = GameJournal.unZigZag(GameJournal.getVarint(in));
+					if (validate) {
+						engine.move(room);
+					} // if validating
+					outcome(in, segment, at);
+					break;
+				case GameJournal.SHOOT:
+					long length = GameJournal.getVarint(in);
+					if ((length < 0) || (length > path.length)) {
+						throw new IOException("Corrupt arrow range " + length + " in " + segment + " at byte " + at);
+					} // if out of range
+					for (int j = 0; j < length; j++) {
+						path[j] = GameJournal.unZigZag(GameJournal.getVarint(in));
+					} // for j
+					if (validate) {
+						engine.shoot(path, (int) length);
+					} // if validating
+					outcome(in, segment, at);
+					int arrowRoom = (int) GameJournal.getVarint(in);
+					check(!validate || (engine.arrowRoom() == arrowRoom), segment, at);
+					break;
+				case GameJournal.QUIT:
+					if (validate) {
+						engine.quit();
+					} // if validating
+					outcome(in, segment, at);
+					break;
+				case GameJournal.RESTART:
+					if (validate) {
+						engine.restart();
+						for (int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++) {
+							check(engine.locationOf(j) == placement[j], segment, at);
+						} // for j
+					} // if validating
+					play();
+					break;
+				default:
+					throw new IllegalStateException("Unknown entry in " + segment + " at byte " + at);
+			} // switch tag
+		} // while entries
+	} // method replay
+
+	/**
+	 * Start following a play of the current game, from its 'START' or a 'RESTART'
+	 */
+
+	private void play() {
+		status = Wumpus.CONTINUE;
+		turns = 0;
+	} // method play
+
+	/**
+	 * Read the outcome of an action, check it if validating, and tally a game that ended
+	 */
+
+	private void outcome(ByteBuffer in, Path segment, int at) {
+		int packed = (int) GameJournal.getVarint(in);
+		int hunter = (int) GameJournal.getVarint(in);
+		int wumpus = (int) GameJournal.getVarint(in);
+		if (validate) {
+			check((engine.status() | (engine.cause() << 3)) == packed, segment, at);
+			check(engine.hunterRoom() == hunter, segment, at);
+			check(engine.locationOf(Wumpus.WUMPUS) == wumpus, segment, at);
+		} // if validating
+		turns++;
+		if ((status == Wumpus.CONTINUE) && ((packed & 7) != Wumpus.CONTINUE)) {
+			tally.record(packed & 7, packed >>> 3, turns);
+		} // if the game just ended
+		status = packed & 7;
+	} // method outcome
+
+	private void check(boolean same, Path segment, int at) {
+		if (!same) {
+			throw new IllegalStateException("Game " + game + " plays out differently from " + segment + " at byte " + at);
+		} // if different
+	} // method check
+
+	/**
+	 * The segments of every stream in a journal, in order
+	 */
+
+	static SortedMap<String, List<Path>> streams(Path directory) throws IOException {
+		SortedMap<String, List<Path>> streams = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + GameJournal.SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				String stream = name.substring(0, name.lastIndexOf('-'));
+				streams.computeIfAbsent(stream, s -> new ArrayList<>()).add(file);
+			} // for each segment
+		} // try-with-resources
+		for (List<Path> segments : streams.values()) {
+			Collections.sort(segments);
+		} // for each stream
+		return streams;
+	} // static method streams
+
+	/**
+	 * Command line entry point, reached through 'Wumpus.main'
+	 *
+	 * @param args "--replay <dir> [--validate]"
+	 * @throws IOException if the journal cannot be read
+	 */
+
+	public static void main(String[] args) throws IOException {
+		Path directory = null;
+		boolean validate = false;
+		for (int j = 0; j < args.length; j++) {
+			switch (args[j]) {
+				case "--replay":
+					directory = Paths.get(args[++j]);
+					break;
+				case "--validate":
+					validate = true;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option '" + args[j] + "'");
+			} // switch option
+		} // for j
+		long start = System.nanoTime();
+		Simulator.Tally tally = new JournalReplay(validate).replay(directory);
+		Simulator.report(Wumpus.out, tally, (System.nanoTime() - start) / 1e9);
+	} // static method main
+
+} // class JournalReplay
@@ -0,0 +1,516 @@
+/**
+ * Hunt the Wumpus - exact outcome probabilities
+ *
+ * Only three things in the rules are left to chance: an arrow that cannot
+ * follow its path picks each onward tunnel (other than the one it came
+ * through) with equal probability, a woken wumpus takes each of its tunnels
+ * or stays put with equal probability, and bats drop the hunter in any room
+ * with equal probability.  All three can be enumerated, so instead of
+ * sampling games this engine works out, for a state and a candidate move or
+ * shot, every state the game can end up in and exactly how likely it is.
+ *
+ * Bats deserve a word.  A hunter dropped into another bat room is snatched
+ * again, so the drops could in principle go on forever; but each drop is
+ * independent and uniform, so the room the hunter finally stays in is
+ * simply uniform over the rooms that are not bat rooms (a bat room shared
+ * with the wumpus counts as the wumpus' room, which is checked first).
+ *
+ * States are the packed keys of 'BitboardState', which limits the engine to
+ * caves of at most 'BitboardState.KEY_ROOMS' rooms.  A distribution is
+ * worked out afresh each time it is asked for, which costs at most a few
+ * hundred outcomes.  The win and death totals of each (state, action)
+ * pair, which are what most callers weigh actions by, are kept in a
+ * bounded 'StateCache' under an exact encoding of the pair (see 'pairKey'),
+ * so asking again costs a lookup and memory never grows past the cache's
+ * cap.  The rare pair too big to encode is worked out afresh every time.  An engine is not
+ * thread safe; give each thread its own, sharing one cache between them
+ * if they work out the same cave.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.util.*;
+
+public final class ProbabilityEngine {
+
+	// Action encoding
+	//
+	// A move or shot is packed into a 'long' for use as part of a cache key:
+	//      bits 0-1   - 'ACTION_MOVE' or 'ACTION_SHOOT'
+	//      bits 2-7   - the room moved to, or the range of the shot
+	//      bits 8-    - 6 bits per room of the shot's path
+
+	private static final int ACTION_BITS = 2;
+	private static final int ROOM_BITS   = 6;
+	private static final int ROOM_MASK   = (1 << ROOM_BITS) - 1;
+
+	// Cached totals
+	//
+	//      'DEFAULT_CACHE_BYTES' - Memory cap of an engine's own cache
+	//      'WIN'                 - Cache entry of the win total of a pair
+	//      'DEATH'               - Cache entry of the death total of a pair
+	//      'ABSENT'              - Value read back for a total not cached
+	//      'UNCACHED'            - 'pairKey' of a pair too big to encode
+
+	public static final long    DEFAULT_CACHE_BYTES = 4L << 20;
+	private static final int    WIN                 = 0;
+	private static final int    DEATH               = 1;
+	private static final double ABSENT              = -1.0;
+	private static final long   UNCACHED            = StateCache.EMPTY;
+
+	// Pair encoding
+	//
+	// A (state, action) pair packed one-to-one into a cache key:
+	//      bit  0      - 'WIN' or 'DEATH'
+	//      bits 1-8    - pits, see 'roomPair'
+	//      bits 9-16   - bats, see 'roomPair'
+	//      bits 17-32  - wumpus, hunter, arrows, and game state, as in the state key
+	//      bit  33     - set for a shot
+	//      bits 34-    - the room moved to, or the range of the shot (3 bits)
+	//                    followed by 5 bits per room of its path
+	// which leaves bit 63 clear, so no key is 'StateCache.EMPTY'.
+
+	private static final int PAIR_ROOM_BITS   = 5;
+	private static final int PAIR_RANGE_BITS  = 3;
+	private static final int PAIR_BATS_SHIFT  = 9;
+	private static final int PAIR_REST_SHIFT  = 17;
+	private static final int PAIR_SHOT_SHIFT  = 33;
+	private static final int PAIR_ROOM_SHIFT  = 34;
+	private static final int STATE_REST_SHIFT = 40;
+	private static final int STATE_REST_MASK  = 0xFFFF;
+
+	/**
+	 * Distribution of the outcomes of an action
+	 *
+	 * Lists each distinct state the action can lead to along with its
+	 * probability and, for a dead hunter, the cause of death.  The totals
+	 * by outcome are kept as well.  A distribution is never changed once the
+	 * engine has handed it out.
+	 */
+
+	public static final class Distribution {
+
+		private long[]   states        = new long[8];
+		private double[] probabilities = new double[8];
+		private byte[]   causes        = new byte[8];
+		private int      size;
+
+		private double   win;
+		private double   pitDeath;
+		private double   wumpusDeath;
+		private double   arrowDeath;
+		private double   survive;
+
+		// Accessors
+
+		public int    size()                 { return size; }
+		public long   state(int j)           { return states[j]; }
+		public double probability(int j)     { return probabilities[j]; }
+		public int    cause(int j)           { return causes[j]; }
+		public double win()                  { return win; }
+		public double pitDeath()             { return pitDeath; }
+		public double wumpusDeath()          { return wumpusDeath; }
+		public double arrowDeath()           { return arrowDeath; }
+		public double death()                { return pitDeath + wumpusDeath + arrowDeath; }
+		public double survive()              { return survive; }
+
+		/**
+		 * Add probability to an outcome, merging it with an identical one
+		 *
+		 * @param state the packed state reached
+		 * @param cause the cause of death, 'CAUSE_NONE' if the hunter lives
+		 * @param probability the probability of reaching it this way
+		 */
+
+		void add(long state, int cause, double probability) {
+			for (int j = 0; j < size; j++) {
+				if ((states[j] == state) && (causes[j] == cause)) {
+					probabilities[j] += probability;
+					tally(state, cause, probability);
+					return;
+				} // if already listed
+			} // for j
+			if (size == states.length) {
+				states = Arrays.copyOf(states, size * 2);
+				probabilities = Arrays.copyOf(probabilities, size * 2);
+				causes = Arrays.copyOf(causes, size * 2);
+			} // if full
+			states[size] = state;
+			probabilities[size] = probability;
+			causes[size] = (byte) cause;
+			size++;
+			tally(state, cause, probability);
+		} // method add
+
+		private void tally(long state, int cause, double probability) {
+			switch (cause) {
+				case WumpusEngine.CAUSE_PIT:
+					pitDeath += probability;
+					break;
+				case WumpusEngine.CAUSE_WUMPUS:
+					wumpusDeath += probability;
+					break;
+				case WumpusEngine.CAUSE_ARROW:
+					arrowDeath += probability;
+					break;
+				default:
+					if (BitboardState.keyStatus(state) == Wumpus.WUMPUS_DEAD) {
+						win += probability;
+					} else {
+						survive += probability;
+					} // if won
+			} // switch cause
+		} // method tally
+
+	} // class Distribution
+
+	private final CaveTopology  topology;
+	private final StateCache    cache;
+	private final BitboardState state = new BitboardState();
+
+	/**
+	 * ProbabilityEngine Constructor
+	 *
+	 * @param topology the cave to work out games in
+	 */
+
+	public ProbabilityEngine(CaveTopology topology) {
+		this(topology, new StateCache(DEFAULT_CACHE_BYTES));
+	} // constructor ProbabilityEngine
+
+	/**
+	 * ProbabilityEngine Constructor
+	 *
+	 * @param topology the cave to work out games in
+	 * @param cache where to keep the win and death totals, shared only by engines of the same cave
+	 */
+
+	public ProbabilityEngine(CaveTopology topology, StateCache cache) {
+		if (topology.rooms() > BitboardState.KEY_ROOMS) {
+			throw new IllegalArgumentException("Exact probabilities need a cave of at most " + BitboardState.KEY_ROOMS + " rooms");
+		} // if too big
+		this.topology = topology;
+		this.cache = cache;
+	} // constructor ProbabilityEngine
+
+	/**
+	 * Encode a move
+	 *
+	 * @param room the room to move to
+	 * @return the encoded action
+	 */
+
+	public static long moveAction(int room) {
+		return Wumpus.ACTION_MOVE | ((long) room << ACTION_BITS);
+	} // static method moveAction
+
+	/**
+	 * Encode a shot
+	 *
+	 * @param path the rooms the arrow should fly through
+	 * @param length the range of the shot
+	 * @return the encoded action
+	 */
+
+	public static long shootAction(int[] path, int length) {
+		long action = Wumpus.ACTION_SHOOT | ((long) length << ACTION_BITS);
+		for (int j = 0; j < length; j++) {
+			action |= (long) (path[j] & ROOM_MASK) << (ACTION_BITS + ROOM_BITS * (j + 1));
+		} // for j
+		return action;
+	} // static method shootAction
+
+	/**
+	 * Exact outcomes of moving the hunter
+	 *
+	 * @param state the packed state before the move
+	 * @param room the room to move to
+	 * @return the distribution of the states after the move
+	 */
+
+	public Distribution move(long state, int room) {
+		return expand(state, moveAction(room));
+	} // method move
+
+	/**
+	 * Exact outcomes of shooting an arrow
+	 *
+	 * @param state the packed state before the shot
+	 * @param path the rooms the arrow should fly through
+	 * @param length the range of the shot
+	 * @return the distribution of the states after the shot and the wumpus waking
+	 */
+
+	public Distribution shoot(long state, int[] path, int length) {
+		return expand(state, shootAction(path, length));
+	} // method shoot
+
+	/**
+	 * Exact outcomes of an encoded action
+	 *
+	 * @param state the packed state before the action
+	 * @param action the action, see 'moveAction' and 'shootAction'
+	 * @return the distribution of the states after the action
+	 */
+
+	public Distribution expand(long state, long action) {
+		Distribution outcomes = new Distribution();
+		if (BitboardState.keyStatus(state) != Wumpus.CONTINUE) {
+			outcomes.add(state, WumpusEngine.CAUSE_NONE, 1.0);
+		} else if ((action & ((1 << ACTION_BITS) - 1)) == Wumpus.ACTION_MOVE) {
+			enumerateMove(outcomes, state, (int) (action >>> ACTION_BITS) & ROOM_MASK);
+		} else {
+			enumerateShot(outcomes, state, action);
+		} // if-else chain condition checks
+		return outcomes;
+	} // method expand
+
+	/**
+	 * Probability that an encoded action wins the game, cached
+	 *
+	 * @param state the packed state before the action
+	 * @param action the action, see 'moveAction' and 'shootAction'
+	 * @return the probability of killing the wumpus
+	 */
+
+	public double win(long state, long action) {
+		return total(state, action, WIN);
+	} // method win
+
+	/**
+	 * Probability that an encoded action kills the hunter, cached
+	 *
+	 * @param state the packed state before the action
+	 * @param action the action, see 'moveAction' and 'shootAction'
+	 * @return the probability of the hunter dying, whatever the cause
+	 */
+
+	public double death(long state, long action) {
+		return total(state, action, DEATH);
+	} // method death
+
+	/**
+	 * @return the cache of win and death totals
+	 */
+
+	public StateCache cache() {
+		return cache;
+	} // method cache
+
+	/**
+	 * A total of the outcomes of an action, worked out and cached on a miss
+	 */
+
+	private double total(long state, long action, int which) {
+		long pair = pairKey(state, action);
+		if (pair == UNCACHED) {
+			Distribution outcomes = expand(state, action);
+			return (which == WIN) ? outcomes.win() : outcomes.death();
+		} // if too big to cache
+		double total = cache.getDouble(pair + which, ABSENT);
+		if (total == ABSENT) {
+			Distribution outcomes = expand(state, action);
+			cache.putDouble(pair + WIN, outcomes.win());
+			cache.putDouble(pair + DEATH, outcomes.death());
+			total = (which == WIN) ? outcomes.win() : outcomes.death();
+		} // if not cached
+		return total;
+	} // method total
+
+	/**
+	 * Cache key of a (state, action) pair, see 'Pair encoding'
+	 *
+	 * @return the key of the pair's 'WIN' total, or 'UNCACHED'
+	 */
+
+	static long pairKey(long state, long action) {
+		int pits = roomPair(BitboardState.keyPits(state));
+		int bats = roomPair(BitboardState.keyBats(state));
+		if ((pits < 0) || (bats < 0)) {
+			return UNCACHED;
+		} // if more than two of a hazard
+		long pair = ((long) pits << 1)
+			| ((long) bats << PAIR_BATS_SHIFT)
+			| (((state >>> STATE_REST_SHIFT) & STATE_REST_MASK) << PAIR_REST_SHIFT);
+		int room = (int) (action >>> ACTION_BITS) & ROOM_MASK;
+		if ((action & ((1 << ACTION_BITS) - 1)) == Wumpus.ACTION_MOVE) {
+			return (room < BitboardState.KEY_ROOMS) ? pair | ((long) room << PAIR_ROOM_SHIFT) : UNCACHED;
+		} // if move
+		if (room > Wumpus.MAX_ARROW_RANGE) {
+			return UNCACHED;
+		} // if too long a shot
+		pair |= (1L << PAIR_SHOT_SHIFT) | ((long) room << PAIR_ROOM_SHIFT);
+		for (int j = 0; j < room; j++) {
+			int target = (int) (action >>> (ACTION_BITS + ROOM_BITS * (j + 1))) & ROOM_MASK;
+			if (target >= BitboardState.KEY_ROOMS) {
+				return UNCACHED;
+			} // if not a room of the key
+			pair |= (long) target << (PAIR_ROOM_SHIFT + PAIR_RANGE_BITS + PAIR_ROOM_BITS * j);
+		} // for j
+		return pair;
+	} // static method pairKey
+
+	/**
+	 * Number a room mask of at most two rooms, in eight bits
+	 *
+	 * @return 0 for no room, a distinct positive number for each set of one
+	 *         or two rooms, or -1 for more than two rooms
+	 */
+
+	private static int roomPair(long mask) {
+		if (mask == 0) {
+			return 0;
+		} else if (Long.bitCount(mask) > 2) {
+			return -1;
+		} // if not one or two rooms
+		int low = Long.numberOfTrailingZeros(mask);
+		int high = Long.SIZE - 1 - Long.numberOfLeadingZeros(mask);
+		return (high * (high + 1) / 2) + low + 1;
+	} // static method roomPair
+
+	/**
+	 * Enumerate a move, mirroring 'WumpusEngine.move'
+	 */
+
+	private void enumerateMove(Distribution outcomes, long key, int room) {
+		state.loadKey(key);
+		if (!topology.isConnected(state.hunterRoom(), room)) {
+			outcomes.add(key, WumpusEngine.CAUSE_NONE, 1.0);
+			return;
+		} // if not connected
+		state.moveHunter(room);
+		enumerateHazards(outcomes, state.key(), 1.0, true);
+	} // method enumerateMove
+
+	/**
+	 * Enumerate the hazards of the hunter's room, mirroring 'checkHazards'
+	 *
+	 * @param outcomes the distribution to add to
+	 * @param key the packed state with the hunter in its new room
+	 * @param probability the probability of getting here
+	 * @param batsActive 'false' once the bats' repeated drops have been folded
+	 *                   into a single uniform drop over the rooms without bats
+	 */
+
+	private void enumerateHazards(Distribution outcomes, long key, double probability, boolean batsActive) {
+		state.loadKey(key);
+		switch (state.hazard()) {
+			case BitboardState.HAZARD_WUMPUS:
+				enumerateWake(outcomes, key, probability);
+				break;
+			case BitboardState.HAZARD_BATS:
+				if (batsActive) {
+					long batsOnly = state.bats() & ~state.wumpus();
+					int landing = topology.rooms() - Long.bitCount(batsOnly);
+					for (int room = 0; room < topology.rooms(); room++) {
+						if (((batsOnly >>> room) & 1L) == 0) {
+							state.loadKey(key);
+							state.moveHunter(room);
+							enumerateHazards(outcomes, state.key(), probability / landing, false);
+						} // if not a bat room
+					} // for room
+					break;
+				} // if bats
+				outcomes.add(key, WumpusEngine.CAUSE_NONE, probability);
+				break;
+			case BitboardState.HAZARD_PIT:
+				state.setStatus(Wumpus.HUNTER_DEAD);
+				outcomes.add(state.key(), WumpusEngine.CAUSE_PIT, probability);
+				break;
+			default:
+				outcomes.add(key, WumpusEngine.CAUSE_NONE, probability);
+		} // switch hazard
+	} // method enumerateHazards
+
+	/**
+	 * Enumerate the wumpus waking, mirroring 'wumpusAwaken'
+	 */
+
+	private void enumerateWake(Distribution outcomes, long key, double probability) {
+		int paths = topology.paths();
+		double each = probability / (paths + 1);
+		for (int j = 0; j <= paths; j++) {
+			state.loadKey(key);
+			if (j < paths) {
+				state.moveWumpus(topology.tunnel(state.wumpusRoom(), j));
+			} // if moving
+			if (state.wumpusRoom() == state.hunterRoom()) {
+				state.setStatus(Wumpus.HUNTER_DEAD);
+				outcomes.add(state.key(), WumpusEngine.CAUSE_WUMPUS, each);
+			} else {
+				outcomes.add(state.key(), WumpusEngine.CAUSE_NONE, each);
+			} // if attacked
+		} // for j
+	} // method enumerateWake
+
+	/**
+	 * Enumerate a shot, mirroring 'WumpusEngine.shoot' and 'ArrowFlight'
+	 */
+
+	private void enumerateShot(Distribution outcomes, long key, long action) {
+		state.loadKey(key);
+		if (state.arrows() == 0) {
+			outcomes.add(key, WumpusEngine.CAUSE_NONE, 1.0);
+			return;
+		} // if no arrows
+		state.setArrows(state.arrows() - 1);
+		int length = (int) (action >>> ACTION_BITS) & ROOM_MASK;
+		enumerateFlight(outcomes, state.key(), action, length, 0, -1, state.hunterRoom(), true, 1.0);
+	} // method enumerateShot
+
+	/**
+	 * Enumerate the rest of an arrow's flight
+	 *
+	 * @param outcomes the distribution to add to
+	 * @param key the packed state, arrow already taken from the quiver
+	 * @param action the encoded shot
+	 * @param length the range of the shot
+	 * @param j the number of rooms flown so far
+	 * @param priorRoom the room the arrow was in before 'currentRoom'
+	 * @param currentRoom the room the arrow is in
+	 * @param guided 'true' while the arrow is still following its path
+	 * @param probability the probability of the flight so far
+	 */
+
+	private void enumerateFlight(Distribution outcomes, long key, long action, int length, int j,
+	                             int priorRoom, int currentRoom, boolean guided, double probability) {
+		if (j == length) {
+			enumerateWake(outcomes, key, probability);
+			return;
+		} // if flown full range
+		int target = (int) (action >>> (ACTION_BITS + ROOM_BITS * (j + 1))) & ROOM_MASK;
+		if (guided && topology.isConnected(currentRoom, target)) {
+			enterRoom(outcomes, key, action, length, j, currentRoom, target, true, probability);
+			return;
+		} // if guided
+		int paths = topology.paths();
+		int choices = 0;
+		for (int k = 0; k < paths; k++) {
+			if (topology.tunnel(currentRoom, k) != priorRoom) {
+				choices++;
+			} // if not doubling back
+		} // for k
+		for (int k = 0; k < paths; k++) {
+			int nextRoom = topology.tunnel(currentRoom, k);
+			if (nextRoom != priorRoom) {
+				enterRoom(outcomes, key, action, length, j, currentRoom, nextRoom, false, probability / choices);
+			} // if not doubling back
+		} // for k
+	} // method enumerateFlight
+
+	private void enterRoom(Distribution outcomes, long key, long action, int length, int j,
+	                       int currentRoom, int nextRoom, boolean guided, double probability) {
+		state.loadKey(key);
+		if (nextRoom == state.hunterRoom()) {
+			state.setStatus(Wumpus.HUNTER_DEAD);
+			outcomes.add(state.key(), WumpusEngine.CAUSE_ARROW, probability);
+		} else if (nextRoom == state.wumpusRoom()) {
+			state.setStatus(Wumpus.WUMPUS_DEAD);
+			outcomes.add(state.key(), WumpusEngine.CAUSE_NONE, probability);
+		} else {
+			enumerateFlight(outcomes, key, action, length, j + 1, currentRoom, nextRoom, guided, probability);
+		} // if-else chain condition checks
+	} // method enterRoom
+
+} // class ProbabilityEngine
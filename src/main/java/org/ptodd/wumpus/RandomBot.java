@@ -0,0 +1,46 @@
+/**
+ * Hunt the Wumpus - random bot
+ *
+ * The simplest bot that can still win: it wanders through a random tunnel
+ * each turn and, whenever it smells the wumpus and has an arrow left, shoots
+ * one room down a random tunnel.  It makes a useful floor for comparing
+ * smarter bots against.  Its choices come from its own stream seeded from
+ * the seed of the game, so a game it plays can be replayed exactly.  The
+ * seed is salted with 'BOT_SALT' first: the plain 'seedOf(seed, 0)' is the
+ * first output of the game's own stream, the very draw that places the
+ * hunter, and would tie the bot's choices to the cave's layout.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+public class RandomBot implements WumpusBot {
+
+	// Salt telling the bot's stream apart from the game's
+
+	private static final long BOT_SALT = 0x2545F4914F6CDD1DL;
+
+	private final GameRandom generator = new GameRandom(0);
+
+	public void newGame(WumpusEngine engine) {
+		generator.reseed(GameRandom.seedOf(engine.seed() ^ BOT_SALT, 0));
+	} // method newGame
+
+	public int chooseAction(WumpusEngine engine) {
+		if ((engine.arrows() > 0) && ((engine.senses() & WumpusEngine.SENSE_WUMPUS) != 0)) {
+			return Wumpus.ACTION_SHOOT;
+		} else {
+			return Wumpus.ACTION_MOVE;
+		} // if smell the wumpus
+	} // method chooseAction
+
+	public int chooseRoom(WumpusEngine engine) {
+		return engine.topology().tunnel(engine.hunterRoom(), generator.nextInt(engine.topology().paths()));
+	} // method chooseRoom
+
+	public int choosePath(WumpusEngine engine, int[] path) {
+		path[0] = engine.topology().tunnel(engine.hunterRoom(), generator.nextInt(engine.topology().paths()));
+		return 1;
+	} // method choosePath
+
+} // class RandomBot
@@ -0,0 +1,520 @@
+/**
+ * Hunt the Wumpus - route planning
+ *
+ * Shortest routes through a cave that enter only rooms the hunter knows to
+ * be safe, for walking to a room many tunnels away (the travel action, and
+ * 'SharedCave.travel' in caves of millions of rooms).  The safe rooms come
+ * with each query, a bit per room, as they change with what the hunter
+ * has learned; the room the hunter starts in need not be one of them.
+ *
+ * A route is found by bidirectional A* search with landmarks (ALT).  When
+ * a planner is built, a breadth first search from each of a few landmark
+ * rooms, picked far apart (each the room furthest from those picked
+ * before), stores the number of tunnels from the landmark to every room.
+ * By the triangle inequality, no route between two rooms is shorter than
+ * the difference of their distances from any landmark, so the largest of
+ * those differences is a lower bound on the distance that costs a few
+ * array reads.  Keeping out of rooms that are not safe only ever makes
+ * routes longer, so the bound holds for every query.
+ *
+ * One search grows from each end of the route, each ordered by the
+ * distance walked plus half the difference of the bounds to its own goal
+ * and back to its own start.  Both searches then see every tunnel at the
+ * same cost, from '0' to '2', so the two meet on a shortest route and may
+ * stop as soon as their smallest keys add up to the best route found.
+ * The search with fewer rooms waiting grows next.  A plain breadth first
+ * search grows a ball around the start whose size is exponential in the
+ * length of the route; on a grid like cave the landmarks keep the search
+ * to a thin band along the route, and on a random cave, where no landmark
+ * bound is much use, the two half length balls are still tiny beside one
+ * whole one.
+ *
+ * Keys are kept in doubled units, as whole numbers, and since a tunnel
+ * never adds more than '4' to one, each search queues its rooms in a small
+ * ring of buckets indexed by key rather than in a heap.  What both searches
+ * know of a room sits in one row of a flat table, and its landmark
+ * distances in another, so that in a cave of millions of rooms, far too
+ * big for the processor's caches, looking at a room costs two cache
+ * misses rather than one per table.  Rows are stamped with the query that
+ * last wrote them instead of being cleared, so a query costs only the
+ * rooms it looks at.
+ *
+ * The landmark table never changes once built and may be shared between
+ * threads; the search tables may not, so each thread plans on a planner
+ * of its own made by the copy constructor.
+ *
+ * Usage:
+ *    - "java -cp ./classes org.ptodd.wumpus.Wumpus --routes <rooms> [--cave regular|torus|mobius] [--landmarks <n>] [--queries <n>] [--seed <seed>]"
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.util.*;
+
+public final class RoutePlanner {
+
+	// Planner limits
+	//
+	//      'LANDMARKS' - Landmarks picked by default, sixteen distances a room
+	//      'DISTANT'   - Stored distance of a landmark that is as far or further,
+	//                    or cannot be reached at all
+	//      'RING'      - Buckets in each search's queue, more than the largest key step
+
+	public static final int  LANDMARKS = 16;
+	public static final char DISTANT   = Character.MAX_VALUE;
+	private static final int RING      = 8;
+
+	// The planner of the classic cave, to copy for each game
+
+	public static final RoutePlanner CLASSIC = new RoutePlanner(CaveGraph.dodecahedron(), LANDMARKS);
+
+	// Landmarks, shared by copies
+	//
+	//      'landmarks' - The landmark rooms
+	//      'distances' - Tunnels from landmark 'l' to room 'r' at 'distances[r * count + l]'
+
+	private final CaveGraph graph;
+	private final int       rooms;
+	private final int       count;
+	private final int[]     landmarks;
+	private final char[]    distances;
+
+	// Search table, a row of 'ROW' ints per room, holding for each search
+	// ('0' growing from the start and '1' from the goal) at 'side * SIDE':
+	//
+	//      'STAMP'     - '2 * query' once a room is reached, '2 * query + 1' once settled
+	//      'WALKED'    - Tunnels from the search's own end
+	//      'PARENT'    - The room it was reached from
+	//
+	// and, worked out when either search first reaches the room:
+	//
+	//      'POTENTIAL' - Twice the potential of the search from the start, see 'potential'
+	//
+	// Rows of eight ints keep each row within a cache line.
+
+	private static final int STAMP     = 0;
+	private static final int WALKED    = 1;
+	private static final int PARENT    = 2;
+	private static final int SIDE      = 3;
+	private static final int POTENTIAL = 2 * SIDE;
+	private static final int ROW       = 8;
+
+	private final int[]      table;
+	private final Frontier[] frontiers = { new Frontier(), new Frontier() };
+	private final int[]      startRow;
+	private final int[]      goalRow;
+	private int              query;
+	private int[]            route = new int[16];
+	private int              settled;
+
+	/**
+	 * A queue of rooms by key: a ring of buckets, each a stack
+	 */
+
+	private static final class Frontier {
+
+		private final int[][] buckets = new int[RING][8];
+		private final int[]   sizes   = new int[RING];
+		private int           key;
+		private int           size;
+
+		void clear(int first) {
+			Arrays.fill(sizes, 0);
+			key = first;
+			size = 0;
+		} // method clear
+
+		void push(int key, int room) {
+			int at = key & (RING - 1);
+			if (sizes[at] == buckets[at].length) {
+				buckets[at] = Arrays.copyOf(buckets[at], 2 * sizes[at]);
+			} // if full
+			buckets[at][sizes[at]++] = room;
+			size++;
+		} // method push
+
+		/**
+		 * @return the smallest key queued, the queue not being empty
+		 */
+
+		int top() {
+			while (sizes[key & (RING - 1)] == 0) {
+				key++;
+			} // while bucket empty
+			return key;
+		} // method top
+
+		int pop() {
+			int at = top() & (RING - 1);
+			size--;
+			return buckets[at][--sizes[at]];
+		} // method pop
+
+	} // class Frontier
+
+	/**
+	 * RoutePlanner Constructor, picking landmarks
+	 *
+	 * The first landmark is the room furthest from room '0', each later one
+	 * the room furthest from the landmarks picked so far, lowest first on a
+	 * tie.  Takes a breadth first search of the cave per landmark.
+	 *
+	 * @param graph the cave
+	 * @param landmarks the number of landmarks, at most the number of rooms
+	 */
+
+	public RoutePlanner(CaveGraph graph, int landmarks) {
+		this.graph = graph;
+		this.rooms = graph.rooms();
+		this.count = Math.min(landmarks, rooms);
+		this.landmarks = new int[count];
+		this.distances = new char[rooms * count];
+		int[] queue = new int[rooms];
+		int[] nearest = new int[rooms];
+		int[] distance = new int[rooms];
+		bfs(0, queue, nearest);
+		for (int l = 0; l < count; l++) {
+			int furthest = 0;
+			for (int room = 1; room < rooms; room++) {
+				if (nearest[room] > nearest[furthest]) {
+					furthest = room;
+				} // if further
+			} // for room
+			this.landmarks[l] = furthest;
+			bfs(furthest, queue, distance);
+			for (int room = 0; room < rooms; room++) {
+				distances[room * count + l] = (char) Math.min(distance[room], DISTANT);
+				nearest[room] = (l == 0) ? distance[room] : Math.min(nearest[room], distance[room]);
+			} // for room
+		} // for l
+		startRow = new int[count];
+		goalRow = new int[count];
+		table = new int[rooms * ROW];
+	} // constructor RoutePlanner
+
+	/**
+	 * RoutePlanner Constructor, sharing another planner's landmarks
+	 *
+	 * @param shared the planner whose cave and landmarks to use
+	 */
+
+	public RoutePlanner(RoutePlanner shared) {
+		this.graph = shared.graph;
+		this.rooms = shared.rooms;
+		this.count = shared.count;
+		this.landmarks = shared.landmarks;
+		this.distances = shared.distances;
+		startRow = new int[count];
+		goalRow = new int[count];
+		table = new int[rooms * ROW];
+	} // constructor RoutePlanner
+
+	/**
+	 * Breadth first search of the whole cave
+	 *
+	 * @param from the room to search from
+	 * @param queue scratch space, a room each
+	 * @param distance where to put the tunnels to each room, 'Integer.MAX_VALUE' if unreached
+	 */
+
+	private void bfs(int from, int[] queue, int[] distance) {
+		Arrays.fill(distance, Integer.MAX_VALUE);
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = from;
+		distance[from] = 0;
+		while (head < tail) {
+			int room = queue[head++];
+			for (int j = 0; j < graph.tunnels(room); j++) {
+				int next = graph.tunnel(room, j);
+				if (distance[next] == Integer.MAX_VALUE) {
+					distance[next] = distance[room] + 1;
+					queue[tail++] = next;
+				} // if not yet reached
+			} // for j
+		} // while queued
+	} // method bfs
+
+	// Accessors
+
+	public CaveGraph graph()          { return graph; }
+	public int       landmarks()      { return count; }
+	public int       landmark(int l)  { return landmarks[l]; }
+	public int       hop(int j)       { return route[j]; }
+	public int       settled()        { return settled; }
+
+	/**
+	 * Lower bound on the tunnels between two rooms
+	 *
+	 * @param a a room
+	 * @param b another room
+	 * @return no more than the length of the shortest route between them
+	 */
+
+	public int lowerBound(int a, int b) {
+		int bound = 0;
+		for (int l = 0; l < count; l++) {
+			bound = Math.max(bound, Math.abs(distances[a * count + l] - distances[b * count + l]));
+		} // for l
+		return bound;
+	} // method lowerBound
+
+	/**
+	 * Plan a shortest route through safe rooms
+	 *
+	 * Every room entered along the route, the last included, must be safe.
+	 * The rooms of the route, after 'from', are then read with 'hop'.
+	 *
+	 * @param from the room to start in
+	 * @param to the room to reach
+	 * @param safe the rooms known to be safe, bit 'r % 64' of 'safe[r / 64]' for room 'r'
+	 * @return the number of tunnels walked, or '-1' if no route is known to be safe
+	 */
+
+	public int route(int from, int to, long[] safe) {
+		settled = 0;
+		if (from == to) {
+			return 0;
+		} // if already there
+		if (!isSafe(safe, to)) {
+			return -1;
+		} // if goal not safe
+		if (query == Integer.MAX_VALUE / 2) {
+			Arrays.fill(table, 0);
+			query = 0;
+		} // if stamps used up
+		query++;
+		int reached = 2 * query;
+		for (int l = 0; l < count; l++) {
+			startRow[l] = distances[from * count + l];
+			goalRow[l] = distances[to * count + l];
+		} // for l
+
+		// keys are twice the tunnels walked plus the potential, negated for
+		// the search from the goal, so each ring starts at its own end's key
+
+		int[] ends = { from, to };
+		for (int side = 0; side < 2; side++) {
+			int row = ends[side] * ROW;
+			table[row + POTENTIAL] = potential(ends[side]);
+			table[row + side * SIDE + STAMP] = reached;
+			table[row + side * SIDE + WALKED] = 0;
+			table[row + side * SIDE + PARENT] = -1;
+			frontiers[side].clear(((side == 0) ? 1 : -1) * table[row + POTENTIAL]);
+			frontiers[side].push(frontiers[side].key, ends[side]);
+		} // for side
+		int best = Integer.MAX_VALUE;
+		int meet = -1;
+		while ((frontiers[0].size > 0) && (frontiers[1].size > 0)) {
+			if ((best < Integer.MAX_VALUE) && (frontiers[0].top() + frontiers[1].top() >= 2 * best)) {
+				break;
+			} // if no shorter route is left
+			int side = (frontiers[0].size <= frontiers[1].size) ? 0 : 1;
+			int mine = side * SIDE;
+			int theirs = SIDE - mine;
+			int sign = (side == 0) ? 1 : -1;
+			int key = frontiers[side].top();
+			int room = frontiers[side].pop();
+			int at = room * ROW + mine;
+			if ((table[at + STAMP] != reached) || (2 * table[at + WALKED] + sign * table[room * ROW + POTENTIAL] != key)) {
+				continue;
+			} // if settled already or queued again since
+			table[at + STAMP] = reached + 1;
+			settled++;
+			int steps = table[at + WALKED] + 1;
+			for (int j = 0; j < graph.tunnels(room); j++) {
+				int next = graph.tunnel(room, j);
+				if ((next != from) && !isSafe(safe, next)) {
+					continue;
+				} // if not known to be safe
+				int row = next * ROW;
+				int stamp = table[row + mine + STAMP];
+				if (stamp == reached + 1) {
+					continue;
+				} // if settled
+				if ((stamp != reached) || (steps < table[row + mine + WALKED])) {
+					if ((stamp != reached) && (table[row + theirs + STAMP] < reached)) {
+						table[row + POTENTIAL] = potential(next);
+					} // if first reached this query
+					table[row + mine + STAMP] = reached;
+					table[row + mine + WALKED] = steps;
+					table[row + mine + PARENT] = room;
+					frontiers[side].push(2 * steps + sign * table[row + POTENTIAL], next);
+					if ((table[row + theirs + STAMP] >= reached) && (steps + table[row + theirs + WALKED] < best)) {
+						best = steps + table[row + theirs + WALKED];
+						meet = next;
+					} // if a shorter route meets the other search
+				} // if reached by a shorter way
+			} // for j
+		} // while both searches have rooms left
+		if (meet < 0) {
+			return -1;
+		} // if the searches never met
+
+		// the route: back from the meeting room to the start, then on to the goal
+
+		if (route.length < best) {
+			route = new int[Math.max(best, 2 * route.length)];
+		} // if too short
+		int at = table[meet * ROW + WALKED];
+		for (int room = meet; room != from; room = table[room * ROW + PARENT]) {
+			route[--at] = room;
+		} // for each room back to the start
+		at = table[meet * ROW + WALKED];
+		for (int room = table[meet * ROW + SIDE + PARENT]; room >= 0; room = table[room * ROW + SIDE + PARENT]) {
+			route[at++] = room;
+		} // for each room on to the goal
+		return best;
+	} // method route
+
+	/**
+	 * Twice the potential of the search from the start: the bound to the
+	 * goal less the bound back to the start.  The search from the goal uses
+	 * its negation.
+	 */
+
+	private int potential(int room) {
+		int toGoal = 0;
+		int toStart = 0;
+		int at = room * count;
+		for (int l = 0; l < count; l++) {
+			int d = distances[at + l];
+			toGoal = Math.max(toGoal, Math.abs(d - goalRow[l]));
+			toStart = Math.max(toStart, Math.abs(d - startRow[l]));
+		} // for l
+		return toGoal - toStart;
+	} // method potential
+
+	private static boolean isSafe(long[] safe, int room) {
+		return ((safe[room >>> 6] >>> room) & 1L) != 0;
+	} // static method isSafe
+
+	/**
+	 * Command line entry point, reached through 'Wumpus.main'
+	 *
+	 * Times route queries between random safe rooms of a generated cave in
+	 * which a fifth of the rooms, chosen at random, are not known to be safe,
+	 * and compares the rooms settled with a plain breadth first search.
+	 *
+	 * @param args "--routes <rooms> [--cave regular|torus|mobius] [--landmarks <n>] [--queries <n>] [--seed <seed>]"
+	 */
+
+	public static void main(String[] args) {
+		int rooms = 0;
+		String cave = "regular";
+		int landmarks = LANDMARKS;
+		int queries = 10000;
+		long seed = GameRandom.mix(System.nanoTime());
+		for (int j = 0; j < args.length; j++) {
+			switch (args[j]) {
+				case "--routes":
+					rooms = Integer.parseInt(args[++j]);
+					break;
+				case "--cave":
+					cave = args[++j];
+					break;
+				case "--landmarks":
+					landmarks = Integer.parseInt(args[++j]);
+					break;
+				case "--queries":
+					queries = Integer.parseInt(args[++j]);
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[++j]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option '" + args[j] + "'");
+			} // switch option
+		} // for j
+		GameRandom random = new GameRandom(seed);
+		CaveGraph graph;
+		switch (cave) {
+			case "regular":
+				graph = CaveGraph.randomRegular(rooms, 3, random);
+				break;
+			case "torus":
+				int side = (int) Math.sqrt(rooms);
+				graph = CaveGraph.torus(side, side);
+				break;
+			case "mobius":
+				graph = CaveGraph.mobius(rooms / 2);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown cave '" + cave + "'");
+		} // switch cave
+		rooms = graph.rooms();
+		long[] safe = new long[(rooms + Long.SIZE - 1) / Long.SIZE];
+		int[] open = new int[rooms];
+		int opened = 0;
+		for (int room = 0; room < rooms; room++) {
+			if (random.nextInt(5) > 0) {
+				safe[room >>> 6] |= 1L << room;
+				open[opened++] = room;
+			} // if safe
+		} // for room
+		long start = System.nanoTime();
+		RoutePlanner planner = new RoutePlanner(graph, landmarks);
+		double building = (System.nanoTime() - start) / 1e6;
+		int[] from = new int[queries];
+		int[] to = new int[queries];
+		for (int q = 0; q < queries; q++) {
+			from[q] = open[random.nextInt(opened)];
+			to[q] = open[random.nextInt(opened)];
+		} // for q
+		long found = 0;
+		long tunnels = 0;
+		long searched = 0;
+		start = System.nanoTime();
+		for (int q = 0; q < queries; q++) {
+			int length = planner.route(from[q], to[q], safe);
+			if (length >= 0) {
+				found++;
+				tunnels += length;
+			} // if found
+			searched += planner.settled();
+		} // for q
+		double seconds = (System.nanoTime() - start) / 1e9;
+		int sample = Math.min(queries, 100);
+		long flooded = 0;
+		int[] queue = new int[rooms];
+		int[] distance = new int[rooms];
+		for (int q = 0; q < sample; q++) {
+			flooded += flood(graph, from[q], to[q], safe, queue, distance);
+		} // for q
+		Wumpus.out.printf("Seed:           %d%n", seed);
+		Wumpus.out.printf("Cave:           %s, %,d rooms, %,d known safe%n", cave, rooms, opened);
+		Wumpus.out.printf("Landmarks:      %d, picked in %.1f ms%n", planner.landmarks(), building);
+		Wumpus.out.printf("Queries:        %,d (%,d routed, %.1f tunnels on average)%n", queries, found, (found == 0) ? 0.0 : (double) tunnels / found);
+		Wumpus.out.printf("Settled:        %,.0f rooms a query (breadth first: %,.0f)%n", (double) searched / queries, (double) flooded / sample);
+		Wumpus.out.printf("Elapsed:        %.3f s (%.2f us a query)%n", seconds, seconds * 1e6 / queries);
+	} // static method main
+
+	/**
+	 * Rooms a plain breadth first search through safe rooms settles before
+	 * reaching the goal, for comparison
+	 */
+
+	private static int flood(CaveGraph graph, int from, int to, long[] safe, int[] queue, int[] distance) {
+		Arrays.fill(distance, -1);
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = from;
+		distance[from] = 0;
+		while (head < tail) {
+			int room = queue[head++];
+			if (room == to) {
+				return head;
+			} // if reached
+			for (int j = 0; j < graph.tunnels(room); j++) {
+				int next = graph.tunnel(room, j);
+				if ((distance[next] < 0) && isSafe(safe, next)) {
+					distance[next] = distance[room] + 1;
+					queue[tail++] = next;
+				} // if newly reached
+			} // for j
+		} // while queued
+		return head;
+	} // static method flood
+
+} // class RoutePlanner
@@ -0,0 +1,744 @@
+/**
+ * Hunt the Wumpus - massively multiplayer shared cave
+ *
+ * One large cave (a 'CaveGraph', of up to millions of rooms) shared by
+ * thousands of hunters and many wumpi, every hunter played by its own
+ * caller and any number of them acting at once from different threads.
+ * The rules are the classic ones, stretched to a crowd:
+ *
+ *    - moving into a room with wumpi wakes each of them in turn, and each
+ *      walks a random tunnel or stays put; if any stays, it eats the
+ *      hunter that woke it, and one walking into a room with hunters in
+ *      it eats every one of them, so no live hunter ever shares a room
+ *      with a wumpus
+ *    - bats drop the hunter in a random room without bats, where the
+ *      wumpi and pits are then checked as if the hunter had walked in
+ *    - an arrow stops in the first room it enters with anyone in it,
+ *      killing the first hunter there (perhaps the one who shot it) or
+ *      else the first wumpus; a dead wumpus stays dead, and an arrow
+ *      flying at random stops in a dead end
+ *    - a missed arrow wakes nobody, as a cave this big is never quiet
+ *
+ * The rooms are split into regions of '2^regionBits' consecutive rooms,
+ * each with a lock of its own; there is no global lock.  An action works
+ * out up front every room it could touch, so it can take the locks of
+ * their regions all at once, in region order, which rules out deadlock:
+ *
+ *    - a move: the rooms left and entered, the rooms next to the one
+ *      entered (where a woken wumpus may walk, and eat whoever is there),
+ *      and, for a bat room, the
+ *      room the bats will drop the hunter in and the rooms next to that
+ *    - a shot: the shooter's room and every room of the arrow's flight
+ *
+ * The random choices that decide which rooms those are, where bats drop
+ * the hunter and where an arrow flies once it leaves its path, are drawn
+ * from the hunter's own 'GameRandom' before locking; they depend only on
+ * the cave, which never changes.  An arrow flight crossing regions holds
+ * all of them while it flies, so no other action sees it half done: every
+ * run of actions comes out exactly as if they had been taken one at a
+ * time, in the order they took their locks.  Actions in different parts
+ * of the cave share no lock, so on a big cave the actions per second grow
+ * with the number of cores.
+ *
+ * Each hunter must only be played by one thread at a time; its room,
+ * arrows, and random stream belong to that thread, and other hunters'
+ * arrows only ever kill it under the lock of its room.  The lock set and
+ * the arrow's flight are worked out in scratch arrays kept per thread, so
+ * an action allocates nothing.
+ *
+ * Usage:
+ *    - "java -cp ./classes org.ptodd.wumpus.Wumpus --shared <rooms> [--hunters <n>] [--wumpi <n>] [--threads <n>] [--actions <n>] [--seed <seed>]"
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+public final class SharedCave {
+
+	// Defaults
+	//
+	//      'REGION_BITS' - Regions of '2^bits' rooms, each with its own lock
+	//      'HAZARDS'     - Rooms per pit and per colony of bats, as in the classic cave
+
+	public static final int REGION_BITS = 10;
+	public static final int HAZARDS     = 10;
+
+	// Random draws for a clear room before 'respawn' searches room by room
+
+	private static final int RESPAWN_DRAWS = 64;
+
+	private final CaveGraph       graph;
+	private final int             rooms;
+	private final int             regionBits;
+	private final ReentrantLock[] locks;
+	private final ThreadLocal<Scratch> scratch;
+
+	// Hazards, a bit per room, never changed once placed
+
+	private final long[] pits;
+	private final long[] bats;
+
+	// Occupants
+	//
+	// Each room heads a list of the wumpi in it and a list of the live
+	// hunters in it, linked through 'wumpusNext' and 'hunterNext' ('-1'
+	// ends a list), all changed only under the lock of the room's region.
+
+	private final int[]          wumpusHead;
+	private final int[]          wumpusNext;
+	private final int[]          wumpusRoom;
+	private final int[]          hunterHead;
+	private final int[]          hunterNext;
+	private final int[]          hunterRoom;
+	private final int[]          arrows;
+	private final boolean[]      alive;
+	private final GameRandom[]   randoms;
+	private final AtomicInteger  liveWumpi   = new AtomicInteger();
+	private final AtomicInteger  liveHunters = new AtomicInteger();
+
+	/**
+	 * Scratch arrays of one thread: the regions an action locks, and the
+	 * rooms of an arrow's flight
+	 */
+
+	private static final class Scratch {
+
+		final int[] regions;
+		final int[] flight = new int[Wumpus.MAX_ARROW_RANGE];
+
+		Scratch(int regions) {
+			this.regions = new int[regions];
+		} // constructor Scratch
+
+	} // class Scratch
+
+	/**
+	 * SharedCave Constructor, with everything placed at random
+	 *
+	 * @param graph the cave
+	 * @param wumpi the number of wumpi, each in a room without hazards
+	 * @param hunters the number of hunters, each in a room without hazards or wumpi
+	 * @param seed the seed of the placement and of the hunters' random streams
+	 */
+
+	public SharedCave(CaveGraph graph, int wumpi, int hunters, long seed) {
+		this(graph, REGION_BITS, place(graph.rooms(), graph.rooms() / HAZARDS, wumpi, hunters, seed), seed);
+	} // constructor SharedCave
+
+	/**
+	 * SharedCave Constructor, with everything placed as given
+	 *
+	 * @param graph the cave
+	 * @param regionBits regions of '2^regionBits' rooms
+	 * @param placement the rooms of the pits, the bats, the wumpi, and the hunters
+	 * @param seed the seed of the hunters' random streams
+	 */
+
+	SharedCave(CaveGraph graph, int regionBits, int[][] placement, long seed) {
+		this.graph = graph;
+		this.rooms = graph.rooms();
+		this.regionBits = regionBits;
+		locks = new ReentrantLock[((rooms - 1) >>> regionBits) + 1];
+		for (int j = 0; j < locks.length; j++) {
+			locks[j] = new ReentrantLock();
+		} // for j
+		int tunnels = 0;
+		for (int room = 0; room < rooms; room++) {
+			tunnels = Math.max(tunnels, graph.tunnels(room));
+		} // for room
+		int regions = Math.max(3 + 2 * tunnels, Wumpus.MAX_ARROW_RANGE + 1);
+		scratch = ThreadLocal.withInitial(() -> new Scratch(regions));
+		pits = new long[(rooms + Long.SIZE - 1) / Long.SIZE];
+		bats = new long[pits.length];
+		for (int room : placement[0]) {
+			pits[room >>> 6] |= 1L << room;
+		} // for each pit
+		for (int room : placement[1]) {
+			bats[room >>> 6] |= 1L << room;
+		} // for each colony of bats
+		wumpusHead = new int[rooms];
+		hunterHead = new int[rooms];
+		Arrays.fill(wumpusHead, -1);
+		Arrays.fill(hunterHead, -1);
+		wumpusNext = new int[placement[2].length];
+		wumpusRoom = placement[2].clone();
+		for (int w = 0; w < wumpusRoom.length; w++) {
+			wumpusNext[w] = wumpusHead[wumpusRoom[w]];
+			wumpusHead[wumpusRoom[w]] = w;
+		} // for w
+		liveWumpi.set(wumpusRoom.length);
+		int hunters = placement[3].length;
+		hunterNext = new int[hunters];
+		hunterRoom = placement[3].clone();
+		arrows = new int[hunters];
+		alive = new boolean[hunters];
+		randoms = new GameRandom[hunters];
+		for (int h = 0; h < hunters; h++) {
+			link(hunterHead, hunterNext, h, hunterRoom[h]);
+			arrows[h] = Wumpus.MAX_ARROWS;
+			alive[h] = true;
+			randoms[h] = new GameRandom(GameRandom.seedOf(seed, h));
+		} // for h
+		liveHunters.set(hunters);
+	} // constructor SharedCave
+
+	/**
+	 * Random placement: the hazards, the wumpi, and the hunters each in a
+	 * room of its own, drawn without retries by a 'HazardPlacement'
+	 *
+	 * @return the rooms of the pits, the bats, the wumpi, and the hunters
+	 */
+
+	private static int[][] place(int rooms, int hazards, int wumpi, int hunters, long seed) {
+		if ((2L * hazards + wumpi + hunters) > rooms) {
+			throw new IllegalArgumentException("A cave of " + rooms + " rooms cannot hold " + wumpi + " wumpi and " + hunters + " hunters");
+		} // if too crowded
+		HazardPlacement placement = new HazardPlacement(rooms, hunters, wumpi, hazards, hazards);
+		int[] locationOf = new int[placement.objects()];
+		placement.place(new GameRandom(seed), locationOf);
+		return new int[][] {
+			Arrays.copyOfRange(locationOf, placement.firstPit(), placement.firstBats()),
+			Arrays.copyOfRange(locationOf, placement.firstBats(), placement.objects()),
+			Arrays.copyOfRange(locationOf, placement.firstWumpus(), placement.firstPit()),
+			Arrays.copyOfRange(locationOf, 0, placement.firstWumpus())
+		};
+	} // static method place
+
+	// Accessors
+
+	public CaveGraph graph()              { return graph; }
+	public int       hunters()            { return hunterRoom.length; }
+	public int       wumpi()              { return wumpusRoom.length; }
+	public int       liveHunters()        { return liveHunters.get(); }
+	public int       liveWumpi()          { return liveWumpi.get(); }
+	public int       hunterRoom(int h)    { return hunterRoom[h]; }
+	public int       arrows(int h)        { return arrows[h]; }
+	public int       wumpusRoom(int w)    { return wumpusRoom[w]; }  // '-1' once dead
+	public boolean   isPit(int room)      { return ((pits[room >>> 6] >>> room) & 1L) != 0; }
+	public boolean   isBats(int room)     { return ((bats[room >>> 6] >>> room) & 1L) != 0; }
+
+	/**
+	 * @return the number of live hunters listed in a room, for checking
+	 */
+
+	int huntersIn(int room) {
+		return count(hunterHead, hunterNext, room);
+	} // method huntersIn
+
+	/**
+	 * @return the number of live wumpi listed in a room, for checking
+	 */
+
+	int wumpiIn(int room) {
+		return count(wumpusHead, wumpusNext, room);
+	} // method wumpiIn
+
+	private int count(int[] head, int[] next, int room) {
+		ReentrantLock lock = locks[room >>> regionBits];
+		lock.lock();
+		try {
+			int count = 0;
+			for (int id = head[room]; id >= 0; id = next[id]) {
+				count++;
+			} // for each occupant
+			return count;
+		} finally {
+			lock.unlock();
+		} // try-finally
+	} // method count
+
+	/**
+	 * @param h the hunter
+	 * @return 'true' if the hunter is alive, as of its last action or arrow
+	 */
+
+	public boolean isAlive(int h) {
+		ReentrantLock lock = locks[hunterRoom[h] >>> regionBits];
+		lock.lock();
+		try {
+			return alive[h];
+		} finally {
+			lock.unlock();
+		} // try-finally
+	} // method isAlive
+
+	/**
+	 * Move a hunter
+	 *
+	 * Moving to a room with no tunnel to it does nothing.
+	 *
+	 * @param h the hunter
+	 * @param room the room to move to
+	 * @return 'Wumpus.HUNTER_DEAD' if the hunter is dead, otherwise 'Wumpus.CONTINUE'
+	 */
+
+	public int move(int h, int room) {
+		int from = hunterRoom[h];
+		if (!isTunnel(from, room)) {
+			return isAlive(h) ? Wumpus.CONTINUE : Wumpus.HUNTER_DEAD;
+		} // if no tunnel
+		int drop = isBats(room) ? dropRoom(randoms[h]) : -1;
+		int[] regions = scratch.get().regions;
+		int count = add(regions, 0, from);
+		count = addAround(regions, count, room);
+		if (drop >= 0) {
+			count = addAround(regions, count, drop);
+		} // if bats
+		lock(regions, count);
+		try {
+			if (!alive[h]) {
+				return Wumpus.HUNTER_DEAD;
+			} // if dead
+			relocate(h, room);
+			if (wumpusHead[room] >= 0) {
+				return bump(h, room);
+			} else if (drop >= 0) {
+				relocate(h, drop);
+				if (wumpusHead[drop] >= 0) {
+					return bump(h, drop);
+				} // if bats dropped the hunter on the wumpi
+				return isPit(drop) ? kill(h) : Wumpus.CONTINUE;
+			} else if (isPit(room)) {
+				return kill(h);
+			} else {
+				return Wumpus.CONTINUE;
+			} // if-else chain condition checks
+		} finally {
+			unlock(regions, count);
+		} // try-finally
+	} // method move
+
+	/**
+	 * Walk a hunter to a room any number of tunnels away
+	 *
+	 * Plans a shortest route through the rooms the hunter knows to be safe,
+	 * then takes it one move at a time, each move an action of its own, so
+	 * other hunters act in between.  The walk stops early if the hunter dies
+	 * or bats carry it off the route; with no route known to be safe the
+	 * hunter stays put.
+	 *
+	 * @param h the hunter
+	 * @param room the room to walk to
+	 * @param safe the rooms the hunter knows to be safe, a bit per room
+	 * @param planner a planner of this cave, used by no other thread meanwhile
+	 * @return 'Wumpus.HUNTER_DEAD' if the hunter is dead, otherwise 'Wumpus.CONTINUE'
+	 */
+
+	public int travel(int h, int room, long[] safe, RoutePlanner planner) {
+		int length = planner.route(hunterRoom[h], room, safe);
+		for (int j = 0; j < length; j++) {
+			int next = planner.hop(j);
+			if ((move(h, next) != Wumpus.CONTINUE) || (hunterRoom[h] != next)) {
+				break;
+			} // if the walk went wrong
+		} // for j
+		return isAlive(h) ? Wumpus.CONTINUE : Wumpus.HUNTER_DEAD;
+	} // method travel
+
+	/**
+	 * Shoot an arrow
+	 *
+	 * The arrow follows the path while each room has a tunnel to the next,
+	 * then flies at random, never doubling back, as in 'ArrowFlight'; a room
+	 * whose only tunnels lead back ends the flight there.
+	 *
+	 * @param h the hunter
+	 * @param path the rooms the arrow should fly through
+	 * @param length the number of rooms in 'path' to use, at most 'Wumpus.MAX_ARROW_RANGE'
+	 * @return 'Wumpus.WUMPUS_DEAD' if the arrow killed a wumpus,
+	 *         'Wumpus.HUNTER_DEAD' if the hunter is dead, otherwise 'Wumpus.CONTINUE'
+	 */
+
+	public int shoot(int h, int[] path, int length) {
+		if (arrows[h] == 0) {
+			return isAlive(h) ? Wumpus.CONTINUE : Wumpus.HUNTER_DEAD;
+		} // if no arrows
+		if (length > Wumpus.MAX_ARROW_RANGE) {
+			throw new IllegalArgumentException("An arrow flies at most " + Wumpus.MAX_ARROW_RANGE + " rooms");
+		} // if too far
+		int from = hunterRoom[h];
+		Scratch work = scratch.get();
+		int[] flight = work.flight;
+		GameRandom random = randoms[h];
+		int prior = -1;
+		int current = from;
+		boolean guided = true;
+		int flown = 0;
+		while (flown < length) {
+			int next;
+			if (guided && isTunnel(current, path[flown])) {
+				next = path[flown];
+			} else if (isDeadEnd(current, prior)) {
+				break;
+			} else {
+				guided = false;
+				do {
+					next = graph.tunnel(current, random.nextInt(graph.tunnels(current)));
+				} while (next == prior);
+			} // if guided
+			flight[flown++] = next;
+			prior = current;
+			current = next;
+		} // while in range
+		int[] regions = work.regions;
+		int count = add(regions, 0, from);
+		for (int j = 0; j < flown; j++) {
+			count = add(regions, count, flight[j]);
+		} // for each room of the flight
+		lock(regions, count);
+		try {
+			if (!alive[h]) {
+				return Wumpus.HUNTER_DEAD;
+			} // if dead
+			arrows[h]--;
+			for (int j = 0; j < flown; j++) {
+				int room = flight[j];
+				if (hunterHead[room] >= 0) {
+					int victim = hunterHead[room];
+					kill(victim);
+					return (victim == h) ? Wumpus.HUNTER_DEAD : Wumpus.CONTINUE;
+				} else if (wumpusHead[room] >= 0) {
+					int w = wumpusHead[room];
+					wumpusHead[room] = wumpusNext[w];
+					wumpusRoom[w] = -1;
+					liveWumpi.decrementAndGet();
+					return Wumpus.WUMPUS_DEAD;
+				} // if hit
+			} // for each room of the flight
+			return Wumpus.CONTINUE;
+		} finally {
+			unlock(regions, count);
+		} // try-finally
+	} // method shoot
+
+	/**
+	 * Bring a dead hunter back, with a full quiver, in a random room clear
+	 * of hazards and wumpi
+	 *
+	 * A hunter still alive is left as it is.  The room is drawn at random a
+	 * few times; failing that, the rooms are searched in turn from the last
+	 * one drawn, and with no clear room anywhere the hunter stays dead.
+	 *
+	 * @param h the hunter
+	 * @return 'true' if the hunter is alive
+	 */
+
+	public boolean respawn(int h) {
+		if (isAlive(h)) {
+			return true;
+		} // if not dead
+		GameRandom random = randoms[h];
+		int room = 0;
+		for (int j = 0; j < RESPAWN_DRAWS; j++) {
+			room = random.nextInt(rooms);
+			if (placeIn(h, room)) {
+				return true;
+			} // if placed
+		} // for j
+		for (int j = 1; j < rooms; j++) {
+			if (placeIn(h, (room + j) % rooms)) {
+				return true;
+			} // if placed
+		} // for j
+		return false;
+	} // method respawn
+
+	/**
+	 * Bring a dead hunter back in a room, if it is clear of hazards and wumpi
+	 *
+	 * @return 'true' if the hunter was placed
+	 */
+
+	private boolean placeIn(int h, int room) {
+		if (isPit(room) || isBats(room)) {
+			return false;
+		} // if a hazard
+		ReentrantLock lock = locks[room >>> regionBits];
+		lock.lock();
+		try {
+			if (wumpusHead[room] >= 0) {
+				return false;
+			} // if a wumpus
+			hunterRoom[h] = room;
+			link(hunterHead, hunterNext, h, room);
+			arrows[h] = Wumpus.MAX_ARROWS;
+			alive[h] = true;
+			liveHunters.incrementAndGet();
+			return true;
+		} finally {
+			lock.unlock();
+		} // try-finally
+	} // method placeIn
+
+	/**
+	 * Wake the wumpi in the hunter's room, each walking off or staying put
+	 *
+	 * A wumpus staying put eats the hunter that woke it; one walking off
+	 * eats the hunters in the room it walks into.  Called with the locks of
+	 * the room and the rooms next to it held.
+	 */
+
+	private int bump(int h, int room) {
+		GameRandom random = randoms[h];
+		int tunnels = graph.tunnels(room);
+		boolean attacked = false;
+		int w = wumpusHead[room];
+		wumpusHead[room] = -1;
+		while (w >= 0) {
+			int next = wumpusNext[w];
+			int path = random.nextInt(tunnels + 1);
+			int to = (path < tunnels) ? graph.tunnel(room, path) : room;
+			attacked |= (to == room);
+			while ((to != room) && (hunterHead[to] >= 0)) {
+				kill(hunterHead[to]);
+			} // while hunters where it lands
+			wumpusRoom[w] = to;
+			link(wumpusHead, wumpusNext, w, to);
+			w = next;
+		} // while wumpi to wake
+		return attacked ? kill(h) : Wumpus.CONTINUE;
+	} // method bump
+
+	/**
+	 * Room bats drop a hunter in, at random among the rooms without bats
+	 */
+
+	private int dropRoom(GameRandom random) {
+		int room;
+		do {
+			room = random.nextInt(rooms);
+		} while (isBats(room));
+		return room;
+	} // method dropRoom
+
+	/**
+	 * Move a live hunter between rooms, under the locks of both
+	 */
+
+	private void relocate(int h, int room) {
+		unlink(hunterHead, hunterNext, h, hunterRoom[h]);
+		hunterRoom[h] = room;
+		link(hunterHead, hunterNext, h, room);
+	} // method relocate
+
+	/**
+	 * Kill a hunter, under the lock of its room
+	 */
+
+	private int kill(int h) {
+		unlink(hunterHead, hunterNext, h, hunterRoom[h]);
+		alive[h] = false;
+		liveHunters.decrementAndGet();
+		return Wumpus.HUNTER_DEAD;
+	} // method kill
+
+	/**
+	 * @return 'true' if every tunnel out of a room leads back to 'prior'
+	 */
+
+	private boolean isDeadEnd(int room, int prior) {
+		if (prior < 0) {
+			return false;
+		} // if just shot
+		for (int j = 0; j < graph.tunnels(room); j++) {
+			if (graph.tunnel(room, j) != prior) {
+				return false;
+			} // if another way out
+		} // for j
+		return true;
+	} // method isDeadEnd
+
+	private boolean isTunnel(int from, int to) {
+		for (int j = 0; j < graph.tunnels(from); j++) {
+			if (graph.tunnel(from, j) == to) {
+				return true;
+			} // if found
+		} // for j
+		return false;
+	} // method isTunnel
+
+	private static void link(int[] head, int[] next, int id, int room) {
+		next[id] = head[room];
+		head[room] = id;
+	} // static method link
+
+	private static void unlink(int[] head, int[] next, int id, int room) {
+		if (head[room] == id) {
+			head[room] = next[id];
+			return;
+		} // if first
+		int before = head[room];
+		while (next[before] != id) {
+			before = next[before];
+		} // while not found
+		next[before] = next[id];
+	} // static method unlink
+
+	// Lock sets
+	//
+	// The regions an action locks, kept sorted and free of duplicates in a
+	// small array so they are always locked in the same order.
+
+	private int add(int[] regions, int count, int room) {
+		int region = room >>> regionBits;
+		int at = 0;
+		while ((at < count) && (regions[at] < region)) {
+			at++;
+		} // while lower
+		if ((at < count) && (regions[at] == region)) {
+			return count;
+		} // if already in
+		System.arraycopy(regions, at, regions, at + 1, count - at);
+		regions[at] = region;
+		return count + 1;
+	} // method add
+
+	private int addAround(int[] regions, int count, int room) {
+		count = add(regions, count, room);
+		for (int j = 0; j < graph.tunnels(room); j++) {
+			count = add(regions, count, graph.tunnel(room, j));
+		} // for j
+		return count;
+	} // method addAround
+
+	private void lock(int[] regions, int count) {
+		for (int j = 0; j < count; j++) {
+			locks[regions[j]].lock();
+		} // for j
+	} // method lock
+
+	private void unlock(int[] regions, int count) {
+		for (int j = count - 1; j >= 0; j--) {
+			locks[regions[j]].unlock();
+		} // for j
+	} // method unlock
+
+	/**
+	 * Command line entry point, reached through 'Wumpus.main'
+	 *
+	 * Plays random hunters in a random cave of three tunnels a room, each
+	 * thread playing its share of the hunters in turn: mostly moves down a
+	 * random tunnel, one action in eight a shot of one to three rooms, and
+	 * a dead hunter's turn spent coming back.  A hunter whose quiver runs
+	 * dry is given a new one, so the shooting goes on.
+	 *
+	 * @param args "--shared <rooms> [--hunters <n>] [--wumpi <n>] [--threads <n>] [--actions <n>] [--seed <seed>]"
+	 */
+
+	public static void main(String[] args) {
+		int rooms = 0;
+		int hunters = 10000;
+		int wumpi = 1000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long actions = 10000000L;
+		long seed = GameRandom.mix(System.nanoTime());
+		for (int j = 0; j < args.length; j++) {
+			switch (args[j]) {
+				case "--shared":
+					rooms = Integer.parseInt(args[++j]);
+					break;
+				case "--hunters":
+					hunters = Integer.parseInt(args[++j]);
+					break;
+				case "--wumpi":
+					wumpi = Integer.parseInt(args[++j]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++j]);
+					break;
+				case "--actions":
+					actions = Long.parseLong(args[++j]);
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[++j]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option '" + args[j] + "'");
+			} // switch option
+		} // for j
+		threads = Math.max(1, Math.min(threads, hunters));
+		SharedCave cave = new SharedCave(CaveGraph.randomRegular(rooms, 3, new GameRandom(seed)), wumpi, hunters, seed);
+		Wumpus.out.printf("Seed:           %d%n", seed);
+		long start = System.nanoTime();
+		long kills = cave.play(actions, threads, seed);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		Wumpus.out.printf("Rooms:          %,d in %,d regions%n", rooms, cave.locks.length);
+		Wumpus.out.printf("Hunters:        %,d (%,d alive)%n", hunters, cave.liveHunters());
+		Wumpus.out.printf("Wumpi:          %,d (%,d killed)%n", wumpi, kills);
+		Wumpus.out.printf("Actions:        %,d on %d threads%n", actions, threads);
+		Wumpus.out.printf("Elapsed:        %.3f s (%,.0f actions/s)%n", seconds, actions / seconds);
+	} // static method main
+
+	/**
+	 * Play random hunters, see 'main'
+	 *
+	 * @param actions the actions to take in all
+	 * @param threads the number of threads, each playing every 'threads'-th
+	 *                hunter; no more are used than there are hunters
+	 * @param seed the seed of the threads' choices
+	 * @return the number of wumpi killed
+	 */
+
+	long play(long actions, int threads, long seed) {
+		int used = Math.max(1, Math.min(threads, hunters()));
+		ForkJoinPool pool = new ForkJoinPool(used);
+		try {
+			List<Callable<Long>> players = new ArrayList<>();
+			for (int t = 0; t < used; t++) {
+				int first = t;
+				long count = actions / used + ((t < actions % used) ? 1 : 0);
+				GameRandom random = new GameRandom(GameRandom.seedOf(seed, hunters() + t));
+				players.add(() -> playShare(first, used, count, random));
+			} // for t
+			long kills = 0;
+			for (Future<Long> player : pool.invokeAll(players)) {
+				kills += player.get();
+			} // for each player
+			return kills;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Shared cave interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Shared cave failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		} // try-catch-finally
+	} // method play
+
+	private long playShare(int first, int stride, long count, GameRandom random) {
+		long kills = 0;
+		int[] path = new int[Wumpus.MAX_ARROW_RANGE];
+		int h = first;
+		for (long j = 0; j < count; j++) {
+			int room = hunterRoom[h];
+			if (!isAlive(h)) {
+				respawn(h);
+			} else if (random.nextInt(8) > 0) {
+				move(h, graph.tunnel(room, random.nextInt(graph.tunnels(room))));
+			} else {
+				int length = 1 + random.nextInt(3);
+				for (int k = 0, at = room; k < length; k++) {
+					at = graph.tunnel(at, random.nextInt(graph.tunnels(at)));
+					path[k] = at;
+				} // for k
+				if (shoot(h, path, length) == Wumpus.WUMPUS_DEAD) {
+					kills++;
+				} // if a kill
+				if (arrows[h] == 0) {
+					arrows[h] = Wumpus.MAX_ARROWS;
+				} // if out of arrows
+			} // if-else chain condition checks
+			h += stride;
+			if (h >= hunters()) {
+				h = first;
+			} // if past the last hunter
+		} // for j
+		return kills;
+	} // method playShare
+
+} // class SharedCave
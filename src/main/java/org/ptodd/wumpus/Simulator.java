@@ -0,0 +1,386 @@
+/**
+ * Hunt the Wumpus - Monte Carlo batch simulator
+ *
+ * Plays a large number of games with a bot policy and reports how they
+ * ended.  The games are split across all cores with fork/join: the total
+ * is halved recursively until a slice is small enough to play straight
+ * through, and each slice plays on its own engine with its own bot so no
+ * game state is ever shared between threads.  The tallies of the slices
+ * are added back together as the tasks join.
+ *
+ * Game 'n' is set up from 'GameRandom.seedOf(master, n)', so a run is
+ * reproduced exactly by giving the same master seed with '--seed',
+ * whatever the number of threads.  For the same reason the expectimax bot
+ * searches to its full depth, without the wall clock budget it has in play.
+ *
+ * With '--journal' every game is recorded in a 'GameJournal', one stream per
+ * slice, so the journal of a run is the same whatever the number of threads.
+ * With '--cache' the expectimax bots of every thread share one
+ * 'StateCache' of search values, of the given number of megabytes, and its
+ * counters are reported at the end; a run with a shared cache is no longer
+ * reproduced exactly.
+ *
+ * Usage:
+ *    - "java -cp ./classes org.ptodd.wumpus.Wumpus --simulate <games> [--threads <n>] [--bot <name>] [--seed <master>] [--journal <dir>] [--cache <megabytes>]"
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+public class Simulator {
+
+	// Simulation parameters
+	//
+	//      'SLICE_GAMES' - Games played straight through by a single fork/join task
+	//      'MAX_TURNS'   - Actions allowed before a wandering bot is made to quit
+
+	public static final int SLICE_GAMES = 10000;
+	public static final int MAX_TURNS   = 1000;
+
+	/**
+	 * Tally of game outcomes
+	 *
+	 * Each fork/join task fills in its own tally; tallies are only ever
+	 * combined by the task that joined them.
+	 */
+
+	public static class Tally {
+
+		public long games;
+		public long wins;
+		public long pitDeaths;
+		public long wumpusDeaths;
+		public long arrowDeaths;
+		public long quits;
+		public long turns;
+
+		/**
+		 * Record the outcome of a finished game
+		 *
+		 * @param engine the engine the game was played on
+		 * @param turns the number of actions taken
+		 */
+
+		void record(WumpusEngine engine, int turns) {
+			record(engine.status(), engine.cause(), turns);
+		} // method record
+
+		/**
+		 * Record the outcome of a finished game
+		 *
+		 * @param status the game status, as 'WumpusEngine.status'
+		 * @param cause the cause of death, as 'WumpusEngine.cause'
+		 * @param turns the number of actions taken
+		 */
+
+		void record(int status, int cause, int turns) {
+			games++;
+			this.turns += turns;
+			switch (status) {
+				case Wumpus.WUMPUS_DEAD:
+					wins++;
+					break;
+				case Wumpus.HUNTER_DEAD:
+					switch (cause) {
+						case WumpusEngine.CAUSE_PIT:
+							pitDeaths++;
+							break;
+						case WumpusEngine.CAUSE_WUMPUS:
+							wumpusDeaths++;
+							break;
+						case WumpusEngine.CAUSE_ARROW:
+							arrowDeaths++;
+							break;
+					} // switch cause
+					break;
+				default:
+					quits++;
+			} // switch game state
+		} // method record
+
+		/**
+		 * Add another tally into this one
+		 *
+		 * @param other the tally to add
+		 * @return this tally
+		 */
+
+		Tally add(Tally other) {
+			games        += other.games;
+			wins         += other.wins;
+			pitDeaths    += other.pitDeaths;
+			wumpusDeaths += other.wumpusDeaths;
+			arrowDeaths  += other.arrowDeaths;
+			quits        += other.quits;
+			turns        += other.turns;
+			return this;
+		} // method add
+
+		public long losses() {
+			return pitDeaths + wumpusDeaths + arrowDeaths;
+		} // method losses
+
+	} // class Tally
+
+	/**
+	 * Plays a slice of games straight through
+	 */
+
+	interface SlicePlayer {
+
+		Tally play(long first, long games);
+
+	} // interface SlicePlayer
+
+	/**
+	 * Fork/join task playing a slice of the games
+	 */
+
+	@SuppressWarnings("serial")
+	static class SliceTask extends RecursiveTask<Tally> {
+
+		private final SlicePlayer player;
+		private final long        first;
+		private final long        games;
+
+		SliceTask(SlicePlayer player, long first, long games) {
+			this.player = player;
+			this.first = first;
+			this.games = games;
+		} // constructor SliceTask
+
+		protected Tally compute() {
+			if (games <= SLICE_GAMES) {
+				return player.play(first, games);
+			} // if small enough
+			SliceTask left = new SliceTask(player, first, games / 2);
+			SliceTask right = new SliceTask(player, first + (games / 2), games - (games / 2));
+			left.fork();
+			return right.compute().add(left.join());
+		} // method compute
+
+	} // class SliceTask
+
+	/**
+	 * Run a simulation
+	 *
+	 * @param bots supplies one bot per slice of games
+	 * @param master the master seed the seed of every game is derived from
+	 * @param games the number of games to play
+	 * @param threads the number of worker threads
+	 * @return the tally of all the games played
+	 */
+
+	public static Tally simulate(Supplier<WumpusBot> bots, long master, long games, int threads) {
+		return run((first, slice) -> playSlice(bots.get(), master, first, slice, null), games, threads);
+	} // static method simulate
+
+	/**
+	 * Run a simulation, recording every game
+	 *
+	 * @param bots supplies one bot per slice of games
+	 * @param master the master seed the seed of every game is derived from
+	 * @param games the number of games to play
+	 * @param threads the number of worker threads
+	 * @param journal the journal directory, which must not already hold these streams
+	 * @return the tally of all the games played
+	 */
+
+	public static Tally simulate(Supplier<WumpusBot> bots, long master, long games, int threads, Path journal) {
+		return run((first, slice) -> {
+			try (GameJournal out = new GameJournal(journal, String.format("games-%012d", first))) {
+				return playSlice(bots.get(), master, first, slice, out);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} // try-catch
+		}, games, threads);
+	} // static method simulate
+
+	private static Tally run(SlicePlayer player, long games, int threads) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.invoke(new SliceTask(player, 0, games));
+		} finally {
+			pool.shutdown();
+		} // try-finally
+	} // static method run
+
+	/**
+	 * Play a slice of games on a fresh engine, perhaps recording them
+	 *
+	 * @param bot the bot to play the games
+	 * @param master the master seed
+	 * @param first the number of the first game of the slice
+	 * @param games the number of games to play
+	 * @param journal where to record the games, or 'null'
+	 * @return the tally of the games played
+	 * @throws UncheckedIOException if the journal cannot be written
+	 */
+
+	static Tally playSlice(WumpusBot bot, long master, long first, long games, GameJournal journal) {
+		WumpusEngine engine = new WumpusEngine(CaveTopology.CLASSIC, master);
+		engine.journal(journal, first);
+		int[] path = new int[Wumpus.MAX_ARROW_RANGE];
+		Tally tally = new Tally();
+		for (long j = first; j < first + games; j++) {
+			engine.setup(GameRandom.seedOf(master, j));
+			tally.record(engine, play(engine, bot, path));
+		} // for j
+		return tally;
+	} // static method playSlice
+
+	/**
+	 * Play one game through to the end
+	 *
+	 * An engine with a journal records the game as it goes.
+	 *
+	 * @param engine the engine to play on, already set up
+	 * @param bot the bot to play the game
+	 * @param path scratch array for arrow flight paths
+	 * @return the number of actions taken
+	 */
+
+	static int play(WumpusEngine engine, WumpusBot bot, int[] path) {
+		bot.newGame(engine);
+		int turns = 0;
+		while (engine.status() == Wumpus.CONTINUE) {
+			if (turns++ == MAX_TURNS) {
+				engine.quit();
+				break;
+			} // if out of turns
+			switch (bot.chooseAction(engine)) {
+				case Wumpus.ACTION_MOVE:
+					engine.move(bot.chooseRoom(engine));
+					break;
+				case Wumpus.ACTION_SHOOT:
+					engine.shoot(path, bot.choosePath(engine, path));
+					break;
+				default:
+					engine.quit();
+			} // switch action identifier
+		} // while game continues
+		return turns;
+	} // static method play
+
+	/**
+	 * Look up a bot by name
+	 *
+	 * "tablebase:<file>" is the 'Tablebase.Bot' of a classic cave
+	 * tablebase, mapped once and shared by every bot.
+	 *
+	 * @param name the name given with '--bot'
+	 * @return a supplier of fresh bots of that kind
+	 */
+
+	public static Supplier<WumpusBot> bot(String name) {
+		if (name.startsWith("tablebase:")) {
+			Tablebase tablebase;
+			try {
+				tablebase = Tablebase.open(Paths.get(name.substring("tablebase:".length())), CaveTopology.CLASSIC);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} // try-catch
+			return () -> new Tablebase.Bot(tablebase);
+		} // if tablebase
+		switch (name) {
+			case "random":
+				return RandomBot::new;
+			case "expectimax":
+				return () -> new ExpectimaxBot(ExpectimaxBot.DEFAULT_DEPTH, ExpectimaxBot.UNLIMITED, ExpectimaxBot.DEFAULT_TABLE_BITS);
+			default:
+				throw new IllegalArgumentException("Unknown bot '" + name + "'");
+		} // switch name
+	} // static method bot
+
+	/**
+	 * Display a tally
+	 *
+	 * @param out where to display it
+	 * @param tally the tally to display
+	 * @param seconds the elapsed wall clock time
+	 */
+
+	public static void report(PrintWriter out, Tally tally, double seconds) {
+		out.printf("Games:          %,d%n", tally.games);
+		out.printf("Wins:           %,d (%.3f%%)%n", tally.wins, percent(tally.wins, tally.games));
+		out.printf("Losses:         %,d (%.3f%%)%n", tally.losses(), percent(tally.losses(), tally.games));
+		out.printf("  Pit:          %,d (%.3f%%)%n", tally.pitDeaths, percent(tally.pitDeaths, tally.games));
+		out.printf("  Wumpus:       %,d (%.3f%%)%n", tally.wumpusDeaths, percent(tally.wumpusDeaths, tally.games));
+		out.printf("  Own arrow:    %,d (%.3f%%)%n", tally.arrowDeaths, percent(tally.arrowDeaths, tally.games));
+		out.printf("Quits:          %,d (%.3f%%)%n", tally.quits, percent(tally.quits, tally.games));
+		out.printf("Turns per game: %.2f%n", (tally.games == 0) ? 0.0 : (double) tally.turns / tally.games);
+		out.printf("Elapsed:        %.3f s (%,.0f games/s)%n", seconds, tally.games / Math.max(seconds, 1e-9));
+	} // static method report
+
+	private static double percent(long part, long whole) {
+		return (whole == 0) ? 0.0 : (100.0 * part) / whole;
+	} // static method percent
+
+	/**
+	 * Command line entry point, reached through 'Wumpus.main'
+	 *
+	 * @param args "--simulate <games> [--threads <n>] [--bot <name>] [--seed <master>] [--journal <dir>] [--cache <megabytes>]"
+	 */
+
+	public static void main(String[] args) {
+		long games = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String bot = "random";
+		long master = GameRandom.mix(System.nanoTime());
+		Path journal = null;
+		StateCache cache = null;
+		for (int j = 0; j < args.length; j++) {
+			switch (args[j]) {
+				case "--simulate":
+					games = Long.parseLong(args[++j]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++j]);
+					break;
+				case "--bot":
+					bot = args[++j];
+					break;
+				case "--seed":
+					master = Long.parseLong(args[++j]);
+					break;
+				case "--journal":
+					journal = Paths.get(args[++j]);
+					break;
+				case "--cache":
+					cache = new StateCache(Long.parseLong(args[++j]) << 20);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option '" + args[j] + "'");
+			} // switch option
+		} // for j
+		Wumpus.out.printf("Master seed:    %d%n", master);
+		long start = System.nanoTime();
+		if ((cache != null) && !bot.equals("expectimax")) {
+			throw new IllegalArgumentException("Only the expectimax bot can share a cache");
+		} // if nothing to share
+		Supplier<WumpusBot> bots = bot(bot);
+		if (cache != null) {
+			StateCache shared = cache;
+			bots = () -> new ExpectimaxBot(ExpectimaxBot.DEFAULT_DEPTH, ExpectimaxBot.UNLIMITED,
+			                               ExpectimaxBot.DEFAULT_TABLE_BITS, shared);
+		} // if sharing a cache
+		Tally tally;
+		if (journal != null) {
+			tally = simulate(bots, master, games, threads, journal);
+		} else {
+			tally = simulate(bots, master, games, threads);
+		} // if-else chain condition checks
+		report(Wumpus.out, tally, (System.nanoTime() - start) / 1e9);
+		if (cache != null) {
+			Wumpus.out.printf("Cache:          %,d of %,d entries%n", cache.size(), cache.capacity());
+			Wumpus.out.printf("Cache hits:     %,d (%.3f%%)%n", cache.hits(), percent(cache.hits(), cache.hits() + cache.misses()));
+			Wumpus.out.printf("Cache evicted:  %,d%n", cache.evictions());
+		} // if sharing a cache
+	} // static method main
+
+} // class Simulator
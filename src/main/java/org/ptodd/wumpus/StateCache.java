@@ -0,0 +1,319 @@
+/**
+ * Hunt the Wumpus - shared bounded state cache
+ *
+ * A map from packed game states ('long' keys, such as 'BitboardState' keys
+ * or search node hashes) to 'long' values, or 'double' values by their
+ * bits, for searches and analyses that many worker threads run at once and
+ * that would rather not work the same state out twice.  It never holds
+ * more than its memory cap: once full, each new entry evicts an old one.
+ *
+ * The slots are split into stripes by the high bits of the key's hash,
+ * each stripe an open addressing table with linear probing over plain
+ * arrays, so an entry costs 17 bytes and no object.  Writers lock their
+ * stripe; readers take no lock at all but read optimistically under the
+ * stripe's 'StampedLock' and read again, locked, only if a writer got in
+ * the way.  Removal shifts the entries after the gap back rather than
+ * leaving tombstones, so probes stay short however much is evicted.
+ *
+ * Eviction is CLOCK: each stripe has a hand sweeping its slots and a
+ * referenced bit per entry, set when a 'get' finds it.  The hand clears
+ * the bits it passes and evicts the first entry it finds unreferenced.
+ * New entries start unreferenced, so a run of states looked at only once
+ * passes through without pushing out the ones read again.  Hits set the
+ * bit without the lock and then validate their read, setting it again under
+ * the read lock if a writer got in the way, so a stray bit can only land on
+ * an entry a writer was moving at that very moment.
+ *
+ * Hits, misses, and evictions are counted in 'LongAdder's, for sizing a
+ * cache to a host.  'EMPTY' marks a free slot and cannot be a key: puts of
+ * it are dropped and gets of it miss.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+public final class StateCache {
+
+	// Cache layout
+	//
+	//      'EMPTY'        - Key of a free slot
+	//      'SLOT_BYTES'   - Memory taken by a slot: key, value, and referenced bit
+	//      'MAX_STRIPES'  - Most stripes a cache is split into
+	//      'STRIPE_SLOTS' - Fewest slots in a stripe
+	//      'LOAD'         - Share of a stripe's slots filled before evicting
+
+	public static final long   EMPTY        = Long.MIN_VALUE;
+	public static final int    SLOT_BYTES   = 2 * Long.BYTES + 1;
+	public static final int    MAX_STRIPES  = 64;
+	public static final int    STRIPE_SLOTS = 64;
+	public static final double LOAD         = 0.75;
+
+	/**
+	 * One stripe of the cache, locked by its writers
+	 */
+
+	@SuppressWarnings("serial")
+	private static final class Stripe extends StampedLock {
+
+		private final long[] keys;
+		private final long[] values;
+		private final byte[] referenced;
+		private final int    mask;
+		private final int    limit;
+		private int          size;
+		private int          hand;
+
+		Stripe(int slots) {
+			keys = new long[slots];
+			values = new long[slots];
+			referenced = new byte[slots];
+			Arrays.fill(keys, EMPTY);
+			mask = slots - 1;
+			limit = (int) (slots * LOAD);
+		} // constructor Stripe
+
+		/**
+		 * Slot holding a key, or the free slot ending its probe as '-1 - slot'
+		 */
+
+		int find(long key, long hash) {
+			int slot = (int) hash & mask;
+			for (int probes = 0; probes <= mask; probes++) {
+				long found = keys[slot];
+				if (found == key) {
+					return slot;
+				} else if (found == EMPTY) {
+					return -1 - slot;
+				} // if end of probe
+				slot = (slot + 1) & mask;
+			} // for each probe
+			return -1 - slot; // only seen by an optimistic read torn by a writer
+		} // method find
+
+		/**
+		 * Evict the first unreferenced entry under the hand
+		 */
+
+		void evict() {
+			while (true) {
+				hand = (hand + 1) & mask;
+				if (keys[hand] == EMPTY) {
+					continue;
+				} // if free
+				if (referenced[hand] != 0) {
+					referenced[hand] = 0;
+					continue;
+				} // if given a second chance
+				remove(hand);
+				return;
+			} // while not evicted
+		} // method evict
+
+		/**
+		 * Empty a slot, shifting back the entries of its probe that follow it
+		 */
+
+		void remove(int slot) {
+			int gap = slot;
+			for (int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+				int home = (int) GameRandom.mix(keys[next]) & mask;
+				if (((next - home) & mask) >= ((next - gap) & mask)) {
+					keys[gap] = keys[next];
+					values[gap] = values[next];
+					referenced[gap] = referenced[next];
+					gap = next;
+				} // if its probe passes the gap
+			} // for each entry of the probe
+			keys[gap] = EMPTY;
+			referenced[gap] = 0;
+			size--;
+		} // method remove
+
+	} // class Stripe
+
+	private final Stripe[]  stripes;
+	private final int       stripeShift;
+	private final LongAdder hits      = new LongAdder();
+	private final LongAdder misses    = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * StateCache Constructor
+	 *
+	 * The slots are the largest power of two that fits in the cap, split
+	 * into as many stripes as will have 'STRIPE_SLOTS' slots each, up to
+	 * 'MAX_STRIPES'.
+	 *
+	 * @param maxBytes the most memory the cache's tables may take
+	 * @throws IllegalArgumentException if the cap is less than one stripe
+	 */
+
+	public StateCache(long maxBytes) {
+		long slots = Long.highestOneBit(maxBytes / SLOT_BYTES);
+		if (slots < STRIPE_SLOTS) {
+			throw new IllegalArgumentException("A state cache needs at least " + (STRIPE_SLOTS * SLOT_BYTES) + " bytes");
+		} // if too small
+		int count = (int) Math.min(MAX_STRIPES, slots / STRIPE_SLOTS);
+		slots = Math.min(slots / count, Integer.highestOneBit(Integer.MAX_VALUE));
+		stripes = new Stripe[count];
+		for (int j = 0; j < count; j++) {
+			stripes[j] = new Stripe((int) slots);
+		} // for j
+		stripeShift = Long.SIZE - Integer.numberOfTrailingZeros(count);
+	} // constructor StateCache
+
+	private Stripe stripe(long hash) {
+		return (stripes.length == 1) ? stripes[0] : stripes[(int) (hash >>> stripeShift)];
+	} // method stripe
+
+	/**
+	 * Look up a key
+	 *
+	 * @param key the key
+	 * @param absent what to return if the key is not cached
+	 * @return the value cached for the key, or 'absent'
+	 */
+
+	public long get(long key, long absent) {
+		if (key == EMPTY) {
+			misses.increment();
+			return absent;
+		} // if not a key
+		long hash = GameRandom.mix(key);
+		Stripe stripe = stripe(hash);
+		long stamp = stripe.tryOptimisticRead();
+		int slot = stripe.find(key, hash);
+		long value = 0;
+		if (slot >= 0) {
+			value = stripe.values[slot];
+			stripe.referenced[slot] = 1;
+		} // if found
+		if (!stripe.validate(stamp)) {
+			stamp = stripe.readLock();
+			try {
+				slot = stripe.find(key, hash);
+				if (slot >= 0) {
+					value = stripe.values[slot];
+					stripe.referenced[slot] = 1;
+				} // if found
+			} finally {
+				stripe.unlockRead(stamp);
+			} // try-finally
+		} // if a writer got in the way
+		if (slot >= 0) {
+			hits.increment();
+			return value;
+		} // if found
+		misses.increment();
+		return absent;
+	} // method get
+
+	/**
+	 * Cache a value for a key, evicting an old entry if the stripe is full
+	 *
+	 * @param key the key, not 'EMPTY'
+	 * @param value the value
+	 */
+
+	public void put(long key, long value) {
+		if (key == EMPTY) {
+			return;
+		} // if not a key
+		long hash = GameRandom.mix(key);
+		Stripe stripe = stripe(hash);
+		long stamp = stripe.writeLock();
+		try {
+			int slot = stripe.find(key, hash);
+			if (slot < 0) {
+				if (stripe.size == stripe.limit) {
+					stripe.evict();
+					evictions.increment();
+					slot = stripe.find(key, hash);
+				} // if full
+				slot = -1 - slot;
+				stripe.keys[slot] = key;
+				stripe.referenced[slot] = 0;
+				stripe.size++;
+			} // if new
+			stripe.values[slot] = value;
+		} finally {
+			stripe.unlockWrite(stamp);
+		} // try-finally
+	} // method put
+
+	/**
+	 * Look up a key holding a 'double'
+	 *
+	 * @param key the key
+	 * @param absent what to return if the key is not cached
+	 * @return the value cached for the key, or 'absent'
+	 */
+
+	public double getDouble(long key, double absent) {
+		return Double.longBitsToDouble(get(key, Double.doubleToRawLongBits(absent)));
+	} // method getDouble
+
+	/**
+	 * Cache a 'double' for a key
+	 *
+	 * @param key the key, not 'EMPTY'
+	 * @param value the value
+	 */
+
+	public void putDouble(long key, double value) {
+		put(key, Double.doubleToRawLongBits(value));
+	} // method putDouble
+
+	/**
+	 * Forget every entry; the counters are kept
+	 */
+
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			long stamp = stripe.writeLock();
+			try {
+				Arrays.fill(stripe.keys, EMPTY);
+				Arrays.fill(stripe.referenced, (byte) 0);
+				stripe.size = 0;
+			} finally {
+				stripe.unlockWrite(stamp);
+			} // try-finally
+		} // for each stripe
+	} // method clear
+
+	/**
+	 * @return the number of entries cached
+	 */
+
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			long stamp = stripe.readLock();
+			try {
+				size += stripe.size;
+			} finally {
+				stripe.unlockRead(stamp);
+			} // try-finally
+		} // for each stripe
+		return size;
+	} // method size
+
+	/**
+	 * @return the most entries the cache holds
+	 */
+
+	public int capacity() {
+		return stripes.length * stripes[0].limit;
+	} // method capacity
+
+	// Counters
+
+	public long hits()      { return hits.sum(); }
+	public long misses()    { return misses.sum(); }
+	public long evictions() { return evictions.sum(); }
+
+} // class StateCache
@@ -0,0 +1,760 @@
+/**
+ * Hunt the Wumpus - full information tablebase
+ *
+ * The exact chance of winning, and the action that achieves it, for every
+ * state of the game as seen by a hunter who knows where everything is:
+ * the hazard layout (the rooms of both pits and both bats, which never
+ * move), the rooms of the hunter and the wumpus, and the arrows left.
+ * The states of each layout are solved by value iteration over the rules
+ * of 'WumpusEngine':
+ *
+ *    - a shot along a shortest route kills the wumpus outright whenever it
+ *      is within 'MAX_ARROW_RANGE' rooms
+ *    - a move faces whatever is in the room entered: the wumpus (which
+ *      wakes, then walks a random tunnel or stays put and eats the hunter),
+ *      bats (a drop into any room, which may be another bat room), or a pit
+ *    - an arrow shot past the wumpus on purpose wakes it, which may bring
+ *      it within range
+ *
+ * Each turn taken discounts what follows by 'DISCOUNT', a hair short of
+ * '1', so that of two plans equally likely to win the quicker scores
+ * higher.  Without it a hunter could be told to walk back and forth
+ * between two rooms of the same value for ever.  The values, from '0',
+ * settle on the best chance of winning to within a few parts in a
+ * hundred million.  The arrow counts are solved in turn, fewest first, as
+ * an arrow spent only ever leads to fewer.  No arrows left is a lost game
+ * and is not stored.
+ *
+ * In the classic cave the answer is short: no room is more than five
+ * tunnels from any other, so with an arrow in hand a hunter who knows
+ * where the wumpus is always wins.  The same tables for a cave whose rooms
+ * lie further apart (see 'CaveGraph') show what walking up to the wumpus
+ * past the pits and bats is worth.
+ *
+ * A tablebase file is laid out as ints:
+ *
+ *    - 'MAGIC', rooms, tunnels per room, arrows, arrow range
+ *    - the tunnels of every room, to check the file fits the cave
+ *    - the number of automorphisms of the cave (see 'CaveSymmetry')
+ *    - the number of layouts and of distinct blocks
+ *    - for each layout (see 'layout'), its block and the automorphism
+ *      taking it to the layout the block was solved for, as
+ *      'block * automorphisms + automorphism'
+ *    - the blocks, one entry per hunter room, wumpus room and arrow count
+ *      ('(hunter * rooms + wumpus) * arrows + arrows left - 1'), with the
+ *      action in the top 'ACTION_BITS' bits and the chance of winning as a
+ *      28 bit fraction below
+ *
+ * Only the canonical layout of each family that the cave's symmetries
+ * turn into one another is solved, the one with the lowest number; the
+ * rest are looked up by carrying the hunter and the wumpus through the
+ * automorphism to the canonical layout, and the action found back again.
+ * The classic cave's 120 symmetries leave 274 of its 29,070 layouts to
+ * solve.  Canonical layouts whose tables come out the same share one
+ * block as well, so a cave where the layout hardly matters makes a small
+ * file.  The generator solves the layouts in parallel on a fork/join pool
+ * and numbers the blocks in layout order, so the file is the same
+ * whatever the number of threads.  'open' maps a file read only and each
+ * lookup is a couple of reads from the mapping, with no search; one open
+ * tablebase may be shared by any number of threads.
+ *
+ * Usage:
+ *    - "java -cp ./classes org.ptodd.wumpus.Wumpus --tablebase <file> [--threads <n>]"
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public final class Tablebase {
+
+	// Actions, in the top bits of an entry
+	//
+	//      'NONE'  - Nothing helps; no arrows are left
+	//      'MOVE'  - Move down tunnel 'action - MOVE'
+	//      'SHOOT' - Shoot the wumpus along a shortest route
+	//      'WAKE'  - Shoot an arrow one room away from the wumpus to wake it
+
+	public static final int NONE  = 0;
+	public static final int MOVE  = 1;
+	public static final int SHOOT = 14;
+	public static final int WAKE  = 15;
+
+	// Entry layout, see the class comment
+
+	static final int ACTION_BITS  = 4;
+	static final int VALUE_BITS   = 32 - ACTION_BITS;
+	static final int VALUE_ONE    = (1 << VALUE_BITS) - 1;
+	static final int MAGIC        = 0x57544232; // "WTB2"
+
+	// Solver
+	//
+	//      'DISCOUNT'   - Weight of what follows a turn, see the class comment
+	//      'EPSILON'    - Largest change in a sweep that counts as converged
+	//      'MAX_SWEEPS' - Sweeps allowed per arrow count before giving up
+
+	static final double DISCOUNT   = 1.0 - 1e-9;
+	static final double EPSILON    = 1e-12;
+	static final int    MAX_SWEEPS = 100000;
+
+	private final CaveTopology topology;
+	private final CaveSymmetry symmetry;
+	private final IntBuffer    entries;
+	private final int          layouts;
+	private final int          blockEntries;
+	private final int          blocksAt;
+
+	private Tablebase(CaveSymmetry symmetry, IntBuffer entries, int layouts, int blocksAt) {
+		this.topology = symmetry.topology();
+		this.symmetry = symmetry;
+		this.entries = entries;
+		this.layouts = layouts;
+		this.blockEntries = topology.rooms() * topology.rooms() * Wumpus.MAX_ARROWS;
+		this.blocksAt = blocksAt;
+	} // constructor Tablebase
+
+	/**
+	 * Map a tablebase file for lookups
+	 *
+	 * @param file the file written by 'generate'
+	 * @param topology the cave the file was generated for
+	 * @return the tablebase
+	 * @throws IOException if the file cannot be read, is cut short or
+	 *                     corrupt, or was generated for another cave
+	 */
+
+	public static Tablebase open(Path file, CaveTopology topology) throws IOException {
+		IntBuffer entries;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too big to be a tablebase");
+			} // if too big to map
+			entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asIntBuffer();
+		} // try-with-resources
+		int header = 8 + topology.rooms() * topology.paths();
+		if (entries.limit() < header) {
+			throw new IOException(file + " is not a tablebase of this cave");
+		} // if no room for the header
+		int at = 0;
+		boolean fits = (entries.get(at++) == MAGIC)
+		            && (entries.get(at++) == topology.rooms())
+		            && (entries.get(at++) == topology.paths())
+		            && (entries.get(at++) == Wumpus.MAX_ARROWS)
+		            && (entries.get(at++) == Wumpus.MAX_ARROW_RANGE);
+		for (int room = 0; fits && (room < topology.rooms()); room++) {
+			for (int j = 0; j < topology.paths(); j++) {
+				fits &= entries.get(at++) == topology.tunnel(room, j);
+			} // for j
+		} // for room
+		CaveSymmetry symmetry = symmetry(topology);
+		if (!fits || (entries.get(at++) != symmetry.size())) {
+			throw new IOException(file + " is not a tablebase of this cave");
+		} // if not this cave
+		int layouts = entries.get(at++);
+		int blocks = entries.get(at++);
+		long length = (long) header + layouts + (long) blocks * topology.rooms() * topology.rooms() * Wumpus.MAX_ARROWS;
+		if ((layouts != layouts(topology.rooms())) || (blocks <= 0) || (entries.limit() != length)) {
+			throw new IOException(file + " is cut short or corrupt");
+		} // if the wrong length
+		for (int j = 0; j < layouts; j++) {
+			int index = entries.get(at + j);
+			if ((index < 0) || (index >= (long) blocks * symmetry.size())) {
+				throw new IOException(file + " is corrupt: layout " + j + " has no block");
+			} // if out of range
+		} // for j
+		return new Tablebase(symmetry, entries, layouts, at + layouts);
+	} // static method open
+
+	// Accessors
+
+	public CaveTopology topology() { return topology; }
+	public int          layouts()  { return layouts; }
+
+	/**
+	 * Look up a state
+	 *
+	 * @param locationOf the room of each game object, indexed like 'Wumpus.HUNTER'
+	 * @param arrows the arrows left
+	 * @return the entry, see 'action' and 'value'
+	 */
+
+	public int entry(int[] locationOf, int arrows) {
+		return entry(locationOf[Wumpus.HUNTER], locationOf[Wumpus.WUMPUS], locationOf[Wumpus.PIT1], locationOf[Wumpus.PIT2],
+		             locationOf[Wumpus.BATS1], locationOf[Wumpus.BATS2], arrows);
+	} // method entry
+
+	/**
+	 * Look up the state of a game in play
+	 *
+	 * @param engine the engine the game is played on
+	 * @return the entry, see 'action' and 'value'
+	 */
+
+	public int entry(WumpusEngine engine) {
+		return entry(engine.hunterRoom(), engine.locationOf(Wumpus.WUMPUS), engine.locationOf(Wumpus.PIT1),
+		             engine.locationOf(Wumpus.PIT2), engine.locationOf(Wumpus.BATS1), engine.locationOf(Wumpus.BATS2),
+		             engine.arrows());
+	} // method entry
+
+	private int entry(int hunter, int wumpus, int pit1, int pit2, int bats1, int bats2, int arrows) {
+		if ((arrows <= 0) || (hunter == wumpus)) {
+			return NONE;
+		} // if lost
+		int rooms = topology.rooms();
+		int index = entries.get(blocksAt - layouts + layout(rooms, pit1, pit2, bats1, bats2));
+		int block = index / symmetry.size();
+		int g = index % symmetry.size();
+		int state = symmetry.image(g, hunter) * rooms + symmetry.image(g, wumpus);
+		int entry = entries.get(blocksAt + block * blockEntries + state * Wumpus.MAX_ARROWS + arrows - 1);
+		int action = action(entry);
+		if ((g == 0) || (action < MOVE) || (action >= MOVE + topology.paths())) {
+			return entry;
+		} // if nothing to carry back
+
+		// the tunnel to take is the one to the room the canonical tunnel leads back to
+
+		int room = symmetry.image(symmetry.inverse(g), topology.tunnel(symmetry.image(g, hunter), action - MOVE));
+		int path = 0;
+		while (topology.tunnel(hunter, path) != room) {
+			path++;
+		} // while not the tunnel
+		return ((MOVE + path) << VALUE_BITS) | (entry & VALUE_ONE);
+	} // method entry
+
+	/**
+	 * The symmetries of a cave, shared for the classic cave
+	 */
+
+	private static CaveSymmetry symmetry(CaveTopology topology) {
+		return (topology == CaveTopology.CLASSIC) ? CaveSymmetry.CLASSIC : new CaveSymmetry(topology);
+	} // static method symmetry
+
+	/**
+	 * @param entry an entry returned by 'entry'
+	 * @return the best action: 'NONE', 'MOVE' plus the tunnel, 'SHOOT', or 'WAKE'
+	 */
+
+	public static int action(int entry) {
+		return entry >>> VALUE_BITS;
+	} // static method action
+
+	/**
+	 * @param entry an entry returned by 'entry'
+	 * @return the chance of winning with best play
+	 */
+
+	public static double value(int entry) {
+		return (double) (entry & VALUE_ONE) / VALUE_ONE;
+	} // static method value
+
+	/**
+	 * Number of a hazard layout
+	 *
+	 * The pair of pit rooms is ranked among all pairs of rooms, and the pair
+	 * of bat rooms among the pairs of the rooms left over, colexicographically
+	 * ('hi * (hi - 1) / 2 + lo'), so the layouts are numbered densely from '0'.
+	 *
+	 * @param rooms the number of rooms in the cave
+	 * @param pit1 the room of one pit
+	 * @param pit2 the room of the other pit
+	 * @param bats1 the room of one colony of bats
+	 * @param bats2 the room of the other colony of bats
+	 * @return the number of the layout
+	 */
+
+	static int layout(int rooms, int pit1, int pit2, int bats1, int bats2) {
+		int b1 = bats1 - ((bats1 > pit1) ? 1 : 0) - ((bats1 > pit2) ? 1 : 0);
+		int b2 = bats2 - ((bats2 > pit1) ? 1 : 0) - ((bats2 > pit2) ? 1 : 0);
+		return pair(pit1, pit2) * pairs(rooms - 2) + pair(b1, b2);
+	} // static method layout
+
+	/**
+	 * @return the number of hazard layouts of a cave
+	 */
+
+	static int layouts(int rooms) {
+		return pairs(rooms) * pairs(rooms - 2);
+	} // static method layouts
+
+	private static int pair(int a, int b) {
+		int lo = Math.min(a, b);
+		int hi = Math.max(a, b);
+		return hi * (hi - 1) / 2 + lo;
+	} // static method pair
+
+	private static int pairs(int n) {
+		return n * (n - 1) / 2;
+	} // static method pairs
+
+	/**
+	 * Solve every layout of a cave and write the tablebase file
+	 *
+	 * @param topology the cave
+	 * @param file the file to write, replaced if it exists
+	 * @param threads the number of worker threads
+	 * @return the number of distinct blocks written
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalArgumentException if the cave has too few rooms for the pits and bats
+	 */
+
+	public static int generate(CaveTopology topology, Path file, int threads) throws IOException {
+		int rooms = topology.rooms();
+		if (rooms < 4) {
+			throw new IllegalArgumentException("A cave of " + rooms + " rooms has no room for two pits and two colonies of bats");
+		} // if too small
+		CaveSymmetry symmetry = symmetry(topology);
+		int[] canonical = new int[layouts(rooms)];
+		int[] via = new int[layouts(rooms)];
+		canonicalize(symmetry, canonical, via);
+		int[][] blocks = new int[layouts(rooms)][];
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new SliceTask(topology, canonical, blocks, new ConcurrentHashMap<>(), 0, rooms));
+		} finally {
+			pool.shutdown();
+		} // try-finally
+
+		// number the distinct blocks in layout order
+
+		Map<int[], Integer> numbers = new IdentityHashMap<>();
+		int[] index = new int[blocks.length];
+		List<int[]> distinct = new ArrayList<>();
+		for (int j = 0; j < blocks.length; j++) {
+			int[] block = blocks[canonical[j]];
+			Integer number = numbers.get(block);
+			if (number == null) {
+				number = distinct.size();
+				numbers.put(block, number);
+				distinct.add(block);
+			} // if new
+			index[j] = number * symmetry.size() + via[j];
+		} // for j
+
+		if ((long) distinct.size() * symmetry.size() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A tablebase of " + distinct.size() + " blocks is too big to index");
+		} // if too many blocks
+		long ints = 8L + rooms * topology.paths() + index.length + (long) distinct.size() * distinct.get(0).length;
+		if (ints * Integer.BYTES > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A tablebase of " + ints * Integer.BYTES + " bytes is too big to map");
+		} // if too big
+		ByteBuffer out = ByteBuffer.allocate((int) ints * Integer.BYTES);
+		out.putInt(MAGIC).putInt(rooms).putInt(topology.paths()).putInt(Wumpus.MAX_ARROWS).putInt(Wumpus.MAX_ARROW_RANGE);
+		for (int room = 0; room < rooms; room++) {
+			for (int j = 0; j < topology.paths(); j++) {
+				out.putInt(topology.tunnel(room, j));
+			} // for j
+		} // for room
+		out.putInt(symmetry.size()).putInt(index.length).putInt(distinct.size());
+		out.asIntBuffer().put(index);
+		out.position(out.position() + index.length * Integer.BYTES);
+		for (int[] block : distinct) {
+			out.asIntBuffer().put(block);
+			out.position(out.position() + block.length * Integer.BYTES);
+		} // for each block
+		out.flip();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+		                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining()) {
+				channel.write(out);
+			} // while more to write
+		} // try-with-resources
+		return distinct.size();
+	} // static method generate
+
+	/**
+	 * Find the canonical layout of every layout
+	 *
+	 * @param symmetry the symmetries of the cave
+	 * @param canonical filled with the lowest numbered layout each layout
+	 *                  can be taken to
+	 * @param via filled with the first automorphism taking each layout there
+	 */
+
+	static void canonicalize(CaveSymmetry symmetry, int[] canonical, int[] via) {
+		int rooms = symmetry.topology().rooms();
+		for (int pit2 = 0; pit2 < rooms; pit2++) {
+			for (int pit1 = 0; pit1 < pit2; pit1++) {
+				for (int bats2 = 0; bats2 < rooms; bats2++) {
+					for (int bats1 = 0; bats1 < bats2; bats1++) {
+						if ((bats1 == pit1) || (bats1 == pit2) || (bats2 == pit1) || (bats2 == pit2)) {
+							continue;
+						} // if the bats share a room with a pit
+						int layout = layout(rooms, pit1, pit2, bats1, bats2);
+						canonical[layout] = layout;
+						for (int g = 1; g < symmetry.size(); g++) {
+							int image = layout(rooms, symmetry.image(g, pit1), symmetry.image(g, pit2),
+							                   symmetry.image(g, bats1), symmetry.image(g, bats2));
+							if (image < canonical[layout]) {
+								canonical[layout] = image;
+								via[layout] = g;
+							} // if lower
+						} // for g
+					} // for bats1
+				} // for bats2
+			} // for pit1
+		} // for pit2
+	} // static method canonicalize
+
+	/**
+	 * Fork/join task solving the canonical layouts whose pit pair has its
+	 * higher room in a range
+	 *
+	 * Splitting on the pit rooms keeps every task's layouts contiguous.
+	 * Blocks that come out the same as one already solved are replaced by
+	 * that one, so only distinct blocks stay in memory.
+	 */
+
+	@SuppressWarnings("serial")
+	static final class SliceTask extends RecursiveAction {
+
+		private final CaveTopology                topology;
+		private final int[]                       canonical;
+		private final int[][]                     blocks;
+		private final ConcurrentMap<Block, int[]> distinct;
+		private final int                         from;
+		private final int                         to;
+
+		SliceTask(CaveTopology topology, int[] canonical, int[][] blocks, ConcurrentMap<Block, int[]> distinct, int from, int to) {
+			this.topology = topology;
+			this.canonical = canonical;
+			this.blocks = blocks;
+			this.distinct = distinct;
+			this.from = from;
+			this.to = to;
+		} // constructor SliceTask
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SliceTask(topology, canonical, blocks, distinct, from, middle),
+				          new SliceTask(topology, canonical, blocks, distinct, middle, to));
+				return;
+			} // if more than one pit room
+			int rooms = topology.rooms();
+			Solver solver = new Solver(topology);
+			for (int pit2 = from, pit1 = 0; pit1 < pit2; pit1++) {
+				for (int bats2 = 0; bats2 < rooms; bats2++) {
+					for (int bats1 = 0; bats1 < bats2; bats1++) {
+						int layout = layout(rooms, pit1, pit2, bats1, bats2);
+						if ((bats1 != pit1) && (bats1 != pit2) && (bats2 != pit1) && (bats2 != pit2)
+						 && (canonical[layout] == layout)) {
+							int[] block = solver.solve(pit1, pit2, bats1, bats2);
+							int[] known = distinct.putIfAbsent(new Block(block), block);
+							blocks[layout] = (known == null) ? block : known;
+						} // if a canonical layout
+					} // for bats1
+				} // for bats2
+			} // for pit1
+		} // method compute
+
+	} // class SliceTask
+
+	/**
+	 * A block as a hash key, by its contents
+	 */
+
+	static final class Block {
+
+		private final int[] entries;
+		private final int   hash;
+
+		Block(int[] entries) {
+			this.entries = entries;
+			this.hash = Arrays.hashCode(entries);
+		} // constructor Block
+
+		public int hashCode() {
+			return hash;
+		} // method hashCode
+
+		public boolean equals(Object other) {
+			return (other instanceof Block) && Arrays.equals(entries, ((Block) other).entries);
+		} // method equals
+
+	} // class Block
+
+	/**
+	 * Value iteration over the states of one hazard layout
+	 *
+	 * Holds its tables between layouts, so each worker allocates them once.
+	 */
+
+	static final class Solver {
+
+		private final CaveTopology topology;
+		private final int          rooms;
+		private final int          paths;
+		private final double[][]   value;
+		private final int[][]      action;
+		private final double[]     drop;
+		private final boolean[]    pit;
+		private final boolean[]    bats;
+
+		Solver(CaveTopology topology) {
+			this.topology = topology;
+			this.rooms = topology.rooms();
+			this.paths = topology.paths();
+			this.value = new double[Wumpus.MAX_ARROWS + 1][rooms * rooms];
+			this.action = new int[Wumpus.MAX_ARROWS + 1][rooms * rooms];
+			this.drop = new double[rooms];
+			this.pit = new boolean[rooms];
+			this.bats = new boolean[rooms];
+		} // constructor Solver
+
+		/**
+		 * Solve one layout
+		 *
+		 * @return its block of entries, see the class comment
+		 */
+
+		int[] solve(int pit1, int pit2, int bats1, int bats2) {
+			Arrays.fill(pit, false);
+			Arrays.fill(bats, false);
+			pit[pit1] = pit[pit2] = true;
+			bats[bats1] = bats[bats2] = true;
+			for (int arrows = 1; arrows <= Wumpus.MAX_ARROWS; arrows++) {
+				solve(arrows);
+			} // for arrows
+			int[] block = new int[rooms * rooms * Wumpus.MAX_ARROWS];
+			for (int state = 0; state < rooms * rooms; state++) {
+				for (int arrows = 1; arrows <= Wumpus.MAX_ARROWS; arrows++) {
+					long fraction = Math.round(Math.min(1.0, value[arrows][state]) * VALUE_ONE);
+					block[state * Wumpus.MAX_ARROWS + arrows - 1] = (action[arrows][state] << VALUE_BITS) | (int) fraction;
+				} // for arrows
+			} // for state
+			return block;
+		} // method solve
+
+		/**
+		 * Sweep the states with a given number of arrows until they settle
+		 */
+
+		private void solve(int arrows) {
+			double[] v = value[arrows];
+			int[] best = action[arrows];
+			Arrays.fill(v, 0.0);
+			Arrays.fill(best, NONE);
+			for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+				for (int wumpus = 0; wumpus < rooms; wumpus++) {
+					drop[wumpus] = drop(wumpus, arrows);
+				} // for wumpus
+				double change = 0.0;
+				for (int hunter = 0; hunter < rooms; hunter++) {
+					for (int wumpus = 0; wumpus < rooms; wumpus++) {
+						if (hunter == wumpus) {
+							continue;
+						} // if not a live state
+						int state = hunter * rooms + wumpus;
+						double bestValue;
+						int bestAction;
+						if (topology.distance(hunter, wumpus) <= Wumpus.MAX_ARROW_RANGE) {
+							bestValue = 1.0;
+							bestAction = SHOOT;
+						} else {
+							bestValue = -1.0;
+							bestAction = NONE;
+							for (int j = 0; j < paths; j++) {
+								double moved = DISCOUNT * enter(topology.tunnel(hunter, j), wumpus, arrows);
+								if (moved > bestValue) {
+									bestValue = moved;
+									bestAction = MOVE + j;
+								} // if better
+							} // for j
+							if (arrows > 1) {
+								double woken = DISCOUNT * wake(hunter, wumpus, arrows - 1);
+								if (woken > bestValue) {
+									bestValue = woken;
+									bestAction = WAKE;
+								} // if better
+							} // if an arrow to spare
+						} // if within range
+						change = Math.max(change, Math.abs(bestValue - v[state]));
+						v[state] = bestValue;
+						best[state] = bestAction;
+					} // for wumpus
+				} // for hunter
+				if (change < EPSILON) {
+					return;
+				} // if settled
+			} // for sweep
+			throw new IllegalStateException("Tablebase values did not settle in " + MAX_SWEEPS + " sweeps");
+		} // method solve
+
+		/**
+		 * Chance of winning on walking into a room
+		 */
+
+		private double enter(int room, int wumpus, int arrows) {
+			if (room == wumpus) {
+				return bump(room, arrows);
+			} else if (bats[room]) {
+				return drop[wumpus];
+			} else if (pit[room]) {
+				return 0.0;
+			} else {
+				return value[arrows][room * rooms + wumpus];
+			} // if-else chain condition checks
+		} // method enter
+
+		/**
+		 * Chance of winning once bats drop the hunter, at random, into any room
+		 *
+		 * A drop into another bat room is another drop, so those rooms are
+		 * left out of the average rather than recursed into.
+		 */
+
+		private double drop(int wumpus, int arrows) {
+			double sum = 0.0;
+			int count = 0;
+			for (int room = 0; room < rooms; room++) {
+				if ((room == wumpus) || !bats[room]) {
+					sum += enter(room, wumpus, arrows);
+					count++;
+				} // if not another drop
+			} // for room
+			return sum / count;
+		} // method drop
+
+		/**
+		 * Chance of winning after walking into the wumpus, which wakes
+		 *
+		 * Staying put, it eats the hunter; walking off, it leaves the hunter
+		 * standing in its old room, whatever else is there.
+		 */
+
+		private double bump(int room, int arrows) {
+			double sum = 0.0;
+			for (int j = 0; j < paths; j++) {
+				sum += value[arrows][room * rooms + topology.tunnel(room, j)];
+			} // for j
+			return sum / (paths + 1);
+		} // method bump
+
+		/**
+		 * Chance of winning after an arrow wakes the wumpus, with one arrow fewer
+		 */
+
+		private double wake(int hunter, int wumpus, int arrows) {
+			double sum = 0.0;
+			for (int j = 0; j < paths; j++) {
+				int next = topology.tunnel(wumpus, j);
+				if (next != hunter) {
+					sum += value[arrows][hunter * rooms + next];
+				} // if not eaten
+			} // for j
+			sum += value[arrows][hunter * rooms + wumpus];
+			return sum / (paths + 1);
+		} // method wake
+
+	} // class Solver
+
+	/**
+	 * Bot playing the tablebase's best action
+	 *
+	 * It reads the whole placement off the engine, which a player never sees,
+	 * so it shows what perfect knowledge is worth rather than how well a
+	 * player could do.
+	 */
+
+	public static final class Bot implements WumpusBot {
+
+		private final Tablebase tablebase;
+		private int             entry;
+
+		public Bot(Tablebase tablebase) {
+			this.tablebase = tablebase;
+		} // constructor Bot
+
+		public void newGame(WumpusEngine engine) {
+		} // method newGame
+
+		public int chooseAction(WumpusEngine engine) {
+			entry = tablebase.entry(engine);
+			switch (action(entry)) {
+				case NONE:
+					return Wumpus.ACTION_QUIT;
+				case SHOOT:
+				case WAKE:
+					return Wumpus.ACTION_SHOOT;
+				default:
+					return Wumpus.ACTION_MOVE;
+			} // switch action
+		} // method chooseAction
+
+		public int chooseRoom(WumpusEngine engine) {
+			return engine.topology().tunnel(engine.hunterRoom(), action(entry) - MOVE);
+		} // method chooseRoom
+
+		public int choosePath(WumpusEngine engine, int[] path) {
+			return Tablebase.path(engine.topology(), engine.hunterRoom(), engine.locationOf(Wumpus.WUMPUS), action(entry), path);
+		} // method choosePath
+
+	} // class Bot
+
+	/**
+	 * Flight path of a 'SHOOT' or 'WAKE'
+	 *
+	 * @param topology the cave
+	 * @param hunter the hunter's room
+	 * @param wumpus the wumpus' room
+	 * @param action 'SHOOT' or 'WAKE'
+	 * @param path filled with the rooms of the flight path
+	 * @return the number of rooms in the path
+	 */
+
+	static int path(CaveTopology topology, int hunter, int wumpus, int action, int[] path) {
+		if (action == SHOOT) {
+			int length = 0;
+			for (int room = hunter; room != wumpus; room = topology.nextHop(room, wumpus)) {
+				path[length++] = topology.nextHop(room, wumpus);
+			} // for each room on the route
+			return length;
+		} // if at the wumpus
+		for (int j = 0; j < topology.paths(); j++) {
+			if (topology.tunnel(hunter, j) != wumpus) {
+				path[0] = topology.tunnel(hunter, j);
+				break;
+			} // if past the wumpus
+		} // for j
+		return 1;
+	} // static method path
+
+	/**
+	 * Command line entry point, reached through 'Wumpus.main'
+	 *
+	 * Generates the tablebase of the classic cave.
+	 *
+	 * @param args "--tablebase <file> [--threads <n>]"
+	 * @throws IOException if the file cannot be written
+	 */
+
+	public static void main(String[] args) throws IOException {
+		Path file = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int j = 0; j < args.length; j++) {
+			switch (args[j]) {
+				case "--tablebase":
+					file = Paths.get(args[++j]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++j]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option '" + args[j] + "'");
+			} // switch option
+		} // for j
+		long start = System.nanoTime();
+		int blocks = generate(CaveTopology.CLASSIC, file, threads);
+		Wumpus.out.printf("Layouts:        %,d%n", layouts(CaveTopology.CLASSIC.rooms()));
+		Wumpus.out.printf("Blocks:         %,d distinct%n", blocks);
+		Wumpus.out.printf("File:           %,d bytes%n", Files.size(file));
+		Wumpus.out.printf("Elapsed:        %.3f s%n", (System.nanoTime() - start) / 1e9);
+	} // static method main
+
+} // class Tablebase
@@ -0,0 +1,408 @@
+/**
+ * Hunt the Wumpus - bot tournament
+ *
+ * Plays several bots against the same caves and ranks them by how often
+ * they win.  Setup 'n' is the game set up from 'GameRandom.seedOf(master, n)',
+ * and every bot plays every setup from the very same starting rooms, as
+ * "play again with the same set-up" does for a person.  Comparing the bots
+ * setup by setup takes the luck of the cave out of the comparison, so two
+ * bots are told apart in far fewer games than if each played caves of its
+ * own.
+ *
+ * The setups are played a round of 'ROUND_GAMES' at a time, split into
+ * slices of 'SLICE_GAMES' across a pool of worker threads.  A slice plays
+ * on its own engine with its own bots and adds what it counted into shared
+ * 'LongAdder' counters, so the workers never wait on one another.  After
+ * each round the standings are looked at and the tournament stops early
+ * once every bot is separated from the bot ranked next to it:
+ *
+ *    - a bot's win rate is shown with its Wilson score interval, at the
+ *      confidence asked for on its own
+ *    - two bots are separated when the interval of the difference between
+ *      their win rates, taken setup by setup, leaves out zero
+ *
+ * The stop rule is tested after every round, and each test is another
+ * chance to stop on a fluke, so the confidence asked for is shared out
+ * (Bonferroni) between the comparisons of neighbouring bots and every
+ * round the tournament could play, 'ceil(maxGames / ROUND_GAMES)' looks
+ * in all.  The intervals of the differences are therefore simultaneous
+ * over the whole ranking and every look, and a ranking that comes out
+ * separated is wrong with at most the chance the confidence leaves.
+ *
+ * Rounds are played whole and their setups are fixed, and the expectimax
+ * bots search to their full depth with no time budget (so a loaded
+ * machine plays them no worse than an idle one), so a tournament stops at
+ * the same point and gives the same standings for the same master seed
+ * whatever the number of threads.
+ *
+ * Usage:
+ *    - "java -cp ./classes org.ptodd.wumpus.Wumpus --tournament <games> [--bots <name>,<name>...] [--threads <n>] [--seed <master>] [--confidence <c>]"
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+public final class Tournament {
+
+	// Tournament parameters
+	//
+	//      'SLICE_GAMES'        - Setups a worker plays with every bot before adding to the counters
+	//      'ROUND_GAMES'        - Setups played between looks at the standings
+	//      'DEFAULT_CONFIDENCE' - Confidence of the intervals and of the separation of the ranking
+
+	public static final int    SLICE_GAMES        = 100;
+	public static final int    ROUND_GAMES        = 1000;
+	public static final double DEFAULT_CONFIDENCE = 0.99;
+
+	private final String[]                  names;
+	private final List<Supplier<WumpusBot>> bots;
+	private final long                      master;
+	private final double                    confidence;
+
+	// Counters, added to by the workers
+	//
+	//      'wins'  - Setups each bot won
+	//      'turns' - Actions each bot took
+	//      'beats' - 'beats[a][b]' setups bot 'a' won and bot 'b' did not
+
+	private final LongAdder[]               wins;
+	private final LongAdder[]               turns;
+	private final LongAdder[][]             beats;
+	private long                            games;
+	private long                            looks = 1;
+
+	/**
+	 * Tournament Constructor
+	 *
+	 * @param names the names of the bots, see 'Simulator.bot'
+	 * @param master the master seed the seed of every setup is derived from
+	 * @param confidence the confidence of the intervals, between 0 and 1
+	 */
+
+	public Tournament(String[] names, long master, double confidence) {
+		this(names, bots(names), master, confidence);
+	} // constructor Tournament
+
+	/**
+	 * Tournament Constructor
+	 *
+	 * @param names the names of the bots
+	 * @param bots supplies fresh bots of each kind, in the order of 'names'
+	 * @param master the master seed the seed of every setup is derived from
+	 * @param confidence the confidence of the intervals, between 0 and 1
+	 */
+
+	Tournament(String[] names, List<Supplier<WumpusBot>> bots, long master, double confidence) {
+		if ((confidence <= 0) || (confidence >= 1)) {
+			throw new IllegalArgumentException("Confidence must be between 0 and 1");
+		} // if out of range
+		this.names = names.clone();
+		this.bots = new ArrayList<>(bots);
+		this.master = master;
+		this.confidence = confidence;
+		this.wins = new LongAdder[names.length];
+		this.turns = new LongAdder[names.length];
+		this.beats = new LongAdder[names.length][names.length];
+		for (int a = 0; a < names.length; a++) {
+			wins[a] = new LongAdder();
+			turns[a] = new LongAdder();
+			for (int b = 0; b < names.length; b++) {
+				beats[a][b] = new LongAdder();
+			} // for b
+		} // for a
+	} // constructor Tournament
+
+	// Accessors
+
+	public int    bots()           { return names.length; }
+	public String name(int bot)    { return names[bot]; }
+	public long   games()          { return games; }
+	public long   wins(int bot)    { return wins[bot].sum(); }
+	public double winRate(int bot) { return (games == 0) ? 0.0 : (double) wins(bot) / games; }
+
+	/**
+	 * Play rounds of setups until the ranking is separated or the setups run out
+	 *
+	 * @param maxGames the most setups to play
+	 * @param threads the number of worker threads
+	 * @return 'true' if the tournament stopped because the ranking is separated
+	 */
+
+	public boolean run(long maxGames, int threads) {
+		looks = Math.max(1, (maxGames + ROUND_GAMES - 1) / ROUND_GAMES);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			while (games < maxGames) {
+				long round = Math.min(ROUND_GAMES, maxGames - games);
+				List<Callable<Void>> slices = new ArrayList<>();
+				for (long first = games; first < games + round; first += SLICE_GAMES) {
+					long start = first;
+					long count = Math.min(SLICE_GAMES, games + round - first);
+					slices.add(() -> {
+						playSlice(start, count);
+						return null;
+					});
+				} // for each slice
+				for (Future<Void> slice : pool.invokeAll(slices)) {
+					slice.get();
+				} // for each slice
+				games += round;
+				if (separated()) {
+					return true;
+				} // if done
+			} // while setups left
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tournament interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Tournament failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		} // try-catch-finally
+	} // method run
+
+	/**
+	 * Play a slice of setups with every bot and add up what happened
+	 *
+	 * @param first the number of the first setup of the slice
+	 * @param count the number of setups
+	 */
+
+	private void playSlice(long first, long count) {
+		int n = names.length;
+		WumpusEngine engine = new WumpusEngine(CaveTopology.CLASSIC, master);
+		int[] path = new int[Wumpus.MAX_ARROW_RANGE];
+		WumpusBot[] players = new WumpusBot[n];
+		for (int a = 0; a < n; a++) {
+			players[a] = bots.get(a).get();
+		} // for a
+		boolean[] won = new boolean[n];
+		long[] sliceWins = new long[n];
+		long[] sliceTurns = new long[n];
+		long[][] sliceBeats = new long[n][n];
+		for (long j = first; j < first + count; j++) {
+			long seed = GameRandom.seedOf(master, j);
+			for (int a = 0; a < n; a++) {
+				engine.setup(seed);
+				sliceTurns[a] += Simulator.play(engine, players[a], path);
+				won[a] = engine.status() == Wumpus.WUMPUS_DEAD;
+				if (won[a]) {
+					sliceWins[a]++;
+				} // if won
+			} // for a
+			for (int a = 0; a < n; a++) {
+				for (int b = 0; b < n; b++) {
+					if (won[a] && !won[b]) {
+						sliceBeats[a][b]++;
+					} // if a beat b
+				} // for b
+			} // for a
+		} // for j
+		for (int a = 0; a < n; a++) {
+			wins[a].add(sliceWins[a]);
+			turns[a].add(sliceTurns[a]);
+			for (int b = 0; b < n; b++) {
+				beats[a][b].add(sliceBeats[a][b]);
+			} // for b
+		} // for a
+	} // method playSlice
+
+	private static List<Supplier<WumpusBot>> bots(String[] names) {
+		List<Supplier<WumpusBot>> bots = new ArrayList<>();
+		for (String name : names) {
+			bots.add(Simulator.bot(name));
+		} // for each name
+		return bots;
+	} // static method bots
+
+	/**
+	 * @return the bots, most wins first; ties keep the order they were named in
+	 */
+
+	public int[] ranking() {
+		Integer[] order = new Integer[names.length];
+		long[] counts = new long[names.length];
+		for (int a = 0; a < names.length; a++) {
+			order[a] = a;
+			counts[a] = wins(a);
+		} // for a
+		Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+		int[] ranking = new int[names.length];
+		for (int j = 0; j < names.length; j++) {
+			ranking[j] = order[j];
+		} // for j
+		return ranking;
+	} // method ranking
+
+	/**
+	 * @return 'true' if every bot is separated from the bot ranked next to it
+	 */
+
+	public boolean separated() {
+		int[] ranking = ranking();
+		for (int j = 1; j < ranking.length; j++) {
+			double[] margin = margin(ranking[j - 1], ranking[j]);
+			if (margin[0] - margin[1] <= 0) {
+				return false;
+			} // if not separated
+		} // for j
+		return true;
+	} // method separated
+
+	/**
+	 * Wilson score interval of a bot's win rate, at the confidence on its own
+	 *
+	 * @param bot the bot
+	 * @return the low and high ends of the interval
+	 */
+
+	public double[] interval(int bot) {
+		if (games == 0) {
+			return new double[] { 0.0, 1.0 };
+		} // if nothing played
+		double z = z(1);
+		double n = games;
+		double p = winRate(bot);
+		double scale = 1 + z * z / n;
+		double centre = (p + z * z / (2 * n)) / scale;
+		double half = z * Math.sqrt(p * (1 - p) / n + z * z / (4 * n * n)) / scale;
+		return new double[] { Math.max(0.0, centre - half), Math.min(1.0, centre + half) };
+	} // method interval
+
+	/**
+	 * How much more often one bot wins than another, setup by setup
+	 *
+	 * The interval is the simultaneous one the stop rule uses, shared out
+	 * over the comparisons and the looks of the last 'run'.
+	 *
+	 * @param a one bot
+	 * @param b the other bot
+	 * @return the difference of their win rates and the half width of its interval
+	 */
+
+	public double[] margin(int a, int b) {
+		if (games < 2) {
+			return new double[] { 0.0, 1.0 };
+		} // if too few to tell
+		double n = games;
+		double ahead = beats[a][b].sum();
+		double behind = beats[b][a].sum();
+		double mean = (ahead - behind) / n;
+		double variance = Math.max(0.0, ((ahead + behind) / n - mean * mean) * n / (n - 1));
+		return new double[] { mean, z((double) Math.max(1, names.length - 1) * looks) * Math.sqrt(variance / n) };
+	} // method margin
+
+	/**
+	 * @param shares the number of intervals the confidence is shared out over
+	 * @return the normal deviate for each of them
+	 */
+
+	private double z(double shares) {
+		double alpha = (1 - confidence) / shares;
+		return quantile(1 - alpha / 2);
+	} // method z
+
+	/**
+	 * Quantile of the standard normal distribution
+	 *
+	 * P. J. Acklam's rational approximation, good to about 1e-9.
+	 *
+	 * @param p the probability, between 0 and 1
+	 * @return the value the standard normal falls below with chance 'p'
+	 */
+
+	static double quantile(double p) {
+		final double[] a = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+		                     1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+		final double[] b = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+		                     6.680131188771972e+01, -1.328068155288572e+01 };
+		final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+		                     -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+		final double[] d = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+		                     3.754408661907416e+00 };
+		if ((p < 0.02425) || (p > 1 - 0.02425)) {
+			double q = Math.sqrt(-2 * Math.log(Math.min(p, 1 - p)));
+			double x = (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+			         / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+			return (p < 0.5) ? x : -x;
+		} // if in a tail
+		double q = p - 0.5;
+		double r = q * q;
+		return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+		     / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+	} // static method quantile
+
+	/**
+	 * Display the standings
+	 *
+	 * @param out where to display them
+	 * @param seconds the elapsed wall clock time
+	 */
+
+	public void report(PrintWriter out, double seconds) {
+		int[] ranking = ranking();
+		out.printf("Setups:         %,d%n", games);
+		out.printf("%-6s%-14s%10s   %-22s%8s%n", "Rank", "Bot", "Wins", String.format("(%.1f%% interval)", 100 * confidence), "Turns");
+		for (int j = 0; j < ranking.length; j++) {
+			int a = ranking[j];
+			double[] interval = interval(a);
+			out.printf("%-6d%-14s%9.3f%%   [%6.3f%%, %6.3f%%]%10.2f%n", j + 1, names[a], 100 * winRate(a),
+			           100 * interval[0], 100 * interval[1], (games == 0) ? 0.0 : (double) turns[a].sum() / games);
+		} // for j
+		for (int j = 1; j < ranking.length; j++) {
+			double[] margin = margin(ranking[j - 1], ranking[j]);
+			out.printf("%s over %s: %+.3f%% +/- %.3f%% (simultaneous, %s)%n", names[ranking[j - 1]], names[ranking[j]],
+			           100 * margin[0], 100 * margin[1], (margin[0] - margin[1] > 0) ? "separated" : "not separated");
+		} // for j
+		out.printf("Elapsed:        %.3f s (%,.0f games/s)%n", seconds, games * names.length / Math.max(seconds, 1e-9));
+	} // method report
+
+	/**
+	 * Command line entry point, reached through 'Wumpus.main'
+	 *
+	 * @param args "--tournament <games> [--bots <name>,<name>...] [--threads <n>] [--seed <master>] [--confidence <c>]"
+	 */
+
+	public static void main(String[] args) {
+		long games = 0;
+		String[] names = { "random", "expectimax" };
+		int threads = Runtime.getRuntime().availableProcessors();
+		long master = GameRandom.mix(System.nanoTime());
+		double confidence = DEFAULT_CONFIDENCE;
+		for (int j = 0; j < args.length; j++) {
+			switch (args[j]) {
+				case "--tournament":
+					games = Long.parseLong(args[++j]);
+					break;
+				case "--bots":
+					names = args[++j].split(",");
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++j]);
+					break;
+				case "--seed":
+					master = Long.parseLong(args[++j]);
+					break;
+				case "--confidence":
+					confidence = Double.parseDouble(args[++j]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option '" + args[j] + "'");
+			} // switch option
+		} // for j
+		Tournament tournament = new Tournament(names, master, confidence);
+		Wumpus.out.printf("Master seed:    %d%n", master);
+		long start = System.nanoTime();
+		boolean separated = tournament.run(games, threads);
+		tournament.report(Wumpus.out, (System.nanoTime() - start) / 1e9);
+		Wumpus.out.println(separated ? "The ranking is separated" : "The ranking is not separated");
+	} // static method main
+
+} // class Tournament
@@ -43,10 +43,14 @@ import java.io.*;
 public class Wumpus {
 	
 	// Standard in, out, and error streams
+	//
+	// 'out' holds what the game writes until it waits for the player (see
+	// 'readLine'), so each turn reaches the console in a single write.
+	// 'in' reads the player's answers without making a string of them.
 	
-	public static Scanner     in  = new Scanner(System.in);
-	public static PrintWriter out = new PrintWriter(System.out, true);
-	public static PrintWriter err = new PrintWriter(System.err, true);
+	public static ConsoleInput in  = new ConsoleInput(System.in);
+	public static PrintWriter  out = ConsoleOutput.buffered(System.out);
+	public static PrintWriter  err = new PrintWriter(System.err, true);
 
 	// Game objects
 	//
@@ -72,9 +76,10 @@ public class Wumpus {
 	// Used in the game event loop to identify the action that the
 	// player has selected to take.
 	
-	public static final int ACTION_MOVE  = 1;
-	public static final int ACTION_SHOOT = 2;
-	public static final int ACTION_QUIT  = 3;
+	public static final int ACTION_MOVE   = 1;
+	public static final int ACTION_SHOOT  = 2;
+	public static final int ACTION_QUIT   = 3;
+	public static final int ACTION_TRAVEL = 4;
 
 	// Game states
 	//
@@ -88,22 +93,25 @@ public class Wumpus {
 	
 	// Cave definition data structure
 	//
-	// The cave itself is defined in the array 'cave[MAX_ROOMS][MAX_PATHS]'
+	// The cave itself is defined in the array 'CAVE[MAX_ROOMS][MAX_PATHS]'
 	// Note that '0' is the index of the first element in a Java array
 	// as such, reading and writing index values to and from the console
 	// require adding or subtracting '1' so that the rooms are properly
 	// numbered in human terms from room '1' to room 'MAX_ROOMS'.
 	//
 	// When looking at a particular cave room 'x', the paths out of the
-	// room are represented as:  'cave[x][0]' through 'cave[x][MAX_PATHS-1]'.
+	// room are represented as:  'CAVE[x][0]' through 'CAVE[x][MAX_PATHS-1]'.
+	//
+	// 'CAVE' is the classic dodecahedron, shared with the headless engine
+	// and anything else that needs the cave without a console game.
 	
 	public static final int MAX_ROOMS = 20;
 	public static final int MAX_PATHS = 3;
 	
-	int[][] cave = {{ 1, 4, 7},{ 0, 2, 9},{ 1, 3,11},{ 2, 4,13},{ 0, 3, 5},
-	                { 4, 6,14},{ 5, 7,16},{ 0, 6, 8},{ 7, 9,17},{ 1, 8,10},
-	                { 9,11,18},{ 2,10,12},{11,13,19},{ 3,12,14},{ 5,13,15},
-	                {14,16,19},{ 6,15,17},{ 8,16,18},{10,17,19},{12,15,18}};
+	public static final int[][] CAVE = {{ 1, 4, 7},{ 0, 2, 9},{ 1, 3,11},{ 2, 4,13},{ 0, 3, 5},
+	                                    { 4, 6,14},{ 5, 7,16},{ 0, 6, 8},{ 7, 9,17},{ 1, 8,10},
+	                                    { 9,11,18},{ 2,10,12},{11,13,19},{ 3,12,14},{ 5,13,15},
+	                                    {14,16,19},{ 6,15,17},{ 8,16,18},{10,17,19},{12,15,18}};
 
 	// Game parameters
 	//
@@ -112,19 +120,50 @@ public class Wumpus {
 	public static final int MAX_ARROWS      = 5;
 	public static final int MIN_ARROW_RANGE = 1;
 	public static final int MAX_ARROW_RANGE = 5;
+
+	// Prompts
+	//
+	// The questions put to the player, shared with the network sessions of
+	// 'GameServer' so that every front end asks them the same way.
+
+	static final String PROMPT_INSTRUCTIONS = "Instructions (Y-N)?";
+	static final String PROMPT_ACTION       = "\nShoot, move, travel, or quit (S,M,T,Q)?";
+	static final String PROMPT_PLAY_AGAIN   = "\nWould you like to play again with the same set-up (Y/N)?";
+	static final String PROMPT_PRESS_ENTER  = "Please press the 'Enter' key to continue...";
+	static final String PROMPT_MOVE         = "Where to? ";
+	static final String PROMPT_TRAVEL       = "Travel to? ";
+	static final String PROMPT_RANGE        = "Number of rooms? ";
+	static final String PROMPT_PATH_ROOM    = "Room %d ? ";
+
+	static final String TITLE        = "Java Wumpus\n";
+	static final String GAME_TITLE   = "Hunt the Wumpus";
+	static final String NOT_A_ROOM   = "That's not a room number!";
+	static final String NOT_A_NUMBER = "Please enter a number!";
+	static final String NO_ROUTE     = "You know of no safe way there!";
+	static final String GOODBYE      = "\nThank you for playing 'Hunt the Wumpus'!\n";
 	
-	// Game state data structures
+	// Game engine
 	//
-	// The key data structures for the game itself beyond the 'cave' array
-	//      'locationOf'   - Array containing the cave room location of each of the game objects
-	//      'initialState' - A second array mirroring 'locationOf' for purposes of restoring the game
-	//      'arrows'       - The number of arrows remaining in the hunter's quiver
-	//      'status'       - The current game state
+	// The console is a thin adapter over the headless 'WumpusEngine' which
+	// holds the game state and applies the rules.  'arrowPath' is reused to
+	// pass the flight path of each arrow shot to the engine.
 	
-	int[] locationOf   = new int[NUM_OF_OBJECTS];
-	int[] initialState = new int[NUM_OF_OBJECTS];
-	int   arrows;
-	int   status;
+	WumpusEngine engine    = new WumpusEngine(CaveTopology.CLASSIC);
+	int[]        arrowPath = new int[MAX_ARROW_RANGE];
+
+	// Hint overlay
+	//
+	// With hints on, 'tracker' follows what the player has learned from
+	// the warnings and events so far, and each look around the room ends
+	// with what it has worked out.
+
+	boolean       hints;
+	BeliefTracker tracker = new BeliefTracker(CaveTopology.CLASSIC);
+
+	// Route planning for the travel action, over the rooms 'tracker'
+	// knows to be safe
+
+	RoutePlanner  planner = new RoutePlanner(RoutePlanner.CLASSIC);
 	
 	/**
 	 * Wumpus Constructor
@@ -132,27 +171,34 @@ public class Wumpus {
 	 * Offers instructions, sets up the game, then enters a play loop
 	 * until the player decides enough is enough providing the chance
 	 * to play the same configuration over again.
+	 * 
+	 * @param seed the seed of the game, see 'WumpusEngine.setup(long)'
+	 * @param hints 'true' to show the hint overlay
+	 * @param journal where to record the game and every replay of it, or 'null'
 	 */
 		
-	private Wumpus() {
+	private Wumpus(long seed, boolean hints, GameJournal journal) {
+		
+		this.hints = hints;
+		engine.journal(journal, 0);
 		
-		clearConsole();
-		out.println("Java Wumpus\n");
+		clearConsole(out);
+		out.println(TITLE);
 		
-		if (singleUpperCaseCharPrompt("Instructions (Y-N)?") == 'Y') {			
+		if (singleUpperCaseCharPrompt(PROMPT_INSTRUCTIONS) == 'Y') {			
 			instructions();
 		} // if instructions
 		
-		setup();
+		engine.setup(seed);
 		
 		do {			
-			clearConsole();
-			out.println("Hunt the Wumpus");
+			clearConsole(out);
+			out.println(GAME_TITLE);
 			playGame();
-			finalStatus();
+			finalStatus(out, engine);
 		} while (playAgain());
 		
-		out.println("\nThank you for playing 'Hunt the Wumpus'!\n");
+		out.println(GOODBYE);
 
 	} // constructor Wumpus
 
@@ -160,20 +206,17 @@ public class Wumpus {
 	 * Game event loop
 	 * 
 	 * Keep repeating so long as the game state is 'CONTINUE'.  Look
-	 * around the current cave, take an action, check for hazards,
-	 * rinse, and repeat.
+	 * around the current cave, take an action, rinse, and repeat.
 	 */
 	
 	private void playGame() {
 
-		status = CONTINUE;
+		int status;
 
+		tracker.reset(engine.hunterRoom(), BitboardState.warnings(engine.senses()));
 		do {	
 			look();
 			status = takeAction();
-			if (status == CONTINUE) {
-				status = checkHazards(status);
-			}
 		} while (status == CONTINUE);
 
 	} // method playGame
@@ -183,11 +226,14 @@ public class Wumpus {
 	 * 
 	 * Based upon the game state, displays a final status message to
 	 * the player.
+	 * 
+	 * @param out where to display it
+	 * @param engine the engine the game was played on
 	 */
 	
-	private void finalStatus() {
+	static void finalStatus(PrintWriter out, WumpusEngine engine) {
 
-		switch (status) {
+		switch (engine.status()) {
 			case WUMPUS_DEAD:
 				out.println("\nHee Hee Hee - The Wumpus'll getcha next time!!");
 				break;
@@ -214,16 +260,9 @@ public class Wumpus {
 
 	private boolean playAgain() {
 
-		if (singleUpperCaseCharPrompt("\nWould you like to play again with the same set-up (Y/N)?") == 'Y') {
-
-			for (int j=0; j < NUM_OF_OBJECTS; j++) {
-				locationOf[j] = initialState[j];
-			} // for j
-			
-			arrows = MAX_ARROWS;
-			
+		if (singleUpperCaseCharPrompt(PROMPT_PLAY_AGAIN) == 'Y') {
+			engine.restart();
 			return true;
-
 		} // if same setup
 		
 		return false;
@@ -248,14 +287,80 @@ public class Wumpus {
 			case ACTION_SHOOT:
 				return shoot();
 			case ACTION_QUIT:
-				return QUIT;
+				return quit();
+			case ACTION_TRAVEL:
+				return travel();
 			default:
 				err.println("Invalid action identifier returned from 'getAction' method");
-				return QUIT;
+				return quit();
 		} // switch action identifier
 
 	} // method takeAction
 
+	/**
+	 * Report what happened
+	 * 
+	 * @param status the game state returned by the engine for the action
+	 * @return the same game state, for the convenience of the caller
+	 */
+
+	private int report(int status) {
+		report(out, engine);
+		return status;
+	} // method report
+
+	/**
+	 * Report what happened
+	 * 
+	 * Displays a message for each event the engine recorded while resolving
+	 * the last action, in the order in which they happened.
+	 * 
+	 * @param out where to display the messages
+	 * @param engine the engine that resolved the action
+	 */
+
+	static void report(PrintWriter out, WumpusEngine engine) {
+		for (int j = 0; j < engine.eventCount(); j++) {
+			switch (engine.event(j)) {
+				case WumpusEngine.EVENT_NO_TUNNEL:
+					out.println("You can't get there from here!");
+					break;
+				case WumpusEngine.EVENT_NO_ARROWS:
+					out.println("Unfortunately, you are out of arrows!");
+					break;
+				case WumpusEngine.EVENT_ARROW_MISSED:
+					out.println("\nYou missed!");
+					break;
+				case WumpusEngine.EVENT_ARROW_HIT_HUNTER:
+					out.println("\nOh, no! You were hit by your own arrow!");
+					break;
+				case WumpusEngine.EVENT_ARROW_HIT_WUMPUS:
+					out.println("\nWhap! Your arrow hit a wumpus!");
+					break;
+				case WumpusEngine.EVENT_WUMPUS_BUMPED:
+					out.println("\nOops! You bumped in a Wumpus!");
+					break;
+				case WumpusEngine.EVENT_WUMPUS_AWAKE:
+					out.println("The Wumpus woke up!");
+					break;
+				case WumpusEngine.EVENT_WUMPUS_MOVED:
+					out.println("The Wumpus is moving to a new room!");
+					break;
+				case WumpusEngine.EVENT_WUMPUS_ATTACK:
+					out.println("The Wumpus attacks you!");
+					break;
+				case WumpusEngine.EVENT_BAT_SNATCH:
+					out.println("\nZap! A superbat snatched you!  Elsewhere for you!");
+					break;
+				case WumpusEngine.EVENT_PIT_FALL:
+					out.println("\nYyyiiiiieeeeee .... you fell into a pit!");
+					break;
+				default:
+					err.println("Oops! Something unexpected happened!");
+			} // switch event
+		} // for j
+	} // method report
+
 	/**
 	 * Prompt for and return a single, upper case, character from the console
 	 * 
@@ -269,17 +374,12 @@ public class Wumpus {
 	
 	private char singleUpperCaseCharPrompt(String msg) {
 
-		String response;
-		
 		do {
 			out.printf("%s ", msg);
-			while (!in.hasNextLine()) {
-				// intentionally empty loop body to loop if we get a blank line
-			};
-			response = in.nextLine().toUpperCase();
-		} while (response.isEmpty());
+			readLine();
+		} while (in.isEmpty());
 		
-		return response.charAt(0);
+		return in.upperCaseChar();
 
 	} // method singleUpperCaseCharPrompt
 
@@ -288,43 +388,36 @@ public class Wumpus {
 	 */
 
 	private void pressEnterPrompt() {
-		out.printf("Please press the 'Enter' key to continue...");
-		in.nextLine();
+		out.printf(PROMPT_PRESS_ENTER);
+		readLine();
 	}
-	
+
 	/**
-	 * Set up the game
-	 * 
-	 * Set up the game by placing the game objects into the cave system
-	 * assuring that each cave room contains, at most, one object. 
-	 * 
-	 * The naive algorithm used to assure no two objects are placed into the
-	 * same room is to loop through each of the game objects and, for 
-	 * each one, pick a random room in which to place the object.  Before
-	 * the objects location is recorded, we loop back down through all the
-	 * game objects previously placed to assure that the newly selected
-	 * room hasn't already been used.  If it has been, then we pick 
-	 * another room and try all over again.  Once we have a good room,
-	 * we set the object to that location and mirror the same information
-	 * in 'initialState' so we can reset the game to the same configuration.
-	 * Also, fill the hunter's quiver with the starting number of arrows.
-	 */
-	
-	private void setup() {
-		Random generator = new Random();		
-		for (int j = 0; j < NUM_OF_OBJECTS; j++) {
-			int loc = generator.nextInt(MAX_ROOMS);     // pick a random location
-			for (int k = (j - 1); k >= 0; k--) {        // check prior locations to assure no duplicates
-				if (locationOf[k] == loc) {             // found a duplicate, so try another location
-					loc = generator.nextInt(MAX_ROOMS); // pick a new random location
-					k = j;                              // k will be reduced by one in the for loop
-				} // if location match
-			} // for k
-			locationOf[j] = loc;
-			initialState[j] = loc;
-		} // for j
-		arrows = MAX_ARROWS;
-	} // method setup
+	 * Read the player's next line from the console into 'in'
+	 *
+	 * Everything written so far is flushed first, so the player sees the
+	 * whole turn and the question before being asked to answer it.
+	 *
+	 * @throws NoSuchElementException if there are no more lines, which ends the game
+	 */
+
+	private static void readLine() {
+		out.flush();
+		GameMetrics.InputEvent event = null;
+		long start = 0;
+		if (GameMetrics.enabled) {
+			event = new GameMetrics.InputEvent();
+			event.begin();
+			start = System.nanoTime();
+		} // if instrumented
+		boolean more = in.next();
+		if (event != null) {
+			GameMetrics.input(event, System.nanoTime() - start);
+		} // if instrumented
+		if (!more) {
+			throw new NoSuchElementException("No more input");
+		} // if input ended
+	} // static method readLine
 	
 	/**
 	 * Look around the cave room and take stock of things
@@ -334,11 +427,26 @@ public class Wumpus {
 	 */
 	
 	private void look() {
-		lookTunnels();
-		senseHazards();
-		quiverStatus();
+		look(out, engine, hints ? tracker : null);
 	} // method look
 
+	/**
+	 * Look around the cave room and take stock of things
+	 * 
+	 * @param out where to display what the hunter finds
+	 * @param engine the engine the game is played on
+	 * @param tracker what the player has learned, for the hints, or 'null' for none
+	 */
+
+	static void look(PrintWriter out, WumpusEngine engine, BeliefTracker tracker) {
+		lookTunnels(out, engine);
+		senseHazards(out, engine);
+		quiverStatus(out, engine);
+		if (tracker != null) {
+			showHints(out, engine, tracker);
+		} // if hints
+	} // static method look
+
 	/**
 	 * Identify all the tunnels leading out of the current room
 	 * 
@@ -346,20 +454,12 @@ public class Wumpus {
 	 * all the locations connected to it.
 	 */
 	
-	private void lookTunnels() {
-		out.printf("\nYou are in room %d.\n", locationOf[HUNTER]+1);
-		out.print("Tunnels lead to");
+	private static void lookTunnels(PrintWriter out, WumpusEngine engine) {
+		int room = engine.hunterRoom();
+		out.printf("\nYou are in room %d.\nTunnels lead to", room+1);
 		for (int j = 0; j < MAX_PATHS; j++) {
-			if (j == 0) {
-				out.print(" ");
-			}
-			if ((0 < j) && j < (MAX_PATHS - 1)) {
-				out.print(", ");
-			}
-			if (j == (MAX_PATHS - 1)) {
-				out.print(", and ");
-			}
-			out.print(cave[locationOf[HUNTER]][j]+1);
+			out.print((j == 0) ? " " : (j < (MAX_PATHS - 1)) ? ", " : ", and ");
+			out.print(engine.topology().tunnel(room, j)+1);
 		} // for j
 		out.println(".");
 	} // method lookTunnels
@@ -367,49 +467,86 @@ public class Wumpus {
 	/**
 	 * Sense any game hazards
 	 * 
-	 * For each game object, except the hunter (HUNTER = '0'), check each of the
-	 * connecting cave rooms to see if that object exists in that room adjacent
-	 * room.  If it does, then display a warning message on the console.
+	 * For each game object, except the hunter (HUNTER = '0'), check whether
+	 * the engine sensed that object in a room adjacent to the hunter.  If it
+	 * did, then display a warning message on the console.
 	 */
 	
-	private void senseHazards() {
+	private static void senseHazards(PrintWriter out, WumpusEngine engine) {
+		int senses = engine.senses();
 		for (int j = 1; j < NUM_OF_OBJECTS; j++) {
-			for (int k = 0; k < MAX_PATHS; k++) {
-				if (cave[locationOf[HUNTER]][k] == locationOf[j]) {
-					switch (j) {
-					case WUMPUS:
-						out.println("You smell a Wumpus!");
-						break;
-					case PIT1:
-					case PIT2:
-						out.println("You feel a draft!");
-						break;
-					case BATS1:
-					case BATS2:
-						out.println("You hear bats nearby!");
-						break;
-					default:
-						err.println("Oops! Something unexpected happened!");
-						break;
-					} // switch game object
-				} // if adjacent object
-			} // for k
+			if ((senses & (1 << j)) != 0) {
+				switch (j) {
+				case WUMPUS:
+					out.println("You smell a Wumpus!");
+					break;
+				case PIT1:
+				case PIT2:
+					out.println("You feel a draft!");
+					break;
+				case BATS1:
+				case BATS2:
+					out.println("You hear bats nearby!");
+					break;
+				default:
+					err.println("Oops! Something unexpected happened!");
+					break;
+				} // switch game object
+			} // if adjacent object
 		} // for j
 	} // method senseHazards()
 	
+	/**
+	 * Show what can be worked out from the warnings so far
+	 * 
+	 * Lists the rooms the Wumpus could be in, the rooms certain to hold a
+	 * pit or bats, and the tunnels out of the room known to be safe.
+	 */
+
+	private static void showHints(PrintWriter out, WumpusEngine engine, BeliefTracker tracker) {
+		out.printf("Hint: the Wumpus could be in room%s.\n", roomList(tracker.wumpus()));
+		if (tracker.knownPits() != 0) {
+			out.printf("Hint: there is a pit in room%s.\n", roomList(tracker.knownPits()));
+		} // if pits found
+		if (tracker.knownBats() != 0) {
+			out.printf("Hint: there are bats in room%s.\n", roomList(tracker.knownBats()));
+		} // if bats found
+		long safe = tracker.safe() & ~tracker.wumpus() & engine.topology().neighbours(engine.hunterRoom());
+		if (safe != 0) {
+			out.printf("Hint: it is safe to move to room%s.\n", roomList(safe));
+		} else {
+			out.println("Hint: no tunnel out of here is known to be safe.");
+		} // if safe tunnels
+	} // method showHints
+
+	/**
+	 * Format a room mask as a list of room numbers
+	 * 
+	 * @param rooms the room mask, bit 'x' for room 'x'
+	 * @return the room numbers, preceded by "s" if there is more than one
+	 */
+
+	private static String roomList(long rooms) {
+		StringBuilder list = new StringBuilder((Long.bitCount(rooms) > 1) ? "s" : "");
+		for (long rest = rooms; rest != 0; rest &= rest - 1) {
+			list.append(' ').append(Long.numberOfTrailingZeros(rest) + 1);
+		} // for each room
+		return list.toString();
+	} // static method roomList
+
 	/**
 	 * Display the status of the hunter's quiver
 	 * 
 	 * Display the number of arrows in the quiver onto the console
 	 */
 
-	private void quiverStatus() {
-		if (arrows == 0) {
+	private static void quiverStatus(PrintWriter out, WumpusEngine engine) {
+		if (engine.arrows() == 0) {
 			out.println("You have no more arrows!");
-		} else if (arrows == 1) {
+		} else if (engine.arrows() == 1) {
 			out.println("You only have one more arrow!");
 		} else {
-			out.printf("You have %d arrows.\n", arrows);
+			out.printf("You have %d arrows.\n", engine.arrows());
 		} // if-else chain condition checks
 	} // method quiverStatus
 	
@@ -423,93 +560,155 @@ public class Wumpus {
 	
 	private int getAction() {
 		do {
-			switch (singleUpperCaseCharPrompt("\nShoot, move, or quit (S,M,Q)?")) {
-				case 'S':
-					return ACTION_SHOOT;
-				case 'M':
-					return ACTION_MOVE;
-				case 'Q':
-					return ACTION_QUIT;
-			} // switch action identifier
+			int action = action(singleUpperCaseCharPrompt(PROMPT_ACTION));
+			if (action != 0) {
+				return action;
+			} // if valid
 		} while (true);
 	} // method getAction
+
+	/**
+	 * Action identifier for an answer to the action prompt
+	 * 
+	 * @param answer the upper case answer
+	 * @return the action identifier, or '0' if the answer is not one
+	 */
+
+	static int action(char answer) {
+		switch (answer) {
+			case 'S':
+				return ACTION_SHOOT;
+			case 'M':
+				return ACTION_MOVE;
+			case 'Q':
+				return ACTION_QUIT;
+			case 'T':
+				return ACTION_TRAVEL;
+			default:
+				return 0;
+		} // switch answer
+	} // static method action
 	
 	/**
 	 * Move the hunter to a new room
 	 * 
 	 * Implements the ACTION_MOVE action identifier.  Queries the player as to
-	 * where the hunter should be moved.  Repeats the query until a valid reachable
-	 * room is selected.  Then changes the location of the hunter to that room.
+	 * where the hunter should be moved and hands the move to the engine, which
+	 * refuses it if the room cannot be reached.
 	 * 
-	 * @return game state after moving to the new room (always CONTINUE)
+	 * @return game state after moving to the new room
 	 */
 	
 	private int move() {
-		out.printf("Where to? ");
-		try {
-			int loc = Integer.parseInt(in.nextLine()) - 1;
-			if (isConnected(locationOf[HUNTER], loc)) {
-				locationOf[HUNTER]=loc;
-			} else {
-				out.println("You can't get there from here!");
-			} // if connected
-		} catch (NumberFormatException e) {
-			out.println("That's not a room number!");
-		} // try-catch
-		return CONTINUE;
+		out.printf(PROMPT_MOVE);
+		readLine();
+		if (in.isNumber()) {
+			int loc = in.number() - 1;
+			int status = report(engine.move(loc));
+			tracker.update(engine, loc);
+			return status;
+		} // if a number
+		out.println(NOT_A_ROOM);
+		return engine.status();
 	} // method move
 	
 	/**
-	 * Check to see if one cave room is connected to another
+	 * Walk the hunter to a room any number of tunnels away
 	 * 
-	 * Helper method to see if two rooms are connected to each other
+	 * Implements the ACTION_TRAVEL action identifier.  Queries the player as
+	 * to where the hunter should go, then walks there (see 'travel' below).
 	 * 
-	 * @param from the room to leave from
-	 * @param to the room to see if we can arrive in
-	 * @return 'true' if we can get from room 'from' to room 'to'
+	 * @return game state after the walk
 	 */
 	
-	private boolean isConnected(int from, int to) {
-		for (int j = 0; j < MAX_PATHS; j++) {
-			if (cave[from][j] == to) {
-				return true;
-			} // if connected
+	private int travel() {
+		out.printf(PROMPT_TRAVEL);
+		readLine();
+		if (in.isNumber()) {
+			travel(out, engine, tracker, hints, planner, in.number() - 1);
+			return engine.status();
+		} // if a number
+		out.println(NOT_A_ROOM);
+		return engine.status();
+	} // method travel
+
+	/**
+	 * Walk the hunter to a room along a route known to be safe
+	 * 
+	 * Plans a shortest route through the rooms the player knows hold no pit,
+	 * no bats, and no wumpus, then takes it one move, and one turn, at a
+	 * time, looking around in each room passed through.  The walk stops early
+	 * if anything unexpected happens on the way.  With no such route, or no
+	 * such room, the hunter stays put and no turn is taken.
+	 * 
+	 * @param out where to display what happens
+	 * @param engine the engine the game is played on
+	 * @param tracker what the player has learned, kept up to date on the way
+	 * @param hints 'true' to show the hints when looking around
+	 * @param planner the planner of the engine's cave
+	 * @param room the room to walk to
+	 */
+
+	static void travel(PrintWriter out, WumpusEngine engine, BeliefTracker tracker, boolean hints, RoutePlanner planner, int room) {
+		if ((room < 0) || (room >= engine.topology().rooms())) {
+			out.println(NOT_A_ROOM);
+			return;
+		} // if not a room
+		long[] safe = { tracker.safe() & ~tracker.wumpus() };
+		int length = planner.route(engine.hunterRoom(), room, safe);
+		if (length < 0) {
+			out.println(NO_ROUTE);
+			return;
+		} // if no safe route
+		for (int j = 0; j < length; j++) {
+			int next = planner.hop(j);
+			if (j > 0) {
+				look(out, engine, hints ? tracker : null);
+			} // if on the way
+			engine.move(next);
+			report(out, engine);
+			tracker.update(engine, next);
+			if ((engine.status() != CONTINUE) || (engine.hunterRoom() != next)) {
+				return;
+			} // if the walk went wrong
 		} // for j
-		return false;
-	} // method isConnected
-	
+	} // static method travel
+
 	/**
 	 * Shoot an arrow from the hunter's bow
 	 * 
 	 * Implements the ACTION_SHOOT action identifier.  So long as the hunter
-	 * has arrows, remove an arrow from the quiver, get the desired path of
-	 * the arrow, then track the arrow as it moves from room to room returning
-	 * the game status after the arrow flies.  If the game is still continuing
-	 * after the arrow has finished its flight, awaken the wumpus so it has a
-	 * chance to move to a new room.
-	 * 
-	 * 'arrowPath' ArrayList is used to store the path of the arrow
+	 * has arrows, get the desired path of the arrow and let the engine fly
+	 * it, returning the game status after the arrow flies (and, perhaps, the
+	 * wumpus moves).  Without arrows the engine is still asked so that it
+	 * reports the empty quiver.
 	 * 
 	 * @return the game status after shooting an arrow and, perhaps, moving the wumpus
 	 */
 	
 	private int shoot() {
-		if (arrows > 0) {
-			arrows--;
-			ArrayList<Integer> arrowPath = new ArrayList<Integer>();
-			getPath(arrowPath, getRange());
-			int status = trackArrow(arrowPath);
-			if (status == CONTINUE) {
-				return wumpusAwaken();
-			} else {
-				return status;
-			} // if status CONTINUE
-		} else {
-			out.println("Unfortunately, you are out of arrows!");
-			return CONTINUE;
+		int range = 0;
+		if (engine.arrows() > 0) {
+			range = getRange();
+			getPath(arrowPath, range);
 		} // if arrows
+		int status = report(engine.shoot(arrowPath, range));
+		tracker.update(engine, -1);
+		return status;
 	} // method shoot
 	
+	/**
+	 * Give up
+	 * 
+	 * Implements the ACTION_QUIT action identifier.
+	 * 
+	 * @return the game status after quitting (always QUIT)
+	 */
+	
+	private int quit() {
+		return report(engine.quit());
+	} // method quit
+	
 	/**
 	 * Get the range the hunter wants to shoot
 	 * 
@@ -525,28 +724,44 @@ public class Wumpus {
 
 			// get a valid range from the hunter via the console
 			
-			out.printf("Number of rooms? ");
-			try {
-				range = Integer.parseInt(in.nextLine());
-			} catch (NumberFormatException e) {
-				out.println("Please enter a number!");
-			} // try-catch
+			out.printf(PROMPT_RANGE);
+			readLine();
+			if (in.isNumber()) {
+				range = in.number();
+			} else {
+				out.println(NOT_A_NUMBER);
+			} // if a number
 			
 			// ensure that the entered range is valid
 			
-			if (range < MIN_ARROW_RANGE) {
-				out.println("An arrow must be shoot a distance of at least one room!");
-			} else if (range > MAX_ARROW_RANGE) {
-				out.println("Your bow isn't strong enough to shoot an arrow that far!");
-			} else {
+			if (checkRange(out, range)) {
 				break;
-			} // if-else chain condition checks
+			} // if valid
 			
 		} while (true); // intentional infinite loop, 'break' used to exit
 		
 		return range;
 		
 	} // method getRange
+
+	/**
+	 * Check that the bow can shoot an arrow a given number of rooms
+	 * 
+	 * @param out where to say what is wrong with the range
+	 * @param range the range asked for
+	 * @return 'true' if the range is within the capabilities of the bow
+	 */
+
+	static boolean checkRange(PrintWriter out, int range) {
+		if (range < MIN_ARROW_RANGE) {
+			out.println("An arrow must be shoot a distance of at least one room!");
+		} else if (range > MAX_ARROW_RANGE) {
+			out.println("Your bow isn't strong enough to shoot an arrow that far!");
+		} else {
+			return true;
+		} // if-else chain condition checks
+		return false;
+	} // static method checkRange
 	
 	/**
 	 * Get a desired flight path for the arrow
@@ -562,257 +777,80 @@ public class Wumpus {
 	 * @param range the range of the arrow
 	 */
 	
-	private void getPath(ArrayList<Integer> arrowPath, int range) {
+	private void getPath(int[] arrowPath, int range) {
 
 		int nextRoom;
 		for (int j = 0; j < range; j++) {
 			
 			// get a room number on the flight path
 
-			out.printf("Room %d ? ", j + 1);
-			try {
-				nextRoom = Integer.parseInt(in.nextLine()) - 1;
-			} catch (NumberFormatException e) {
-				out.println("Please enter a number!");
+			out.printf(PROMPT_PATH_ROOM, j + 1);
+			readLine();
+			if (!in.isNumber()) {
+				out.println(NOT_A_NUMBER);
 				j--;
 				continue;
-			} // try-catch
+			} // if not a number
+			nextRoom = in.number() - 1;
 			
 			// assure that it is valid and add it to the flight path if it is
 
-			if (locationOf[HUNTER] == nextRoom) {
-				out.println("You cannot try to commit suicide!");
-				j--;
-				continue;
-			} else if ((arrowPath.size() > 1) && (arrowPath.get(arrowPath.size() - 2) == nextRoom)) {
-				out.println("Your arrows are not that crooked!");
-				j--;
-				continue;
+			if (checkPathRoom(out, engine, arrowPath, j, nextRoom)) {
+				arrowPath[j] = nextRoom;
 			} else {
-				arrowPath.add(nextRoom);
-			} // if-else chaing condition checks
+				j--;
+			} // if valid
 
 		} // for j
 		
 	} // method getPath
 
 	/**
-	 * Track the flight of the arrow
-	 * 
-	 * The flight of the arrow itself is managed through a recursive algorithm.
-	 * The arrow tries to fly along the path the hunter selected ('guided flight');
-	 * however, if it is impossible to get to the next location specified on the path,
-	 * the arrow switches to random flight.  'guidedArrowFlightIntoRoom' recursively
-	 * handles guided flight and 'randomArrowFlightIntoRoom' handles random flight.
-	 * 
-	 * We start things out by using guided flight to try to get from the current room
-	 * where the hunter is located into the first room on the arrow's flight path.
-	 * Since the arrow hasn't yet flown, the prior room to this one is set to a 
-	 * sentinel value of '-1'.
-	 * 
-	 * @param arrowPath an ArrayList of the desired path of the arrow
-	 * @return the game state after the arrow has flown its course
-	 */
-	
-	private int trackArrow(ArrayList<Integer> arrowPath) {
-		return guidedArrowFlightIntoRoom(-1, locationOf[HUNTER], arrowPath.remove(0), arrowPath);
-	} // method trackArrow
-	
-	/**
-	 * Guided arrow flight
-	 * 
-	 * Recursively handles guided flight of an arrow.  After checking to see if the arrow
-	 * can get from where it is ('currentRoom') into the nextRoom, it sees if the arrow is going
-	 * to hit either the hunter or the wumpus.  If it is, then we're done and return back down
-	 * the recursive calling stack the appropriate _DEAD game status.  If we didn't hit anything
-	 * and the 'nextRoom' is the last room on the arrow's flight path, then we're also done and
-	 * CONTINUE on.  But, if we didn't hit anything and we still have more flying to do, then
-	 * recursively call 'guidedArrowFlightIntoRoom' to take the arrow a little further.   If,
-	 * however, when we are unable to get from currentRoom into the nextRoom then we ignore where
-	 * we were supposed to go and, instead, flip over to random flight.
-	 * 
-	 * @param priorRoom the room the arrow was in prior to the room it is currently in, set
-	 *                  set to '-1' if just starting our flight.
-	 * @param currentRoom the room the arrow is currently in or starting its flight from
-	 * @param nextRoom the room we are trying to get to using guided flight
-	 * @param arrowPath the remaining flight path of the arrow (ever decreasing in size)
-	 * @return the game state after the arrow gets to its final destination
-	 */
-	
-	private int guidedArrowFlightIntoRoom(int priorRoom, int currentRoom, int nextRoom, ArrayList<Integer> arrowPath) {
-		if (isConnected(currentRoom, nextRoom)) {
-			if (locationOf[HUNTER] == nextRoom) {
-				out.println("\nOh, no! You were hit by your own arrow!");
-				return HUNTER_DEAD;
-			} else if (locationOf[WUMPUS] == nextRoom) {
-				out.println("\nWhap! Your arrow hit a wumpus!");
-				return WUMPUS_DEAD;
-			} else if (arrowPath.size() == 0) {
-				out.println("\nYou missed!");
-				return CONTINUE;
-			} else {
-				return guidedArrowFlightIntoRoom(currentRoom, nextRoom, arrowPath.remove(0), arrowPath);
-			} // if-else chain condition checks
-		} else {
-			return randomArrowFlightIntoRoom(priorRoom, currentRoom, arrowPath.size());
-		} // if isConnected
-	} // method guidedArrowFlightIntoRoom
-	
-	/**
-	 * Random arrow flight
+	 * Check a room of an arrow's flight path
 	 * 
-	 * Recursively handles the random flight of an arrow.  Unlike guided flight, we don't know where the
-	 * arrow should be going so the first thing we do is pick a room at random that we can get to from 
-	 * where we are; however, we check to assure that the arrow doesn't do an 180 turn and double back
-	 * on itself.  Once we have a random room, we check and see if the arrow is going to hit anything
-	 * in that randomly selected room.  If so, we return as appropriate.  If not, we make sure that we
-	 * have any distance left to go (we might not [note: could probably check this before bothering to
-	 * pick a room to go to, but done this we to mirror the guided flight method]).  If we do have 
-	 * further to go, then recursively call 'randomArrowFlightIntoRoom' to fly the arrow further down
-	 * its range.
-	 * 
-	 * @param priorRoom the room the arrow was in prior to the room it is currently in
-	 * @param currentRoom the room the arrow is currently in
-	 * @param remainingRange the remaining range of the arrow (flight path doesn't matter anymore)
-	 * @return the game state after the arrow gets to its final destination
+	 * @param out where to say what is wrong with the room
+	 * @param engine the engine the game is played on
+	 * @param arrowPath the flight path so far
+	 * @param j the index of the room in the flight path
+	 * @param nextRoom the room asked for
+	 * @return 'true' if the room may go on the flight path
 	 */
-	
-	private int randomArrowFlightIntoRoom(int priorRoom, int currentRoom, int remainingRange) {
 
-		// select a random connected room other than the one we came from
-		
-		Random generator = new Random();
-		int nextRoom;
-		do {
-			nextRoom = cave[currentRoom][generator.nextInt(MAX_PATHS)];
-		} while (nextRoom == priorRoom);
-		
-		// check conditions, recursively continue flight if appropriate
-		
-		if (locationOf[HUNTER] == nextRoom) {
-			out.println("\nOh, no! You were hit by your own arrow!");
-			return HUNTER_DEAD;
-		} else if (locationOf[WUMPUS] == nextRoom) {
-			out.println("\nWhap! Your arrow hit a wumpus!");
-			return WUMPUS_DEAD;
-		} else if (remainingRange == 0) {
-			out.println("\nYou missed!");
-			return CONTINUE;
+	static boolean checkPathRoom(PrintWriter out, WumpusEngine engine, int[] arrowPath, int j, int nextRoom) {
+		if (engine.hunterRoom() == nextRoom) {
+			out.println("You cannot try to commit suicide!");
+		} else if ((j > 1) && (arrowPath[j - 2] == nextRoom)) {
+			out.println("Your arrows are not that crooked!");
 		} else {
-			return randomArrowFlightIntoRoom(currentRoom, nextRoom, remainingRange - 1);
-		} // if-else chain condition checks
-
-	} // method randomArrowFlightIntoRoom
-	
+			return true;
+		} // if-else chaing condition checks
+		return false;
+	} // static method checkPathRoom
 
 	/**
-	 * Check for the effect of any hazards
-	 * 
-	 * Check the room the hunter is currently in for the existence of any hazards.
-	 * If any exist, take the appropriate action and return game state.
-	 * 
-	 * @param status current game state (passed so it can be preserved)
-	 * @return game state after checking for hazards
-	 */
-	
-	private int checkHazards(int status) {
-		if (locationOf[HUNTER] == locationOf[WUMPUS]) {
-			return wumpusAction();
-		} else if ((locationOf[HUNTER] == locationOf[BATS1]) || (locationOf[HUNTER] == locationOf[BATS2])) {
-			return batAction();
-		} else if ((locationOf[HUNTER] == locationOf[PIT1]) || (locationOf[HUNTER] == locationOf[PIT2])) {
-			return pitAction();
-		} else {
-			return status;
-		} // if-else chain condition checks
-	} // method checkHazards
-	
-	/**
-	 * Wumpus bumped into
-	 * 
-	 * Wakes up the wumpus if it was bumped into
-	 * 
-	 * @return game state after wumpus bumped into
-	 */
-	
-	private int wumpusAction() {
-		out.println("\nOops! You bumped in a Wumpus!");
-		return wumpusAwaken();
-	} // method wumpusAction
-	
-	/**
-	 * Wumpus awoke
-	 * 
-	 * Wumpus was awaken from sleep so it takes action.  Pick a random
-	 * path to move to from 0 to MAX_PATHS.  If 0 to MAX_PATHS - 1 (which
-	 * when there are 3 paths will occur 75% of the time, then we move to
-	 * the room connected to by the selected path.  Otherwise (25% of the time
-	 * in a 3 MAX_PATHS game), the wumpus stays where it is.  If the wumpus
-	 * moves, and happens to move into the room where the hunter is located,
-	 * then it immediately attacks.
-	 * 
-	 * @return game state after wumpus wakes up and, perhaps, moves
+	 * Display the instructions on the console
 	 */
 	
-	private int wumpusAwaken() {
-		out.println("The Wumpus woke up!");
-
-		// pick a random path or one more than are possible
-		// move to the room connected by the path if appropriate
-		
-		Random generator = new Random();
-		int newLoc = generator.nextInt(MAX_PATHS+1);
-		if (newLoc < MAX_PATHS) {
-			locationOf[WUMPUS] = cave[locationOf[WUMPUS]][newLoc];
-			out.println("The Wumpus is moving to a new room!");
-		} // if moving
-		
-		// see if the hunter encounters some bad luck
-		
-		if (locationOf[HUNTER] == locationOf[WUMPUS]) {
-			out.println("The Wumpus attacks you!");
-			return HUNTER_DEAD;
-		} else {
-			return CONTINUE;
-		} // if hunter check
-		
-	} // method wumpusAwaken
+	private void instructions() {
+		instructions(out, 1);
+		pressEnterPrompt();
+		instructions(out, 2);
+		pressEnterPrompt();
+	} // method instructions
 
 	/**
-	 * Bats take action
-	 * 
-	 * Bats move the hunter to any random room in the cave.  Once there,
-	 * recursively checkHazards again and return the game state
+	 * Display a page of the instructions
 	 * 
-	 * @return game state after bats randomly dropped hunter
+	 * @param out where to display it
+	 * @param page the page, '1' or '2'
 	 */
-	
-	private int batAction() {
-		Random generator = new Random();
-		locationOf[HUNTER] = generator.nextInt(MAX_ROOMS);
-		out.println("\nZap! A superbat snatched you!  Elsewhere for you!");
-		return checkHazards(CONTINUE);
-	} // method batAction
-	
-	/**
-	 * Pit takes action
-	 * 
-	 * Not much to say about this--hutner dead, end of game
-	 * 
-	 * @return game state after falling into a pit
-	 */
-	
-	private int pitAction() {
-		out.println("\nYyyiiiiieeeeee .... you fell into a pit!");
-		return HUNTER_DEAD;
-	} // method pitAction
-	
-	/**
-	 * Display the instructions on the console
-	 */
-	
-	private void instructions() {
-		clearConsole();
+
+	static void instructions(PrintWriter out, int page) {
+		clearConsole(out);
+		if (page == 2) {
+			instructionsPage2(out);
+			return;
+		} // if second page
 		out.printf("Welcome to 'Hunt the Wumpus'\n\n");
 		out.printf("The Wumpus lives in a cave of %d rooms.  Each room\n", MAX_ROOMS);
 		out.printf("has %d tunnels leading to other rooms.  (Look at a\n", MAX_PATHS);
@@ -828,13 +866,15 @@ public class Wumpus {
 		out.printf("has sucker feet and is too big for a bat to lift).\n");
 		out.printf("Usually he is asleep.  Two things that wake him up:\n");
 		out.printf("entering his room, or shooting an arrow.\n\n");
-		pressEnterPrompt();
-		clearConsole();
+	} // static method instructions
+
+	private static void instructionsPage2(PrintWriter out) {
 		out.printf("If the wumpus wakes, he moves (P=.75) one room or\n");
 		out.printf("stays still (P=.25). After that, if he is where you are\n");
 		out.printf("he eats you up (and you lose!)\n\n");
 		out.printf("You - Each turn you may move or shoot a crooked arrow.\n");
 		out.printf("Moving: You can go one room (thru one tunnel).\n");
+		out.printf("Travel: You can walk to any room by rooms known safe.\n");
 		out.printf("Arrows: You have %d arrows.  You lose when you run out.\n", MAX_ARROWS);
 		out.printf("Each arrow can go from %d to %d rooms.  You aim by telling\n", MIN_ARROW_RANGE, MAX_ARROW_RANGE);
 		out.printf("the computer the rooms you want the arrow to go to.  If\n");
@@ -847,27 +887,171 @@ public class Wumpus {
 		out.printf("\tWumpus - 'I smell a wumpus!'\n");
 		out.printf("\tBat - 'Bats nearby.'\n");
 		out.printf("\tPit - 'I feel a draft'\n\n");
-		pressEnterPrompt();
-	} // method instructions
+	} // static method instructionsPage2
 
 	/**
 	 * Clear console
 	 *
 	 * Clears the console using ANSI escape codes and positions cursor at coordinates 1,1
+	 * 
+	 * @param out the console to clear
 	 */
 
-	private void clearConsole() {
+	static void clearConsole(PrintWriter out) {
 		out.printf("\u001B[2J\u001B[f");
 	}
 	
 	/**
 	 * Static main method.  Program entry point 
 	 * 
-	 * @param args not used
+	 * With no arguments the console game is played.  "--seed <seed>" replays
+	 * the game set up from that seed, "--hints" shows what can be worked
+	 * out from the warnings after each look around, "--script <file>" takes
+	 * the player's answers from a file instead of the console, and "--quiet"
+	 * plays without writing anything, for scripted runs that only need the
+	 * game played.  The game ends quietly when the answers run out.
+	 * "--journal <dir>" records the game, and each time it is played again,
+	 * in a game journal (see 'GameJournal').
+	 * Whatever is still buffered in 'out' is flushed on the way out.
+	 * "--metrics <file>", with any of the modes, counts what happens inside
+	 * the games and writes a snapshot of the counts to the file at the end
+	 * (see 'GameMetrics').
+	 * "--simulate <games>" instead runs the batch simulator (see 'Simulator'
+	 * for its options), "--tournament <games>" ranks bots against each other
+	 * (see 'Tournament'),
+	 * "--replay <dir>" replays a game journal (see 'JournalReplay'),
+	 * "--tablebase <file>" writes the full information tablebase of the
+	 * classic cave (see 'Tablebase'), "--shared <rooms>" plays thousands of
+	 * hunters at once in one large cave (see 'SharedCave'),
+	 * "--routes <rooms>" times route planning in a large cave (see
+	 * 'RoutePlanner'), and
+	 * "--serve <port>" runs the network game server (see 'GameServer').
+	 * 
+	 * @param args command line options
 	 */
 	
 	public static void main(String[] args) {
-		new Wumpus();
+		List<String> rest = new ArrayList<>(Arrays.asList(args));
+		String metrics = null;
+		int at = rest.indexOf("--metrics");
+		if ((at >= 0) && (at + 1 < rest.size())) {
+			metrics = rest.remove(at + 1);
+			rest.remove(at);
+			GameMetrics.enable();
+		} // if metrics
+		try {
+			run(rest.toArray(new String[0]));
+		} finally {
+			out.flush();
+			if (metrics != null) {
+				try {
+					GameMetrics.snapshot(java.nio.file.Paths.get(metrics));
+				} catch (IOException e) {
+					err.println("Cannot write metrics: " + e.getMessage());
+				} // try-catch
+			} // if metrics
+		} // try-finally
 	} // static method main
 
+	private static void run(String[] args) {
+		if ((args.length > 0) && args[0].equals("--simulate")) {
+			Simulator.main(args);
+			return;
+		} // if simulate
+		if ((args.length > 0) && args[0].equals("--tournament")) {
+			Tournament.main(args);
+			return;
+		} // if tournament
+		if ((args.length > 0) && args[0].equals("--replay")) {
+			try {
+				JournalReplay.main(args);
+			} catch (IOException e) {
+				err.println("Cannot replay: " + e.getMessage());
+			} // try-catch
+			return;
+		} // if replay
+		if ((args.length > 0) && args[0].equals("--tablebase")) {
+			try {
+				Tablebase.main(args);
+			} catch (IOException e) {
+				err.println("Cannot write tablebase: " + e.getMessage());
+			} // try-catch
+			return;
+		} // if tablebase
+		if ((args.length > 0) && args[0].equals("--shared")) {
+			SharedCave.main(args);
+			return;
+		} // if shared
+		if ((args.length > 0) && args[0].equals("--routes")) {
+			RoutePlanner.main(args);
+			return;
+		} // if routes
+		if ((args.length > 0) && args[0].equals("--serve")) {
+			try {
+				GameServer.main(args);
+			} catch (IOException e) {
+				err.println("Cannot serve: " + e.getMessage());
+			} // try-catch
+			return;
+		} // if serve
+		long seed = GameRandom.mix(System.nanoTime());
+		boolean hints = false;
+		String script = null;
+		String journal = null;
+		for (int j = 0; j < args.length; j++) {
+			if (args[j].equals("--seed") && (j + 1 < args.length)) {
+				seed = Long.parseLong(args[++j]);
+			} else if (args[j].equals("--hints")) {
+				hints = true;
+			} else if (args[j].equals("--journal") && (j + 1 < args.length)) {
+				journal = args[++j];
+			} else if (args[j].equals("--script") && (j + 1 < args.length)) {
+				script = args[++j];
+			} else if (args[j].equals("--quiet")) {
+				out = ConsoleOutput.discard();
+			} else {
+				throw new IllegalArgumentException("Unknown option '" + args[j] + "'");
+			} // if-else chain condition checks
+		} // for j
+		GameJournal record = null;
+		if (journal != null) {
+			try {
+				record = new GameJournal(java.nio.file.Paths.get(journal), String.format("console-%016x", seed));
+			} catch (IOException e) {
+				err.println("Cannot journal the game: " + e.getMessage());
+			} // try-catch
+		} // if journaling
+		try (InputStream stream = (script == null) ? null : new FileInputStream(script)) {
+			if (stream != null) {
+				in = new ConsoleInput(stream);
+			} // if scripted
+			new Wumpus(seed, hints, record);
+		} catch (NoSuchElementException e) {
+			// out of answers, the game is over
+		} catch (UncheckedIOException e) {
+			err.println("Game stopped: " + e.getCause().getMessage());
+		} catch (IOException e) {
+			err.println("Cannot read script: " + e.getMessage());
+		} finally {
+			close(record);
+		} // try-catch-finally
+	} // static method run
+
+	/**
+	 * Close a game journal, if there is one, reporting a failure
+	 *
+	 * @param journal the journal, or 'null'
+	 */
+
+	static void close(GameJournal journal) {
+		if (journal == null) {
+			return;
+		} // if not journaling
+		try {
+			journal.close();
+		} catch (IOException e) {
+			err.println("Cannot close journal: " + e.getMessage());
+		} // try-catch
+	} // static method close
+
 } // class Wumpus
@@ -0,0 +1,56 @@
+/**
+ * Hunt the Wumpus - bot policy
+ *
+ * A bot plays the game in place of a human at the console.  It is asked the
+ * same questions the console asks a player ("Shoot, move, or quit?", "Where
+ * to?", "Number of rooms?" and the rooms themselves) and answers them by
+ * looking at the engine.  A well behaved bot only looks at what a player
+ * could see: the hunter's room and its tunnels, the senses, the arrows left,
+ * and the events of the last action.
+ *
+ * A bot keeps whatever per-game memory it likes, so each worker thread gets
+ * its own instance.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+public interface WumpusBot {
+
+	/**
+	 * A new game is about to start
+	 *
+	 * @param engine the engine the game is played on, already set up
+	 */
+
+	void newGame(WumpusEngine engine);
+
+	/**
+	 * Choose the next action
+	 *
+	 * @param engine the engine the game is played on
+	 * @return one of 'ACTION_MOVE', 'ACTION_SHOOT', or 'ACTION_QUIT'
+	 */
+
+	int chooseAction(WumpusEngine engine);
+
+	/**
+	 * Choose the room to move to after choosing 'ACTION_MOVE'
+	 *
+	 * @param engine the engine the game is played on
+	 * @return the room to move to
+	 */
+
+	int chooseRoom(WumpusEngine engine);
+
+	/**
+	 * Choose the flight path of an arrow after choosing 'ACTION_SHOOT'
+	 *
+	 * @param engine the engine the game is played on
+	 * @param path an array of 'MAX_ARROW_RANGE' rooms to be filled with the path
+	 * @return the number of rooms filled in (the range)
+	 */
+
+	int choosePath(WumpusEngine engine, int[] path);
+
+} // interface WumpusBot
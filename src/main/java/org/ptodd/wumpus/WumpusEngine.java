@@ -0,0 +1,542 @@
+/**
+ * Hunt the Wumpus - headless game engine
+ *
+ * The rules of the game, stripped of all console input and output.  The
+ * engine is driven by method calls (move to a room, shoot along a path,
+ * quit) and answers with the same game state codes used by the console
+ * version ('CONTINUE', 'WUMPUS_DEAD', 'HUNTER_DEAD', and 'QUIT').  Anything
+ * the console would have said along the way is recorded as a sequence of
+ * integer event identifiers which a front end may translate into text as
+ * it sees fit.  No strings are built and nothing is printed, so the engine
+ * can be driven from code as fast as the rules themselves can be applied.
+ * An engine given a 'GameJournal' records every game it sets up or plays
+ * again and every action taken in it, whichever front end drives it.
+ *
+ **/
+
+package org.ptodd.wumpus;
+
+import java.io.*;
+import java.util.*;
+
+public class WumpusEngine {
+
+	// Events
+	//
+	// Each action records, in the order in which they happened, the events
+	// that took place while the action was resolved.  A front end reads them
+	// back with 'eventCount()' and 'event(j)' after the action returns.  The
+	// event log is cleared at the start of every action.
+
+	public static final int EVENT_NO_TUNNEL        = 1;
+	public static final int EVENT_NO_ARROWS        = 2;
+	public static final int EVENT_ARROW_MISSED     = 3;
+	public static final int EVENT_ARROW_HIT_HUNTER = 4;
+	public static final int EVENT_ARROW_HIT_WUMPUS = 5;
+	public static final int EVENT_WUMPUS_BUMPED    = 6;
+	public static final int EVENT_WUMPUS_AWAKE     = 7;
+	public static final int EVENT_WUMPUS_MOVED     = 8;
+	public static final int EVENT_WUMPUS_ATTACK    = 9;
+	public static final int EVENT_BAT_SNATCH       = 10;
+	public static final int EVENT_PIT_FALL         = 11;
+
+	// Causes of death
+	//
+	// When the game state becomes 'HUNTER_DEAD', 'cause()' tells what did it.
+
+	public static final int CAUSE_NONE   = 0;
+	public static final int CAUSE_PIT    = 1;
+	public static final int CAUSE_WUMPUS = 2;
+	public static final int CAUSE_ARROW  = 3;
+
+	// Senses
+	//
+	// 'senses()' returns a bit mask with bit '(1 << object)' set for every
+	// game object located in a room adjacent to the hunter.  The masks below
+	// group the objects by the warning they give.
+
+	public static final int SENSE_WUMPUS = 1 << Wumpus.WUMPUS;
+	public static final int SENSE_PITS   = (1 << Wumpus.PIT1) | (1 << Wumpus.PIT2);
+	public static final int SENSE_BATS   = (1 << Wumpus.BATS1) | (1 << Wumpus.BATS2);
+
+	// Game state data structures
+	//
+	//      'topology'     - The shape of the cave, shared with everything else playing in it
+	//      'placement'    - Places the game objects at the start of each game
+	//      'locationOf'   - Array containing the cave room location of each of the game objects
+	//      'initialState' - A second array mirroring 'locationOf' for purposes of restoring the game
+	//      'arrows'       - The number of arrows remaining in the hunter's quiver
+	//      'status'       - The current game state
+	//      'cause'        - What killed the hunter, if anything
+	//      'events'       - The events recorded while resolving the last action
+	//      'arrowRoom'    - The room the last arrow shot stopped in
+	//      'random'       - The game's random number generator, see 'GameRandom'
+	//      'seed'         - The seed 'random' was started from for the current game
+
+	private final CaveTopology topology;
+	private final HazardPlacement placement;
+	private final int[]   locationOf   = new int[Wumpus.NUM_OF_OBJECTS];
+	private final int[]   initialState = new int[Wumpus.NUM_OF_OBJECTS];
+	private int           arrows;
+	private int           status;
+	private int           cause;
+	private int[]         events = new int[16];
+	private int           eventCount;
+	private int           arrowRoom;
+	private final GameRandom random;
+	private long          seed;
+
+	// Journal
+	//
+	//      'journal'  - Where the games are recorded, 'null' when they are not
+	//      'nextGame' - The number the next game set up is recorded under
+
+	private GameJournal   journal;
+	private long          nextGame;
+
+	/**
+	 * WumpusEngine Constructor
+	 *
+	 * Seeds the engine from the clock.  Use 'setup(seed)' to play a
+	 * particular game.
+	 *
+	 * @param topology the cave to play in
+	 */
+
+	public WumpusEngine(CaveTopology topology) {
+		this(topology, GameRandom.mix(System.nanoTime()));
+	} // constructor WumpusEngine
+
+	/**
+	 * WumpusEngine Constructor
+	 *
+	 * @param topology the cave to play in
+	 * @param seed the seed the engine draws the seeds of its games from
+	 */
+
+	public WumpusEngine(CaveTopology topology, long seed) {
+		this.topology = topology;
+		this.placement = new HazardPlacement(topology.rooms(), 1, 2, 2);
+		this.random = new GameRandom(seed);
+	} // constructor WumpusEngine
+
+	/**
+	 * Set up a new game
+	 *
+	 * Draws the seed of the new game from the engine's generator and sets
+	 * the game up from it.
+	 */
+
+	public void setup() {
+		setup(random.nextLong());
+	} // method setup
+
+	/**
+	 * Set up the game played from a given seed
+	 *
+	 * Restarts the random number generator from 'seed', then places the game
+	 * objects into the cave system assuring that each cave room contains, at
+	 * most, one object.  The rooms are drawn without replacement (see
+	 * 'HazardPlacement'), one draw per object with no retries.  Every later
+	 * random event of the game comes from the same generator, so the same
+	 * seed and the same actions always play out the same way.
+	 *
+	 * @param seed the seed of the game
+	 */
+
+	public void setup(long seed) {
+		GameMetrics.SetupEvent event = null;
+		if (GameMetrics.enabled) {
+			event = new GameMetrics.SetupEvent();
+			event.begin();
+		} // if instrumented
+		this.seed = seed;
+		random.reseed(seed);
+		placement.place(random, initialState);
+		reset();
+		journalStart();
+		if (event != null) {
+			GameMetrics.setup(event, seed);
+		} // if instrumented
+	} // method setup
+
+	/**
+	 * Set up a new game with a given placement
+	 *
+	 * @param placement the room of each game object, indexed like 'locationOf'
+	 */
+
+	public void setup(int[] placement) {
+		System.arraycopy(placement, 0, initialState, 0, Wumpus.NUM_OF_OBJECTS);
+		reset();
+		journalStart();
+	} // method setup
+
+	/**
+	 * Restart the game with the same set-up
+	 *
+	 * Restores every object to its initial location and refills the quiver.
+	 */
+
+	public void restart() {
+		reset();
+		if (journal != null) {
+			try {
+				journal.restart();
+			} catch (IOException e) {
+				throw dropJournal(e);
+			} // try-catch
+		} // if recording
+	} // method restart
+
+	/**
+	 * Record the games played on the engine
+	 *
+	 * From the next 'setup' on, every game set up or played again and every
+	 * action taken in it is written to the journal as it happens.  A journal
+	 * that cannot be written is dropped, and the failure thrown as an
+	 * 'UncheckedIOException' by the call that met it; the game itself has
+	 * already gone on.
+	 *
+	 * @param journal the journal to write, or 'null' to stop recording
+	 * @param firstGame the number to record the next game set up under
+	 */
+
+	public void journal(GameJournal journal, long firstGame) {
+		this.journal = journal;
+		this.nextGame = firstGame;
+	} // method journal
+
+	/**
+	 * Put the game in play away into an arena record
+	 *
+	 * Everything needed to carry on with the game is written: the rooms,
+	 * the quiver, the game state, and where the random number generator has
+	 * got to.  The event log and the last arrow's room are not kept.
+	 *
+	 * @param arena the arena to put the game in
+	 * @param game the index of an allocated record
+	 */
+
+	public void suspend(GameArena arena, int game) {
+		arena.store(game, random.state(), seed, locationOf, initialState, arrows, status, cause);
+	} // method suspend
+
+	/**
+	 * Pick a game back up from an arena record
+	 *
+	 * The game carries on exactly as if it had never been suspended.
+	 *
+	 * @param arena the arena holding the game
+	 * @param game the index of the game
+	 */
+
+	public void resume(GameArena arena, int game) {
+		arena.rooms(game, locationOf, initialState);
+		random.reseed(arena.randomState(game));
+		seed = arena.seed(game);
+		arrows = arena.arrows(game);
+		status = arena.status(game);
+		cause = arena.cause(game);
+		eventCount = 0;
+	} // method resume
+
+	/**
+	 * Move the hunter to a new room
+	 *
+	 * If the room is connected to the hunter's room the hunter moves there and
+	 * then faces whatever hazards the room holds.  Otherwise nothing happens
+	 * beyond recording 'EVENT_NO_TUNNEL'.
+	 *
+	 * @param room the room to move to
+	 * @return game state after the move
+	 */
+
+	public int move(int room) {
+		eventCount = 0;
+		if (isConnected(locationOf[Wumpus.HUNTER], room)) {
+			locationOf[Wumpus.HUNTER] = room;
+			status = checkHazards(Wumpus.CONTINUE);
+			if (GameMetrics.enabled) {
+				countSnatches();
+			} // if instrumented
+		} else {
+			record(EVENT_NO_TUNNEL);
+		} // if connected
+		if (journal != null) {
+			try {
+				journal.move(room, this);
+			} catch (IOException e) {
+				throw dropJournal(e);
+			} // try-catch
+		} // if recording
+		return status;
+	} // method move
+
+	/**
+	 * Shoot an arrow from the hunter's bow
+	 *
+	 * So long as the hunter has arrows, remove an arrow from the quiver and
+	 * fly the arrow along the requested path.  If the game is still
+	 * continuing after the arrow has finished its flight, awaken the wumpus.
+	 * Path validity is not checked here (see 'Wumpus.getPath'); an arrow that
+	 * cannot follow its path simply flies at random.
+	 *
+	 * @param path the rooms the arrow should fly through
+	 * @param length the number of rooms in 'path' to use (the range)
+	 * @return game state after the shot
+	 */
+
+	public int shoot(int[] path, int length) {
+		eventCount = 0;
+		if (arrows > 0) {
+			arrows--;
+			status = flyArrow(path, length);
+			if (GameMetrics.enabled) {
+				GameMetrics.arrow(length, status, arrowRoom);
+			} // if instrumented
+			if (status == Wumpus.CONTINUE) {
+				status = wumpusAwaken();
+			} // if status CONTINUE
+		} else {
+			record(EVENT_NO_ARROWS);
+		} // if arrows
+		if (journal != null) {
+			try {
+				journal.shoot(path, length, this);
+			} catch (IOException e) {
+				throw dropJournal(e);
+			} // try-catch
+		} // if recording
+		return status;
+	} // method shoot
+
+	/**
+	 * Give up
+	 *
+	 * @return game state after quitting (always QUIT)
+	 */
+
+	public int quit() {
+		eventCount = 0;
+		status = Wumpus.QUIT;
+		if (journal != null) {
+			try {
+				journal.quit(this);
+			} catch (IOException e) {
+				throw dropJournal(e);
+			} // try-catch
+		} // if recording
+		return status;
+	} // method quit
+
+	/**
+	 * Sense any game hazards
+	 *
+	 * For each game object, except the hunter, check the neighbour mask of
+	 * the hunter's room to see if the object is in an adjacent room.
+	 *
+	 * @return mask with bit '(1 << object)' set for each adjacent object
+	 */
+
+	public int senses() {
+		long around = topology.neighbours(locationOf[Wumpus.HUNTER]);
+		int senses = 0;
+		for (int j = 1; j < Wumpus.NUM_OF_OBJECTS; j++) {
+			senses |= (int) ((around >>> locationOf[j]) & 1L) << j;
+		} // for j
+		return senses;
+	} // method senses
+
+	/**
+	 * Check to see if one cave room is connected to another
+	 *
+	 * @param from the room to leave from
+	 * @param to the room to see if we can arrive in
+	 * @return 'true' if we can get from room 'from' to room 'to'
+	 */
+
+	public boolean isConnected(int from, int to) {
+		return topology.isConnected(from, to);
+	} // method isConnected
+
+	// Accessors
+
+	public CaveTopology topology()        { return topology; }
+	public int     locationOf(int object) { return locationOf[object]; }
+	public int     initialState(int object) { return initialState[object]; }
+	public int     hunterRoom()           { return locationOf[Wumpus.HUNTER]; }
+	public int     arrows()               { return arrows; }
+	public int     status()               { return status; }
+	public int     cause()                { return cause; }
+	public int     eventCount()           { return eventCount; }
+	public int     event(int j)           { return events[j]; }
+	public long    seed()                 { return seed; }
+	public int     arrowRoom()            { return arrowRoom; }
+
+	/**
+	 * Fly an arrow along a path
+	 *
+	 * Hands the flight to 'ArrowFlight' and records what the arrow did.
+	 * (Package-private, like the other steps of the rules below, so they can
+	 * be benchmarked on their own.)
+	 *
+	 * @param path the rooms the arrow should fly through
+	 * @param length the number of rooms in 'path' to use (the range)
+	 * @return the game state after the arrow gets to its final destination
+	 */
+
+	int flyArrow(int[] path, int length) {
+		int result = ArrowFlight.fly(topology, random, locationOf[Wumpus.HUNTER], locationOf[Wumpus.WUMPUS], path, length);
+		arrowRoom = ArrowFlight.room(result);
+		switch (ArrowFlight.status(result)) {
+			case Wumpus.HUNTER_DEAD:
+				record(EVENT_ARROW_HIT_HUNTER);
+				cause = CAUSE_ARROW;
+				return Wumpus.HUNTER_DEAD;
+			case Wumpus.WUMPUS_DEAD:
+				record(EVENT_ARROW_HIT_WUMPUS);
+				return Wumpus.WUMPUS_DEAD;
+			default:
+				record(EVENT_ARROW_MISSED);
+				return Wumpus.CONTINUE;
+		} // switch flight outcome
+	} // method flyArrow
+
+	/**
+	 * Check for the effect of any hazards
+	 *
+	 * @param status current game state (passed so it can be preserved)
+	 * @return game state after checking for hazards
+	 */
+
+	int checkHazards(int status) {
+		int hunter = locationOf[Wumpus.HUNTER];
+		if (hunter == locationOf[Wumpus.WUMPUS]) {
+			record(EVENT_WUMPUS_BUMPED);
+			return wumpusAwaken();
+		} else if ((hunter == locationOf[Wumpus.BATS1]) || (hunter == locationOf[Wumpus.BATS2])) {
+			return batAction();
+		} else if ((hunter == locationOf[Wumpus.PIT1]) || (hunter == locationOf[Wumpus.PIT2])) {
+			record(EVENT_PIT_FALL);
+			cause = CAUSE_PIT;
+			return Wumpus.HUNTER_DEAD;
+		} else {
+			return status;
+		} // if-else chain condition checks
+	} // method checkHazards
+
+	/**
+	 * Wumpus awoke
+	 *
+	 * Pick a random path from 0 to the cave's tunnels per room.  Anything short
+	 * of that moves the wumpus down that path; the last pick leaves it where it
+	 * is.  If the wumpus ends up in the hunter's room it attacks.
+	 *
+	 * @return game state after wumpus wakes up and, perhaps, moves
+	 */
+
+	int wumpusAwaken() {
+		int from = locationOf[Wumpus.WUMPUS];
+		record(EVENT_WUMPUS_AWAKE);
+		int newLoc = random.nextInt(topology.paths() + 1);
+		if (newLoc < topology.paths()) {
+			locationOf[Wumpus.WUMPUS] = topology.tunnel(from, newLoc);
+			record(EVENT_WUMPUS_MOVED);
+		} // if moving
+		boolean attack = locationOf[Wumpus.HUNTER] == locationOf[Wumpus.WUMPUS];
+		if (GameMetrics.enabled) {
+			GameMetrics.wumpus(from, locationOf[Wumpus.WUMPUS], attack);
+		} // if instrumented
+		if (attack) {
+			record(EVENT_WUMPUS_ATTACK);
+			cause = CAUSE_WUMPUS;
+			return Wumpus.HUNTER_DEAD;
+		} else {
+			return Wumpus.CONTINUE;
+		} // if hunter check
+	} // method wumpusAwaken
+
+	/**
+	 * Bats take action
+	 *
+	 * Bats move the hunter to any random room in the cave.  Once there,
+	 * recursively check the hazards again.
+	 *
+	 * @return game state after bats randomly dropped hunter
+	 */
+
+	private int batAction() {
+		locationOf[Wumpus.HUNTER] = random.nextInt(topology.rooms());
+		record(EVENT_BAT_SNATCH);
+		return checkHazards(Wumpus.CONTINUE);
+	} // method batAction
+
+	/**
+	 * Count the bat snatches of the move just made, for 'GameMetrics'
+	 *
+	 * The chain is read back from the event log rather than counted along
+	 * the way, so 'batAction' and 'checkHazards' do no extra work when the
+	 * instrumentation is off.
+	 */
+
+	private void countSnatches() {
+		int chain = 0;
+		for (int j = 0; j < eventCount; j++) {
+			if (events[j] == EVENT_BAT_SNATCH) {
+				chain++;
+			} // if snatched
+		} // for j
+		if (chain > 0) {
+			GameMetrics.bats(chain, locationOf[Wumpus.HUNTER]);
+		} // if any
+	} // method countSnatches
+
+	/**
+	 * Put every object back in its initial location, for a new game or a restart
+	 */
+
+	private void reset() {
+		System.arraycopy(initialState, 0, locationOf, 0, Wumpus.NUM_OF_OBJECTS);
+		arrows = Wumpus.MAX_ARROWS;
+		status = Wumpus.CONTINUE;
+		cause = CAUSE_NONE;
+		eventCount = 0;
+	} // method reset
+
+	private void journalStart() {
+		if (journal != null) {
+			try {
+				journal.start(nextGame++, this);
+			} catch (IOException e) {
+				throw dropJournal(e);
+			} // try-catch
+		} // if recording
+	} // method journalStart
+
+	/**
+	 * Stop recording after the journal failed
+	 *
+	 * @return the failure, to throw
+	 */
+
+	private UncheckedIOException dropJournal(IOException e) {
+		journal = null;
+		return new UncheckedIOException(e);
+	} // method dropJournal
+
+	/**
+	 * Record an event, growing the event log if a long chain of bat
+	 * snatches has filled it
+	 *
+	 * @param event the event identifier
+	 */
+
+	private void record(int event) {
+		if (eventCount == events.length) {
+			events = Arrays.copyOf(events, eventCount * 2);
+		} // if full
+		events[eventCount++] = event;
+	} // method record
+
+} // class WumpusEngine
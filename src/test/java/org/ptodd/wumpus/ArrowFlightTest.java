@@ -0,0 +1,76 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for arrow flight.
+ */
+public class ArrowFlightTest
+    extends TestCase
+{
+    private static final CaveTopology CAVE = CaveTopology.CLASSIC;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ArrowFlightTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ArrowFlightTest.class );
+    }
+
+    public void testGuidedFlightMissesAtTheEndOfItsPath()
+    {
+        int result = ArrowFlight.fly( CAVE, new GameRandom( 1L ), 0, 7, new int[] { 4, 5, 6, 16, 15 }, 5 );
+        assertEquals( Wumpus.CONTINUE, ArrowFlight.status( result ) );
+        assertEquals( 15, ArrowFlight.room( result ) );
+    }
+
+    public void testGuidedFlightStopsAtTheWumpus()
+    {
+        int result = ArrowFlight.fly( CAVE, new GameRandom( 1L ), 0, 5, new int[] { 4, 5, 6, 16, 15 }, 5 );
+        assertEquals( Wumpus.WUMPUS_DEAD, ArrowFlight.status( result ) );
+        assertEquals( 5, ArrowFlight.room( result ) );
+    }
+
+    public void testRandomFlightStaysInTunnelsAndRange()
+    {
+        GameRandom random = new GameRandom( 2L );
+        for ( int j = 0; j < 10000; j++ )
+        {
+            // room 10 is not connected to room 1, so the arrow flies at random from the start
+            int result = ArrowFlight.fly( CAVE, random, 0, 19, new int[] { 9, 9, 9, 9, 9 }, 3 );
+            int room = ArrowFlight.room( result );
+            if ( ArrowFlight.status( result ) == Wumpus.CONTINUE )
+            {
+                assertTrue( CAVE.distance( 0, room ) <= 3 );
+                assertTrue( room != 0 );
+            }
+            else
+            {
+                assertEquals( Wumpus.HUNTER_DEAD, ArrowFlight.status( result ) );
+                assertEquals( 0, room );
+            }
+        }
+    }
+
+    public void testRandomFlightTurnsBackAtADeadEnd()
+    {
+        // a line of three rooms: room 3's only tunnels lead back to room 2
+        CaveTopology line = new CaveTopology( new int[][] { { 1, 1 }, { 0, 2 }, { 1, 1 } } );
+        int result = ArrowFlight.fly( line, new GameRandom( 1L ), 1, 0, new int[] { 2, 2, 2 }, 3 );
+        assertEquals( Wumpus.HUNTER_DEAD, ArrowFlight.status( result ) );
+        assertEquals( 1, ArrowFlight.room( result ) );
+    }
+}
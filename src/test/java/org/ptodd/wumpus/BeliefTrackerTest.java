@@ -0,0 +1,132 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the belief tracker.
+ */
+public class BeliefTrackerTest
+    extends TestCase
+{
+    private static final CaveTopology CAVE = CaveTopology.CLASSIC;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public BeliefTrackerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( BeliefTrackerTest.class );
+    }
+
+    public void testQuietRoomClearsItsNeighbours()
+    {
+        BeliefTracker tracker = new BeliefTracker( CAVE );
+        tracker.reset( 0, 0 );
+        long cleared = CAVE.neighbours( 0 ) | 1L;
+        assertEquals( 0L, tracker.wumpus() & cleared );
+        assertEquals( 0L, tracker.pits() & cleared );
+        assertEquals( 0L, tracker.bats() & cleared );
+        assertEquals( cleared, tracker.safe() );
+        assertEquals( 1L, tracker.visited() );
+    }
+
+    public void testSmellPutsTheWumpusNextDoor()
+    {
+        BeliefTracker tracker = new BeliefTracker( CAVE );
+        tracker.reset( 0, BitboardState.WUMPUS_NEAR );
+        assertEquals( CAVE.neighbours( 0 ), tracker.wumpus() );
+        assertEquals( 1.0 / 3, tracker.wumpusProbability( 1 ), 1e-12 );
+        assertEquals( 0.0, tracker.wumpusProbability( 2 ), 1e-12 );
+    }
+
+    public void testDraftIsPinnedDownByLaterObservations()
+    {
+        // a draft in room 1 (tunnels to 2, 5, 8), then quiet rooms 2 and 5
+        // leave room 8 as the only room the pit can be in
+
+        BeliefTracker tracker = new BeliefTracker( CAVE );
+        tracker.reset( 0, BitboardState.PIT_NEAR );
+        assertEquals( 0L, tracker.knownPits() );
+        tracker.observe( 1, 0 );
+        tracker.observe( 4, 0 );
+        assertEquals( 1L << 7, tracker.knownPits() );
+        assertEquals( 1.0, tracker.pitProbability( 7 ), 1e-12 );
+    }
+
+    public void testConstraintsTellBeliefsApart()
+    {
+        BeliefTracker one = new BeliefTracker( CAVE );
+        BeliefTracker two = new BeliefTracker( CAVE );
+        one.reset( 1, 0 );
+        two.copyFrom( one );
+        assertEquals( one.constraints(), two.constraints() );
+        two.observe( 0, BitboardState.PIT_NEAR );
+        assertTrue( one.constraints() != two.constraints() );
+        one.observe( 0, BitboardState.PIT_NEAR );
+        assertEquals( one.constraints(), two.constraints() );
+    }
+
+    public void testWokenWumpusSpreads()
+    {
+        BeliefTracker tracker = new BeliefTracker( CAVE );
+        tracker.reset( 0, 0 );
+        tracker.bumped( 10 );
+        tracker.wumpusWoke();
+        assertEquals( CAVE.neighbours( 10 ) | ( 1L << 10 ), tracker.wumpus() );
+    }
+
+    public void testBeliefAlwaysCoversTheTruth()
+    {
+        WumpusEngine engine = new WumpusEngine( CAVE );
+        WumpusBot bot = new RandomBot();
+        BeliefTracker tracker = new BeliefTracker( CAVE );
+        int[] path = new int[Wumpus.MAX_ARROW_RANGE];
+        for ( long game = 0; game < 2000; game++ )
+        {
+            engine.setup( GameRandom.seedOf( 9L, game ) );
+            bot.newGame( engine );
+            tracker.reset( engine.hunterRoom(), BitboardState.warnings( engine.senses() ) );
+            assertCovered( engine, tracker );
+            for ( int turn = 0; ( turn < 200 ) && ( engine.status() == Wumpus.CONTINUE ); turn++ )
+            {
+                if ( bot.chooseAction( engine ) == Wumpus.ACTION_SHOOT )
+                {
+                    engine.shoot( path, bot.choosePath( engine, path ) );
+                    tracker.update( engine, -1 );
+                }
+                else
+                {
+                    int room = bot.chooseRoom( engine );
+                    engine.move( room );
+                    tracker.update( engine, room );
+                }
+                assertCovered( engine, tracker );
+            }
+        }
+    }
+
+    private static void assertCovered( WumpusEngine engine, BeliefTracker tracker )
+    {
+        BitboardState state = new BitboardState().load( engine );
+        if ( engine.status() == Wumpus.CONTINUE )
+        {
+            assertTrue( ( tracker.wumpus() & state.wumpus() ) != 0 );
+        }
+        assertEquals( state.pits(), tracker.pits() & state.pits() );
+        assertEquals( state.bats(), tracker.bats() & state.bats() );
+        assertEquals( tracker.knownPits(), tracker.knownPits() & state.pits() );
+        assertEquals( tracker.knownBats(), tracker.knownBats() & state.bats() );
+    }
+}
@@ -0,0 +1,73 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the bitboard game state.
+ */
+public class BitboardStateTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public BitboardStateTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( BitboardStateTest.class );
+    }
+
+    public void testSensesMatchTheEngine()
+    {
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC );
+        BitboardState state = new BitboardState();
+        for ( long seed = 0; seed < 1000; seed++ )
+        {
+            engine.setup( seed );
+            state.load( engine );
+            assertEquals( BitboardState.warnings( engine.senses() ), state.senses( CaveTopology.CLASSIC ) );
+            assertEquals( BitboardState.HAZARD_NONE, state.hazard() );
+            assertEquals( engine.hunterRoom(), state.hunterRoom() );
+            assertEquals( Wumpus.MAX_ARROWS, state.arrows() );
+            assertEquals( Wumpus.CONTINUE, state.status() );
+        }
+    }
+
+    public void testKeyRoundTrip()
+    {
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC );
+        BitboardState state = new BitboardState();
+        BitboardState copy = new BitboardState();
+        for ( long seed = 0; seed < 1000; seed++ )
+        {
+            engine.setup( seed );
+            state.load( engine );
+            state.setArrows( (int) (seed % (Wumpus.MAX_ARROWS + 1)) );
+            copy.loadKey( state.key() );
+            assertEquals( state, copy );
+            assertEquals( state.hashCode(), copy.hashCode() );
+        }
+    }
+
+    public void testHazardOrder()
+    {
+        BitboardState state = new BitboardState().load( new int[] { 0, 7, 1, 19, 11, 14 }, Wumpus.MAX_ARROWS, Wumpus.CONTINUE );
+        state.moveHunter( 1 );
+        assertEquals( BitboardState.HAZARD_PIT, state.hazard() );
+        state.moveHunter( 11 );
+        assertEquals( BitboardState.HAZARD_BATS, state.hazard() );
+        state.moveWumpus( 11 );
+        assertEquals( BitboardState.HAZARD_WUMPUS, state.hazard() );
+    }
+}
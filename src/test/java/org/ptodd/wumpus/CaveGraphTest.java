@@ -0,0 +1,150 @@
+package org.ptodd.wumpus;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the procedural cave graphs.
+ */
+public class CaveGraphTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public CaveGraphTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( CaveGraphTest.class );
+    }
+
+    public void testDodecahedronRoundTrips()
+    {
+        CaveGraph graph = CaveGraph.dodecahedron();
+        assertEquals( Wumpus.MAX_ROOMS, graph.rooms() );
+        assertEquals( Wumpus.MAX_PATHS, graph.degree() );
+        assertTrue( graph.isConnected() );
+        assertTrue( Arrays.deepEquals( Wumpus.CAVE, graph.toArray() ) );
+    }
+
+    public void testRandomRegularCavesAreSimpleAndConnected()
+    {
+        for ( int degree = 2; degree <= 6; degree++ )
+        {
+            CaveGraph graph = CaveGraph.randomRegular( 1000, degree, new GameRandom( degree ) );
+            assertEquals( degree, graph.degree() );
+            assertTrue( graph.isConnected() );
+            assertSimpleAndUndirected( graph );
+        }
+    }
+
+    public void testRandomRegularCaveIsReproducible()
+    {
+        CaveGraph one = CaveGraph.randomRegular( 500, 3, new GameRandom( 9L ) );
+        CaveGraph two = CaveGraph.randomRegular( 500, 3, new GameRandom( 9L ) );
+        assertTrue( Arrays.deepEquals( one.toArray(), two.toArray() ) );
+    }
+
+    public void testSmallestCavesStillLayOut()
+    {
+        CaveGraph graph = CaveGraph.randomRegular( 4, 3, new GameRandom( 1L ) );
+        assertSimpleAndUndirected( graph );
+        assertTrue( graph.isConnected() );
+    }
+
+    public void testDenseCavesLayOut()
+    {
+        int[][] sizes = { { 7, 6 }, { 8, 7 }, { 10, 9 }, { 12, 11 }, { 29, 12 }, { 30, 14 }, { 30, 16 }, { 28, 20 } };
+        for ( int[] size : sizes )
+        {
+            for ( long seed = 0; seed < 50; seed++ )
+            {
+                CaveGraph graph = CaveGraph.randomRegular( size[0], size[1], new GameRandom( seed ) );
+                assertEquals( size[1], graph.degree() );
+                assertTrue( graph.isConnected() );
+                assertSimpleAndUndirected( graph );
+            }
+        }
+    }
+
+    public void testTorusAndMobius()
+    {
+        CaveGraph torus = CaveGraph.torus( 5, 4 );
+        assertEquals( 20, torus.rooms() );
+        assertEquals( 4, torus.degree() );
+        assertTrue( torus.isConnected() );
+        assertSimpleAndUndirected( torus );
+
+        CaveGraph mobius = CaveGraph.mobius( 10 );
+        assertEquals( 20, mobius.rooms() );
+        assertEquals( 3, mobius.degree() );
+        assertTrue( mobius.isConnected() );
+        assertSimpleAndUndirected( mobius );
+
+        // the twist: going forward off the end of one rail lands on the other
+        assertEquals( 10, mobius.tunnel( 9, 0 ) );
+        assertEquals( 0, mobius.tunnel( 19, 0 ) );
+    }
+
+    public void testDisconnectedCaveIsDetected()
+    {
+        int[][] triangles = { { 1, 2 }, { 0, 2 }, { 0, 1 }, { 4, 5 }, { 3, 5 }, { 3, 4 } };
+        assertFalse( CaveGraph.of( triangles ).isConnected() );
+    }
+
+    public void testSmallCaveCompilesToATopology()
+    {
+        CaveTopology topology = CaveGraph.mobius( 8 ).topology();
+        assertEquals( 16, topology.rooms() );
+        assertEquals( 3, topology.paths() );
+        assertTrue( topology.isConnected( 0, 8 ) );
+        assertEquals( 1, topology.distance( 7, 8 ) );
+    }
+
+    public void testImpossibleCavesAreRejected()
+    {
+        try
+        {
+            CaveGraph.randomRegular( 11, 3, new GameRandom( 1L ) );
+            fail( "expected an odd number of rooms with odd tunnels to be rejected" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    private static void assertSimpleAndUndirected( CaveGraph graph )
+    {
+        for ( int room = 0; room < graph.rooms(); room++ )
+        {
+            for ( int j = 0; j < graph.tunnels( room ); j++ )
+            {
+                int next = graph.tunnel( room, j );
+                assertTrue( next != room );
+                for ( int k = 0; k < j; k++ )
+                {
+                    assertTrue( graph.tunnel( room, k ) != next );
+                }
+                boolean back = false;
+                for ( int k = 0; k < graph.tunnels( next ); k++ )
+                {
+                    back |= graph.tunnel( next, k ) == room;
+                }
+                assertTrue( back );
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.ptodd.wumpus;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the cave symmetries.
+ */
+public class CaveSymmetryTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public CaveSymmetryTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( CaveSymmetryTest.class );
+    }
+
+    private static void assertAutomorphisms( CaveSymmetry symmetry )
+    {
+        CaveTopology topology = symmetry.topology();
+        int rooms = topology.rooms();
+        for ( int room = 0; room < rooms; room++ )
+        {
+            assertEquals( room, symmetry.image( 0, room ) );
+        }
+        for ( int g = 0; g < symmetry.size(); g++ )
+        {
+            for ( int a = 0; a < rooms; a++ )
+            {
+                assertEquals( a, symmetry.image( symmetry.inverse( g ), symmetry.image( g, a ) ) );
+                for ( int b = 0; b < rooms; b++ )
+                {
+                    assertEquals( topology.isConnected( a, b ),
+                                  topology.isConnected( symmetry.image( g, a ), symmetry.image( g, b ) ) );
+                }
+            }
+        }
+    }
+
+    public void testDodecahedronHas120Symmetries()
+    {
+        assertEquals( 120, CaveSymmetry.CLASSIC.size() );
+        assertAutomorphisms( CaveSymmetry.CLASSIC );
+    }
+
+    public void testGeneratedCavesAreSearchedToo()
+    {
+        CaveSymmetry mobius = new CaveSymmetry( CaveGraph.mobius( 16 ).topology() );
+        assertEquals( 64, mobius.size() );
+        assertAutomorphisms( mobius );
+        CaveSymmetry torus = new CaveSymmetry( CaveGraph.torus( 5, 6 ).topology() );
+        assertEquals( 5 * 6 * 4, torus.size() );
+        assertAutomorphisms( torus );
+    }
+
+    public void testCanonicalFormIsSharedBySymmetricStates()
+    {
+        CaveSymmetry symmetry = CaveSymmetry.CLASSIC;
+        GameRandom random = new GameRandom( 3L );
+        BitboardState state = new BitboardState();
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC );
+        for ( int j = 0; j < 200; j++ )
+        {
+            engine.setup( random.nextLong() );
+            long key = state.load( engine ).key();
+            long canonical = symmetry.canonical( key );
+            assertTrue( canonical <= key );
+            assertEquals( canonical, symmetry.canonical( canonical ) );
+            for ( int g = 0; g < symmetry.size(); g++ )
+            {
+                long image = symmetry.imageKey( g, key );
+                assertEquals( canonical, symmetry.canonical( image ) );
+                assertEquals( symmetry.hash( key ), symmetry.hash( image ) );
+            }
+        }
+    }
+
+    public void testCanonicalFormsSeparateFamilies()
+    {
+        // every hunter and wumpus room with fixed hazards: 380 states, in
+        // families of at most 120 but never merging states no symmetry joins
+
+        CaveSymmetry symmetry = CaveSymmetry.CLASSIC;
+        long pits = ( 1L << 0 ) | ( 1L << 7 );
+        long bats = ( 1L << 12 ) | ( 1L << 19 );
+        Set<Long> canonical = new HashSet<Long>();
+        Set<Long> orbits = new HashSet<Long>();
+        for ( int hunter = 0; hunter < 20; hunter++ )
+        {
+            for ( int wumpus = 0; wumpus < 20; wumpus++ )
+            {
+                if ( hunter != wumpus )
+                {
+                    long key = BitboardState.key( pits, bats, wumpus, hunter, Wumpus.MAX_ARROWS, Wumpus.CONTINUE );
+                    canonical.add( symmetry.canonical( key ) );
+                    long lowest = Long.MAX_VALUE;
+                    for ( int g = 0; g < symmetry.size(); g++ )
+                    {
+                        lowest = Math.min( lowest, symmetry.imageKey( g, key ) );
+                    }
+                    orbits.add( lowest );
+                }
+            }
+        }
+        assertEquals( orbits, canonical );
+    }
+}
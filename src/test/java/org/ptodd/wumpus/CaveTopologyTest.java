@@ -0,0 +1,84 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the compiled cave topology.
+ */
+public class CaveTopologyTest
+    extends TestCase
+{
+    private static final CaveTopology CAVE = CaveTopology.CLASSIC;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public CaveTopologyTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( CaveTopologyTest.class );
+    }
+
+    public void testConnectionsMatchTheCave()
+    {
+        for ( int from = 0; from < Wumpus.MAX_ROOMS; from++ )
+        {
+            int connected = 0;
+            for ( int to = -1; to <= 64; to++ )
+            {
+                if ( CAVE.isConnected( from, to ) )
+                {
+                    connected++;
+                    assertEquals( 1, CAVE.distance( from, to ) );
+                }
+            }
+            assertEquals( Wumpus.MAX_PATHS, connected );
+        }
+    }
+
+    public void testDodecahedronDistances()
+    {
+        // from any vertex: 1 at distance 0, then 3, 6, 6, 3, and 1
+        int[] expected = { 1, 3, 6, 6, 3, 1 };
+        for ( int from = 0; from < Wumpus.MAX_ROOMS; from++ )
+        {
+            int[] counts = new int[expected.length];
+            for ( int to = 0; to < Wumpus.MAX_ROOMS; to++ )
+            {
+                counts[CAVE.distance( from, to )]++;
+                assertEquals( CAVE.distance( from, to ), CAVE.distance( to, from ) );
+            }
+            for ( int d = 0; d < expected.length; d++ )
+            {
+                assertEquals( expected[d], counts[d] );
+            }
+        }
+    }
+
+    public void testNextHopFollowsAShortestRoute()
+    {
+        for ( int from = 0; from < Wumpus.MAX_ROOMS; from++ )
+        {
+            for ( int to = 0; to < Wumpus.MAX_ROOMS; to++ )
+            {
+                if ( from != to )
+                {
+                    int hop = CAVE.nextHop( from, to );
+                    assertTrue( CAVE.isConnected( from, hop ) );
+                    assertEquals( CAVE.distance( from, to ) - 1, CAVE.distance( hop, to ) );
+                }
+            }
+        }
+    }
+}
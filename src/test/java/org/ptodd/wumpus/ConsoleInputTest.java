@@ -0,0 +1,155 @@
+package org.ptodd.wumpus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the console input tokenizer.
+ */
+public class ConsoleInputTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ConsoleInputTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ConsoleInputTest.class );
+    }
+
+    public void testLineEndsMatchScanner()
+    {
+        String text = "y\r\nmove\n\n12\rQ\r\r\nlast";
+        String[] expected = { "y", "move", "", "12", "Q", "", "last" };
+        assertEquals( Arrays.asList( expected ), lines( new ByteArrayInputStream( text.getBytes() ) ) );
+        assertEquals( Arrays.asList( expected ), lines( new Trickle( text.getBytes() ) ) );
+    }
+
+    public void testNumbersMatchParseInt()
+    {
+        String[] lines = { "7", "-3", "+20", "0", "007", "", "-", "+", "1a", " 5", "5 ", "--1", "2147483647",
+                           "2147483648", "-2147483648", "-2147483649", "99999999999999999999", "S" };
+        ConsoleInput in = new ConsoleInput( new ByteArrayInputStream( String.join( "\n", lines ).getBytes() ) );
+        for ( String line : lines )
+        {
+            assertTrue( in.next() );
+            Integer expected;
+            try
+            {
+                expected = Integer.parseInt( line );
+            }
+            catch ( NumberFormatException e )
+            {
+                expected = null;
+            }
+            assertEquals( line, expected != null, in.isNumber() );
+            if ( expected != null )
+            {
+                assertEquals( line, expected.intValue(), in.number() );
+            }
+        }
+        assertFalse( in.next() );
+    }
+
+    public void testFirstCharacterIsUpperCased()
+    {
+        ConsoleInput in = new ConsoleInput( new ByteArrayInputStream( "yes\nQ\n\n?\n".getBytes() ) );
+        char[] expected = { 'Y', 'Q', 0, '?' };
+        for ( char c : expected )
+        {
+            assertTrue( in.next() );
+            assertEquals( c, in.upperCaseChar() );
+        }
+    }
+
+    public void testOverlongLineIsCut()
+    {
+        byte[] text = new byte[ConsoleInput.BUFFER_BYTES * 2 + 10];
+        Arrays.fill( text, (byte) 'x' );
+        text[text.length - 3] = '\n';
+        text[text.length - 2] = '4';
+        text[text.length - 1] = '2';
+        ConsoleInput in = new ConsoleInput( new ByteArrayInputStream( text ) );
+        assertTrue( in.next() );
+        assertEquals( ConsoleInput.BUFFER_BYTES, in.line().length() );
+        assertTrue( in.next() );
+        assertEquals( 42, in.number() );
+        assertFalse( in.next() );
+    }
+
+    public void testScriptEndingMidGameEndsQuietly()
+        throws IOException
+    {
+        File script = File.createTempFile( "wumpus", ".script" );
+        script.deleteOnExit();
+        try ( FileOutputStream stream = new FileOutputStream( script ) )
+        {
+            stream.write( "N\nS\n".getBytes() );
+        }
+        ConsoleInput in = Wumpus.in;
+        PrintWriter out = Wumpus.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            Wumpus.out = ConsoleOutput.buffered( bytes );
+            Wumpus.main( new String[] { "--seed", "42", "--script", script.getPath() } );
+        }
+        finally
+        {
+            Wumpus.in = in;
+            Wumpus.out = out;
+        }
+        assertTrue( bytes.toString().endsWith( Wumpus.PROMPT_RANGE ) );
+    }
+
+    private static List<String> lines( InputStream stream )
+    {
+        List<String> lines = new ArrayList<String>();
+        ConsoleInput in = new ConsoleInput( stream );
+        while ( in.next() )
+        {
+            lines.add( in.line() );
+        }
+        return lines;
+    }
+
+    /**
+     * Stream that hands over one byte per read, as a slow pipe might
+     */
+    private static final class Trickle
+        extends ByteArrayInputStream
+    {
+        Trickle( byte[] bytes )
+        {
+            super( bytes );
+        }
+
+        @Override
+        public synchronized int read( byte[] b, int off, int len )
+        {
+            return super.read( b, off, Math.min( len, 1 ) );
+        }
+    }
+}
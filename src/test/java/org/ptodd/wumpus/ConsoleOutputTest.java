@@ -0,0 +1,86 @@
+package org.ptodd.wumpus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the console output writers.
+ */
+public class ConsoleOutputTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ConsoleOutputTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ConsoleOutputTest.class );
+    }
+
+    public void testBufferedHoldsTextUntilFlushed()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintWriter out = ConsoleOutput.buffered( bytes );
+        out.println( "You smell a Wumpus!" );
+        out.printf( "You have %d arrows.%n", 5 );
+        assertEquals( 0, bytes.size() );
+        out.flush();
+        assertEquals( "You smell a Wumpus!" + System.lineSeparator() + "You have 5 arrows." + System.lineSeparator(),
+                      bytes.toString() );
+    }
+
+    public void testConsoleFlushesBeforeEachAnswer()
+    {
+        ConsoleInput in = Wumpus.in;
+        PrintWriter out = Wumpus.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            Wumpus.in = new ConsoleInput( new ByteArrayInputStream( "N\nQ\nN\n".getBytes() ) );
+            Wumpus.out = ConsoleOutput.buffered( bytes );
+            Wumpus.main( new String[] { "--seed", "42" } );
+        }
+        finally
+        {
+            Wumpus.in = in;
+            Wumpus.out = out;
+        }
+        String text = bytes.toString();
+        assertTrue( text.contains( Wumpus.PROMPT_ACTION ) );
+        assertTrue( text.endsWith( Wumpus.GOODBYE + System.lineSeparator() ) );
+    }
+
+    public void testQuietWritesNothing()
+    {
+        ConsoleInput in = Wumpus.in;
+        PrintWriter out = Wumpus.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            Wumpus.in = new ConsoleInput( new ByteArrayInputStream( "N\nM\n1\nQ\nN\n".getBytes() ) );
+            Wumpus.out = ConsoleOutput.buffered( bytes );
+            Wumpus.main( new String[] { "--seed", "42", "--quiet" } );
+        }
+        finally
+        {
+            Wumpus.in = in;
+            Wumpus.out = out;
+        }
+        assertEquals( 0, bytes.size() );
+    }
+}
@@ -0,0 +1,68 @@
+package org.ptodd.wumpus;
+
+import java.util.function.Supplier;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the expectimax bot.
+ */
+public class ExpectimaxBotTest
+    extends TestCase
+{
+    private static final int GAMES = 300;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ExpectimaxBotTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ExpectimaxBotTest.class );
+    }
+
+    public void testBeatsTheRandomBot()
+    {
+        Simulator.Tally random = Simulator.simulate( Simulator.bot( "random" ), 3L, GAMES, 1 );
+        Simulator.Tally solver = Simulator.simulate( shallow(), 3L, GAMES, 1 );
+        assertEquals( GAMES, solver.games );
+        assertTrue( solver.wins > 2 * random.wins );
+    }
+
+    public void testDepthLimitedSearchIsDeterministic()
+    {
+        Simulator.Tally one = Simulator.simulate( shallow(), 11L, GAMES, 1 );
+        Simulator.Tally two = Simulator.simulate( shallow(), 11L, GAMES, 2 );
+        assertEquals( one.wins, two.wins );
+        assertEquals( one.pitDeaths, two.pitDeaths );
+        assertEquals( one.turns, two.turns );
+    }
+
+    public void testTinyBudgetStillAnswers()
+    {
+        Simulator.Tally tally = Simulator.simulate( () -> new ExpectimaxBot( 10, 1L, 8 ), 5L, 20, 1 );
+        assertEquals( 20, tally.games );
+        assertEquals( tally.games, tally.wins + tally.losses() + tally.quits );
+    }
+
+    public void testRegisteredWithTheSimulator()
+    {
+        assertTrue( Simulator.bot( "expectimax" ).get() instanceof ExpectimaxBot );
+    }
+
+    private static Supplier<WumpusBot> shallow()
+    {
+        return () -> new ExpectimaxBot( 2, ExpectimaxBot.UNLIMITED, 12 );
+    }
+}
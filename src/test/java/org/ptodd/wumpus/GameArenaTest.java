@@ -0,0 +1,170 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the off-heap game arena.
+ */
+public class GameArenaTest
+    extends TestCase
+{
+    private static final int GAMES = 500;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public GameArenaTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( GameArenaTest.class );
+    }
+
+    public void testFreedRecordsAreReusedFirst()
+    {
+        GameArena arena = new GameArena( 10 );
+        int a = arena.allocate();
+        int b = arena.allocate();
+        int c = arena.allocate();
+        arena.free( b );
+        arena.free( a );
+        assertEquals( 1, arena.live() );
+        assertFalse( arena.isAllocated( a ) );
+        assertEquals( a, arena.allocate() );
+        assertEquals( b, arena.allocate() );
+        assertEquals( c + 1, arena.allocate() );
+    }
+
+    public void testFullArenaRefuses()
+    {
+        GameArena arena = new GameArena( 3 );
+        for ( int j = 0; j < 3; j++ )
+        {
+            arena.allocate();
+        }
+        try
+        {
+            arena.allocate();
+            fail( "allocated past capacity" );
+        }
+        catch ( IllegalStateException expected )
+        {
+        }
+        arena.free( 1 );
+        assertEquals( 1, arena.allocate() );
+    }
+
+    public void testFreedGameIsGone()
+    {
+        GameArena arena = new GameArena( 4 );
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC, 1L );
+        engine.setup( 5L );
+        int game = arena.allocate();
+        arena.free( game );
+        try
+        {
+            engine.resume( arena, game );
+            fail( "resumed a freed game" );
+        }
+        catch ( IllegalArgumentException expected )
+        {
+        }
+    }
+
+    public void testChunksAllocatedOnDemand()
+    {
+        GameArena arena = new GameArena( 3 * GameArena.CHUNK_RECORDS );
+        assertEquals( 0, arena.bytes() );
+        arena.allocate();
+        assertEquals( (long) GameArena.CHUNK_RECORDS * GameArena.RECORD_BYTES, arena.bytes() );
+    }
+
+    public void testRecordMirrorsTheEngine()
+    {
+        GameArena arena = new GameArena( 1 );
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC, 1L );
+        engine.setup( 77L );
+        engine.move( engine.topology().tunnel( engine.hunterRoom(), 0 ) );
+        int game = arena.allocate();
+        engine.suspend( arena, game );
+        assertEquals( engine.status(), arena.status( game ) );
+        assertEquals( engine.arrows(), arena.arrows( game ) );
+        assertEquals( engine.seed(), arena.seed( game ) );
+        for ( int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++ )
+        {
+            assertEquals( engine.locationOf( j ), arena.locationOf( game, j ) );
+            assertEquals( engine.initialState( j ), arena.initialState( game, j ) );
+        }
+    }
+
+    public void testInterleavedGamesPlayAsIfUninterrupted()
+    {
+        // every game played straight through on its own engine
+
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC, 1L );
+        int[] expected = new int[GAMES];
+        for ( int g = 0; g < GAMES; g++ )
+        {
+            engine.setup( GameRandom.seedOf( 9L, g ) );
+            int turn = 0;
+            while ( engine.status() == Wumpus.CONTINUE && turn < 200 )
+            {
+                act( engine, turn++ );
+            }
+            expected[g] = engine.status() * 1000 + turn;
+        }
+
+        // the same games, one action each in turn, all suspended in between
+
+        GameArena arena = new GameArena( GAMES );
+        int[] turns = new int[GAMES];
+        for ( int g = 0; g < GAMES; g++ )
+        {
+            engine.setup( GameRandom.seedOf( 9L, g ) );
+            engine.suspend( arena, arena.allocate() );
+        }
+        while ( arena.live() > 0 )
+        {
+            for ( int g = 0; g < GAMES; g++ )
+            {
+                if ( !arena.isAllocated( g ) )
+                {
+                    continue;
+                }
+                engine.resume( arena, g );
+                act( engine, turns[g]++ );
+                engine.suspend( arena, g );
+                if ( engine.status() != Wumpus.CONTINUE || turns[g] == 200 )
+                {
+                    assertEquals( expected[g], engine.status() * 1000 + turns[g] );
+                    arena.free( g );
+                }
+            }
+        }
+    }
+
+    // moves round the cave, shooting now and then so the arrows draw from the generator
+    private static void act( WumpusEngine engine, int turn )
+    {
+        int room = engine.topology().tunnel( engine.hunterRoom(), turn % Wumpus.MAX_PATHS );
+        if ( turn % 4 == 3 )
+        {
+            int[] path = { room, engine.topology().tunnel( room, 1 ) };
+            engine.shoot( path, 2 );
+        }
+        else
+        {
+            engine.move( room );
+        }
+    }
+}
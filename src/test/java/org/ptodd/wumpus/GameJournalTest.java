@@ -0,0 +1,212 @@
+package org.ptodd.wumpus;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the game journal and its replay.
+ */
+public class GameJournalTest
+    extends TestCase
+{
+    private static final int GAMES = 25000;
+
+    private Path directory;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public GameJournalTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( GameJournalTest.class );
+    }
+
+    protected void setUp() throws Exception
+    {
+        directory = Files.createTempDirectory( "journal" );
+    }
+
+    protected void tearDown() throws Exception
+    {
+        try ( Stream<Path> files = Files.walk( directory ) )
+        {
+            files.sorted( Comparator.reverseOrder() ).forEach( file -> file.toFile().delete() );
+        }
+    }
+
+    public void testVarintsRoundTrip()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( 64 );
+        long[] values = { 0, 1, 127, 128, 300, Long.MAX_VALUE, -1L };
+        for ( long value : values )
+        {
+            GameJournal.putVarint( buffer, value );
+        }
+        assertEquals( 1 + 1 + 1 + 2 + 2 + 9 + 10, buffer.position() );
+        buffer.flip();
+        for ( long value : values )
+        {
+            assertEquals( value, GameJournal.getVarint( buffer ) );
+        }
+        for ( int room : new int[] { 0, 5, -1, -7, Integer.MIN_VALUE, Integer.MAX_VALUE } )
+        {
+            assertEquals( room, GameJournal.unZigZag( GameJournal.zigZag( room ) ) );
+        }
+        assertEquals( 1, GameJournal.zigZag( -1 ) );
+    }
+
+    public void testReplayTalliesWhatWasPlayed() throws IOException
+    {
+        Simulator.Tally played = Simulator.simulate( Simulator.bot( "random" ), 3L, GAMES, 2, directory );
+        assertSameTally( played, new JournalReplay( false ).replay( directory ) );
+        assertSameTally( played, new JournalReplay( true ).replay( directory ) );
+    }
+
+    public void testGamesSpanSmallSegments() throws IOException
+    {
+        Simulator.Tally played;
+        try ( GameJournal journal = new GameJournal( directory, "small", 256 ) )
+        {
+            played = Simulator.playSlice( new RandomBot(), 5L, 0, 500, journal );
+        }
+        assertTrue( JournalReplay.streams( directory ).get( "small" ).size() > 10 );
+        assertSameTally( played, new JournalReplay( true ).replay( directory ) );
+    }
+
+    public void testCloseCutsTheLastSegmentDown() throws IOException
+    {
+        Simulator.Tally played;
+        try ( GameJournal journal = new GameJournal( directory, "short" ) )
+        {
+            played = Simulator.playSlice( new RandomBot(), 7L, 0, 10, journal );
+        }
+        Path segment = directory.resolve( GameJournal.segmentName( "short", 0 ) );
+        long size = Files.size( segment );
+        assertTrue( size > 0 && size < GameJournal.SEGMENT_BYTES );
+        assertSameTally( played, new JournalReplay( true ).replay( directory ) );
+    }
+
+    public void testPlayAgainReplaysTheSameSetUp() throws IOException
+    {
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC, 1L );
+        int turns = 2;
+        try ( GameJournal journal = new GameJournal( directory, "again" ) )
+        {
+            engine.journal( journal, 0 );
+            engine.setup( 99L );
+            engine.quit();
+            engine.restart();
+            engine.move( engine.topology().tunnel( engine.hunterRoom(), 0 ) );
+            if ( engine.status() == Wumpus.CONTINUE )
+            {
+                engine.quit();
+                turns++;
+            }
+        }
+        Simulator.Tally tally = new JournalReplay( true ).replay( directory );
+        assertEquals( 2, tally.games );
+        assertEquals( turns, tally.turns );
+    }
+
+    public void testSessionsAreJournaled() throws IOException
+    {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter( text );
+        try ( GameJournal journal = new GameJournal( directory, "session" ) )
+        {
+            GameSession session = new GameSession( 42L, false, journal );
+            session.start( out );
+            for ( String line : new String[] { "N", "Q", "Y", "Q", "N" } )
+            {
+                session.input( line, out );
+            }
+            assertTrue( session.isFinished() );
+        }
+        Simulator.Tally tally = new JournalReplay( true ).replay( directory );
+        assertEquals( 2, tally.games );
+        assertEquals( 2, tally.quits );
+    }
+
+    public void testCorruptArrowRangeIsRejected() throws IOException
+    {
+        ByteBuffer entries = ByteBuffer.allocate( 64 );
+        entries.put( (byte) GameJournal.START );
+        GameJournal.putVarint( entries, 0 );
+        GameJournal.putVarint( entries, 1L );
+        for ( int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++ )
+        {
+            GameJournal.putVarint( entries, j );
+        }
+        entries.put( (byte) GameJournal.SHOOT );
+        GameJournal.putVarint( entries, 99 );
+        Files.write( directory.resolve( GameJournal.segmentName( "corrupt", 0 ) ),
+                     Arrays.copyOf( entries.array(), entries.position() ) );
+        try
+        {
+            new JournalReplay( false ).replay( directory );
+            fail( "replayed an arrow range of 99 rooms" );
+        }
+        catch ( IOException expected )
+        {
+        }
+    }
+
+    public void testValidationCatchesADifferentGame() throws IOException
+    {
+        WumpusEngine recorded = new WumpusEngine( CaveTopology.CLASSIC, 1L );
+        WumpusEngine other = new WumpusEngine( CaveTopology.CLASSIC, 1L );
+        recorded.setup( 10L );
+        other.setup( 11L );
+        try ( GameJournal journal = new GameJournal( directory, "forged" ) )
+        {
+            journal.start( 0, recorded );
+            for ( int turn = 0; turn < 20 && other.status() == Wumpus.CONTINUE; turn++ )
+            {
+                int room = other.topology().tunnel( other.hunterRoom(), turn % 3 );
+                other.move( room );
+                journal.move( room, other );
+            }
+        }
+        new JournalReplay( false ).replay( directory );
+        try
+        {
+            new JournalReplay( true ).replay( directory );
+            fail( "a forged game validated" );
+        }
+        catch ( IllegalStateException expected )
+        {
+        }
+    }
+
+    private static void assertSameTally( Simulator.Tally expected, Simulator.Tally actual )
+    {
+        assertEquals( expected.games, actual.games );
+        assertEquals( expected.wins, actual.wins );
+        assertEquals( expected.pitDeaths, actual.pitDeaths );
+        assertEquals( expected.wumpusDeaths, actual.wumpusDeaths );
+        assertEquals( expected.arrowDeaths, actual.arrowDeaths );
+        assertEquals( expected.quits, actual.quits );
+        assertEquals( expected.turns, actual.turns );
+    }
+}
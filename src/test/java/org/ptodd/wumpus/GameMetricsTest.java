@@ -0,0 +1,90 @@
+package org.ptodd.wumpus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the hot path instrumentation.
+ */
+public class GameMetricsTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public GameMetricsTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( GameMetricsTest.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        GameMetrics.disable();
+    }
+
+    public void testDisabledCountsNothing()
+    {
+        long setups = GameMetrics.SETUPS.sum();
+        long wakes = GameMetrics.WUMPUS_WAKES.sum();
+        Simulator.simulate( Simulator.bot( "random" ), 1L, 1000, 1 );
+        assertEquals( setups, GameMetrics.SETUPS.sum() );
+        assertEquals( wakes, GameMetrics.WUMPUS_WAKES.sum() );
+    }
+
+    public void testCountsAgreeWithTheEngine()
+    {
+        long setups = GameMetrics.SETUPS.sum();
+        long shots = GameMetrics.ARROW_LENGTH.count();
+        long hits = GameMetrics.ARROW_WUMPUS.sum();
+        long attacks = GameMetrics.WUMPUS_ATTACKS.sum();
+        GameMetrics.enable();
+        Simulator.Tally tally = Simulator.simulate( Simulator.bot( "random" ), 1L, 5000, 2 );
+        GameMetrics.disable();
+        assertEquals( 5000, GameMetrics.SETUPS.sum() - setups );
+        assertEquals( tally.wins, GameMetrics.ARROW_WUMPUS.sum() - hits );
+        assertEquals( tally.wumpusDeaths, GameMetrics.WUMPUS_ATTACKS.sum() - attacks );
+        assertTrue( GameMetrics.ARROW_LENGTH.count() - shots >= tally.wins );
+    }
+
+    public void testHistogramBuckets()
+    {
+        long small = GameMetrics.BAT_CHAIN.count( 1 );
+        long large = GameMetrics.BAT_CHAIN.count( 7 );
+        GameMetrics.BAT_CHAIN.record( 1 );
+        GameMetrics.BAT_CHAIN.record( 50 );
+        assertEquals( small + 1, GameMetrics.BAT_CHAIN.count( 1 ) );
+        assertEquals( large + 1, GameMetrics.BAT_CHAIN.count( 7 ) );
+        long waits = GameMetrics.INPUT_WAIT.count( 11 );
+        GameMetrics.INPUT_WAIT.record( 1500 );
+        assertEquals( waits + 1, GameMetrics.INPUT_WAIT.count( 11 ) );
+    }
+
+    public void testSnapshotFileListsEveryMetric()
+        throws IOException
+    {
+        File file = File.createTempFile( "wumpus", ".metrics" );
+        file.deleteOnExit();
+        GameMetrics.snapshot( file.toPath() );
+        List<String> lines = Files.readAllLines( file.toPath() );
+        assertTrue( lines.get( 0 ).startsWith( "#" ) );
+        assertTrue( lines.contains( "game.setups " + GameMetrics.SETUPS.sum() ) );
+        assertTrue( lines.contains( "input.wait.micros.count " + GameMetrics.INPUT_WAIT.count() ) );
+    }
+}
@@ -0,0 +1,53 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the game random number generator.
+ */
+public class GameRandomTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public GameRandomTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( GameRandomTest.class );
+    }
+
+    public void testSeedOfMatchesStepping()
+    {
+        GameRandom random = new GameRandom( 99L );
+        for ( int j = 0; j < 10; j++ )
+        {
+            assertEquals( random.nextLong(), GameRandom.seedOf( 99L, j ) );
+        }
+    }
+
+    public void testNextIntStaysInBoundsAndCoversThem()
+    {
+        GameRandom random = new GameRandom( 5L );
+        int[] counts = new int[Wumpus.MAX_ROOMS];
+        for ( int j = 0; j < 200000; j++ )
+        {
+            counts[random.nextInt( Wumpus.MAX_ROOMS )]++;
+        }
+        for ( int j = 0; j < Wumpus.MAX_ROOMS; j++ )
+        {
+            assertTrue( Math.abs( counts[j] - 10000 ) < 600 );
+        }
+    }
+}
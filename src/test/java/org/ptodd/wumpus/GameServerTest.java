@@ -0,0 +1,127 @@
+package org.ptodd.wumpus;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the multi-session game server.
+ */
+public class GameServerTest
+    extends TestCase
+{
+    private static final int CLIENTS = 50;
+
+    private GameServer server;
+    private Thread thread;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public GameServerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( GameServerTest.class );
+    }
+
+    protected void setUp() throws Exception
+    {
+        server = new GameServer( 0, 7L, false );
+        thread = new Thread( server );
+        thread.start();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        server.close();
+        thread.join( 10000 );
+    }
+
+    public void testManyConcurrentSessions() throws Exception
+    {
+        Socket[] sockets = new Socket[CLIENTS];
+        BufferedReader[] readers = new BufferedReader[CLIENTS];
+        for ( int j = 0; j < CLIENTS; j++ )
+        {
+            sockets[j] = new Socket( InetAddress.getLoopbackAddress(), server.port() );
+            sockets[j].setSoTimeout( 10000 );
+            readers[j] = new BufferedReader( new InputStreamReader( sockets[j].getInputStream(), StandardCharsets.ISO_8859_1 ) );
+        }
+
+        // every session plays on its own, answering in turn
+
+        for ( int j = 0; j < CLIENTS; j++ )
+        {
+            send( sockets[j], "n\n" );
+        }
+        for ( int j = 0; j < CLIENTS; j++ )
+        {
+            assertTrue( readUntil( readers[j], "You are in room" ).contains( Wumpus.GAME_TITLE ) );
+            send( sockets[j], "q\r\nn\r\n" );
+        }
+        for ( int j = 0; j < CLIENTS; j++ )
+        {
+            assertTrue( readUntil( readers[j], "Thank you for playing" ).contains( "You give up" ) );
+            assertEquals( "", readers[j].readLine() );
+            assertNull( readers[j].readLine() );
+            sockets[j].close();
+        }
+        waitForSessions( 0 );
+    }
+
+    public void testDroppedClientEndsItsSession() throws Exception
+    {
+        Socket socket = new Socket( InetAddress.getLoopbackAddress(), server.port() );
+        waitForSessions( 1 );
+        socket.close();
+        waitForSessions( 0 );
+    }
+
+    private static void send( Socket socket, String text ) throws Exception
+    {
+        OutputStream out = socket.getOutputStream();
+        out.write( text.getBytes( StandardCharsets.ISO_8859_1 ) );
+        out.flush();
+    }
+
+    private static String readUntil( BufferedReader reader, String wanted ) throws Exception
+    {
+        StringBuilder text = new StringBuilder();
+        String line;
+        while ( ( line = reader.readLine() ) != null )
+        {
+            text.append( line ).append( '\n' );
+            if ( line.contains( wanted ) )
+            {
+                return text.toString();
+            }
+        }
+        fail( "connection closed before '" + wanted + "'" );
+        return null;
+    }
+
+    private void waitForSessions( int sessions ) throws Exception
+    {
+        for ( int tries = 0; server.sessions() != sessions && tries < 500; tries++ )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( sessions, server.sessions() );
+    }
+}
@@ -0,0 +1,156 @@
+package org.ptodd.wumpus;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the line driven game session.
+ */
+public class GameSessionTest
+    extends TestCase
+{
+    private static final long SEED = 42L;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public GameSessionTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( GameSessionTest.class );
+    }
+
+    public void testPrintsWhatTheConsolePrints()
+    {
+        String[] answers = script();
+        assertEquals( console( answers ), session( answers, false ) );
+    }
+
+    public void testFinishesAfterGoodbye()
+    {
+        GameSession session = new GameSession( SEED, false );
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter( text );
+        session.start( out );
+        for ( String answer : new String[] { "n", "q", "n" } )
+        {
+            assertFalse( session.isFinished() );
+            session.input( answer, out );
+        }
+        assertTrue( session.isFinished() );
+        out.flush();
+        int length = text.getBuffer().length();
+        session.input( "m", out );
+        out.flush();
+        assertEquals( length, text.getBuffer().length() );
+        assertTrue( text.toString().endsWith( Wumpus.GOODBYE + System.lineSeparator() ) );
+    }
+
+    public void testHintsAreShown()
+    {
+        assertTrue( session( new String[] { "n", "q", "n" }, true ).contains( "Hint: the Wumpus could be in room" ) );
+    }
+
+    public void testTravelPrintsWhatTheConsolePrints()
+    {
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC );
+        engine.setup( SEED );
+        int first = engine.topology().tunnel( engine.hunterRoom(), 0 );
+        String[] answers = { "n", "t", "x", "t", "" + ( first + 1 ), "t", "21", "t", "" + ( engine.hunterRoom() + 1 ), "q", "n" };
+        assertEquals( console( answers ), session( answers, false ) );
+    }
+
+    public void testTravelWalksThroughKnownSafeRooms()
+    {
+        // nothing near rooms 1, 5, and 8, so each look around proves the
+        // rooms next to it safe
+
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC );
+        engine.setup( new int[] { 0, 18, 12, 15, 10, 19 } );
+        BeliefTracker tracker = new BeliefTracker( CaveTopology.CLASSIC );
+        tracker.reset( engine.hunterRoom(), BitboardState.warnings( engine.senses() ) );
+        RoutePlanner planner = new RoutePlanner( RoutePlanner.CLASSIC );
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter( text );
+
+        Wumpus.travel( out, engine, tracker, false, planner, 13 );
+        out.flush();
+        assertEquals( Wumpus.NO_ROUTE + System.lineSeparator(), text.toString() );
+        assertEquals( 0, engine.hunterRoom() );
+
+        Wumpus.travel( out, engine, tracker, false, planner, 4 );
+        assertEquals( 4, engine.hunterRoom() );
+        Wumpus.travel( out, engine, tracker, false, planner, 7 );
+        assertEquals( 7, engine.hunterRoom() );
+        assertEquals( Wumpus.CONTINUE, engine.status() );
+        Wumpus.travel( out, engine, tracker, false, planner, 3 );
+        assertEquals( 3, engine.hunterRoom() );
+        out.flush();
+        // both walks pass through room 1 (index 0), looking around there
+        assertEquals( 2, text.toString().split( "You are in room 1\\.", -1 ).length - 1 );
+        assertEquals( Wumpus.ACTION_TRAVEL, Wumpus.action( 'T' ) );
+    }
+
+    // instructions, blank and bad answers, a bad move, bad ranges, then a shot and a replay
+    private static String[] script()
+    {
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC );
+        engine.setup( SEED );
+        int first = engine.topology().tunnel( engine.hunterRoom(), 0 );
+        int second = engine.topology().tunnel( first, 1 );
+        if ( second == engine.hunterRoom() )
+        {
+            second = engine.topology().tunnel( first, 2 );
+        }
+        return new String[] { "yes", "", "", "", "z", "m", "x", "s", "9", "many", "2",
+            "" + ( engine.hunterRoom() + 1 ), "" + ( first + 1 ), "" + ( second + 1 ),
+            "q", "y", "q", "n" };
+    }
+
+    private static String session( String[] answers, boolean hints )
+    {
+        GameSession session = new GameSession( SEED, hints );
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter( text );
+        session.start( out );
+        for ( String answer : answers )
+        {
+            session.input( answer, out );
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    private static String console( String[] answers )
+    {
+        ConsoleInput in = Wumpus.in;
+        PrintWriter out = Wumpus.out;
+        StringWriter text = new StringWriter();
+        try
+        {
+            Wumpus.in = new ConsoleInput( new ByteArrayInputStream( (String.join( "\n", answers ) + "\n").getBytes() ) );
+            Wumpus.out = new PrintWriter( text, true );
+            Wumpus.main( new String[] { "--seed", "" + SEED } );
+        }
+        finally
+        {
+            Wumpus.in = in;
+            Wumpus.out = out;
+        }
+        return text.toString();
+    }
+}
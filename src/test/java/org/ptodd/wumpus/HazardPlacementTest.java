@@ -0,0 +1,127 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for hazard placement.
+ */
+public class HazardPlacementTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public HazardPlacementTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( HazardPlacementTest.class );
+    }
+
+    public void testClassicLayoutMatchesTheEngine()
+    {
+        HazardPlacement placement = new HazardPlacement( Wumpus.MAX_ROOMS, 1, 2, 2 );
+        assertEquals( Wumpus.NUM_OF_OBJECTS, placement.objects() );
+        assertEquals( Wumpus.WUMPUS, placement.firstWumpus() );
+        assertEquals( Wumpus.PIT1, placement.firstPit() );
+        assertEquals( Wumpus.BATS1, placement.firstBats() );
+    }
+
+    public void testEveryRoomEquallyLikelyForEveryObject()
+    {
+        HazardPlacement placement = new HazardPlacement( Wumpus.MAX_ROOMS, 1, 2, 2 );
+        GameRandom random = new GameRandom( 5L );
+        int[] locationOf = new int[placement.objects()];
+        int[][] counts = new int[placement.objects()][Wumpus.MAX_ROOMS];
+        int games = 200000;
+        for ( int game = 0; game < games; game++ )
+        {
+            placement.place( random, locationOf );
+            for ( int j = 0; j < locationOf.length; j++ )
+            {
+                counts[j][locationOf[j]]++;
+            }
+        }
+        for ( int j = 0; j < locationOf.length; j++ )
+        {
+            for ( int room = 0; room < Wumpus.MAX_ROOMS; room++ )
+            {
+                assertEquals( games / Wumpus.MAX_ROOMS, counts[j][room], games / Wumpus.MAX_ROOMS / 10 );
+            }
+        }
+    }
+
+    public void testManyHazardsInALargeCaveAreDistinct()
+    {
+        int rooms = 1000000;
+        HazardPlacement placement = new HazardPlacement( rooms, 1000, 50000, 50000 );
+        int[] locationOf = new int[placement.objects()];
+        GameRandom random = new GameRandom( 8L );
+        for ( int game = 0; game < 5; game++ )
+        {
+            placement.place( random, locationOf );
+            boolean[] used = new boolean[rooms];
+            for ( int room : locationOf )
+            {
+                assertFalse( used[room] );
+                used[room] = true;
+            }
+        }
+    }
+
+    public void testManyHuntersComeFirst()
+    {
+        HazardPlacement placement = new HazardPlacement( 100, 4, 3, 10, 10 );
+        assertEquals( 27, placement.objects() );
+        assertEquals( 4, placement.firstWumpus() );
+        assertEquals( 7, placement.firstPit() );
+        assertEquals( 17, placement.firstBats() );
+    }
+
+    public void testEveryRoomTaken()
+    {
+        HazardPlacement placement = new HazardPlacement( 6, 1, 2, 2 );
+        int[] locationOf = new int[6];
+        placement.place( new GameRandom( 3L ), locationOf );
+        int seen = 0;
+        for ( int room : locationOf )
+        {
+            seen |= 1 << room;
+        }
+        assertEquals( 0x3F, seen );
+    }
+
+    public void testSameSeedSamePlacement()
+    {
+        HazardPlacement placement = new HazardPlacement( 100, 3, 10, 10 );
+        int[] one = new int[placement.objects()];
+        int[] two = new int[placement.objects()];
+        placement.place( new GameRandom( 21L ), one );
+        placement.place( new GameRandom( 99L ), two );
+        placement.place( new GameRandom( 21L ), two );
+        assertTrue( java.util.Arrays.equals( one, two ) );
+    }
+
+    public void testTooManyObjectsAreRejected()
+    {
+        try
+        {
+            new HazardPlacement( 5, 1, 2, 2 );
+            fail( "expected six objects in five rooms to be rejected" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+}
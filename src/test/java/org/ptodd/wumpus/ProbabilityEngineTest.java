@@ -0,0 +1,190 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the exact probability engine.
+ */
+public class ProbabilityEngineTest
+    extends TestCase
+{
+    // hunter in room 1, wumpus in 8, pits in 2 and 20, bats in 12 and 15
+    // (zero based: hunter 0, wumpus 7, pits 1 and 19, bats 11 and 14)
+
+    private static final int[] PLACEMENT = { 0, 7, 1, 19, 11, 14 };
+
+    private static final int SAMPLES = 200000;
+
+    private ProbabilityEngine exact;
+    private long              start;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ProbabilityEngineTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ProbabilityEngineTest.class );
+    }
+
+    protected void setUp()
+    {
+        exact = new ProbabilityEngine( CaveTopology.CLASSIC );
+        start = new BitboardState().load( PLACEMENT, Wumpus.MAX_ARROWS, Wumpus.CONTINUE ).key();
+    }
+
+    public void testProbabilitiesAddUp()
+    {
+        ProbabilityEngine.Distribution shot = exact.shoot( start, new int[] { 4, 9, 6 }, 3 );
+        double total = 0;
+        for ( int j = 0; j < shot.size(); j++ )
+        {
+            total += shot.probability( j );
+        }
+        assertEquals( 1.0, total, 1e-12 );
+        assertEquals( 1.0, shot.win() + shot.death() + shot.survive(), 1e-12 );
+    }
+
+    public void testShotAtAnAdjacentWumpusAlwaysWins()
+    {
+        assertEquals( 1.0, exact.shoot( start, new int[] { 7 }, 1 ).win(), 1e-12 );
+    }
+
+    public void testRandomShotMatchesSampling()
+    {
+        // room 10 cannot be reached from room 1, so the whole flight is random
+        int[] path = { 9, 8, 7 };
+        ProbabilityEngine.Distribution shot = exact.shoot( start, path, 3 );
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC, 11L );
+        int wins = 0;
+        int arrowDeaths = 0;
+        int wumpusDeaths = 0;
+        for ( int j = 0; j < SAMPLES; j++ )
+        {
+            engine.setup( PLACEMENT );
+            engine.shoot( path, 3 );
+            if ( engine.status() == Wumpus.WUMPUS_DEAD )
+            {
+                wins++;
+            }
+            else if ( engine.cause() == WumpusEngine.CAUSE_ARROW )
+            {
+                arrowDeaths++;
+            }
+            else if ( engine.cause() == WumpusEngine.CAUSE_WUMPUS )
+            {
+                wumpusDeaths++;
+            }
+        }
+        assertEquals( shot.win(), (double) wins / SAMPLES, 0.005 );
+        assertEquals( shot.arrowDeath(), (double) arrowDeaths / SAMPLES, 0.005 );
+        assertEquals( shot.wumpusDeath(), (double) wumpusDeaths / SAMPLES, 0.005 );
+    }
+
+    public void testWumpusWalksEveryTunnelOfTheCave()
+    {
+        // a torus has four tunnels a room, so a bumped wumpus stays put one time in five
+        CaveTopology torus = CaveGraph.torus( 4, 4 ).topology();
+        int[] placement = { 0, torus.tunnel( 0, 0 ), 9, 10, 13, 14 };
+        long key = new BitboardState().load( placement, Wumpus.MAX_ARROWS, Wumpus.CONTINUE ).key();
+        ProbabilityEngine.Distribution move = new ProbabilityEngine( torus ).move( key, placement[Wumpus.WUMPUS] );
+        WumpusEngine engine = new WumpusEngine( torus, 13L );
+        int wumpusDeaths = 0;
+        for ( int j = 0; j < SAMPLES; j++ )
+        {
+            engine.setup( placement );
+            engine.move( placement[Wumpus.WUMPUS] );
+            if ( engine.cause() == WumpusEngine.CAUSE_WUMPUS )
+            {
+                wumpusDeaths++;
+            }
+        }
+        assertEquals( 1.0 / 5.0, move.wumpusDeath(), 1e-12 );
+        assertEquals( move.wumpusDeath(), (double) wumpusDeaths / SAMPLES, 0.005 );
+    }
+
+    public void testBatDropMatchesSampling()
+    {
+        // walk next to the bats in room 12 (zero based 11), then into them
+        BitboardState state = new BitboardState().loadKey( start );
+        state.moveHunter( 10 );
+        ProbabilityEngine.Distribution move = exact.move( state.key(), 11 );
+        WumpusEngine engine = new WumpusEngine( CaveTopology.CLASSIC, 12L );
+        int[] placement = PLACEMENT.clone();
+        placement[Wumpus.HUNTER] = 10;
+        int pitDeaths = 0;
+        for ( int j = 0; j < SAMPLES; j++ )
+        {
+            engine.setup( placement );
+            engine.move( 11 );
+            if ( engine.cause() == WumpusEngine.CAUSE_PIT )
+            {
+                pitDeaths++;
+            }
+        }
+        // two pits out of the eighteen rooms without bats
+        assertEquals( 2.0 / 18.0, move.pitDeath(), 1e-12 );
+        assertEquals( move.pitDeath(), (double) pitDeaths / SAMPLES, 0.005 );
+    }
+
+    public void testTotalsAreCached()
+    {
+        StateCache cache = new StateCache( 64 * 1024 );
+        ProbabilityEngine cached = new ProbabilityEngine( CaveTopology.CLASSIC, cache );
+        long action = ProbabilityEngine.shootAction( new int[] { 9, 8, 7 }, 3 );
+        ProbabilityEngine.Distribution shot = cached.expand( start, action );
+        assertEquals( shot.win(), cached.win( start, action ), 0.0 );
+        assertEquals( shot.death(), cached.death( start, action ), 0.0 );
+        assertEquals( 2, cache.size() );
+        assertEquals( 1, cache.hits() );
+        assertEquals( shot.win(), cached.win( start, action ), 0.0 );
+        assertEquals( 2, cache.hits() );
+    }
+
+    public void testCacheStaysWithinItsCap()
+    {
+        StateCache cache = new StateCache( 64 * 1024 );
+        ProbabilityEngine cached = new ProbabilityEngine( CaveTopology.CLASSIC, cache );
+        BitboardState state = new BitboardState().loadKey( start );
+        for ( int arrows = 1; arrows <= Wumpus.MAX_ARROWS; arrows++ )
+        {
+            state.setArrows( arrows );
+            for ( int a = 0; a < 20; a++ )
+            {
+                for ( int b = 0; b < 20; b++ )
+                {
+                    long action = ProbabilityEngine.shootAction( new int[] { a, b }, 2 );
+                    assertEquals( exact.expand( state.key(), action ).win(), cached.win( state.key(), action ), 0.0 );
+                }
+            }
+        }
+        assertTrue( cache.evictions() > 0 );
+        assertTrue( cache.size() <= cache.capacity() );
+    }
+
+    public void testCachedPairsDoNotCollide()
+    {
+        // the state and action differences of these two pairs cancel out
+        // under an XOR of the state with the rotated action
+        long pits = ( 1L << 4 ) | ( 1L << 9 );
+        long a = BitboardState.key( pits, ( 1L << 11 ) | ( 1L << 19 ), 17, 0, Wumpus.MAX_ARROWS, Wumpus.CONTINUE );
+        long b = BitboardState.key( pits, ( 1L << 13 ) | ( 1L << 19 ), 17, 0, Wumpus.MAX_ARROWS, Wumpus.CONTINUE );
+        ProbabilityEngine cached = new ProbabilityEngine( CaveTopology.CLASSIC, new StateCache( 64 * 1024 ) );
+        assertEquals( 0.0, cached.death( a, ProbabilityEngine.moveAction( 1 ) ), 0.0 );
+        assertEquals( 1.0, cached.death( b, ProbabilityEngine.moveAction( 4 ) ), 0.0 );
+        assertEquals( exact.move( b, 4 ).death(), cached.death( b, ProbabilityEngine.moveAction( 4 ) ), 0.0 );
+        assertTrue( ProbabilityEngine.pairKey( a, ProbabilityEngine.moveAction( 1 ) )
+            != ProbabilityEngine.pairKey( b, ProbabilityEngine.moveAction( 4 ) ) );
+    }
+}
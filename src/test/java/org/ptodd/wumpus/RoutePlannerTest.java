@@ -0,0 +1,173 @@
+package org.ptodd.wumpus;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for route planning.
+ */
+public class RoutePlannerTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public RoutePlannerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( RoutePlannerTest.class );
+    }
+
+    private static long[] randomSafe( int rooms, int unsafe, GameRandom random )
+    {
+        long[] safe = new long[( rooms + 63 ) / 64];
+        for ( int room = 0; room < rooms; room++ )
+        {
+            if ( random.nextInt( 100 ) >= unsafe )
+            {
+                safe[room >>> 6] |= 1L << room;
+            }
+        }
+        return safe;
+    }
+
+    private static boolean isSafe( long[] safe, int room )
+    {
+        return ( ( safe[room >>> 6] >>> room ) & 1L ) != 0;
+    }
+
+    // plain breadth first search through safe rooms, '-1' if out of reach
+    private static int distance( CaveGraph graph, int from, int to, long[] safe )
+    {
+        int[] distance = new int[graph.rooms()];
+        Arrays.fill( distance, -1 );
+        int[] queue = new int[graph.rooms()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        distance[from] = 0;
+        while ( head < tail )
+        {
+            int room = queue[head++];
+            for ( int j = 0; j < graph.tunnels( room ); j++ )
+            {
+                int next = graph.tunnel( room, j );
+                if ( distance[next] < 0 && ( safe == null || isSafe( safe, next ) ) )
+                {
+                    distance[next] = distance[room] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distance[to];
+    }
+
+    private static void assertShortestSafeRoutes( CaveGraph graph, int unsafe, long seed )
+    {
+        GameRandom random = new GameRandom( seed );
+        long[] safe = randomSafe( graph.rooms(), unsafe, random );
+        RoutePlanner planner = new RoutePlanner( graph, 6 );
+        for ( int q = 0; q < 300; q++ )
+        {
+            int from = random.nextInt( graph.rooms() );
+            int to = random.nextInt( graph.rooms() );
+            int length = planner.route( from, to, safe );
+            assertEquals( ( from == to ) ? 0 : distance( graph, from, to, safe ), length );
+            for ( int j = 0, at = from; j < length; j++ )
+            {
+                int next = planner.hop( j );
+                assertTrue( isSafe( safe, next ) );
+                boolean tunnel = false;
+                for ( int k = 0; k < graph.tunnels( at ); k++ )
+                {
+                    tunnel |= graph.tunnel( at, k ) == next;
+                }
+                assertTrue( tunnel );
+                at = next;
+            }
+            if ( length > 0 )
+            {
+                assertEquals( to, planner.hop( length - 1 ) );
+            }
+        }
+    }
+
+    public void testRoutesAreShortestAndSafe()
+    {
+        assertShortestSafeRoutes( CaveGraph.randomRegular( 3000, 3, new GameRandom( 1L ) ), 20, 2L );
+        assertShortestSafeRoutes( CaveGraph.torus( 40, 30 ), 25, 3L );
+        assertShortestSafeRoutes( CaveGraph.mobius( 400 ), 2, 4L );
+        assertShortestSafeRoutes( CaveGraph.dodecahedron(), 30, 5L );
+    }
+
+    public void testLowerBoundsNeverOverestimate()
+    {
+        CaveGraph graph = CaveGraph.torus( 25, 20 );
+        RoutePlanner planner = new RoutePlanner( graph, RoutePlanner.LANDMARKS );
+        assertEquals( RoutePlanner.LANDMARKS, planner.landmarks() );
+        GameRandom random = new GameRandom( 6L );
+        for ( int q = 0; q < 500; q++ )
+        {
+            int a = random.nextInt( graph.rooms() );
+            int b = random.nextInt( graph.rooms() );
+            assertTrue( planner.lowerBound( a, b ) <= distance( graph, a, b, null ) );
+        }
+        for ( int l = 0; l < planner.landmarks(); l++ )
+        {
+            int landmark = planner.landmark( l );
+            for ( int room = 0; room < graph.rooms(); room += 7 )
+            {
+                assertEquals( distance( graph, landmark, room, null ), planner.lowerBound( landmark, room ) );
+            }
+        }
+    }
+
+    public void testOnlyKnownSafeRoomsAreEntered()
+    {
+        CaveGraph graph = CaveGraph.mobius( 50 );
+        RoutePlanner planner = new RoutePlanner( graph, 4 );
+        long[] safe = { -1L, -1L };
+        assertEquals( 0, planner.route( 7, 7, safe ) );
+        assertEquals( 2, planner.route( 0, 2, safe ) );
+
+        // the start need not be safe, the goal must be
+        safe[0] &= ~( 1L << 0 );
+        assertEquals( 2, planner.route( 0, 2, safe ) );
+        assertEquals( -1, planner.route( 2, 0, safe ) );
+
+        // cut both rails of the ladder on either side of room 10
+        safe[0] &= ~( ( 1L << 9 ) | ( 1L << 11 ) | ( 1L << 59 ) | ( 1L << 61 ) );
+        assertEquals( -1, planner.route( 10, 30, safe ) );
+        assertEquals( -1, planner.route( 30, 10, safe ) );
+        assertEquals( 1, planner.route( 10, 60, safe ) );
+    }
+
+    public void testCopiesShareTheLandmarks()
+    {
+        CaveGraph graph = CaveGraph.randomRegular( 1000, 3, new GameRandom( 7L ) );
+        RoutePlanner planner = new RoutePlanner( graph, 5 );
+        RoutePlanner copy = new RoutePlanner( planner );
+        assertEquals( planner.landmarks(), copy.landmarks() );
+        GameRandom random = new GameRandom( 8L );
+        long[] safe = randomSafe( graph.rooms(), 10, random );
+        for ( int q = 0; q < 100; q++ )
+        {
+            int from = random.nextInt( graph.rooms() );
+            int to = random.nextInt( graph.rooms() );
+            assertEquals( planner.lowerBound( from, to ), copy.lowerBound( from, to ) );
+            assertEquals( planner.route( from, to, safe ), copy.route( from, to, safe ) );
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.ptodd.wumpus;
+
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the massively multiplayer shared cave.
+ */
+public class SharedCaveTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public SharedCaveTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( SharedCaveTest.class );
+    }
+
+    private static SharedCave ladder( int[] pits, int[] bats, int[] wumpi, int[] hunters )
+    {
+        return new SharedCave( CaveGraph.mobius( 8 ), 1, new int[][] { pits, bats, wumpi, hunters }, 5L );
+    }
+
+    public void testMovesFollowTunnelsIntoHazards()
+    {
+        SharedCave cave = ladder( new int[] { 2 }, new int[0], new int[0], new int[] { 0 } );
+        assertEquals( Wumpus.CONTINUE, cave.move( 0, 3 ) );
+        assertEquals( 0, cave.hunterRoom( 0 ) );
+        assertEquals( Wumpus.CONTINUE, cave.move( 0, 1 ) );
+        assertEquals( 1, cave.hunterRoom( 0 ) );
+        assertEquals( Wumpus.HUNTER_DEAD, cave.move( 0, 2 ) );
+        assertFalse( cave.isAlive( 0 ) );
+        assertEquals( 0, cave.liveHunters() );
+        assertEquals( 0, cave.huntersIn( 2 ) );
+        assertEquals( Wumpus.HUNTER_DEAD, cave.move( 0, 3 ) );
+        cave.respawn( 0 );
+        assertTrue( cave.isAlive( 0 ) );
+        assertFalse( cave.isPit( cave.hunterRoom( 0 ) ) );
+        assertEquals( 1, cave.huntersIn( cave.hunterRoom( 0 ) ) );
+    }
+
+    public void testBatsDropTheHunterClearOfBats()
+    {
+        for ( long seed = 0; seed < 20; seed++ )
+        {
+            SharedCave cave = new SharedCave( CaveGraph.mobius( 8 ), 1,
+                                              new int[][] { {}, { 1, 4, 9 }, {}, { 0 } }, seed );
+            assertEquals( Wumpus.CONTINUE, cave.move( 0, 1 ) );
+            assertFalse( cave.isBats( cave.hunterRoom( 0 ) ) );
+            assertEquals( 1, cave.huntersIn( cave.hunterRoom( 0 ) ) );
+        }
+    }
+
+    public void testTravelWalksTheSafeRoute()
+    {
+        SharedCave cave = ladder( new int[] { 2 }, new int[0], new int[0], new int[] { 0 } );
+        RoutePlanner planner = new RoutePlanner( cave.graph(), 4 );
+        long[] safe = { 0xffffL & ~( 1L << 2 ) };
+        assertEquals( Wumpus.CONTINUE, cave.travel( 0, 4, safe, planner ) );
+        assertEquals( 4, cave.hunterRoom( 0 ) );
+        assertEquals( 1, cave.huntersIn( 4 ) );
+        assertEquals( Wumpus.CONTINUE, cave.travel( 0, 2, safe, planner ) );
+        assertEquals( 4, cave.hunterRoom( 0 ) );
+
+        // a hunter who wrongly thinks the pit safe walks into it
+        assertEquals( Wumpus.HUNTER_DEAD, cave.travel( 0, 1, new long[] { 0xffffL }, planner ) );
+        assertEquals( 2, cave.hunterRoom( 0 ) );
+    }
+
+    public void testArrowsCrossRegions()
+    {
+        SharedCave cave = ladder( new int[0], new int[0], new int[] { 3 }, new int[] { 0 } );
+        assertEquals( Wumpus.WUMPUS_DEAD, cave.shoot( 0, new int[] { 1, 2, 3 }, 3 ) );
+        assertEquals( 0, cave.liveWumpi() );
+        assertEquals( 0, cave.wumpiIn( 3 ) );
+        assertEquals( -1, cave.wumpusRoom( 0 ) );
+        assertEquals( Wumpus.MAX_ARROWS - 1, cave.arrows( 0 ) );
+
+        cave = ladder( new int[0], new int[0], new int[] { 3 }, new int[] { 0, 2 } );
+        assertEquals( Wumpus.CONTINUE, cave.shoot( 0, new int[] { 1, 2, 3 }, 3 ) );
+        assertFalse( cave.isAlive( 1 ) );
+        assertEquals( 1, cave.liveWumpi() );
+    }
+
+    public void testBumpedWumpusWalksOffOrEats()
+    {
+        for ( long seed = 0; seed < 20; seed++ )
+        {
+            SharedCave cave = new SharedCave( CaveGraph.mobius( 8 ), 1,
+                                              new int[][] { {}, {}, { 1 }, { 0 } }, seed );
+            int status = cave.move( 0, 1 );
+            if ( status == Wumpus.HUNTER_DEAD )
+            {
+                assertEquals( 1, cave.wumpusRoom( 0 ) );
+            }
+            else
+            {
+                assertEquals( Wumpus.CONTINUE, status );
+                int room = cave.wumpusRoom( 0 );
+                assertTrue( room == 0 || room == 2 || room == 9 );
+                assertEquals( 1, cave.wumpiIn( room ) );
+            }
+        }
+    }
+
+    public void testWanderingWumpusEatsTheHuntersWhereItLands()
+    {
+        for ( long seed = 0; seed < 20; seed++ )
+        {
+            SharedCave cave = new SharedCave( CaveGraph.mobius( 8 ), 1,
+                                              new int[][] { {}, {}, { 1 }, { 0, 2, 9 } }, seed );
+            cave.move( 0, 1 );
+            int room = cave.wumpusRoom( 0 );
+            assertEquals( room != 2, cave.isAlive( 1 ) );
+            assertEquals( room != 9, cave.isAlive( 2 ) );
+            assertEquals( 0, cave.huntersIn( room ) );
+        }
+    }
+
+    public void testRespawnLeavesALiveHunterAlone()
+    {
+        SharedCave cave = ladder( new int[0], new int[0], new int[0], new int[] { 0 } );
+        cave.respawn( 0 );
+        assertEquals( 0, cave.hunterRoom( 0 ) );
+        assertEquals( 1, cave.huntersIn( 0 ) );
+        assertEquals( 1, cave.liveHunters() );
+    }
+
+    public void testRandomFlightStopsAtADeadEnd()
+    {
+        // a line of three rooms: room 3's only tunnel leads back to room 2
+        SharedCave cave = new SharedCave( CaveGraph.of( new int[][] { { 1 }, { 0, 2 }, { 1 } } ), 1,
+                                          new int[][] { {}, {}, { 0 }, { 1 } }, 5L );
+        assertEquals( Wumpus.CONTINUE, cave.shoot( 0, new int[] { 2, 2, 2 }, 3 ) );
+        assertTrue( cave.isAlive( 0 ) );
+        assertEquals( 1, cave.liveWumpi() );
+        assertEquals( Wumpus.MAX_ARROWS - 1, cave.arrows( 0 ) );
+    }
+
+    public void testRespawnGivesUpWithNoClearRoom()
+    {
+        // the hunter starts among the bats and shoots itself; the pit, the
+        // bats, and the wumpus leave nowhere to come back to
+        SharedCave cave = new SharedCave( CaveGraph.of( new int[][] { { 1 }, { 0, 2 }, { 1 } } ), 1,
+                                          new int[][] { { 0 }, { 1 }, { 2 }, { 1 } }, 5L );
+        assertEquals( Wumpus.HUNTER_DEAD, cave.shoot( 0, new int[] { 0, 1 }, 2 ) );
+        assertFalse( cave.respawn( 0 ) );
+        assertFalse( cave.isAlive( 0 ) );
+        assertEquals( 0, cave.liveHunters() );
+    }
+
+    public void testThreadsKeepTheCaveConsistent()
+    {
+        CaveGraph graph = CaveGraph.randomRegular( 20000, 3, new GameRandom( 1L ) );
+        SharedCave cave = new SharedCave( graph, 6, placement( graph, 500, 2000, 2L ), 3L );
+        long kills = cave.play( 200000, 4, 4L );
+        assertEquals( 500 - kills, cave.liveWumpi() );
+        int[] listed = new int[graph.rooms()];
+        int live = 0;
+        for ( int h = 0; h < cave.hunters(); h++ )
+        {
+            if ( cave.isAlive( h ) )
+            {
+                listed[cave.hunterRoom( h )]++;
+                live++;
+            }
+        }
+        assertEquals( cave.liveHunters(), live );
+        int wumpi = 0;
+        for ( int room = 0; room < graph.rooms(); room++ )
+        {
+            assertEquals( listed[room], cave.huntersIn( room ) );
+            wumpi += cave.wumpiIn( room );
+        }
+        assertEquals( cave.liveWumpi(), wumpi );
+    }
+
+    public void testMoreThreadsThanHuntersAreNotUsed()
+    {
+        SharedCave cave = ladder( new int[0], new int[0], new int[] { 9 }, new int[] { 0, 5 } );
+        cave.play( 1000, 8, 1L );
+        assertTrue( cave.liveHunters() <= 2 );
+    }
+
+    public void testOneThreadReplaysExactly()
+    {
+        CaveGraph graph = CaveGraph.randomRegular( 5000, 3, new GameRandom( 1L ) );
+        SharedCave one = new SharedCave( graph, 6, placement( graph, 100, 500, 2L ), 3L );
+        SharedCave two = new SharedCave( graph, 6, placement( graph, 100, 500, 2L ), 3L );
+        assertEquals( one.play( 50000, 1, 4L ), two.play( 50000, 1, 4L ) );
+        int[] first = new int[one.hunters()];
+        int[] second = new int[two.hunters()];
+        for ( int h = 0; h < first.length; h++ )
+        {
+            first[h] = one.hunterRoom( h );
+            second[h] = two.hunterRoom( h );
+        }
+        assertTrue( Arrays.equals( first, second ) );
+    }
+
+    private static int[][] placement( CaveGraph graph, int wumpi, int hunters, long seed )
+    {
+        GameRandom random = new GameRandom( seed );
+        int[][] placement = { new int[graph.rooms() / 10], new int[graph.rooms() / 10], new int[wumpi], new int[hunters] };
+        boolean[] taken = new boolean[graph.rooms()];
+        for ( int[] objects : placement )
+        {
+            for ( int j = 0; j < objects.length; j++ )
+            {
+                do
+                {
+                    objects[j] = random.nextInt( graph.rooms() );
+                }
+                while ( taken[objects[j]] );
+                taken[objects[j]] = true;
+            }
+        }
+        return placement;
+    }
+}
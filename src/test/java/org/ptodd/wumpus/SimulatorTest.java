@@ -0,0 +1,79 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the batch simulator.
+ */
+public class SimulatorTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public SimulatorTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( SimulatorTest.class );
+    }
+
+    public void testEveryGameIsTallied()
+    {
+        Simulator.Tally tally = Simulator.simulate( Simulator.bot( "random" ), 42L, 3 * Simulator.SLICE_GAMES + 7, 2 );
+        assertEquals( 3 * Simulator.SLICE_GAMES + 7, tally.games );
+        assertEquals( tally.games, tally.wins + tally.losses() + tally.quits );
+        assertTrue( tally.wins > 0 );
+        assertTrue( tally.pitDeaths > 0 );
+    }
+
+    public void testSameMasterSeedSameResultsOnAnyThreadCount()
+    {
+        Simulator.Tally one = Simulator.simulate( Simulator.bot( "random" ), 7L, 2 * Simulator.SLICE_GAMES + 3, 1 );
+        Simulator.Tally four = Simulator.simulate( Simulator.bot( "random" ), 7L, 2 * Simulator.SLICE_GAMES + 3, 4 );
+        assertEquals( one.wins, four.wins );
+        assertEquals( one.pitDeaths, four.pitDeaths );
+        assertEquals( one.wumpusDeaths, four.wumpusDeaths );
+        assertEquals( one.turns, four.turns );
+    }
+
+    public void testRandomBotUsesEveryTunnelOfTheCave()
+    {
+        CaveTopology torus = CaveGraph.torus( 4, 4 ).topology();
+        WumpusEngine engine = new WumpusEngine( torus, 1L );
+        RandomBot bot = new RandomBot();
+        bot.newGame( engine );
+        boolean[] chosen = new boolean[torus.rooms()];
+        for ( int j = 0; j < 200; j++ )
+        {
+            chosen[bot.chooseRoom( engine )] = true;
+        }
+        for ( int path = 0; path < torus.paths(); path++ )
+        {
+            assertTrue( chosen[torus.tunnel( engine.hunterRoom(), path )] );
+        }
+    }
+
+    public void testUnknownBotIsRejected()
+    {
+        try
+        {
+            Simulator.bot( "clairvoyant" );
+            fail( "expected an unknown bot to be rejected" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.ptodd.wumpus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the shared state cache.
+ */
+public class StateCacheTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public StateCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( StateCacheTest.class );
+    }
+
+    public void testPutAndGet()
+    {
+        StateCache cache = new StateCache( 1 << 16 );
+        assertEquals( -1L, cache.get( 42L, -1L ) );
+        cache.put( 42L, 7L );
+        cache.put( 0L, 9L );
+        cache.putDouble( 43L, 0.25 );
+        assertEquals( 7L, cache.get( 42L, -1L ) );
+        assertEquals( 9L, cache.get( 0L, -1L ) );
+        assertEquals( 0.25, cache.getDouble( 43L, -1.0 ), 0.0 );
+        assertEquals( -1.0, cache.getDouble( 44L, -1.0 ), 0.0 );
+        cache.put( 42L, 8L );
+        assertEquals( 8L, cache.get( 42L, -1L ) );
+        assertEquals( 3, cache.size() );
+        assertEquals( 4, cache.hits() );
+        assertEquals( 2, cache.misses() );
+        cache.put( StateCache.EMPTY, 1L );
+        assertEquals( -1L, cache.get( StateCache.EMPTY, -1L ) );
+        cache.clear();
+        assertEquals( 0, cache.size() );
+        assertEquals( -1L, cache.get( 42L, -1L ) );
+    }
+
+    public void testStaysWithinItsCapAndKeepsWhatIsRead()
+    {
+        StateCache cache = new StateCache( 1 << 16 );
+        int capacity = cache.capacity();
+        assertTrue( (long) capacity * StateCache.SLOT_BYTES <= 1 << 16 );
+        for ( long key = 0; key < 64; key++ )
+        {
+            cache.put( key, key * 3 );
+        }
+        for ( long key = 1000; key < 1000 + 20 * capacity; key++ )
+        {
+            if ( key % 97 < 64 )
+            {
+                cache.get( key % 97, -1L );
+            }
+            cache.put( key, key * 3 );
+            assertTrue( cache.size() <= capacity );
+        }
+        assertEquals( 64 + 20 * capacity - cache.size(), cache.evictions() );
+        int kept = 0;
+        for ( long key = 0; key < 64; key++ )
+        {
+            kept += ( cache.get( key, -1L ) == key * 3 ) ? 1 : 0;
+        }
+        assertTrue( "kept " + kept, kept > 48 );
+        long found = 0;
+        for ( long key = 1000; key < 1000 + 20 * capacity; key++ )
+        {
+            long value = cache.get( key, -1L );
+            assertTrue( value == -1L || value == key * 3 );
+            found += ( value == -1L ) ? 0 : 1;
+        }
+        assertEquals( cache.size() - kept, found );
+    }
+
+    public void testThreadsNeverSeeAnotherKeysValue()
+        throws InterruptedException
+    {
+        final StateCache cache = new StateCache( 1 << 14 );
+        final AtomicLong wrong = new AtomicLong();
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int t = 0; t < 4; t++ )
+        {
+            final long seed = t;
+            Thread thread = new Thread( new Runnable()
+            {
+                public void run()
+                {
+                    GameRandom random = new GameRandom( seed );
+                    for ( int j = 0; j < 200000; j++ )
+                    {
+                        long key = random.nextInt( 4096 );
+                        long value = cache.get( key, -1L );
+                        if ( value != -1L && value != GameRandom.mix( key ) )
+                        {
+                            wrong.incrementAndGet();
+                        }
+                        cache.put( key, GameRandom.mix( key ) );
+                    }
+                }
+            } );
+            threads.add( thread );
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        assertEquals( 0, wrong.get() );
+        assertEquals( 800000, cache.hits() + cache.misses() );
+        assertTrue( cache.evictions() > 0 );
+    }
+}
@@ -0,0 +1,265 @@
+package org.ptodd.wumpus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the full information tablebase.
+ */
+public class TablebaseTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public TablebaseTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( TablebaseTest.class );
+    }
+
+    /**
+     * A bot playing the best action of one solved layout
+     */
+    private static final class BlockBot
+        implements WumpusBot
+    {
+        private final int[] block;
+        private int action;
+
+        BlockBot( int[] block )
+        {
+            this.block = block;
+        }
+
+        public void newGame( WumpusEngine engine )
+        {
+        }
+
+        public int chooseAction( WumpusEngine engine )
+        {
+            int rooms = engine.topology().rooms();
+            int state = engine.hunterRoom() * rooms + engine.locationOf( Wumpus.WUMPUS );
+            action = Tablebase.action( block[state * Wumpus.MAX_ARROWS + engine.arrows() - 1] );
+            if ( action >= Tablebase.SHOOT )
+            {
+                return Wumpus.ACTION_SHOOT;
+            }
+            return ( action == Tablebase.NONE ) ? Wumpus.ACTION_QUIT : Wumpus.ACTION_MOVE;
+        }
+
+        public int chooseRoom( WumpusEngine engine )
+        {
+            return engine.topology().tunnel( engine.hunterRoom(), action - Tablebase.MOVE );
+        }
+
+        public int choosePath( WumpusEngine engine, int[] path )
+        {
+            return Tablebase.path( engine.topology(), engine.hunterRoom(), engine.locationOf( Wumpus.WUMPUS ), action, path );
+        }
+    }
+
+    public void testLayoutsAreNumberedDensely()
+    {
+        int rooms = 8;
+        Set<Integer> seen = new HashSet<Integer>();
+        for ( int pit2 = 0; pit2 < rooms; pit2++ )
+        {
+            for ( int pit1 = 0; pit1 < pit2; pit1++ )
+            {
+                for ( int bats2 = 0; bats2 < rooms; bats2++ )
+                {
+                    for ( int bats1 = 0; bats1 < bats2; bats1++ )
+                    {
+                        if ( bats1 != pit1 && bats1 != pit2 && bats2 != pit1 && bats2 != pit2 )
+                        {
+                            int layout = Tablebase.layout( rooms, pit1, pit2, bats1, bats2 );
+                            assertEquals( layout, Tablebase.layout( rooms, pit2, pit1, bats2, bats1 ) );
+                            assertTrue( layout >= 0 && layout < Tablebase.layouts( rooms ) );
+                            assertTrue( seen.add( layout ) );
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals( Tablebase.layouts( rooms ), seen.size() );
+    }
+
+    public void testClassicCaveIsAlwaysWonWithAnArrow()
+        throws IOException
+    {
+        File file = File.createTempFile( "wumpus", ".tb" );
+        file.deleteOnExit();
+        assertEquals( 1, Tablebase.generate( CaveTopology.CLASSIC, file.toPath(), 2 ) );
+        Tablebase tablebase = Tablebase.open( file.toPath(), CaveTopology.CLASSIC );
+        assertEquals( 190 * 153, tablebase.layouts() );
+        int[] placement = { 3, 17, 0, 1, 2, 4 };
+        for ( int arrows = 1; arrows <= Wumpus.MAX_ARROWS; arrows++ )
+        {
+            int entry = tablebase.entry( placement, arrows );
+            assertEquals( Tablebase.SHOOT, Tablebase.action( entry ) );
+            assertEquals( 1.0, Tablebase.value( entry ), 0.0 );
+        }
+        Simulator.Tally tally = Simulator.simulate( Simulator.bot( "tablebase:" + file ), 5L, 2000, 2 );
+        assertEquals( tally.games, tally.wins );
+    }
+
+    public void testOpenRefusesAnotherCave()
+        throws IOException
+    {
+        File file = File.createTempFile( "wumpus", ".tb" );
+        file.deleteOnExit();
+        Tablebase.generate( CaveTopology.CLASSIC, file.toPath(), 1 );
+        try
+        {
+            Tablebase.open( file.toPath(), CaveGraph.mobius( 10 ).topology() );
+            fail( "opened a tablebase of another cave" );
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage().contains( "not a tablebase" ) );
+        }
+    }
+
+    public void testOpenRefusesATruncatedFile()
+        throws IOException
+    {
+        File file = File.createTempFile( "wumpus", ".tb" );
+        file.deleteOnExit();
+        Tablebase.generate( CaveTopology.CLASSIC, file.toPath(), 1 );
+        for ( long length : new long[] { 12, file.length() - 4 } )
+        {
+            try ( RandomAccessFile cut = new RandomAccessFile( file, "rw" ) )
+            {
+                cut.setLength( length );
+            }
+            try
+            {
+                Tablebase.open( file.toPath(), CaveTopology.CLASSIC );
+                fail( "opened a tablebase of " + length + " bytes" );
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+        }
+    }
+
+    public void testGenerateRefusesATinyCave()
+        throws IOException
+    {
+        File file = File.createTempFile( "wumpus", ".tb" );
+        file.deleteOnExit();
+        try
+        {
+            Tablebase.generate( CaveGraph.of( new int[][] { { 1, 2 }, { 0, 2 }, { 0, 1 } } ).topology(), file.toPath(), 1 );
+            fail( "generated a tablebase of three rooms" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertTrue( e.getMessage().contains( "3 rooms" ) );
+        }
+    }
+
+    public void testSymmetricLayoutsMatchTheirOwnSolution()
+        throws IOException
+    {
+        CaveTopology topology = CaveGraph.mobius( 11 ).topology();
+        int rooms = topology.rooms();
+        File file = File.createTempFile( "wumpus", ".tb" );
+        file.deleteOnExit();
+        Tablebase.generate( topology, file.toPath(), 2 );
+        Tablebase tablebase = Tablebase.open( file.toPath(), topology );
+        Tablebase.Solver solver = new Tablebase.Solver( topology );
+        GameRandom random = new GameRandom( 17L );
+        for ( int j = 0; j < 200; j++ )
+        {
+            int[] placement = new int[Wumpus.NUM_OF_OBJECTS];
+            long used = 0L;
+            for ( int k = 0; k < placement.length; k++ )
+            {
+                do
+                {
+                    placement[k] = random.nextInt( rooms );
+                }
+                while ( ( used & ( 1L << placement[k] ) ) != 0 );
+                used |= 1L << placement[k];
+            }
+            int arrows = 1 + random.nextInt( Wumpus.MAX_ARROWS );
+            int[] block = solver.solve( placement[Wumpus.PIT1], placement[Wumpus.PIT2],
+                                        placement[Wumpus.BATS1], placement[Wumpus.BATS2] );
+            int expected = block[( placement[Wumpus.HUNTER] * rooms + placement[Wumpus.WUMPUS] ) * Wumpus.MAX_ARROWS + arrows - 1];
+            int entry = tablebase.entry( placement, arrows );
+            assertEquals( Tablebase.value( expected ), Tablebase.value( entry ), 1e-7 );
+            if ( Tablebase.action( expected ) >= Tablebase.SHOOT )
+            {
+                assertEquals( Tablebase.action( expected ), Tablebase.action( entry ) );
+            }
+            else
+            {
+                int tunnel = Tablebase.action( entry ) - Tablebase.MOVE;
+                assertTrue( tunnel >= 0 && tunnel < topology.paths() );
+            }
+        }
+    }
+
+    public void testValuesMatchPlayOnAWideCave()
+    {
+        CaveTopology topology = CaveGraph.mobius( 16 ).topology();
+        int rooms = topology.rooms();
+        int[] block = new Tablebase.Solver( topology ).solve( 1, 31, 15, 17 );
+
+        // the hardest live state with every arrow, hunter far from the wumpus
+
+        int hunter = -1;
+        int wumpus = -1;
+        double worst = 2.0;
+        for ( int h = 0; h < rooms; h++ )
+        {
+            for ( int w = 0; w < rooms; w++ )
+            {
+                double value = Tablebase.value( block[( h * rooms + w ) * Wumpus.MAX_ARROWS + Wumpus.MAX_ARROWS - 1] );
+                if ( h != w && h != 1 && h != 31 && h != 15 && h != 17 && value > 0.0 && value < worst )
+                {
+                    worst = value;
+                    hunter = h;
+                    wumpus = w;
+                }
+            }
+        }
+        assertTrue( worst < 0.99 );
+
+        int games = 20000;
+        int wins = 0;
+        WumpusEngine engine = new WumpusEngine( topology, 11L );
+        BlockBot bot = new BlockBot( block );
+        int[] path = new int[Wumpus.MAX_ARROW_RANGE];
+        for ( int game = 0; game < games; game++ )
+        {
+            engine.setup( new int[] { hunter, wumpus, 1, 31, 15, 17 } );
+            Simulator.play( engine, bot, path );
+            if ( engine.status() == Wumpus.WUMPUS_DEAD )
+            {
+                wins++;
+            }
+        }
+        double sigma = Math.sqrt( worst * ( 1 - worst ) / games );
+        assertEquals( worst, (double) wins / games, 4 * sigma );
+    }
+}
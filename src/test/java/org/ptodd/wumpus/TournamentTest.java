@@ -0,0 +1,119 @@
+package org.ptodd.wumpus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the bot tournament.
+ */
+public class TournamentTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public TournamentTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( TournamentTest.class );
+    }
+
+    /**
+     * A bot that gives up before its first move
+     */
+    private static final class Quitter
+        extends RandomBot
+    {
+        @Override
+        public int chooseAction( WumpusEngine engine )
+        {
+            return Wumpus.ACTION_QUIT;
+        }
+    }
+
+    public void testQuantileMatchesNormalTables()
+    {
+        assertEquals( 0.0, Tournament.quantile( 0.5 ), 1e-9 );
+        assertEquals( 1.959964, Tournament.quantile( 0.975 ), 1e-6 );
+        assertEquals( -2.575829, Tournament.quantile( 0.005 ), 1e-6 );
+        assertEquals( 3.290527, Tournament.quantile( 0.9995 ), 1e-6 );
+    }
+
+    public void testDifferentBotsSeparateAfterOneRound()
+    {
+        List<Supplier<WumpusBot>> bots = Arrays.<Supplier<WumpusBot>>asList( Quitter::new, RandomBot::new );
+        Tournament tournament = new Tournament( new String[] { "quitter", "random" }, bots, 42L, 0.99 );
+        assertTrue( tournament.run( 10 * Tournament.ROUND_GAMES, 2 ) );
+        assertEquals( Tournament.ROUND_GAMES, tournament.games() );
+        assertEquals( 1, tournament.ranking()[0] );
+        assertEquals( 0, tournament.wins( 0 ) );
+        assertTrue( tournament.separated() );
+    }
+
+    public void testMoreLooksWidenTheStopRule()
+    {
+        List<Supplier<WumpusBot>> bots = Arrays.<Supplier<WumpusBot>>asList( Quitter::new, RandomBot::new );
+        Tournament oneRound = new Tournament( new String[] { "quitter", "random" }, bots, 42L, 0.99 );
+        Tournament hundredRounds = new Tournament( new String[] { "quitter", "random" }, bots, 42L, 0.99 );
+        oneRound.run( Tournament.ROUND_GAMES, 1 );
+        hundredRounds.run( 100 * Tournament.ROUND_GAMES, 1 );
+        assertEquals( oneRound.games(), hundredRounds.games() );
+        assertTrue( hundredRounds.margin( 1, 0 )[1] > oneRound.margin( 1, 0 )[1] );
+        assertEquals( oneRound.interval( 1 )[0], hundredRounds.interval( 1 )[0], 0.0 );
+    }
+
+    public void testIdenticalBotsRunEverySetupAndTie()
+    {
+        Tournament tournament = new Tournament( new String[] { "random", "random" }, 42L, 0.99 );
+        assertFalse( tournament.run( 2 * Tournament.ROUND_GAMES + 17, 2 ) );
+        assertEquals( 2 * Tournament.ROUND_GAMES + 17, tournament.games() );
+        assertEquals( tournament.wins( 0 ), tournament.wins( 1 ) );
+        assertEquals( 0.0, tournament.margin( 0, 1 )[0], 0.0 );
+    }
+
+    public void testStandingsDoNotDependOnThreads()
+    {
+        String[] names = { "random", "random" };
+        Tournament one = new Tournament( names, 7L, 0.99 );
+        Tournament four = new Tournament( names, 7L, 0.99 );
+        one.run( Tournament.ROUND_GAMES + 3, 1 );
+        four.run( Tournament.ROUND_GAMES + 3, 4 );
+        assertEquals( one.wins( 0 ), four.wins( 0 ) );
+        assertEquals( Simulator.simulate( Simulator.bot( "random" ), 7L, Tournament.ROUND_GAMES + 3, 1 ).wins, one.wins( 0 ) );
+    }
+
+    public void testExpectimaxStandingsDoNotDependOnThreads()
+    {
+        String[] names = { "expectimax", "random" };
+        Tournament one = new Tournament( names, 9L, 0.99 );
+        Tournament three = new Tournament( names, 9L, 0.99 );
+        one.run( 2 * Tournament.SLICE_GAMES + 5, 1 );
+        three.run( 2 * Tournament.SLICE_GAMES + 5, 3 );
+        assertEquals( one.wins( 0 ), three.wins( 0 ) );
+        assertEquals( one.wins( 1 ), three.wins( 1 ) );
+    }
+
+    public void testWilsonIntervalHoldsTheWinRate()
+    {
+        Tournament tournament = new Tournament( new String[] { "random" }, 3L, 0.95 );
+        tournament.run( Tournament.ROUND_GAMES, 1 );
+        double[] interval = tournament.interval( 0 );
+        assertTrue( interval[0] < tournament.winRate( 0 ) );
+        assertTrue( tournament.winRate( 0 ) < interval[1] );
+        assertTrue( interval[1] - interval[0] < 0.07 );
+    }
+}
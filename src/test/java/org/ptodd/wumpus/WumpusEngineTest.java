@@ -0,0 +1,142 @@
+package org.ptodd.wumpus;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the headless game engine.
+ */
+public class WumpusEngineTest
+    extends TestCase
+{
+    // hunter in room 1, wumpus in 8, pits in 2 and 20, bats in 12 and 15
+    // (zero based: hunter 0, wumpus 7, pits 1 and 19, bats 11 and 14)
+
+    private static final int[] PLACEMENT = { 0, 7, 1, 19, 11, 14 };
+
+    private WumpusEngine engine;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public WumpusEngineTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( WumpusEngineTest.class );
+    }
+
+    protected void setUp()
+    {
+        engine = new WumpusEngine( CaveTopology.CLASSIC );
+        engine.setup( PLACEMENT );
+    }
+
+    public void testSetupPlacesEachObjectInItsOwnRoom()
+    {
+        for ( int game = 0; game < 1000; game++ )
+        {
+            engine.setup();
+            int used = 0;
+            for ( int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++ )
+            {
+                used |= 1 << engine.locationOf( j );
+            }
+            assertEquals( Wumpus.NUM_OF_OBJECTS, Integer.bitCount( used ) );
+            assertEquals( Wumpus.MAX_ARROWS, engine.arrows() );
+            assertEquals( Wumpus.CONTINUE, engine.status() );
+        }
+    }
+
+    public void testSameSeedSameGame()
+    {
+        WumpusEngine other = new WumpusEngine( CaveTopology.CLASSIC );
+        engine.setup( 1234L );
+        other.setup( 1234L );
+        for ( int j = 0; j < Wumpus.NUM_OF_OBJECTS; j++ )
+        {
+            assertEquals( engine.locationOf( j ), other.locationOf( j ) );
+        }
+        int[] path = { CaveTopology.CLASSIC.tunnel( engine.hunterRoom(), 0 ), CaveTopology.CLASSIC.tunnel( engine.hunterRoom(), 1 ) };
+        engine.shoot( path, 2 );
+        other.shoot( path, 2 );
+        assertEquals( engine.status(), other.status() );
+        assertEquals( engine.locationOf( Wumpus.WUMPUS ), other.locationOf( Wumpus.WUMPUS ) );
+        assertEquals( engine.eventCount(), other.eventCount() );
+    }
+
+    public void testSensesAdjacentObjects()
+    {
+        assertEquals( (1 << Wumpus.WUMPUS) | (1 << Wumpus.PIT1), engine.senses() );
+    }
+
+    public void testMoveWithoutTunnelStaysPut()
+    {
+        assertEquals( Wumpus.CONTINUE, engine.move( 2 ) );
+        assertEquals( 0, engine.hunterRoom() );
+        assertEquals( 1, engine.eventCount() );
+        assertEquals( WumpusEngine.EVENT_NO_TUNNEL, engine.event( 0 ) );
+    }
+
+    public void testMoveIntoPit()
+    {
+        assertEquals( Wumpus.HUNTER_DEAD, engine.move( 1 ) );
+        assertEquals( WumpusEngine.CAUSE_PIT, engine.cause() );
+        assertEquals( WumpusEngine.EVENT_PIT_FALL, engine.event( 0 ) );
+    }
+
+    public void testShootAdjacentWumpus()
+    {
+        assertEquals( Wumpus.WUMPUS_DEAD, engine.shoot( new int[] { 7 }, 1 ) );
+        assertEquals( Wumpus.MAX_ARROWS - 1, engine.arrows() );
+        assertEquals( WumpusEngine.EVENT_ARROW_HIT_WUMPUS, engine.event( 0 ) );
+    }
+
+    public void testMissWakesWumpus()
+    {
+        int status = engine.shoot( new int[] { 4, 5 }, 2 );
+        assertEquals( WumpusEngine.EVENT_ARROW_MISSED, engine.event( 0 ) );
+        assertEquals( WumpusEngine.EVENT_WUMPUS_AWAKE, engine.event( 1 ) );
+        if ( engine.locationOf( Wumpus.WUMPUS ) == 0 )
+        {
+            assertEquals( Wumpus.HUNTER_DEAD, status );
+            assertEquals( WumpusEngine.CAUSE_WUMPUS, engine.cause() );
+        }
+        else
+        {
+            assertEquals( Wumpus.CONTINUE, status );
+        }
+    }
+
+    public void testShootWithoutArrows()
+    {
+        for ( int j = 0; j < Wumpus.MAX_ARROWS && engine.status() == Wumpus.CONTINUE; j++ )
+        {
+            engine.shoot( new int[] { 4, 5 }, 2 );
+        }
+        if ( engine.status() == Wumpus.CONTINUE )
+        {
+            assertEquals( Wumpus.CONTINUE, engine.shoot( new int[] { 4 }, 1 ) );
+            assertEquals( WumpusEngine.EVENT_NO_ARROWS, engine.event( 0 ) );
+        }
+    }
+
+    public void testRestartRestoresSetup()
+    {
+        engine.move( 4 );
+        engine.quit();
+        assertEquals( Wumpus.QUIT, engine.status() );
+        engine.restart();
+        assertEquals( 0, engine.hunterRoom() );
+        assertEquals( Wumpus.CONTINUE, engine.status() );
+    }
+}